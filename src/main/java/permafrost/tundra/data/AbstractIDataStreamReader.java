@@ -0,0 +1,267 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Implements the convenience methods in the IDataStreamReader interface, leaving subclasses to implement only the
+ * production of events.
+ */
+public abstract class AbstractIDataStreamReader implements IDataStreamReader {
+    /**
+     * The current event.
+     */
+    protected IDataEvent event;
+    /**
+     * The key of the current KEY event.
+     */
+    protected String key;
+    /**
+     * The value of the current VALUE event.
+     */
+    protected Object value;
+    /**
+     * The component type of the current START_ARRAY event.
+     */
+    protected Class<?> componentType;
+    /**
+     * The nesting depth of the current event.
+     */
+    protected int depth;
+    /**
+     * The key of the KEY event being read.
+     */
+    protected String pendingKey;
+    /**
+     * The value of the VALUE event being read.
+     */
+    protected Object pendingValue;
+    /**
+     * The component type of the START_ARRAY event being read.
+     */
+    protected Class<?> pendingComponentType;
+    /**
+     * Whether the next event has already been read ahead by hasNext.
+     */
+    private boolean peeked;
+    /**
+     * The event read ahead by hasNext, or null if there are no more events.
+     */
+    private IDataEvent peekedEvent;
+
+    /**
+     * Reads the next event, setting the pendingKey, pendingValue, or pendingComponentType fields as appropriate for
+     * the event.
+     *
+     * @return The next event, or null if there are no more events.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected abstract IDataEvent read() throws IOException;
+
+    /**
+     * Returns true if there are more events to be read.
+     *
+     * @return True if there are more events to be read.
+     * @throws IOException If an I/O error occurs.
+     */
+    public boolean hasNext() throws IOException {
+        if (!peeked) {
+            pendingKey = null;
+            pendingValue = null;
+            pendingComponentType = null;
+            peekedEvent = read();
+            peeked = true;
+        }
+        return peekedEvent != null;
+    }
+
+    /**
+     * Advances to and returns the next event.
+     *
+     * @return The next event.
+     * @throws IOException            If an I/O error occurs.
+     * @throws NoSuchElementException If there are no more events.
+     */
+    public IDataEvent next() throws IOException {
+        if (!hasNext()) throw new NoSuchElementException("No more events");
+        peeked = false;
+        if (event == IDataEvent.START_DOCUMENT || event == IDataEvent.START_ARRAY) depth++;
+        event = peekedEvent;
+        if (event == IDataEvent.END_DOCUMENT || event == IDataEvent.END_ARRAY) depth--;
+        key = pendingKey;
+        value = pendingValue;
+        componentType = pendingComponentType;
+        return event;
+    }
+
+    /**
+     * Returns the current event, or null if next has not yet been called.
+     *
+     * @return The current event.
+     */
+    public IDataEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the key of the current KEY event.
+     *
+     * @return The key of the current KEY event, or null if the current event is not a KEY event.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the value of the current VALUE event.
+     *
+     * @return The value of the current VALUE event, or null if the current event is not a VALUE event.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the component type of the array started by the current START_ARRAY event.
+     *
+     * @return The component type of the current array, or null if not known or if the current event is not a
+     *         START_ARRAY event.
+     */
+    public Class<?> getComponentType() {
+        return componentType;
+    }
+
+    /**
+     * Returns the number of documents and arrays which enclose the current event.
+     *
+     * @return The nesting depth of the current event.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Skips the value at the current position.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void skip() throws IOException {
+        if (event == IDataEvent.KEY) next();
+
+        if (event == IDataEvent.START_DOCUMENT || event == IDataEvent.START_ARRAY) {
+            int start = depth;
+            while (true) {
+                IDataEvent next = next();
+                if ((next == IDataEvent.END_DOCUMENT || next == IDataEvent.END_ARRAY) && depth == start) break;
+            }
+        }
+    }
+
+    /**
+     * Materializes the value at the current position.
+     *
+     * @return The value at the current position.
+     * @throws IOException           If an I/O error occurs.
+     * @throws IllegalStateException If the current event does not start a value.
+     */
+    public Object readValue() throws IOException {
+        if (event == IDataEvent.KEY) next();
+
+        if (event == IDataEvent.VALUE) return getValue();
+        if (event != IDataEvent.START_DOCUMENT && event != IDataEvent.START_ARRAY) {
+            throw new IllegalStateException("Current event does not start a value: " + event);
+        }
+
+        IDataBuilder builder = new IDataBuilder();
+        int start = depth;
+        dispatch(builder);
+        while (true) {
+            IDataEvent next = next();
+            dispatch(builder);
+            if ((next == IDataEvent.END_DOCUMENT || next == IDataEvent.END_ARRAY) && depth == start) break;
+        }
+
+        return builder.getValue();
+    }
+
+    /**
+     * Materializes the document at the current position.
+     *
+     * @return The document at the current position.
+     * @throws IOException           If an I/O error occurs.
+     * @throws IllegalStateException If the current position is not the start of a document.
+     */
+    public IData readDocument() throws IOException {
+        if (event == IDataEvent.KEY) next();
+        if (event != IDataEvent.START_DOCUMENT) throw new IllegalStateException("Current event does not start a document: " + event);
+        return (IData)readValue();
+    }
+
+    /**
+     * Pushes all remaining events to the given handler.
+     *
+     * @param handler The handler to be called for each remaining event.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void accept(IDataHandler handler) throws IOException {
+        if (handler == null) throw new NullPointerException("handler must not be null");
+        while (hasNext()) {
+            next();
+            dispatch(handler);
+        }
+    }
+
+    /**
+     * Calls the appropriate method on the given handler for the current event.
+     *
+     * @param handler The handler to be called.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected void dispatch(IDataHandler handler) throws IOException {
+        switch (event) {
+            case START_DOCUMENT:
+                handler.startDocument();
+                break;
+            case END_DOCUMENT:
+                handler.endDocument();
+                break;
+            case KEY:
+                handler.key(key);
+                break;
+            case VALUE:
+                handler.value(value);
+                break;
+            case START_ARRAY:
+                handler.startArray(componentType);
+                break;
+            case END_ARRAY:
+                handler.endArray();
+                break;
+        }
+    }
+}
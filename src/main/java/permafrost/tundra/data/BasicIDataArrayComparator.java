@@ -64,6 +64,8 @@ public class BasicIDataArrayComparator implements IDataArrayComparator {
      * comparison of each item.
      */
     public int compare(IData[] array1, IData[] array2) {
+        if (array1 == array2) return 0;
+
         int result = 0;
 
         if (array1 == null || array2 == null) {
@@ -75,11 +77,12 @@ public class BasicIDataArrayComparator implements IDataArrayComparator {
         } else {
             if (array1.length < array2.length) {
                 result = -1;
-            } else if (array2.length > array1.length) {
+            } else if (array1.length > array2.length) {
                 result = 1;
             } else {
+                BasicIDataComparator comparator = BasicIDataComparator.getInstance();
                 for (int i = 0; i < array1.length; i++) {
-                    result = BasicIDataComparator.getInstance().compare(array1[i], array2[i]);
+                    result = comparator.compare(array1[i], array2[i]);
                     if (result != 0) break;
                 }
             }
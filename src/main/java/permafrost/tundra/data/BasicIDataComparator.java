@@ -62,7 +62,8 @@ public class BasicIDataComparator implements IDataComparator {
     }
 
     /**
-     * Compares two IData documents.
+     * Compares two IData documents. Documents with fewer keys come before documents with more keys, and documents
+     * with the same number of keys are ordered by the first key, or value associated with the same key, that differs.
      *
      * @param document1 The first IData document to be compared.
      * @param document2 The second IData document to be compared.
@@ -71,74 +72,115 @@ public class BasicIDataComparator implements IDataComparator {
      * comparison of all the keys and values in each document.
      */
     public int compare(IData document1, IData document2) {
-        int result = 0;
+        if (document1 == document2) return 0;
+        if (document1 == null) return -1;
+        if (document2 == null) return 1;
 
-        if (document1 == null || document2 == null) {
-            if (document1 != null) {
-                result = 1;
-            } else if (document2 != null) {
-                result = -1;
-            }
-        } else {
-            int size1 = IDataHelper.size(document1);
-            int size2 = IDataHelper.size(document2);
+        int result = 0, size1 = 0, size2 = 0;
 
-            if (size1 < size2) {
-                result = -1;
-            } else if (size2 > size1) {
-                result = 1;
-            } else {
-                // compare all keys and values in order
-                IDataCursor cursor1 = document1.getCursor();
-                IDataCursor cursor2 = document2.getCursor();
-
-                boolean next1 = cursor1.next(), next2 = cursor2.next();
-
-                while (next1 && next2) {
-                    String key1 = cursor1.getKey();
-                    String key2 = cursor2.getKey();
-
-                    result = key1.compareTo(key2);
-
-                    if (result == 0) {
-                        Object value1 = cursor1.getValue();
-                        Object value2 = cursor2.getValue();
-
-                        if (value1 == null || value2 == null) {
-                            if (value1 != null) {
-                                result = 1;
-                            } else if (value2 != null) {
-                                result = -1;
-                            }
-                        } else if ((value1 instanceof IData[] || value1 instanceof Table || value1 instanceof IDataCodable[] || value1 instanceof IDataPortable[] || value1 instanceof ValuesCodable[]) &&
-                                   (value2 instanceof IData[] || value2 instanceof Table || value2 instanceof IDataCodable[] || value2 instanceof IDataPortable[] || value2 instanceof ValuesCodable[])) {
-                            result = BasicIDataArrayComparator.getInstance().compare(IDataHelper.toIDataArray(value1), IDataHelper.toIDataArray(value2));
-                        } else if ((value1 instanceof IData || value1 instanceof IDataCodable || value1 instanceof IDataPortable || value1 instanceof ValuesCodable) &&
-                                   (value2 instanceof IData || value2 instanceof IDataCodable || value2 instanceof IDataPortable || value2 instanceof ValuesCodable)) {
-                            result = compare(IDataHelper.toIData(value1), IDataHelper.toIData(value2));
-                        } else if (value1 instanceof Object[] && value2 instanceof Object[]) {
-                            result = BasicArrayComparator.getInstance().compare((Object[])value1, (Object[])value2);
-                        } else {
-                            result = BasicObjectComparator.getInstance().compare(value1, value2);
-                        }
-                    }
-
-                    if (result != 0) {
-                        break;
-                    }
-
-                    next1 = cursor1.next();
-                    next2 = cursor2.next();
-                }
+        // compare all keys and values in order, while counting the keys in each document in the same pass
+        IDataCursor cursor1 = document1.getCursor();
+        IDataCursor cursor2 = document2.getCursor();
 
-                if (next1 && !next2) {
-                    result = 1;
-                } else if (!next1 && next2) {
-                    result = -1;
+        try {
+            boolean next1 = cursor1.next(), next2 = cursor2.next();
+
+            while (next1 && next2) {
+                size1++;
+                size2++;
+
+                if (result == 0) {
+                    result = cursor1.getKey().compareTo(cursor2.getKey());
+                    if (result == 0) result = compareValues(cursor1.getValue(), cursor2.getValue());
                 }
+
+                next1 = cursor1.next();
+                next2 = cursor2.next();
             }
+
+            while (next1) {
+                size1++;
+                next1 = cursor1.next();
+            }
+
+            while (next2) {
+                size2++;
+                next2 = cursor2.next();
+            }
+        } finally {
+            cursor1.destroy();
+            cursor2.destroy();
         }
 
+        // the number of keys takes precedence over the keys and values themselves
+        if (size1 != size2) result = size1 < size2 ? -1 : 1;
+
         return result;
     }
+
+    /**
+     * Compares two values associated with the same key. Each value is classified once, and compared using the
+     * comparator for its kind if both values are of the same kind.
+     *
+     * @param value1 The first value to be compared.
+     * @param value2 The second value to be compared.
+     * @return A value less than zero if the first value comes before the second value, a value of zero if they are
+     * equal, or a value of greater than zero if the first value comes after the second value.
+     */
+    private int compareValues(Object value1, Object value2) {
+        if (value1 == value2) return 0;
+        if (value1 == null) return -1;
+        if (value2 == null) return 1;
+
+        ValueKind kind1 = ValueKind.of(value1), kind2 = ValueKind.of(value2);
+
+        if (kind1 == kind2) {
+            switch (kind1) {
+                case DOCUMENT_LIST:
+                    return BasicIDataArrayComparator.getInstance().compare(IDataHelper.toIDataArray(value1), IDataHelper.toIDataArray(value2));
+                case DOCUMENT:
+                    return compare(IDataHelper.toIData(value1), IDataHelper.toIData(value2));
+                case ARRAY:
+                    return BasicArrayComparator.getInstance().compare((Object[])value1, (Object[])value2);
+                default:
+                    return BasicObjectComparator.getInstance().compare(value1, value2);
+            }
+        } else if (value1 instanceof Object[] && value2 instanceof Object[]) {
+            return BasicArrayComparator.getInstance().compare((Object[])value1, (Object[])value2);
+        } else {
+            return BasicObjectComparator.getInstance().compare(value1, value2);
+        }
+    }
+
+    /**
+     * The kinds of value which are compared differently.
+     */
+    private enum ValueKind {
+        DOCUMENT, DOCUMENT_LIST, ARRAY, OBJECT;
+
+        /**
+         * Returns the kind of the given non-null value.
+         *
+         * @param value The value to be classified.
+         * @return      The kind of the given value.
+         */
+        static ValueKind of(Object value) {
+            ValueKind kind;
+            if (value instanceof String) {
+                // the most common kind of value, so checked first
+                kind = OBJECT;
+            } else if (value instanceof IData) {
+                kind = DOCUMENT;
+            } else if (value instanceof Object[]) {
+                kind = value instanceof IData[] || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[] ? DOCUMENT_LIST : ARRAY;
+            } else if (value instanceof Table) {
+                kind = DOCUMENT_LIST;
+            } else if (value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable) {
+                kind = DOCUMENT;
+            } else {
+                kind = OBJECT;
+            }
+            return kind;
+        }
+    }
 }
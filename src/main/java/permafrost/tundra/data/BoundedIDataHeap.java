@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import java.util.Arrays;
+
+/**
+ * Selects the first or last documents, in the order defined by the given comparison criteria, from any number of
+ * documents added one at a time, using a heap bounded to the requested number of documents. This takes O(n log k)
+ * time and O(k) memory for n documents added and k documents selected, rather than the O(n log n) time and O(n)
+ * memory of sorting all the documents. Documents that compare equal retain the order in which they were added, so the
+ * result is identical to the corresponding slice of the array returned by CriteriaBasedIDataComparator.sort.
+ */
+class BoundedIDataHeap implements IDataStream.Collector<IData[]> {
+    /**
+     * The initial number of slots allocated, so that a large limit does not cost memory up front.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    protected int limit;
+    protected boolean last;
+    protected IDataProjection projection;
+    /**
+     * The values associated with each criterion's key for the document in each slot.
+     */
+    protected ComparisonKeyColumn[] columns;
+    /**
+     * The document in each slot.
+     */
+    protected IData[] documents;
+    /**
+     * The order in which the document in each slot was added.
+     */
+    protected long[] sequences;
+    /**
+     * The slots currently in the heap, where the root is the slot whose document would be evicted next.
+     */
+    protected int[] heap;
+    protected int size;
+    /**
+     * The slot not in the heap, used for the next document added once the heap is full.
+     */
+    protected int spare;
+    protected long count;
+
+    /**
+     * Constructs a new bounded heap.
+     *
+     * @param limit    The maximum number of documents to select.
+     * @param last     If true, the last documents in order are selected, otherwise the first documents are selected.
+     * @param criteria The comparison criteria defining the order, where no criteria means the order documents are
+     *                 added in.
+     */
+    BoundedIDataHeap(int limit, boolean last, IDataComparisonCriterion... criteria) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+
+        if (criteria == null) criteria = new IDataComparisonCriterion[0];
+
+        this.limit = limit;
+        this.last = last;
+
+        if (criteria.length > 0) {
+            String[] keys = new String[criteria.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = criteria[i].getKey();
+            }
+            this.projection = IDataProjection.of(keys);
+        }
+
+        int capacity = limit < INITIAL_CAPACITY ? limit + 1 : INITIAL_CAPACITY;
+        this.columns = new ComparisonKeyColumn[criteria.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ComparisonKeyColumn(criteria[i], capacity);
+        }
+        this.documents = new IData[capacity];
+        this.sequences = new long[capacity];
+        this.heap = new int[capacity];
+    }
+
+    /**
+     * Adds the given document, which is retained only if it is one of the documents to be selected so far.
+     *
+     * @param document The document to be added.
+     */
+    public void add(IData document) {
+        if (limit == 0) return;
+
+        int slot;
+        if (size < limit) {
+            if (size == documents.length) grow();
+            slot = size;
+        } else {
+            slot = spare;
+        }
+
+        documents[slot] = document;
+        sequences[slot] = count++;
+        if (projection != null) {
+            Object[] values = projection.get(document);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].set(slot, values[i]);
+            }
+        }
+
+        if (size < limit) {
+            heap[size] = slot;
+            siftUp(size++);
+            if (size == limit) {
+                if (size == documents.length) grow();
+                spare = size;
+            }
+        } else if (evictsBefore(heap[0], slot)) {
+            spare = heap[0];
+            documents[spare] = null;
+            heap[0] = slot;
+            siftDown(0);
+        } else {
+            documents[slot] = null;
+        }
+    }
+
+    /**
+     * Returns the selected documents in order. The heap is emptied, and must not be used afterwards.
+     *
+     * @return The selected documents in order.
+     */
+    public IData[] getResult() {
+        IData[] output = new IData[size];
+        for (int i = 0, length = size; i < length; i++) {
+            // the root is the greatest slot when selecting the first documents, and the least when selecting the last
+            output[last ? i : length - 1 - i] = documents[heap[0]];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return output;
+    }
+
+    /**
+     * Adds each document in the given array and returns the selected documents in order.
+     *
+     * @param array The documents to select from.
+     * @return      The selected documents in order.
+     */
+    IData[] select(IData[] array) {
+        if (array != null) {
+            for (IData document : array) {
+                add(document);
+            }
+        }
+        return getResult();
+    }
+
+    /**
+     * Compares the documents in the given slots by the comparison criteria, and then by the order they were added.
+     *
+     * @param first  The first slot.
+     * @param second The second slot.
+     * @return       The comparison result.
+     */
+    private int compare(int first, int second) {
+        int result = 0;
+        for (int i = 0; i < columns.length && result == 0; i++) {
+            result = columns[i].compare(first, second);
+        }
+        if (result == 0) {
+            result = sequences[first] < sequences[second] ? -1 : (sequences[first] == sequences[second] ? 0 : 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the document in the first slot would be evicted before the document in the second slot.
+     *
+     * @param first  The first slot.
+     * @param second The second slot.
+     * @return       True if the document in the first slot would be evicted before the document in the second slot.
+     */
+    private boolean evictsBefore(int first, int second) {
+        int result = compare(first, second);
+        return last ? result < 0 : result > 0;
+    }
+
+    /**
+     * Moves the slot at the given heap position up until its parent would be evicted before it.
+     *
+     * @param position The heap position.
+     */
+    private void siftUp(int position) {
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!evictsBefore(slot, heap[parent])) break;
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = slot;
+    }
+
+    /**
+     * Moves the slot at the given heap position down until it would be evicted before both its children.
+     *
+     * @param position The heap position.
+     */
+    private void siftDown(int position) {
+        if (size == 0) return;
+        int slot = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && evictsBefore(heap[child + 1], heap[child])) child++;
+            if (!evictsBefore(heap[child], slot)) break;
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = slot;
+    }
+
+    /**
+     * Doubles the number of slots, up to one more than the limit to allow for the spare slot.
+     */
+    private void grow() {
+        int capacity = (int)Math.min((long)documents.length * 2, (long)limit + 1);
+        for (ComparisonKeyColumn column : columns) {
+            column.resize(capacity);
+        }
+        documents = Arrays.copyOf(documents, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import permafrost.tundra.math.BigDecimalHelper;
+import permafrost.tundra.math.BigIntegerHelper;
+import permafrost.tundra.time.DateTimeHelper;
+import permafrost.tundra.time.DurationHelper;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Holds the values associated with one comparison criterion's key for a list of documents, converted to the
+ * criterion's type at most once, when first compared. INTEGER and DURATION values are stored as longs, DATETIME
+ * values as epoch milliseconds, and DECIMAL values as a long unscaled value and int scale, in primitive arrays, so
+ * that comparing them allocates nothing. Values that do not fit in a long fall back to BigInteger or BigDecimal. The
+ * resulting order is identical to comparing the values converted by CriteriaBasedIDataComparator.convert.
+ *
+ * Each slot is only ever converted by the thread comparing it, so distinct ranges of slots can be compared
+ * concurrently.
+ */
+class ComparisonKeyColumn {
+    /**
+     * The states a slot can be in.
+     */
+    private static final byte UNCONVERTED = 0, NULL = 1, PRIMITIVE = 2, OBJECT = 3;
+    /**
+     * Powers of ten which fit in a long, used to rescale decimals.
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    protected IDataComparisonType type;
+    protected String pattern;
+    protected boolean descending;
+    /**
+     * The raw values, replaced by the converted value for slots in the OBJECT state.
+     */
+    protected Object[] values;
+    /**
+     * The converted value for slots in the PRIMITIVE state: the integer, milliseconds, or decimal unscaled value.
+     */
+    protected long[] longs;
+    /**
+     * The decimal scale for DECIMAL slots in the PRIMITIVE state.
+     */
+    protected int[] scales;
+    protected byte[] states;
+
+    /**
+     * Constructs a new column.
+     *
+     * @param criterion The criterion whose type determines how values are converted and compared.
+     * @param size      The number of slots.
+     */
+    ComparisonKeyColumn(IDataComparisonCriterion criterion, int size) {
+        this.type = criterion.getType();
+        this.pattern = criterion.getPattern();
+        this.descending = criterion.isDescending();
+        this.values = new Object[size];
+        this.states = new byte[size];
+        if (hasPrimitiveForm(type)) this.longs = new long[size];
+        if (type == IDataComparisonType.DECIMAL) this.scales = new int[size];
+        Arrays.fill(states, NULL);
+    }
+
+    /**
+     * Returns the number of slots in this column.
+     *
+     * @return The number of slots in this column.
+     */
+    int size() {
+        return states.length;
+    }
+
+    /**
+     * Sets the raw value of the given slot, to be converted when first compared.
+     *
+     * @param index The slot.
+     * @param value The raw value.
+     */
+    void set(int index, Object value) {
+        values[index] = value;
+        states[index] = value == null ? NULL : UNCONVERTED;
+    }
+
+    /**
+     * Resizes this column to the given number of slots, preserving the slots that remain.
+     *
+     * @param size The new number of slots.
+     */
+    void resize(int size) {
+        int length = states.length;
+        values = Arrays.copyOf(values, size);
+        states = Arrays.copyOf(states, size);
+        if (longs != null) longs = Arrays.copyOf(longs, size);
+        if (scales != null) scales = Arrays.copyOf(scales, size);
+        if (size > length) Arrays.fill(states, length, size, NULL);
+    }
+
+    /**
+     * Returns true if the raw value of the given slot is null.
+     *
+     * @param index The slot.
+     * @return      True if the raw value of the given slot is null.
+     */
+    boolean isNull(int index) {
+        return states[index] == NULL;
+    }
+
+    /**
+     * Compares the values in the given slots, using the same rules as CriteriaBasedIDataComparator: null raw values
+     * come first, and the result is reversed if the criterion is descending.
+     *
+     * @param first  The first slot.
+     * @param second The second slot.
+     * @return       The comparison result.
+     */
+    int compare(int first, int second) {
+        int result = 0;
+
+        if (isNull(first)) {
+            if (!isNull(second)) result = CriteriaBasedIDataComparator.normalize(-1, descending);
+        } else if (isNull(second)) {
+            result = CriteriaBasedIDataComparator.normalize(1, descending);
+        } else {
+            convert(first);
+            convert(second);
+
+            if (states[first] == PRIMITIVE && states[second] == PRIMITIVE) {
+                if (scales == null) {
+                    result = CriteriaBasedIDataComparator.normalize(compare(longs[first], longs[second]), descending);
+                } else {
+                    result = CriteriaBasedIDataComparator.normalize(compareDecimals(first, second), descending);
+                }
+            } else {
+                result = CriteriaBasedIDataComparator.compare(toObject(first), toObject(second), descending);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts the raw value in the given slot to the criterion's type, if not already converted.
+     *
+     * @param index The slot to be converted.
+     */
+    private void convert(int index) {
+        if (states[index] != UNCONVERTED) return;
+
+        Object value = values[index];
+        switch (type) {
+            case INTEGER:
+                value = parseInteger(value.toString(), index);
+                break;
+            case DURATION:
+                value = parseInteger(DurationHelper.format(value.toString(), pattern, "milliseconds"), index);
+                break;
+            case DECIMAL:
+                BigDecimal decimal = BigDecimalHelper.parse(value.toString());
+                if (decimal != null && decimal.unscaledValue().bitLength() < 64) {
+                    longs[index] = decimal.unscaledValue().longValue();
+                    scales[index] = decimal.scale();
+                    value = null;
+                    states[index] = PRIMITIVE;
+                } else {
+                    value = decimal;
+                }
+                break;
+            case DATETIME:
+                Calendar calendar = DateTimeHelper.parse(value.toString(), pattern);
+                if (calendar != null) {
+                    longs[index] = calendar.getTimeInMillis();
+                    value = null;
+                    states[index] = PRIMITIVE;
+                } else {
+                    value = null;
+                }
+                break;
+            default:
+                value = CriteriaBasedIDataComparator.convert(value, type, pattern);
+                break;
+        }
+
+        values[index] = value;
+        if (states[index] != PRIMITIVE) states[index] = OBJECT;
+    }
+
+    /**
+     * Parses the given integer string into the given slot as a long if it fits, otherwise returns it as a BigInteger.
+     *
+     * @param string The integer string to be parsed.
+     * @param index  The slot to store a long value in.
+     * @return       Null if the value was stored as a long, otherwise the value as a BigInteger.
+     */
+    private Object parseInteger(String string, int index) {
+        if (string != null) {
+            try {
+                longs[index] = Long.parseLong(string);
+                states[index] = PRIMITIVE;
+                return null;
+            } catch (NumberFormatException ex) {
+                // fall back to BigInteger, which either handles the overflow or throws the usual exception
+            }
+        }
+        return BigIntegerHelper.parse(string);
+    }
+
+    /**
+     * Returns the converted value of the given slot as an object, for comparison with a value that did not fit in
+     * a primitive.
+     *
+     * @param index The slot.
+     * @return      The converted value as an object.
+     */
+    private Object toObject(int index) {
+        if (states[index] != PRIMITIVE) return values[index];
+
+        Object value;
+        switch (type) {
+            case DECIMAL:
+                value = BigDecimal.valueOf(longs[index], scales[index]);
+                break;
+            case DATETIME:
+                Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                calendar.setTimeInMillis(longs[index]);
+                value = calendar;
+                break;
+            default:
+                value = BigInteger.valueOf(longs[index]);
+                break;
+        }
+        return value;
+    }
+
+    /**
+     * Compares the decimals in the given slots, rescaling the one with the smaller scale when the result fits in a
+     * long, and otherwise falling back to BigDecimal.
+     *
+     * @param first  The first slot.
+     * @param second The second slot.
+     * @return       The comparison result.
+     */
+    private int compareDecimals(int first, int second) {
+        long firstValue = longs[first], secondValue = longs[second];
+        int firstScale = scales[first], secondScale = scales[second];
+
+        if (firstScale == secondScale) return compare(firstValue, secondValue);
+
+        if (firstScale < secondScale) {
+            long rescaled = rescale(firstValue, secondScale - firstScale);
+            if (rescaled != Long.MIN_VALUE) return compare(rescaled, secondValue);
+        } else {
+            long rescaled = rescale(secondValue, firstScale - secondScale);
+            if (rescaled != Long.MIN_VALUE) return compare(firstValue, rescaled);
+        }
+
+        return BigDecimal.valueOf(firstValue, firstScale).compareTo(BigDecimal.valueOf(secondValue, secondScale));
+    }
+
+    /**
+     * Multiplies the given value by ten to the power of the given exponent.
+     *
+     * @param value    The value to be rescaled.
+     * @param exponent The power of ten to multiply by.
+     * @return         The rescaled value, or Long.MIN_VALUE if it does not fit in a long.
+     */
+    private static long rescale(long value, int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) return value == 0 ? 0 : Long.MIN_VALUE;
+        long limit = Long.MAX_VALUE / POWERS_OF_TEN[exponent];
+        if (value > limit || value < -limit) return Long.MIN_VALUE;
+        long multiplier = POWERS_OF_TEN[exponent];
+        return value * multiplier;
+    }
+
+    /**
+     * Compares two longs.
+     *
+     * @param first  The first long.
+     * @param second The second long.
+     * @return       The comparison result.
+     */
+    private static int compare(long first, long second) {
+        return first < second ? -1 : (first == second ? 0 : 1);
+    }
+
+    /**
+     * Returns true if values of the given type may be stored in primitive form.
+     *
+     * @param type The comparison type.
+     * @return     True if values of the given type may be stored in primitive form.
+     */
+    private static boolean hasPrimitiveForm(IDataComparisonType type) {
+        return type == IDataComparisonType.INTEGER || type == IDataComparisonType.DECIMAL || type == IDataComparisonType.DATETIME || type == IDataComparisonType.DURATION;
+    }
+}
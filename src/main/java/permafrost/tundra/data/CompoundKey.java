@@ -0,0 +1,220 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Represents a compound key which can be used for grouping IData documents together. Values that implement
+ * Comparable are matched by equality, and all other values are matched by identity. BigDecimal and Calendar values
+ * are matched by their natural ordering instead, as the grouping they replaced did, so that 1.0 matches 1.00 and a
+ * Calendar matches another at the same instant in a different time zone. The hash code is computed once when the
+ * values are set.
+ */
+class CompoundKey implements Comparable<CompoundKey> {
+    protected String[] keys;
+    protected Object[] values;
+    protected int hashCode;
+
+    /**
+     * Constructs a new compound key.
+     *
+     * @param keys   The keys which together form this compound key.
+     * @param values The values associated with the given keys, in the same order as the keys.
+     */
+    public CompoundKey(String[] keys, Object[] values) {
+        this.keys = keys;
+        reset(values);
+    }
+
+    /**
+     * Sets the values of this compound key, and recomputes its hash code. Used to reuse a single key object when
+     * probing for existing keys, to avoid allocating a new key per item.
+     *
+     * @param values The values associated with this key's keys, in the same order as the keys.
+     * @return       This compound key.
+     */
+    public CompoundKey reset(Object[] values) {
+        this.values = values;
+
+        int hash = 1;
+        for (Object value : values) {
+            hash = 31 * hash + hash(value);
+        }
+        this.hashCode = hash;
+
+        return this;
+    }
+
+    /**
+     * Returns a new compound key with a copy of this key's values.
+     *
+     * @return A new compound key with a copy of this key's values.
+     */
+    public CompoundKey copy() {
+        return new CompoundKey(keys, Arrays.copyOf(values, values.length));
+    }
+
+    /**
+     * Returns the hash code of the given value, consistent with how values are matched.
+     *
+     * @param value The value to be hashed.
+     * @return      The hash code of the given value.
+     */
+    private static int hash(Object value) {
+        int hash;
+
+        if (value == null) {
+            hash = 0;
+        } else if (value instanceof BigDecimal) {
+            // compareTo ignores scale, so 1.0 and 1.00 must hash the same; zero is special-cased as stripTrailingZeros
+            // does not normalize the scale of zero on older runtimes
+            BigDecimal decimal = (BigDecimal)value;
+            hash = decimal.signum() == 0 ? 0 : decimal.stripTrailingZeros().hashCode();
+        } else if (value instanceof Calendar) {
+            long time = ((Calendar)value).getTimeInMillis();
+            hash = (int)(time ^ (time >>> 32));
+        } else if (value instanceof Comparable) {
+            hash = value.hashCode();
+        } else {
+            hash = System.identityHashCode(value);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns true if the given values match.
+     *
+     * @param value      The first value to be matched.
+     * @param otherValue The second value to be matched.
+     * @return           True if the given values match.
+     */
+    private static boolean matches(Object value, Object otherValue) {
+        if (value == otherValue) return true;
+        if (value instanceof BigDecimal && otherValue instanceof BigDecimal) {
+            return ((BigDecimal)value).compareTo((BigDecimal)otherValue) == 0;
+        }
+        if (value instanceof Calendar && otherValue instanceof Calendar) {
+            return ((Calendar)value).getTimeInMillis() == ((Calendar)otherValue).getTimeInMillis();
+        }
+        return value instanceof Comparable && value.equals(otherValue);
+    }
+
+    /**
+     * Returns the value used when ordering compound keys: the value itself if it is Comparable, otherwise its
+     * identity hash code.
+     *
+     * @param value The value to be ordered.
+     * @return      A Comparable representing the value.
+     */
+    private static Comparable toComparable(Object value) {
+        Comparable comparable = null;
+        if (value instanceof Comparable) {
+            comparable = (Comparable)value;
+        } else if (value != null) {
+            comparable = System.identityHashCode(value);
+        }
+        return comparable;
+    }
+
+    /**
+     * Compares this compound key with another compound key.
+     *
+     * @param other The other key to be compared with.
+     * @return 0 if the two keys are equal, < 0 if this key is less than the other key, > 0 if this key is greater
+     * than the other key.
+     */
+    @SuppressWarnings("unchecked")
+    public int compareTo(CompoundKey other) {
+        if (other == null) return 1;
+
+        int result = 0;
+
+        for (int i = 0; i < values.length; i++) {
+            Comparable thisValue = toComparable(values[i]);
+            Comparable otherValue = toComparable(other.values[i]);
+
+            if (thisValue == null) {
+                if (otherValue != null) result = -1;
+            } else {
+                if (otherValue == null) {
+                    result = 1;
+                } else {
+                    result = thisValue.compareTo(otherValue);
+                }
+            }
+            if (result != 0) break;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if this object is equal to the other object.
+     *
+     * @param other The object to compare for equality with.
+     * @return True if this object is equal to the other object.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof CompoundKey)) return false;
+
+        CompoundKey otherKey = (CompoundKey)other;
+        if (hashCode != otherKey.hashCode || values.length != otherKey.values.length) return false;
+
+        for (int i = 0; i < values.length; i++) {
+            if (!matches(values[i], otherKey.values[i])) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the hash code for this compound key.
+     *
+     * @return The hash code for this compound key.
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Returns an IData representation of this compound key.
+     *
+     * @return An IData representation of this compound key.
+     */
+    public IData getIData() {
+        IData output = IDataFactory.create();
+        for (int i = 0; i < keys.length; i++) {
+            IDataHelper.put(output, keys[i], values[i]);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,614 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.DataException;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataHashCursor;
+import com.wm.data.IDataIndexCursor;
+import com.wm.data.IDataSharedCursor;
+import com.wm.data.IDataTreeCursor;
+import java.util.Arrays;
+
+/**
+ * A persistent IData implementation which shares unchanged nested documents between versions of itself. Duplicating
+ * a document is a constant time operation: the duplicate and the original share the same underlying nodes until
+ * either is modified, at which point only the nodes on the modified path are copied. A node is also copied when a
+ * nested IData or array value is read from it, so that the nested value returned belongs to only one version and can
+ * be safely modified in place. Memory therefore grows only with the parts of the tree actually edited.
+ *
+ * Other IData documents stored in a CopyOnWriteIData document are converted to CopyOnWriteIData documents, and arrays
+ * are copied, when they are stored, so that no nested document or array is shared with the caller or between
+ * versions. All other values are shared between versions by reference, as per a shallow clone. Nested documents
+ * obtained from a document before it was duplicated are copied on their next modification, so such modifications
+ * are not visible in either version.
+ *
+ * As with other IData implementations, this class is not thread-safe.
+ */
+public class CopyOnWriteIData implements IData {
+    /**
+     * The default initial capacity of a new node.
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+    /**
+     * The node holding this document's keys and values, which may be shared with other versions.
+     */
+    protected Node node;
+    /**
+     * The version this document belongs to; this document can only modify its node in place if the node was created
+     * by this version and this version has not since been frozen by duplication.
+     */
+    protected Version version;
+    /**
+     * The node this document had when its version was frozen, which is what the frozen nodes that still reference
+     * this document see once this document has copied its own node on modification.
+     */
+    protected Node snapshot;
+
+    /**
+     * Constructs a new empty CopyOnWriteIData document.
+     */
+    public CopyOnWriteIData() {
+        this.version = new Version();
+        this.node = new Node(version, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new CopyOnWriteIData document which shares the given node.
+     *
+     * @param node    The node to be shared.
+     * @param version The version the new document belongs to.
+     */
+    protected CopyOnWriteIData(Node node, Version version) {
+        this.node = node;
+        this.version = version;
+    }
+
+    /**
+     * Returns a CopyOnWriteIData representation of the given IData document. If the given document is already a
+     * CopyOnWriteIData document, a duplicate of it is returned, otherwise the given document and all its nested
+     * IData documents and arrays are copied into a new CopyOnWriteIData document.
+     *
+     * @param document The IData document to be converted.
+     * @return         A CopyOnWriteIData representation of the given document.
+     */
+    public static CopyOnWriteIData of(IData document) {
+        if (document == null) return null;
+        if (document instanceof CopyOnWriteIData) return ((CopyOnWriteIData)document).duplicate();
+
+        CopyOnWriteIData output = new CopyOnWriteIData();
+        IDataCursor cursor = document.getCursor();
+        while (cursor.next()) {
+            output.node.add(cursor.getKey(), output.adopt(convert(cursor.getValue())));
+        }
+        cursor.destroy();
+
+        return output;
+    }
+
+    /**
+     * Converts the given value for storage in a CopyOnWriteIData document: IData documents are converted to
+     * CopyOnWriteIData documents, and arrays are copied.
+     *
+     * @param value The value to be converted.
+     * @return      The converted value.
+     */
+    private static Object convert(Object value) {
+        if (value instanceof IData) {
+            value = of((IData)value);
+        } else if (value instanceof Object[]) {
+            Object[] array = ((Object[])value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = convert(array[i]);
+            }
+            value = array;
+        }
+        return value;
+    }
+
+    /**
+     * Returns a duplicate of this document in constant time. This document and the duplicate share all nodes until
+     * either is modified.
+     *
+     * @return A duplicate of this document.
+     */
+    public CopyOnWriteIData duplicate() {
+        // freezing the version forces every document in it, including nested documents, to copy before writing
+        version.frozen = true;
+        version = new Version(version.parent);
+        return new CopyOnWriteIData(node, new Version());
+    }
+
+    /**
+     * Returns true if this document can modify its node in place.
+     *
+     * @return True if this document can modify its node in place.
+     */
+    protected boolean isWritable() {
+        return node.version == version && !version.isFrozen();
+    }
+
+    /**
+     * Returns this document's node, copying it first if it is shared with other versions.
+     *
+     * @return This document's node, which can be modified in place.
+     */
+    protected Node getWritableNode() {
+        if (!isWritable()) {
+            if (version.isFrozen()) {
+                if (snapshot == null) snapshot = node;
+                version = new Version();
+            }
+            node = node.copy(version);
+        }
+        return node;
+    }
+
+    /**
+     * Prepares the given value for storage in this document's writable node: other IData documents are converted to
+     * CopyOnWriteIData documents, arrays are copied, and nested CopyOnWriteIData documents, including those in
+     * arrays, have their versions linked to this document's version, so that duplicating this document also freezes
+     * them. Nested documents which already belong to another document are stored as duplicates instead. The given
+     * value itself is never modified.
+     *
+     * @param value The value to be stored.
+     * @return      The value to be stored.
+     */
+    protected Object adopt(Object value) {
+        if (value instanceof CopyOnWriteIData) {
+            CopyOnWriteIData child = (CopyOnWriteIData)value;
+            // documents already in this tree, or containing this tree, are left as is
+            if (!child.version.isDescendantOf(version) && !version.isDescendantOf(child.version)) {
+                if (child.version.parent == null && child.snapshot == null) {
+                    child.version.parent = version;
+                } else {
+                    value = child.duplicate();
+                    ((CopyOnWriteIData)value).version.parent = version;
+                }
+            }
+        } else if (value instanceof IData) {
+            // plain documents would otherwise be shared by reference between every version of this document
+            value = adopt(of((IData)value));
+        } else if (value instanceof Object[]) {
+            Object[] array = ((Object[])value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = adopt(array[i]);
+            }
+            value = array;
+        }
+        return value;
+    }
+
+    /**
+     * Returns an IDataCursor for this IData object. An IDataCursor contains the basic methods you use to traverse an
+     * IData object and get or set elements within it.
+     *
+     * @return An IDataCursor for this object.
+     */
+    public IDataCursor getCursor() {
+        return new CopyOnWriteIDataCursor(this);
+    }
+
+    /**
+     * Returns an IDataSharedCursor for this IData object. An IDataSharedCursor contains the basic methods you use to
+     * traverse an IData object and get or set elements within it.
+     *
+     * @return An IDataSharedCursor for this object.
+     */
+    public IDataSharedCursor getSharedCursor() {
+        return new IDataSharedCursorAdapter(new CopyOnWriteIDataCursor(this));
+    }
+
+    /**
+     * Returns an IDataIndexCursor for traversing this IData.
+     *
+     * @return An IDataIndexCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataIndexCursor getIndexCursor() {
+        throw new UnsupportedOperationException("getIndexCursor not implemented");
+    }
+
+    /**
+     * Returns an IDataTreeCursor for traversing this IData.
+     *
+     * @return An IDataTreeCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataTreeCursor getTreeCursor() {
+        throw new UnsupportedOperationException("getTreeCursor not implemented");
+    }
+
+    /**
+     * Returns an IDataHashCursor for traversing this IData.
+     *
+     * @return An IDataHashCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataHashCursor getHashCursor() {
+        throw new UnsupportedOperationException("getHashCursor not implemented");
+    }
+
+    /**
+     * A version of a tree of CopyOnWriteIData documents. Nodes created by a version can be modified in place by the
+     * documents belonging to it until the version is frozen.
+     */
+    protected static class Version {
+        protected boolean frozen;
+        protected Version parent;
+
+        /**
+         * Constructs a new version with no parent.
+         */
+        public Version() {
+            this(null);
+        }
+
+        /**
+         * Constructs a new version which is frozen when the given parent version is frozen.
+         *
+         * @param parent The parent version, or null.
+         */
+        public Version(Version parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Returns true if this version or any of its ancestors has been frozen.
+         *
+         * @return True if this version or any of its ancestors has been frozen.
+         */
+        public boolean isFrozen() {
+            for (Version current = this; current != null; current = current.parent) {
+                if (current.frozen) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns true if this version is, or is a descendant of, the given version.
+         *
+         * @param ancestor The potential ancestor version.
+         * @return         True if this version is, or is a descendant of, the given version.
+         */
+        public boolean isDescendantOf(Version ancestor) {
+            for (Version current = this; current != null; current = current.parent) {
+                if (current == ancestor) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The ordered keys and values of a CopyOnWriteIData document.
+     */
+    protected static class Node {
+        protected Version version;
+        protected String[] keys;
+        protected Object[] values;
+        protected int size;
+
+        /**
+         * Constructs a new empty node.
+         *
+         * @param version  The version creating the node.
+         * @param capacity The initial capacity of the node.
+         */
+        public Node(Version version, int capacity) {
+            this.version = version;
+            this.keys = new String[capacity];
+            this.values = new Object[capacity];
+        }
+
+        /**
+         * Returns a copy of this node for the given version. Nested documents and arrays are replaced with new
+         * documents and arrays belonging to the given version, which share the nested nodes until modified.
+         *
+         * @param version The version the copy belongs to.
+         * @return        A copy of this node.
+         */
+        public Node copy(Version version) {
+            Node copy = new Node(version, Math.max(DEFAULT_CAPACITY, size));
+            System.arraycopy(keys, 0, copy.keys, 0, size);
+            for (int i = 0; i < size; i++) {
+                copy.values[i] = share(values[i], version);
+            }
+            copy.size = size;
+            return copy;
+        }
+
+        /**
+         * Returns a copy of the given value for the given version: nested documents are replaced with new documents
+         * sharing the same node, and arrays are copied; all other values are returned as is.
+         *
+         * @param value   The value to be shared.
+         * @param version The version the returned value belongs to.
+         * @return        The shared value.
+         */
+        private static Object share(Object value, Version version) {
+            if (value instanceof CopyOnWriteIData) {
+                CopyOnWriteIData child = (CopyOnWriteIData)value;
+                value = new CopyOnWriteIData(child.snapshot == null ? child.node : child.snapshot, version);
+            } else if (value instanceof Object[]) {
+                Object[] array = ((Object[])value).clone();
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = share(array[i], version);
+                }
+                value = array;
+            }
+            return value;
+        }
+
+        /**
+         * Appends the given key and value to this node.
+         *
+         * @param key   The key to be appended.
+         * @param value The value to be appended.
+         */
+        public void add(String key, Object value) {
+            insert(size, key, value);
+        }
+
+        /**
+         * Inserts the given key and value into this node at the given index.
+         *
+         * @param index The index at which the key and value are inserted.
+         * @param key   The key to be inserted.
+         * @param value The value to be inserted.
+         */
+        public void insert(int index, String key, Object value) {
+            if (size == keys.length) {
+                int capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+
+        /**
+         * Removes the key and value at the given index from this node.
+         *
+         * @param index The index of the key and value to be removed.
+         */
+        public void remove(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            keys[size] = null;
+            values[size] = null;
+        }
+
+        /**
+         * Returns the index of the first occurrence of the given key at or after the given index, or -1 if not found.
+         *
+         * @param key   The key to search for.
+         * @param index The index to start searching from.
+         * @return      The index of the key, or -1 if not found.
+         */
+        public int indexOf(String key, int index) {
+            for (int i = Math.max(0, index); i < size; i++) {
+                if (key == null ? keys[i] == null : key.equals(keys[i])) return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the index of the last occurrence of the given key at or before the given index, or -1 if not found.
+         *
+         * @param key   The key to search for.
+         * @param index The index to start searching backwards from.
+         * @return      The index of the key, or -1 if not found.
+         */
+        public int lastIndexOf(String key, int index) {
+            for (int i = Math.min(size - 1, index); i >= 0; i--) {
+                if (key == null ? keys[i] == null : key.equals(keys[i])) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * An IDataCursor for traversing and modifying a CopyOnWriteIData document. The cursor always operates on the
+     * document's current node, so it remains valid when the node is copied on modification.
+     */
+    private static class CopyOnWriteIDataCursor implements IDataCursor {
+        protected CopyOnWriteIData document;
+        protected int position = -1;
+        protected boolean deleted;
+
+        /**
+         * Constructs a new cursor for the given document.
+         *
+         * @param document The document to be traversed.
+         */
+        public CopyOnWriteIDataCursor(CopyOnWriteIData document) {
+            this.document = document;
+        }
+
+        private boolean isPositioned() {
+            return position >= 0 && position < document.node.size;
+        }
+
+        public void setErrorMode(int mode) {}
+
+        public DataException getLastError() {
+            return null;
+        }
+
+        public boolean hasMoreErrors() {
+            return false;
+        }
+
+        public void home() {
+            position = -1;
+            deleted = false;
+        }
+
+        public String getKey() {
+            return isPositioned() ? document.node.keys[position] : null;
+        }
+
+        public void setKey(String key) {
+            if (isPositioned()) document.getWritableNode().keys[position] = key;
+        }
+
+        public Object getValue() {
+            if (!isPositioned()) return null;
+
+            Object value = document.node.values[position];
+            // mutable values must belong only to this version before they are handed out
+            if ((value instanceof CopyOnWriteIData || value instanceof Object[]) && !document.isWritable()) {
+                value = document.getWritableNode().values[position];
+            }
+            return value;
+        }
+
+        public void setValue(Object value) {
+            if (isPositioned()) document.getWritableNode().values[position] = document.adopt(value);
+        }
+
+        public boolean delete() {
+            if (!isPositioned()) return false;
+            document.getWritableNode().remove(position);
+            deleted = true;
+            return true;
+        }
+
+        public void insertBefore(String key, Object value) {
+            position = Math.max(position, 0);
+            document.getWritableNode().insert(position, key, document.adopt(value));
+            deleted = false;
+        }
+
+        public void insertAfter(String key, Object value) {
+            position = Math.min(position + 1, document.node.size);
+            document.getWritableNode().insert(position, key, document.adopt(value));
+            deleted = false;
+        }
+
+        public IData insertDataBefore(String key) {
+            IData child = new CopyOnWriteIData();
+            insertBefore(key, child);
+            return child;
+        }
+
+        public IData insertDataAfter(String key) {
+            IData child = new CopyOnWriteIData();
+            insertAfter(key, child);
+            return child;
+        }
+
+        public boolean next() {
+            if (deleted) {
+                // after a deletion the cursor is already positioned on the following element
+                deleted = false;
+                if (position < document.node.size) return true;
+            }
+            if (position + 1 < document.node.size) {
+                position++;
+                return true;
+            }
+            position = document.node.size;
+            return false;
+        }
+
+        public boolean next(String key) {
+            int index = document.node.indexOf(key, deleted ? position : position + 1);
+            deleted = false;
+            if (index < 0) return false;
+            position = index;
+            return true;
+        }
+
+        public boolean previous() {
+            deleted = false;
+            if (position - 1 < 0) return false;
+            position = Math.min(position, document.node.size) - 1;
+            return true;
+        }
+
+        public boolean previous(String key) {
+            deleted = false;
+            int index = document.node.lastIndexOf(key, position - 1);
+            if (index < 0) return false;
+            position = index;
+            return true;
+        }
+
+        public boolean first() {
+            deleted = false;
+            if (document.node.size == 0) return false;
+            position = 0;
+            return true;
+        }
+
+        public boolean first(String key) {
+            deleted = false;
+            int index = document.node.indexOf(key, 0);
+            if (index < 0) return false;
+            position = index;
+            return true;
+        }
+
+        public boolean last() {
+            deleted = false;
+            if (document.node.size == 0) return false;
+            position = document.node.size - 1;
+            return true;
+        }
+
+        public boolean last(String key) {
+            deleted = false;
+            int index = document.node.lastIndexOf(key, document.node.size - 1);
+            if (index < 0) return false;
+            position = index;
+            return true;
+        }
+
+        public boolean hasMoreData() {
+            // after a delete the cursor is on the following entry, which next() has yet to return
+            return deleted ? position < document.node.size : position + 1 < document.node.size;
+        }
+
+        public void destroy() {
+            document = null;
+        }
+
+        public IDataCursor getCursorClone() {
+            CopyOnWriteIDataCursor clone = new CopyOnWriteIDataCursor(document);
+            clone.position = position;
+            clone.deleted = deleted;
+            return clone;
+        }
+    }
+}
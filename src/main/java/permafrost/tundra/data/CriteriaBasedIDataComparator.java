@@ -25,17 +25,20 @@
 package permafrost.tundra.data;
 
 import com.wm.data.IData;
+import permafrost.tundra.lang.ArrayHelper;
 import permafrost.tundra.math.BigDecimalHelper;
 import permafrost.tundra.math.BigIntegerHelper;
 import permafrost.tundra.time.DateTimeHelper;
 import permafrost.tundra.time.DurationHelper;
 import java.util.Arrays;
+import java.util.Comparator;
 
 /**
  * Compares two IData objects using the values associated with the given list of keys in precedence order.
  */
 public class CriteriaBasedIDataComparator implements IDataComparator {
     protected java.util.List<IDataComparisonCriterion> criteria;
+    protected IDataProjection projection;
 
     /**
      * Construct a new IDataComparator with one or more comparison criteria.
@@ -56,6 +59,12 @@ public class CriteriaBasedIDataComparator implements IDataComparator {
             throw new IllegalArgumentException("At least one comparison criteria is required to construct an CriteriaBasedIDataComparator object");
         }
         this.criteria = criteria;
+
+        String[] keys = new String[criteria.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = criteria.get(i).getKey();
+        }
+        this.projection = IDataProjection.of(keys);
     }
 
     /**
@@ -86,13 +95,16 @@ public class CriteriaBasedIDataComparator implements IDataComparator {
      * are equal, or a value of greater than zero if the first document comes after the second document according to the
      * comparison criteria the IDataComparator was constructed with.
      */
-    @SuppressWarnings("unchecked")
     public int compare(IData firstDocument, IData secondDocument) {
         int result = 0;
 
-        for (IDataComparisonCriterion criterion : criteria) {
-            Object firstValue = IDataHelper.get(firstDocument, criterion.getKey());
-            Object secondValue = IDataHelper.get(secondDocument, criterion.getKey());
+        Object[] firstValues = projection.get(firstDocument);
+        Object[] secondValues = projection.get(secondDocument);
+
+        for (int i = 0; i < firstValues.length; i++) {
+            IDataComparisonCriterion criterion = criteria.get(i);
+            Object firstValue = firstValues[i];
+            Object secondValue = secondValues[i];
 
             if (firstValue == null) {
                 if (secondValue != null) {
@@ -101,34 +113,178 @@ public class CriteriaBasedIDataComparator implements IDataComparator {
             } else if (secondValue == null) {
                 result = normalize(1, criterion.isDescending());
             } else {
-                switch (criterion.getType()) {
-                    case INTEGER:
-                        firstValue = BigIntegerHelper.parse(firstValue.toString());
-                        secondValue = BigIntegerHelper.parse(secondValue.toString());
-                        break;
-                    case DECIMAL:
-                        firstValue = BigDecimalHelper.parse(firstValue.toString());
-                        secondValue = BigDecimalHelper.parse(secondValue.toString());
-                        break;
-                    case DATETIME:
-                        firstValue = DateTimeHelper.parse(firstValue.toString(), criterion.getPattern());
-                        secondValue = DateTimeHelper.parse(secondValue.toString(), criterion.getPattern());
-                        break;
-                    case DURATION:
-                        firstValue = BigIntegerHelper.parse(DurationHelper.format(firstValue.toString(), criterion.getPattern(), "milliseconds"));
-                        secondValue = BigIntegerHelper.parse(DurationHelper.format(secondValue.toString(), criterion.getPattern(), "milliseconds"));
-                        break;
-                    case STRING:
-                        firstValue = firstValue.toString();
-                        secondValue = secondValue.toString();
-                        break;
-                }
-                if (firstValue instanceof Comparable) {
-                    result = normalize(((Comparable)firstValue).compareTo(secondValue), criterion.isDescending());
-                }
+                result = compare(convert(firstValue, criterion), convert(secondValue, criterion), criterion.isDescending());
             }
             if (result != 0) break;
         }
         return result;
     }
+
+    /**
+     * Returns a new IData[] array with all elements sorted according to this comparator's criteria. Rather than
+     * fetching and converting the values for every comparison, the values associated with each document's keys are
+     * fetched once up front, and each value is converted to the criterion's type at most once, when it is first
+     * compared, and where possible stored as a primitive so that comparisons do not allocate. The resulting order is
+     * identical to sorting the array using this object as a comparator.
+     *
+     * @param array The IData[] array to be sorted.
+     * @return      A new IData[] array sorted according to this comparator's criteria.
+     */
+    public IData[] sort(IData[] array) {
+        return sort(array, false);
+    }
+
+    /**
+     * Returns a new IData[] array with all elements sorted according to this comparator's criteria, optionally
+     * sorting large arrays in parallel.
+     *
+     * @param array    The IData[] array to be sorted.
+     * @param parallel Whether to sort large arrays in parallel.
+     * @return         A new IData[] array sorted according to this comparator's criteria.
+     */
+    public IData[] sort(IData[] array, boolean parallel) {
+        if (array == null) return null;
+        if (array.length < 2) return Arrays.copyOf(array, array.length);
+
+        ComparisonKeyColumn[] columns = columns(array.length);
+        SortKey[] keys = new SortKey[array.length];
+        for (int i = 0; i < array.length; i++) {
+            Object[] values = projection.get(array[i]);
+            for (int j = 0; j < columns.length; j++) {
+                columns[j].set(i, values[j]);
+            }
+            keys[i] = new SortKey(array[i], i);
+        }
+
+        // each column slot is only ever accessed by the one task sorting or merging the range containing its key
+        keys = ArrayHelper.sort(keys, new SortKeyComparator(columns), false, parallel);
+
+        IData[] output = new IData[array.length];
+        for (int i = 0; i < keys.length; i++) {
+            output[i] = keys[i].document;
+        }
+
+        return output;
+    }
+
+    /**
+     * Converts the given value to the type required by the given criterion.
+     *
+     * @param value     The value to be converted, must not be null.
+     * @param criterion The criterion whose type determines the conversion.
+     * @return          The converted value.
+     */
+    protected static Object convert(Object value, IDataComparisonCriterion criterion) {
+        return convert(value, criterion.getType(), criterion.getPattern());
+    }
+
+    /**
+     * Converts the given value to the given comparison type.
+     *
+     * @param value   The value to be converted, must not be null.
+     * @param type    The type the value is to be converted to.
+     * @param pattern If the type is DATETIME or DURATION, the pattern used to parse the value.
+     * @return        The converted value.
+     */
+    static Object convert(Object value, IDataComparisonType type, String pattern) {
+        switch (type) {
+            case INTEGER:
+                value = BigIntegerHelper.parse(value.toString());
+                break;
+            case DECIMAL:
+                value = BigDecimalHelper.parse(value.toString());
+                break;
+            case DATETIME:
+                value = DateTimeHelper.parse(value.toString(), pattern);
+                break;
+            case DURATION:
+                value = BigIntegerHelper.parse(DurationHelper.format(value.toString(), pattern, "milliseconds"));
+                break;
+            case STRING:
+                value = value.toString();
+                break;
+        }
+        return value;
+    }
+
+    /**
+     * Compares two converted values.
+     *
+     * @param firstValue  The first converted value to be compared.
+     * @param secondValue The second converted value to be compared.
+     * @param descending  Whether the comparison should be in descending order.
+     * @return            The comparison result, or zero if the first value is not comparable.
+     */
+    @SuppressWarnings("unchecked")
+    protected static int compare(Object firstValue, Object secondValue, boolean descending) {
+        int result = 0;
+        if (firstValue instanceof Comparable) {
+            result = normalize(((Comparable)firstValue).compareTo(secondValue), descending);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new key column for each of this comparator's criteria.
+     *
+     * @param size The number of slots in each column.
+     * @return     A new key column for each of this comparator's criteria.
+     */
+    ComparisonKeyColumn[] columns(int size) {
+        ComparisonKeyColumn[] columns = new ComparisonKeyColumn[criteria.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ComparisonKeyColumn(criteria.get(i), size);
+        }
+        return columns;
+    }
+
+    /**
+     * An IData document and the index of its values in the key columns.
+     */
+    private static class SortKey {
+        protected IData document;
+        protected int index;
+
+        /**
+         * Constructs a new sort key.
+         *
+         * @param document The document being sorted.
+         * @param index    The index of the document's values in the key columns.
+         */
+        public SortKey(IData document, int index) {
+            this.document = document;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Compares sort keys using the same rules as CriteriaBasedIDataComparator.compare.
+     */
+    private static class SortKeyComparator implements Comparator<SortKey> {
+        protected ComparisonKeyColumn[] columns;
+
+        /**
+         * Constructs a new sort key comparator.
+         *
+         * @param columns The key columns holding the values for each comparison criterion.
+         */
+        public SortKeyComparator(ComparisonKeyColumn[] columns) {
+            this.columns = columns;
+        }
+
+        /**
+         * Compares two sort keys.
+         *
+         * @param firstKey  The first sort key to be compared.
+         * @param secondKey The second sort key to be compared.
+         * @return          The comparison result.
+         */
+        public int compare(SortKey firstKey, SortKey secondKey) {
+            int result = 0;
+            for (int i = 0; i < columns.length && result == 0; i++) {
+                result = columns[i].compare(firstKey.index, secondKey.index);
+            }
+            return result;
+        }
+    }
 }
@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataUtil;
+import com.wm.util.coder.IDataCodable;
+
+/**
+ * Defines a single aggregate calculated by the IDataAggregator class.
+ */
+public class IDataAggregateCriterion implements IDataCodable {
+
+    protected String key, pattern, target;
+    protected IDataAggregateFunction function;
+    protected IDataComparisonType type;
+
+    /**
+     * Constructs a new IDataAggregateCriterion object.
+     *
+     * @param key      The IData key whose associated values are aggregated. May be null for the COUNT function, in
+     *                 which case every document is counted.
+     * @param function The aggregate function to be calculated.
+     */
+    public IDataAggregateCriterion(String key, IDataAggregateFunction function) {
+        this(key, function, null);
+    }
+
+    /**
+     * Constructs a new IDataAggregateCriterion object.
+     *
+     * @param key      The IData key whose associated values are aggregated. May be null for the COUNT function, in
+     *                 which case every document is counted.
+     * @param function The aggregate function to be calculated.
+     * @param type     The type the values are converted to before they are aggregated.
+     */
+    public IDataAggregateCriterion(String key, IDataAggregateFunction function, IDataComparisonType type) {
+        this(key, function, type, null, null);
+    }
+
+    /**
+     * Constructs a new IDataAggregateCriterion object.
+     *
+     * @param key      The IData key whose associated values are aggregated. May be null for the COUNT function, in
+     *                 which case every document is counted.
+     * @param function The aggregate function to be calculated.
+     * @param type     The type the values are converted to before they are aggregated.
+     * @param pattern  If the type is DATETIME or DURATION, this is the pattern used to parse the values.
+     * @param target   The key the aggregate result is stored against in each result document. Defaults to the
+     *                 lower case function name followed by the key, for example "sum/amount".
+     */
+    public IDataAggregateCriterion(String key, IDataAggregateFunction function, IDataComparisonType type, String pattern, String target) {
+        initialize(key, function, type, pattern, target);
+    }
+
+    /**
+     * Constructs a new IDataAggregateCriterion object.
+     *
+     * @param key      The IData key whose associated values are aggregated.
+     * @param function The aggregate function to be calculated.
+     * @param type     The type the values are converted to before they are aggregated.
+     * @param pattern  If the type is DATETIME or DURATION, this is the pattern used to parse the values.
+     * @param target   The key the aggregate result is stored against in each result document.
+     */
+    public IDataAggregateCriterion(String key, String function, String type, String pattern, String target) {
+        this(key, IDataAggregateFunction.normalize(function), IDataComparisonType.normalize(type), pattern, target);
+    }
+
+    /**
+     * Constructs a new IDataAggregateCriterion object.
+     *
+     * @param document An IData document containing the following keys: key, function, type, pattern, target
+     */
+    public IDataAggregateCriterion(IData document) {
+        setIData(document);
+    }
+
+    /**
+     * Returns the key used to identify the values being aggregated.
+     *
+     * @return The key used to identify the values being aggregated.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the aggregate function to be calculated.
+     *
+     * @return The aggregate function to be calculated.
+     */
+    public IDataAggregateFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * Returns the type the values are converted to before they are aggregated.
+     *
+     * @return The type the values are converted to before they are aggregated.
+     */
+    public IDataComparisonType getType() {
+        return type;
+    }
+
+    /**
+     * If the type of value is DATETIME or DURATION, returns the pattern used to parse the value.
+     *
+     * @return If the type of value is DATETIME or DURATION, this is the pattern used to parse the value.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the key the aggregate result is stored against in each result document.
+     *
+     * @return The key the aggregate result is stored against in each result document.
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns an IData representation of this aggregate criterion.
+     *
+     * @return An IData representation of this aggregate criterion.
+     */
+    public IData getIData() {
+        IData output = IDataFactory.create();
+        IDataCursor cursor = output.getCursor();
+
+        if (key != null) IDataUtil.put(cursor, "key", key);
+        IDataUtil.put(cursor, "function", function.toString().toLowerCase());
+        IDataUtil.put(cursor, "type", type.toString().toLowerCase());
+        if (pattern != null) IDataUtil.put(cursor, "pattern", pattern);
+        IDataUtil.put(cursor, "target", target);
+
+        cursor.destroy();
+
+        return output;
+    }
+
+    /**
+     * Sets all the values of this aggregate criterion object using the given IData.
+     *
+     * @param document An IData document containing the following keys: key, function, type, pattern, target
+     */
+    public void setIData(IData document) {
+        if (document == null) throw new NullPointerException("document must not be null");
+
+        IDataCursor cursor = document.getCursor();
+        String key = IDataUtil.getString(cursor, "key");
+        String function = IDataUtil.getString(cursor, "function");
+        String type = IDataUtil.getString(cursor, "type");
+        String pattern = IDataUtil.getString(cursor, "pattern");
+        String target = IDataUtil.getString(cursor, "target");
+        cursor.destroy();
+
+        initialize(key, IDataAggregateFunction.normalize(function), IDataComparisonType.normalize(type), pattern, target);
+    }
+
+    /**
+     * Initializes all the values of this aggregate criterion object.
+     *
+     * @param key      The key whose associated values are aggregated.
+     * @param function The aggregate function to be calculated.
+     * @param type     The type the values are converted to before they are aggregated.
+     * @param pattern  The pattern used to parse the values.
+     * @param target   The key the aggregate result is stored against.
+     */
+    protected void initialize(String key, IDataAggregateFunction function, IDataComparisonType type, String pattern, String target) {
+        function = IDataAggregateFunction.normalize(function);
+        type = IDataComparisonType.normalize(type);
+
+        if (key == null && function != IDataAggregateFunction.COUNT) {
+            throw new NullPointerException("key must not be null");
+        }
+
+        if (function == IDataAggregateFunction.SUM || function == IDataAggregateFunction.AVG) {
+            if (type == IDataComparisonType.OBJECT) {
+                type = IDataComparisonType.DECIMAL;
+            } else if (type == IDataComparisonType.STRING || type == IDataComparisonType.DATETIME) {
+                throw new IllegalArgumentException(function + " aggregate function does not support " + type + " values");
+            }
+        }
+
+        if (target == null) {
+            target = function.toString().toLowerCase() + (key == null ? "" : IDataPath.SEPARATOR + key);
+        }
+
+        this.key = key;
+        this.function = function;
+        this.type = type;
+        this.pattern = pattern;
+        this.target = target;
+    }
+
+    /**
+     * Returns an IDataAggregateCriterion[] given an IData[].
+     *
+     * @param criteria The aggregate criteria specified as an IData[].
+     * @return An IDataAggregateCriterion[] representing the given criteria.
+     */
+    public static IDataAggregateCriterion[] of(IData[] criteria) {
+        if (criteria == null) return null;
+
+        IDataAggregateCriterion[] output = new IDataAggregateCriterion[criteria.length];
+
+        for (int i = 0; i < criteria.length; i++) {
+            output[i] = new IDataAggregateCriterion(criteria[i]);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns a string representation of this criterion object.
+     *
+     * @return a string representation of this criterion object.
+     */
+    @Override
+    public String toString() {
+        return String.format(">>>%s:key=%s,function=%s,type=%s,pattern=%s,target=%s<<<", this.getClass().getSimpleName(), key, function, type, pattern, target);
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataUtil;
+import permafrost.tundra.math.BigDecimalHelper;
+import permafrost.tundra.time.DurationHelper;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates aggregates, such as counts, sums and averages, over IData documents grouped by the values associated
+ * with a list of keys. Documents are accumulated incrementally, so only the per-group aggregate state is held in
+ * memory rather than the documents themselves. Partial results from separate aggregators constructed with the same
+ * keys and criteria can be merged, which allows a large list to be aggregated in parallel.
+ *
+ * This class is not thread-safe: each thread should accumulate into its own aggregator, and the resulting
+ * aggregators merged once accumulation is complete.
+ */
+public class IDataAggregator {
+    /**
+     * The maximum number of decimal places an average may have beyond the largest scale of the values averaged.
+     */
+    public static final int AVERAGE_PRECISION = 16;
+    /**
+     * The keys whose associated values the documents are grouped by.
+     */
+    protected String[] keys;
+    /**
+     * The aggregates calculated for each group.
+     */
+    protected IDataAggregateCriterion[] criteria;
+    /**
+     * Extracts both the group key values and the aggregated values from each document in a single pass.
+     */
+    protected IDataProjection projection;
+    /**
+     * The per-group aggregate state, in the order each group was first encountered.
+     */
+    protected Map<CompoundKey, Accumulator[]> groups = new LinkedHashMap<CompoundKey, Accumulator[]>();
+    /**
+     * The slots the projection writes each document's values into.
+     */
+    protected Object[] slots;
+    /**
+     * Reusable key used to look up the group for each document without allocating a new key.
+     */
+    protected CompoundKey probe;
+
+    /**
+     * Constructs a new aggregator.
+     *
+     * @param keys     The keys whose associated values the documents are grouped by. If null or empty, all documents
+     *                 are aggregated into a single group.
+     * @param criteria The aggregates to be calculated for each group.
+     */
+    public IDataAggregator(String[] keys, IDataAggregateCriterion... criteria) {
+        if (criteria == null || criteria.length == 0) {
+            throw new IllegalArgumentException("At least one aggregate criterion is required to construct an IDataAggregator object");
+        }
+
+        this.keys = keys == null ? new String[0] : keys.clone();
+        this.criteria = criteria.clone();
+
+        String[] paths = new String[this.keys.length + this.criteria.length];
+        System.arraycopy(this.keys, 0, paths, 0, this.keys.length);
+        for (int i = 0; i < this.criteria.length; i++) {
+            paths[this.keys.length + i] = this.criteria[i].getKey();
+        }
+
+        this.projection = IDataProjection.of(paths);
+        this.slots = new Object[paths.length];
+        this.probe = new CompoundKey(this.keys, new Object[this.keys.length]);
+    }
+
+    /**
+     * Returns a new aggregator with the same keys and criteria as this aggregator, with no accumulated state.
+     * Useful for creating per-thread partial aggregators which are later merged.
+     *
+     * @return A new empty aggregator with the same keys and criteria as this aggregator.
+     */
+    public IDataAggregator newInstance() {
+        return new IDataAggregator(keys, criteria);
+    }
+
+    /**
+     * Accumulates the given document into its group's aggregates.
+     *
+     * @param document The document to be accumulated; null documents are ignored.
+     * @return         This aggregator, to allow for method chaining.
+     */
+    public IDataAggregator add(IData document) {
+        if (document == null) return this;
+
+        projection.get(document, slots);
+
+        System.arraycopy(slots, 0, probe.values, 0, keys.length);
+        probe.reset(probe.values);
+
+        Accumulator[] accumulators = groups.get(probe);
+        if (accumulators == null) {
+            accumulators = newAccumulators();
+            groups.put(probe.copy(), accumulators);
+        }
+
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i].add(slots[keys.length + i]);
+        }
+
+        return this;
+    }
+
+    /**
+     * Accumulates all the given documents.
+     *
+     * @param array The documents to be accumulated.
+     * @return      This aggregator, to allow for method chaining.
+     */
+    public IDataAggregator addAll(IData[] array) {
+        if (array != null) {
+            for (IData document : array) {
+                add(document);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Accumulates all the documents returned by the given iterator.
+     *
+     * @param iterator The iterator returning the documents to be accumulated.
+     * @return         This aggregator, to allow for method chaining.
+     */
+    public IDataAggregator addAll(Iterator<? extends IData> iterator) {
+        if (iterator != null) {
+            while (iterator.hasNext()) {
+                add(iterator.next());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Merges the partial results accumulated by the given aggregator into this aggregator. The given aggregator
+     * must have been constructed with the same keys and criteria, and is treated as having accumulated documents
+     * that follow those accumulated by this aggregator, which determines the FIRST and LAST results.
+     *
+     * @param other The aggregator whose partial results are to be merged into this aggregator.
+     * @return      This aggregator, to allow for method chaining.
+     */
+    public IDataAggregator merge(IDataAggregator other) {
+        if (other == null || other == this) return this;
+
+        if (other.keys.length != keys.length || other.criteria.length != criteria.length) {
+            throw new IllegalArgumentException("aggregators must have the same keys and criteria to be merged");
+        }
+
+        for (Map.Entry<CompoundKey, Accumulator[]> entry : other.groups.entrySet()) {
+            Accumulator[] accumulators = groups.get(entry.getKey());
+            if (accumulators == null) {
+                accumulators = newAccumulators();
+                groups.put(entry.getKey().copy(), accumulators);
+            }
+
+            Accumulator[] otherAccumulators = entry.getValue();
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].merge(otherAccumulators[i]);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the number of groups accumulated so far.
+     *
+     * @return The number of groups accumulated so far.
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Returns the aggregate results for each group, in the order each group was first encountered.
+     *
+     * @return The aggregate results for each group.
+     */
+    public IData[] getResults() {
+        return getResults(false);
+    }
+
+    /**
+     * Returns the aggregate results for each group. Each result document contains a "group" document with the group's
+     * key values, and each aggregate result stored against its criterion's target key.
+     *
+     * @param sorted If true, the results are returned in ascending order of their group key values, otherwise they
+     *               are returned in the order each group was first encountered.
+     * @return       The aggregate results for each group.
+     */
+    public IData[] getResults(boolean sorted) {
+        List<CompoundKey> groupKeys = new ArrayList<CompoundKey>(groups.keySet());
+        if (sorted) Collections.sort(groupKeys);
+
+        IData[] output = new IData[groupKeys.size()];
+
+        for (int i = 0; i < output.length; i++) {
+            CompoundKey key = groupKeys.get(i);
+            Accumulator[] accumulators = groups.get(key);
+
+            IData result = IDataFactory.create();
+            IDataCursor cursor = result.getCursor();
+            IDataUtil.put(cursor, "group", key.getIData());
+            cursor.destroy();
+
+            for (int j = 0; j < accumulators.length; j++) {
+                IDataHelper.put(result, criteria[j].getTarget(), accumulators[j].getResult());
+            }
+
+            output[i] = result;
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns a new set of accumulators, one per criterion.
+     *
+     * @return A new set of accumulators.
+     */
+    private Accumulator[] newAccumulators() {
+        Accumulator[] accumulators = new Accumulator[criteria.length];
+        for (int i = 0; i < criteria.length; i++) {
+            accumulators[i] = new Accumulator(criteria[i]);
+        }
+        return accumulators;
+    }
+
+    /**
+     * Returns the average of the given sum, keeping at least the given number of decimal places, plus as many further
+     * decimal places as are required up to AVERAGE_PRECISION, so that the fractional part is not lost by rounding to
+     * the scale of the values averaged.
+     *
+     * @param sum   The sum of the values.
+     * @param count The number of values summed.
+     * @param scale The largest scale of the values summed.
+     * @return      The average of the values.
+     */
+    private static BigDecimal average(BigDecimal sum, long count, int scale) {
+        BigDecimal average = BigDecimalHelper.divide(sum, BigDecimal.valueOf(count), scale + AVERAGE_PRECISION, null);
+        if (average.signum() == 0) return BigDecimal.ZERO.setScale(scale);
+        average = average.stripTrailingZeros();
+        if (average.scale() < scale) average = average.setScale(scale);
+        return average;
+    }
+
+    /**
+     * Holds the running state of a single aggregate for a single group.
+     */
+    private static class Accumulator {
+        protected IDataAggregateCriterion criterion;
+        protected long count;
+        protected BigDecimal decimalSum;
+        protected BigInteger integerSum;
+        protected int scale = BigDecimalHelper.DEFAULT_DECIMAL_PRECISION;
+        protected Object value;
+        protected Comparable comparable;
+
+        /**
+         * Constructs a new accumulator for the given criterion.
+         *
+         * @param criterion The aggregate being calculated.
+         */
+        public Accumulator(IDataAggregateCriterion criterion) {
+            this.criterion = criterion;
+        }
+
+        /**
+         * Accumulates the given value.
+         *
+         * @param raw The value associated with the criterion's key in a document.
+         */
+        public void add(Object raw) {
+            IDataAggregateFunction function = criterion.getFunction();
+
+            if (function == IDataAggregateFunction.COUNT && criterion.getKey() == null) {
+                count++;
+                return;
+            }
+
+            if (raw == null) return;
+
+            switch (function) {
+                case COUNT:
+                    count++;
+                    break;
+                case SUM:
+                case AVG:
+                    count++;
+                    addToSum(CriteriaBasedIDataComparator.convert(raw, criterion.getType(), criterion.getPattern()));
+                    break;
+                case MIN:
+                case MAX:
+                    Object converted = CriteriaBasedIDataComparator.convert(raw, criterion.getType(), criterion.getPattern());
+                    if (converted instanceof Comparable) select(raw, (Comparable)converted);
+                    break;
+                case FIRST:
+                    if (count++ == 0) value = raw;
+                    break;
+                case LAST:
+                    count++;
+                    value = raw;
+                    break;
+            }
+        }
+
+        /**
+         * Adds the given converted value to the running sum.
+         *
+         * @param converted The converted value to be added.
+         */
+        private void addToSum(Object converted) {
+            if (converted instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal)converted;
+                decimalSum = decimalSum == null ? decimal : decimalSum.add(decimal);
+                if (decimal.scale() > scale) scale = decimal.scale();
+            } else if (converted instanceof BigInteger) {
+                BigInteger integer = (BigInteger)converted;
+                integerSum = integerSum == null ? integer : integerSum.add(integer);
+            }
+        }
+
+        /**
+         * Keeps the given value if it is the new minimum or maximum, preferring earlier values when equal.
+         *
+         * @param raw       The original value.
+         * @param converted The value converted to the criterion's type.
+         */
+        @SuppressWarnings("unchecked")
+        private void select(Object raw, Comparable converted) {
+            if (comparable == null) {
+                value = raw;
+                comparable = converted;
+            } else {
+                int result = converted.compareTo(comparable);
+                if (criterion.getFunction() == IDataAggregateFunction.MIN ? result < 0 : result > 0) {
+                    value = raw;
+                    comparable = converted;
+                }
+            }
+        }
+
+        /**
+         * Merges the state of the given accumulator, which accumulated later values, into this accumulator.
+         *
+         * @param other The accumulator to be merged.
+         */
+        public void merge(Accumulator other) {
+            switch (criterion.getFunction()) {
+                case COUNT:
+                    count += other.count;
+                    break;
+                case SUM:
+                case AVG:
+                    count += other.count;
+                    if (other.decimalSum != null) addToSum(other.decimalSum);
+                    if (other.integerSum != null) addToSum(other.integerSum);
+                    if (other.scale > scale) scale = other.scale;
+                    break;
+                case MIN:
+                case MAX:
+                    if (other.comparable != null) select(other.value, other.comparable);
+                    break;
+                case FIRST:
+                    if (count == 0) value = other.value;
+                    count += other.count;
+                    break;
+                case LAST:
+                    if (other.count > 0) value = other.value;
+                    count += other.count;
+                    break;
+            }
+        }
+
+        /**
+         * Returns the result of the aggregate.
+         *
+         * @return The result of the aggregate.
+         */
+        public Object getResult() {
+            Object result = null;
+
+            switch (criterion.getFunction()) {
+                case COUNT:
+                    result = BigInteger.valueOf(count);
+                    break;
+                case SUM:
+                    if (decimalSum != null) {
+                        result = decimalSum;
+                    } else if (integerSum != null) {
+                        result = integerSum;
+                    }
+                    break;
+                case AVG:
+                    if (decimalSum != null) {
+                        result = average(decimalSum, count, scale);
+                    } else if (integerSum != null && criterion.getType() == IDataComparisonType.DURATION) {
+                        // durations are summed in milliseconds, and are averaged to the nearest millisecond
+                        result = BigDecimalHelper.divide(new BigDecimal(integerSum), BigDecimal.valueOf(count), 0, null).toBigInteger();
+                    } else if (integerSum != null) {
+                        result = average(new BigDecimal(integerSum), count, 0);
+                    }
+                    break;
+                default:
+                    result = value;
+                    break;
+            }
+
+            // durations are summed in milliseconds, so convert the result back to the original duration pattern
+            if (result instanceof BigInteger && criterion.getType() == IDataComparisonType.DURATION && (criterion.getFunction() == IDataAggregateFunction.SUM || criterion.getFunction() == IDataAggregateFunction.AVG)) {
+                result = DurationHelper.format(result.toString(), "milliseconds", criterion.getPattern());
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,702 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataPortable;
+import com.wm.util.Table;
+import com.wm.util.coder.IDataCodable;
+import com.wm.util.coder.ValuesCodable;
+import permafrost.tundra.io.StreamHelper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Deserializes and serializes IData objects from and to a compact, length-prefixed binary format, intended for fast
+ * internal hand-offs, pipeline captures and caches rather than interchange.
+ *
+ * The format starts with a four byte header, "TDB" followed by a version byte, and is then a single tagged value.
+ * Lengths and counts are written as unsigned variable length integers, and signed integers in zig-zag encoding.
+ * Strings are always written as UTF-8, so the charset arguments are ignored. Each distinct key is written once and
+ * referenced by its index in a string table thereafter. Supported values are null, String, String[], String[][],
+ * IData (including IDataCodable, IDataPortable and ValuesCodable, which are decoded as IData), IData[] (including
+ * Table and arrays of the aforementioned), byte[], BigDecimal, BigInteger, Calendar, Date, the boxed primitive types,
+ * and arrays of any of these; any other value causes an IOException when encoding.
+ */
+public class IDataBinaryParser extends IDataTextParser {
+    /**
+     * The maximum depth to which documents and arrays may be nested when decoding.
+     */
+    public static final int MAXIMUM_NESTING_DEPTH = 512;
+    /**
+     * The header which starts every encoding.
+     */
+    private static final byte[] HEADER = { 'T', 'D', 'B', 1 };
+    /**
+     * The character set used for all strings.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * The tags which identify the type of each value.
+     */
+    private static final int NULL = 0, STRING = 1, STRING_ARRAY = 2, STRING_TABLE = 3, IDATA = 4, IDATA_ARRAY = 5,
+        BYTES = 6, DECIMAL = 7, BIG_INTEGER = 8, CALENDAR = 9, DATE = 10, INTEGER = 11, LONG = 12, SHORT = 13,
+        BYTE = 14, FLOAT = 15, DOUBLE = 16, TRUE = 17, FALSE = 18, CHARACTER = 19, ARRAY = 20;
+    /**
+     * The component classes permitted in arrays of other types, keyed by name.
+     */
+    private static final Map<String, Class<?>> ARRAY_COMPONENT_CLASSES = new HashMap<String, Class<?>>();
+
+    static {
+        Class<?>[] classes = { Object.class, String.class, IData.class, byte[].class, BigDecimal.class, BigInteger.class, Calendar.class, Date.class, Integer.class, Long.class, Short.class, Byte.class, Float.class, Double.class, Boolean.class, Character.class };
+        for (Class<?> klass : classes) {
+            ARRAY_COMPONENT_CLASSES.put(klass.getName(), klass);
+        }
+    }
+
+    /**
+     * Initialization on demand holder idiom.
+     */
+    private static class Holder {
+        /**
+         * The singleton instance of the class.
+         */
+        private static final IDataBinaryParser INSTANCE = new IDataBinaryParser();
+    }
+
+    /**
+     * Disallow instantiation of this class.
+     */
+    private IDataBinaryParser() {}
+
+    /**
+     * Returns the singleton instance of this class.
+     *
+     * @return The singleton instance of this class.
+     */
+    public static IDataBinaryParser getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the MIME type this parser handles.
+     *
+     * @return The MIME type this parser handles.
+     */
+    public String getContentType() {
+        return "application/x-tundra-idata";
+    }
+
+    /**
+     * Returns the estimated number of bytes used to encode an element in addition to its key and value.
+     *
+     * @return The estimated number of bytes used to encode an element in addition to its key and value.
+     */
+    @Override
+    protected int getElementOverhead() {
+        return 2;
+    }
+
+    /**
+     * Serializes the given IData document in binary format to the given output stream.
+     *
+     * @param outputStream The stream to write the encoded IData to.
+     * @param document     The IData document to be encoded.
+     * @param charset      Ignored, as strings are always encoded as UTF-8.
+     * @throws IOException If there is a problem writing to the stream, or the document contains unsupported values.
+     */
+    public void encode(OutputStream outputStream, IData document, Charset charset) throws IOException {
+        Encoder encoder = new Encoder(outputStream);
+        encoder.writeBytes(HEADER, 0, HEADER.length);
+        encoder.writeValue(document);
+        encoder.flush();
+    }
+
+    /**
+     * Returns an IData representation of the binary data read from the given input stream. The input stream is not
+     * closed.
+     *
+     * @param inputStream The input stream to be decoded.
+     * @param charset     Ignored, as strings are always encoded as UTF-8.
+     * @return An IData representation of the given input stream data.
+     * @throws IOException If there is a problem reading from the stream, or the data is malformed.
+     */
+    public IData decode(InputStream inputStream, Charset charset) throws IOException {
+        return decodeFromBytes(StreamHelper.readToBytes(inputStream, false), charset);
+    }
+
+    /**
+     * Decodes the given binary data as an IData, reading directly from the given array.
+     *
+     * @param bytes   The byte[] to read the data to be decoded from.
+     * @param charset Ignored, as strings are always encoded as UTF-8.
+     * @return The IData representation of the byte data.
+     * @throws IOException If the data is malformed.
+     */
+    @Override
+    public IData decodeFromBytes(byte[] bytes, Charset charset) throws IOException {
+        if (bytes == null) throw new NullPointerException("bytes must not be null");
+
+        Decoder decoder = new Decoder(bytes);
+        for (byte b : HEADER) {
+            if (decoder.readByte() != b) throw new IOException("Malformed binary IData: unrecognized header");
+        }
+
+        Object value = decoder.readValue();
+        if (value != null && !(value instanceof IData)) throw new IOException("Malformed binary IData: document expected");
+        if (decoder.position != bytes.length) throw new IOException("Malformed binary IData: unexpected trailing data");
+
+        return (IData)value;
+    }
+
+    /**
+     * Writes values in binary format to an output stream, through an internal buffer.
+     */
+    private static class Encoder {
+        protected OutputStream outputStream;
+        protected byte[] buffer = new byte[StreamHelper.DEFAULT_BUFFER_SIZE];
+        protected int position;
+        protected Map<String, Integer> keys = new HashMap<String, Integer>();
+
+        /**
+         * Constructs a new encoder.
+         *
+         * @param outputStream The stream to write to.
+         */
+        public Encoder(OutputStream outputStream) {
+            if (outputStream == null) throw new NullPointerException("outputStream must not be null");
+            this.outputStream = outputStream;
+        }
+
+        /**
+         * Ensures the buffer has room for the given number of bytes, flushing it if necessary.
+         *
+         * @param length The number of bytes required, which must not exceed the buffer size.
+         * @throws IOException If an I/O error occurs.
+         */
+        private void ensure(int length) throws IOException {
+            if (position + length > buffer.length) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        /**
+         * Writes any buffered bytes to the output stream.
+         *
+         * @throws IOException If an I/O error occurs.
+         */
+        public void flush() throws IOException {
+            if (position > 0) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+            outputStream.flush();
+        }
+
+        public void writeByte(int b) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte)b;
+        }
+
+        public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.length) {
+                ensure(buffer.length);
+                outputStream.write(bytes, offset, length);
+            } else {
+                ensure(length);
+                System.arraycopy(bytes, offset, buffer, position, length);
+                position += length;
+            }
+        }
+
+        public void writeUnsigned(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte)value;
+        }
+
+        public void writeSigned(long value) throws IOException {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes the given string, which may be null, as its UTF-8 length plus one followed by its UTF-8 bytes.
+         *
+         * @param string The string to be written.
+         * @throws IOException If an I/O error occurs.
+         */
+        public void writeString(String string) throws IOException {
+            if (string == null) {
+                writeUnsigned(0);
+                return;
+            }
+
+            int length = string.length();
+            boolean ascii = length <= buffer.length;
+            for (int i = 0; ascii && i < length; i++) {
+                ascii = string.charAt(i) < 0x80;
+            }
+
+            if (ascii) {
+                // fast path for ASCII strings, which encode one byte per character
+                writeUnsigned(length + 1);
+                ensure(length);
+                for (int i = 0; i < length; i++) {
+                    buffer[position++] = (byte)string.charAt(i);
+                }
+            } else {
+                byte[] bytes = string.getBytes(UTF_8);
+                writeUnsigned(bytes.length + 1L);
+                writeBytes(bytes, 0, bytes.length);
+            }
+        }
+
+        public void writeKey(String key) throws IOException {
+            Integer index = key == null ? null : keys.get(key);
+            if (index == null) {
+                writeUnsigned(0);
+                writeString(key);
+                if (key != null) keys.put(key, keys.size());
+            } else {
+                writeUnsigned(index + 1L);
+            }
+        }
+
+        public void writeDocument(IData document) throws IOException {
+            IDataCursor cursor = document.getCursor();
+            try {
+                int count = 0;
+                while (cursor.next()) count++;
+                writeUnsigned(count);
+
+                cursor.home();
+                while (cursor.next()) {
+                    writeKey(cursor.getKey());
+                    writeValue(cursor.getValue());
+                }
+            } finally {
+                cursor.destroy();
+            }
+        }
+
+        public void writeStrings(String[] array) throws IOException {
+            writeUnsigned(array.length);
+            for (String string : array) {
+                writeString(string);
+            }
+        }
+
+        /**
+         * Writes the given value preceded by its tag.
+         *
+         * @param value The value to be written.
+         * @throws IOException If an I/O error occurs, or the value is not supported.
+         */
+        public void writeValue(Object value) throws IOException {
+            if (value == null) {
+                writeByte(NULL);
+            } else if (value instanceof String) {
+                writeByte(STRING);
+                writeString((String)value);
+            } else if (value instanceof IData) {
+                writeByte(IDATA);
+                writeDocument((IData)value);
+            } else if (value instanceof String[][]) {
+                String[][] table = (String[][])value;
+                writeByte(STRING_TABLE);
+                writeUnsigned(table.length);
+                for (String[] row : table) {
+                    if (row == null) {
+                        writeUnsigned(0);
+                    } else {
+                        writeUnsigned(row.length + 1L);
+                        for (String string : row) {
+                            writeString(string);
+                        }
+                    }
+                }
+            } else if (value instanceof String[]) {
+                writeByte(STRING_ARRAY);
+                writeStrings((String[])value);
+            } else if (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[]) {
+                IData[] array = IDataHelper.toIDataArray(value);
+                writeByte(IDATA_ARRAY);
+                writeUnsigned(array.length);
+                for (IData document : array) {
+                    if (document == null) {
+                        writeByte(NULL);
+                    } else {
+                        writeByte(IDATA);
+                        writeDocument(document);
+                    }
+                }
+            } else if (value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable) {
+                writeByte(IDATA);
+                writeDocument(IDataHelper.toIData(value));
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[])value;
+                writeByte(BYTES);
+                writeUnsigned(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            } else if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal)value;
+                byte[] bytes = decimal.unscaledValue().toByteArray();
+                writeByte(DECIMAL);
+                writeSigned(decimal.scale());
+                writeUnsigned(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            } else if (value instanceof BigInteger) {
+                byte[] bytes = ((BigInteger)value).toByteArray();
+                writeByte(BIG_INTEGER);
+                writeUnsigned(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            } else if (value instanceof Calendar) {
+                Calendar calendar = (Calendar)value;
+                writeByte(CALENDAR);
+                writeSigned(calendar.getTimeInMillis());
+                writeString(calendar.getTimeZone().getID());
+            } else if (value.getClass() == Date.class) {
+                writeByte(DATE);
+                writeSigned(((Date)value).getTime());
+            } else if (value instanceof Integer) {
+                writeByte(INTEGER);
+                writeSigned((Integer)value);
+            } else if (value instanceof Long) {
+                writeByte(LONG);
+                writeSigned((Long)value);
+            } else if (value instanceof Short) {
+                writeByte(SHORT);
+                writeSigned((Short)value);
+            } else if (value instanceof Byte) {
+                writeByte(BYTE);
+                writeByte((Byte)value);
+            } else if (value instanceof Float) {
+                writeByte(FLOAT);
+                writeFixed(Float.floatToRawIntBits((Float)value), 4);
+            } else if (value instanceof Double) {
+                writeByte(DOUBLE);
+                writeFixed(Double.doubleToRawLongBits((Double)value), 8);
+            } else if (value instanceof Boolean) {
+                writeByte((Boolean)value ? TRUE : FALSE);
+            } else if (value instanceof Character) {
+                writeByte(CHARACTER);
+                writeUnsigned((Character)value);
+            } else if (value instanceof Object[]) {
+                writeArray((Object[])value);
+            } else {
+                throw new IOException("Unsupported value type for binary IData encoding: " + value.getClass().getName());
+            }
+        }
+
+        private void writeFixed(long bits, int length) throws IOException {
+            ensure(length);
+            for (int i = length - 1; i >= 0; i--) {
+                buffer[position++] = (byte)(bits >>> (i * 8));
+            }
+        }
+
+        /**
+         * Writes an array of a type not handled by a more specific tag, as its component type followed by its tagged
+         * items.
+         *
+         * @param array The array to be written.
+         * @throws IOException If an I/O error occurs, or the array's component type is not supported.
+         */
+        private void writeArray(Object[] array) throws IOException {
+            Class<?> componentType = array.getClass().getComponentType();
+            int dimensions = 0;
+            while (componentType.isArray() && componentType != byte[].class) {
+                componentType = componentType.getComponentType();
+                dimensions++;
+            }
+
+            if (!ARRAY_COMPONENT_CLASSES.containsKey(componentType.getName()) || ARRAY_COMPONENT_CLASSES.get(componentType.getName()) != componentType) {
+                throw new IOException("Unsupported array type for binary IData encoding: " + array.getClass().getName());
+            }
+
+            writeByte(ARRAY);
+            writeUnsigned(dimensions);
+            writeString(componentType.getName());
+            writeUnsigned(array.length);
+            for (Object item : array) {
+                writeValue(item);
+            }
+        }
+    }
+
+    /**
+     * Reads values in binary format directly from a byte array.
+     */
+    private static class Decoder {
+        protected byte[] bytes;
+        protected int position;
+        protected List<String> keys = new ArrayList<String>();
+        protected int depth;
+
+        /**
+         * Constructs a new decoder.
+         *
+         * @param bytes The bytes to be decoded.
+         */
+        public Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Ensures the given number of bytes remain to be read.
+         *
+         * @param length The number of bytes required.
+         * @throws IOException If fewer bytes remain.
+         */
+        private void require(long length) throws IOException {
+            if (length < 0 || length > bytes.length - position) throw new IOException("Malformed binary IData: unexpected end of data");
+        }
+
+        public int readByte() throws IOException {
+            require(1);
+            return bytes[position++];
+        }
+
+        public long readUnsigned() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed binary IData: variable length integer too long");
+        }
+
+        public long readSigned() throws IOException {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Reads a length or count, which must not exceed the number of remaining bytes since every item occupies at
+         * least one byte.
+         *
+         * @return The length or count.
+         * @throws IOException If the length is invalid.
+         */
+        public int readLength() throws IOException {
+            long length = readUnsigned();
+            require(length);
+            return (int)length;
+        }
+
+        public String readString() throws IOException {
+            long length = readUnsigned();
+            if (length == 0) return null;
+            require(length - 1);
+            String string = new String(bytes, position, (int)(length - 1), UTF_8);
+            position += (int)(length - 1);
+            return string;
+        }
+
+        public byte[] readBytes() throws IOException {
+            int length = readLength();
+            byte[] output = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return output;
+        }
+
+        public String readKey() throws IOException {
+            long index = readUnsigned();
+            if (index == 0) {
+                String key = readString();
+                if (key != null) keys.add(key);
+                return key;
+            }
+            if (index > keys.size()) throw new IOException("Malformed binary IData: invalid key reference");
+            return keys.get((int)(index - 1));
+        }
+
+        /**
+         * Records entry into a nested document or array, so that deeply nested input fails with an IOException
+         * rather than overflowing the stack.
+         *
+         * @throws IOException If the maximum nesting depth is exceeded.
+         */
+        private void enter() throws IOException {
+            if (++depth > MAXIMUM_NESTING_DEPTH) throw new IOException("Malformed binary IData: maximum nesting depth of " + MAXIMUM_NESTING_DEPTH + " exceeded");
+        }
+
+        public IData readDocument() throws IOException {
+            enter();
+            int count = readLength();
+            IData document = IDataFactory.create();
+            IDataCursor cursor = document.getCursor();
+            try {
+                for (int i = 0; i < count; i++) {
+                    String key = readKey();
+                    cursor.insertAfter(key, readValue());
+                }
+            } finally {
+                cursor.destroy();
+            }
+            depth--;
+            return document;
+        }
+
+        public String[] readStrings(int length) throws IOException {
+            String[] array = new String[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readString();
+            }
+            return array;
+        }
+
+        private long readFixed(int length) throws IOException {
+            require(length);
+            long bits = 0;
+            for (int i = 0; i < length; i++) {
+                bits = (bits << 8) | (bytes[position++] & 0xFF);
+            }
+            return bits;
+        }
+
+        /**
+         * Reads a tagged value.
+         *
+         * @return The value read.
+         * @throws IOException If the data is malformed.
+         */
+        public Object readValue() throws IOException {
+            int tag = readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case STRING_ARRAY:
+                    return readStrings(readLength());
+                case STRING_TABLE:
+                    String[][] table = new String[readLength()][];
+                    for (int i = 0; i < table.length; i++) {
+                        long length = readUnsigned();
+                        if (length > 0) {
+                            require(length - 1);
+                            table[i] = readStrings((int)(length - 1));
+                        }
+                    }
+                    return table;
+                case IDATA:
+                    return readDocument();
+                case IDATA_ARRAY:
+                    IData[] array = new IData[readLength()];
+                    for (int i = 0; i < array.length; i++) {
+                        int itemTag = readByte();
+                        if (itemTag == IDATA) array[i] = readDocument();
+                        else if (itemTag != NULL) throw new IOException("Malformed binary IData: document expected");
+                    }
+                    return array;
+                case BYTES:
+                    return readBytes();
+                case DECIMAL:
+                    int scale = (int)readSigned();
+                    return new BigDecimal(new BigInteger(readBytes()), scale);
+                case BIG_INTEGER:
+                    return new BigInteger(readBytes());
+                case CALENDAR:
+                    long time = readSigned();
+                    Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone(readString()));
+                    calendar.setTimeInMillis(time);
+                    return calendar;
+                case DATE:
+                    return new Date(readSigned());
+                case INTEGER:
+                    return (int)readSigned();
+                case LONG:
+                    return readSigned();
+                case SHORT:
+                    return (short)readSigned();
+                case BYTE:
+                    return (byte)readByte();
+                case FLOAT:
+                    return Float.intBitsToFloat((int)readFixed(4));
+                case DOUBLE:
+                    return Double.longBitsToDouble(readFixed(8));
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case CHARACTER:
+                    return (char)readUnsigned();
+                case ARRAY:
+                    return readArray();
+                default:
+                    throw new IOException("Malformed binary IData: unknown tag " + tag);
+            }
+        }
+
+        /**
+         * Reads an array of a type not handled by a more specific tag.
+         *
+         * @return The array read.
+         * @throws IOException If the data is malformed or the array type is not supported.
+         */
+        private Object[] readArray() throws IOException {
+            enter();
+            int dimensions = readLength();
+            Class<?> componentType = ARRAY_COMPONENT_CLASSES.get(readString());
+            if (componentType == null) throw new IOException("Malformed binary IData: unsupported array type");
+            for (int i = 0; i < dimensions; i++) {
+                componentType = Array.newInstance(componentType, 0).getClass();
+            }
+
+            Object[] array = (Object[])Array.newInstance(componentType, readLength());
+            for (int i = 0; i < array.length; i++) {
+                try {
+                    array[i] = readValue();
+                } catch (ArrayStoreException ex) {
+                    throw new IOException("Malformed binary IData: array item does not match array type", ex);
+                }
+            }
+            depth--;
+            return array;
+        }
+    }
+}
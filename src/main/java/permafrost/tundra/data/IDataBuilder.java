@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * An IDataHandler which materializes the streamed events as an IData document, with arrays typed by their reported
+ * component type where known, or otherwise by the most specific common type of their items.
+ */
+public class IDataBuilder implements IDataHandler {
+    /**
+     * The stack of documents and arrays currently being built.
+     */
+    protected LinkedList<Frame> stack = new LinkedList<Frame>();
+    /**
+     * The outermost value that was built.
+     */
+    protected Object value;
+
+    /**
+     * Called at the start of a document.
+     */
+    public void startDocument() {
+        stack.push(new Frame(IDataFactory.create()));
+    }
+
+    /**
+     * Called at the end of a document.
+     */
+    public void endDocument() {
+        Frame frame = pop();
+        frame.cursor.destroy();
+        add(frame.document);
+    }
+
+    /**
+     * Called with the key of the next element in the current document.
+     *
+     * @param key The key of the element.
+     */
+    public void key(String key) {
+        Frame frame = stack.peek();
+        if (frame == null || frame.document == null) throw new IllegalStateException("key must be within a document");
+        frame.key = key;
+    }
+
+    /**
+     * Called with a simple value.
+     *
+     * @param value The value, which may be null.
+     */
+    public void value(Object value) {
+        add(value);
+    }
+
+    /**
+     * Called at the start of an array.
+     *
+     * @param componentType The component type of the array, or null if not known.
+     */
+    public void startArray(Class<?> componentType) {
+        stack.push(new Frame(componentType));
+    }
+
+    /**
+     * Called at the end of an array.
+     */
+    public void endArray() {
+        Frame frame = pop();
+        add(toArray(frame.items, frame.componentType));
+    }
+
+    /**
+     * Returns the outermost document that was built.
+     *
+     * @return The outermost document that was built, or null if no document was built.
+     */
+    public IData getDocument() {
+        return value instanceof IData ? (IData)value : null;
+    }
+
+    /**
+     * Returns the outermost value that was built.
+     *
+     * @return The outermost value that was built.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Removes and returns the innermost frame.
+     *
+     * @return The innermost frame.
+     */
+    private Frame pop() {
+        if (stack.isEmpty()) throw new IllegalStateException("unbalanced end event");
+        return stack.pop();
+    }
+
+    /**
+     * Adds the given value to the innermost document or array, or sets it as the outermost value if there is none.
+     *
+     * @param item The value to be added.
+     */
+    private void add(Object item) {
+        Frame frame = stack.peek();
+        if (frame == null) {
+            value = item;
+        } else if (frame.document != null) {
+            if (frame.key == null) throw new IllegalStateException("value within a document must be preceded by a key");
+            frame.cursor.insertAfter(frame.key, item);
+            frame.key = null;
+        } else {
+            frame.items.add(item);
+        }
+    }
+
+    /**
+     * Converts the given list of items to an array of the given component type, or if not known or not compatible
+     * with the items, of the most specific common type of the items.
+     *
+     * @param items         The items to be converted.
+     * @param componentType The component type of the array, or null if not known.
+     * @return              An array containing the given items.
+     */
+    static Object[] toArray(List<Object> items, Class<?> componentType) {
+        if (componentType == null || componentType.isPrimitive() || !isInstance(componentType, items)) {
+            componentType = null;
+            for (Object item : items) {
+                if (item == null) continue;
+                Class<?> itemType = item instanceof IData ? IData.class : item.getClass();
+                if (componentType == null) {
+                    componentType = itemType;
+                } else if (!componentType.isAssignableFrom(itemType)) {
+                    componentType = Object.class;
+                    break;
+                }
+            }
+            if (componentType == null) componentType = Object.class;
+        }
+
+        return items.toArray((Object[])Array.newInstance(componentType, items.size()));
+    }
+
+    /**
+     * Returns true if all the given items are instances of the given type.
+     *
+     * @param type  The type to check.
+     * @param items The items to check.
+     * @return      True if all the given items are null or instances of the given type.
+     */
+    private static boolean isInstance(Class<?> type, List<Object> items) {
+        for (Object item : items) {
+            if (item != null && !type.isInstance(item)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A document or array being built.
+     */
+    protected static class Frame {
+        protected IData document;
+        protected IDataCursor cursor;
+        protected String key;
+        protected List<Object> items;
+        protected Class<?> componentType;
+
+        /**
+         * Constructs a new frame for building the given document.
+         *
+         * @param document The document being built.
+         */
+        public Frame(IData document) {
+            this.document = document;
+            this.cursor = document.getCursor();
+        }
+
+        /**
+         * Constructs a new frame for building an array.
+         *
+         * @param componentType The component type of the array, or null if not known.
+         */
+        public Frame(Class<?> componentType) {
+            this.items = new ArrayList<Object>();
+            this.componentType = componentType;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import permafrost.tundra.io.StreamHelper;
+import permafrost.tundra.lang.CharsetHelper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Deserializes and serializes IData objects from and to delimiter-separated values, such as RFC 4180 comma-separated
+ * values, where fields containing the delimiter, quotes or line breaks are enclosed in double quotes and embedded
+ * quotes are doubled.
+ *
+ * Records can be read incrementally from a stream with an IDataRecordIterator, and written incrementally from an
+ * iterator, so that files of any size can be processed in constant memory. When decoded or encoded as a single
+ * document, the records are held in an IData[] under the key "recordWithNoID".
+ */
+public class IDataCSVParser extends IDataTextParser {
+    /**
+     * The default delimiter used to separate fields.
+     */
+    public static final char DEFAULT_DELIMITER = ',';
+    /**
+     * The key of the IData[] holding the records when decoded or encoded as a single document.
+     */
+    public static final String RECORDS_KEY = "recordWithNoID";
+
+    /**
+     * Initialization on demand holder idiom.
+     */
+    private static class Holder {
+        /**
+         * The singleton instance of the class.
+         */
+        private static final IDataCSVParser INSTANCE = new IDataCSVParser();
+    }
+
+    /**
+     * The delimiter used to separate fields.
+     */
+    protected char delimiter;
+    /**
+     * Whether the first record is a header containing the keys for subsequent records.
+     */
+    protected boolean header;
+
+    /**
+     * Constructs a new parser which uses the default delimiter and a header record.
+     */
+    public IDataCSVParser() {
+        this(DEFAULT_DELIMITER);
+    }
+
+    /**
+     * Constructs a new parser which uses the given delimiter and a header record.
+     *
+     * @param delimiter The delimiter used to separate fields.
+     */
+    public IDataCSVParser(char delimiter) {
+        this(delimiter, true);
+    }
+
+    /**
+     * Constructs a new parser.
+     *
+     * @param delimiter The delimiter used to separate fields.
+     * @param header    Whether the first record is a header containing the keys for subsequent records; if false, or
+     *                  for fields beyond those named by the header, the one-based column number is used as the key.
+     */
+    public IDataCSVParser(char delimiter, boolean header) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') throw new IllegalArgumentException("delimiter must not be a quote or line break");
+        this.delimiter = delimiter;
+        this.header = header;
+    }
+
+    /**
+     * Returns the singleton instance of this class, which uses the default delimiter and a header record.
+     *
+     * @return The singleton instance of this class.
+     */
+    public static IDataCSVParser getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the MIME type this parser handles.
+     *
+     * @return The MIME type this parser handles.
+     */
+    public String getContentType() {
+        return "text/csv";
+    }
+
+    /**
+     * Returns the estimated number of bytes used to encode an element in addition to its value.
+     *
+     * @return The estimated number of bytes used to encode an element in addition to its value.
+     */
+    @Override
+    protected int getElementOverhead() {
+        return 1;
+    }
+
+    /**
+     * Returns an iterator which reads records incrementally from the given input stream. Closing the iterator closes
+     * the stream.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use.
+     * @return An iterator over the records in the given input stream.
+     */
+    public IDataRecordIterator iterate(InputStream inputStream, Charset charset) {
+        if (inputStream == null) throw new NullPointerException("inputStream must not be null");
+        return iterate(new InputStreamReader(inputStream, CharsetHelper.normalize(charset)));
+    }
+
+    /**
+     * Returns an iterator which reads records incrementally from the given reader. Closing the iterator closes the
+     * reader.
+     *
+     * @param reader The reader to be read.
+     * @return An iterator over the records in the given reader.
+     */
+    public IDataRecordIterator iterate(Reader reader) {
+        if (reader == null) throw new NullPointerException("reader must not be null");
+        return new CSVRecordIterator(new Lexer(reader, delimiter), header);
+    }
+
+    /**
+     * Returns an IData representation of the delimited data read from the given input stream, with the records in an
+     * IData[] under the key "recordWithNoID".
+     *
+     * @param inputStream The input stream to be decoded.
+     * @param charset     The character set to use.
+     * @return An IData representation of the given input stream data.
+     * @throws IOException If there is a problem reading from the stream, or the data is malformed.
+     */
+    public IData decode(InputStream inputStream, Charset charset) throws IOException {
+        if (inputStream == null) throw new NullPointerException("inputStream must not be null");
+
+        Lexer lexer = new Lexer(new InputStreamReader(inputStream, CharsetHelper.normalize(charset)), delimiter);
+        CSVRecordIterator iterator = new CSVRecordIterator(lexer, header);
+        List<IData> records = new ArrayList<IData>();
+        IData record;
+        while ((record = iterator.read()) != null) {
+            records.add(record);
+        }
+
+        IData document = IDataFactory.create();
+        IDataCursor cursor = document.getCursor();
+        cursor.insertAfter(RECORDS_KEY, records.toArray(new IData[records.size()]));
+        cursor.destroy();
+
+        return document;
+    }
+
+    /**
+     * Serializes the records in the IData[] under the key "recordWithNoID" in the given document as delimited data to
+     * the given output stream. The columns are the union of the keys of all records, in order of first appearance.
+     *
+     * @param outputStream The stream to write the encoded IData to.
+     * @param document     The IData document to be encoded.
+     * @param charset      The character set to use.
+     * @throws IOException If there is a problem writing to the stream.
+     */
+    public void encode(OutputStream outputStream, IData document, Charset charset) throws IOException {
+        IData[] records = null;
+        if (document != null) {
+            IDataCursor cursor = document.getCursor();
+            try {
+                if (cursor.first(RECORDS_KEY)) records = IDataHelper.toIDataArray(cursor.getValue());
+            } finally {
+                cursor.destroy();
+            }
+        }
+
+        encode(outputStream, records, charset);
+    }
+
+    /**
+     * Serializes the given records as delimited data to the given output stream. The columns are the union of the
+     * keys of all records, in order of first appearance.
+     *
+     * @param outputStream The stream to write the encoded records to.
+     * @param records      The records to be encoded.
+     * @param charset      The character set to use.
+     * @throws IOException If there is a problem writing to the stream.
+     */
+    public void encode(OutputStream outputStream, IData[] records, Charset charset) throws IOException {
+        if (records == null) records = new IData[0];
+
+        Set<String> columns = new LinkedHashSet<String>();
+        for (IData record : records) {
+            if (record == null) continue;
+            IDataCursor cursor = record.getCursor();
+            while (cursor.next()) {
+                columns.add(cursor.getKey());
+            }
+            cursor.destroy();
+        }
+
+        encode(outputStream, Arrays.asList(records).iterator(), columns.toArray(new String[columns.size()]), charset);
+    }
+
+    /**
+     * Serializes the records returned by the given iterator as delimited data to the given output stream, writing
+     * each record as it is returned so that any number of records can be encoded in constant memory.
+     *
+     * @param outputStream The stream to write the encoded records to.
+     * @param records      The records to be encoded.
+     * @param columns      The keys of the columns to be written, or null to use the keys of the first record.
+     * @param charset      The character set to use.
+     * @throws IOException If there is a problem writing to the stream.
+     */
+    public void encode(OutputStream outputStream, Iterator<? extends IData> records, String[] columns, Charset charset) throws IOException {
+        if (outputStream == null) throw new NullPointerException("outputStream must not be null");
+        if (records == null) throw new NullPointerException("records must not be null");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, CharsetHelper.normalize(charset)), StreamHelper.DEFAULT_BUFFER_SIZE);
+        boolean headerWritten = false;
+
+        while (records.hasNext()) {
+            IData record = records.next();
+            if (record == null) continue;
+
+            if (columns == null) {
+                List<String> keys = new ArrayList<String>();
+                IDataCursor cursor = record.getCursor();
+                while (cursor.next()) {
+                    keys.add(cursor.getKey());
+                }
+                cursor.destroy();
+                columns = keys.toArray(new String[keys.size()]);
+            }
+
+            if (!headerWritten) {
+                writeHeader(writer, columns);
+                headerWritten = true;
+            }
+
+            IDataCursor cursor = record.getCursor();
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) writer.write(delimiter);
+                    if (cursor.first(columns[i])) writeField(writer, cursor.getValue());
+                }
+            } finally {
+                cursor.destroy();
+            }
+            writer.write("\r\n");
+        }
+
+        if (!headerWritten && columns != null) writeHeader(writer, columns);
+
+        writer.flush();
+    }
+
+    /**
+     * Writes the header record, if this parser uses one.
+     *
+     * @param writer  The writer to write to.
+     * @param columns The keys of the columns.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeHeader(Writer writer, String[] columns) throws IOException {
+        if (!header) return;
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) writer.write(delimiter);
+            writeField(writer, columns[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes the given value as a field, quoting it if it contains the delimiter, a quote, or a line break.
+     *
+     * @param writer The writer to write to.
+     * @param value  The value to be written.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeField(Writer writer, Object value) throws IOException {
+        if (value == null) return;
+
+        String string = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < string.length() && !quote; i++) {
+            char c = string.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\r' || c == '\n';
+        }
+
+        if (!quote) {
+            writer.write(string);
+        } else {
+            writer.write('"');
+            int start = 0;
+            for (int i = 0; i < string.length(); i++) {
+                if (string.charAt(i) == '"') {
+                    writer.write(string, start, i + 1 - start);
+                    writer.write('"');
+                    start = i + 1;
+                }
+            }
+            writer.write(string, start, string.length() - start);
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Tokenizes delimited data read from a character stream through a reusable buffer.
+     */
+    private static class Lexer {
+        protected Reader reader;
+        protected char delimiter;
+        protected char[] buffer = new char[StreamHelper.DEFAULT_BUFFER_SIZE];
+        protected int position;
+        protected int limit;
+        protected long line = 1;
+        protected StringBuilder builder = new StringBuilder();
+
+        /**
+         * Constructs a new lexer.
+         *
+         * @param reader    The reader to tokenize.
+         * @param delimiter The delimiter used to separate fields.
+         */
+        public Lexer(Reader reader, char delimiter) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+        }
+
+        private boolean fill() throws IOException {
+            position = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        private int peek() throws IOException {
+            if (position >= limit && !fill()) return -1;
+            return buffer[position];
+        }
+
+        private IOException error(String message) {
+            return error(message, line);
+        }
+
+        private IOException error(String message, long line) {
+            return new IOException("Malformed delimited data at line " + line + ": " + message);
+        }
+
+        /**
+         * Reads the next record's fields into the given list, skipping blank lines.
+         *
+         * @param fields The list to read the fields into.
+         * @return True if a record was read, false at the end of the stream.
+         * @throws IOException If an I/O error occurs, or the data is malformed.
+         */
+        public boolean readRecord(List<String> fields) throws IOException {
+            fields.clear();
+
+            while (true) {
+                int c = peek();
+                if (c < 0) return false;
+                if (c == '\r' || c == '\n') {
+                    // skip blank lines
+                    readLineBreak();
+                    continue;
+                }
+                break;
+            }
+
+            while (true) {
+                fields.add(peek() == '"' ? readQuotedField() : readField());
+
+                int c = peek();
+                if (c == delimiter) {
+                    position++;
+                } else {
+                    if (c == '\r' || c == '\n') readLineBreak();
+                    return true;
+                }
+            }
+        }
+
+        private void readLineBreak() throws IOException {
+            if (buffer[position++] == '\r' && peek() == '\n') position++;
+            line++;
+        }
+
+        private String readField() throws IOException {
+            builder.setLength(0);
+            while (true) {
+                if (position >= limit && !fill()) return builder.toString();
+
+                int start = position;
+                while (position < limit) {
+                    char c = buffer[position];
+                    if (c == delimiter || c == '\r' || c == '\n') break;
+                    if (c == '"') throw error("unexpected quote in unquoted field");
+                    position++;
+                }
+
+                if (position < limit) {
+                    if (builder.length() == 0) return new String(buffer, start, position - start);
+                    builder.append(buffer, start, position - start);
+                    return builder.toString();
+                }
+                builder.append(buffer, start, position - start);
+            }
+        }
+
+        private String readQuotedField() throws IOException {
+            long start = line;
+            position++;
+            builder.setLength(0);
+            while (true) {
+                if (position >= limit && !fill()) throw error("unterminated quoted field", start);
+
+                int offset = position;
+                while (position < limit && buffer[position] != '"') {
+                    if (buffer[position] == '\n') line++;
+                    position++;
+                }
+                builder.append(buffer, offset, position - offset);
+
+                if (position < limit) {
+                    position++;
+                    if (peek() == '"') {
+                        builder.append('"');
+                        position++;
+                    } else {
+                        int c = peek();
+                        if (c >= 0 && c != delimiter && c != '\r' && c != '\n') throw error("unexpected character after quoted field");
+                        return builder.toString();
+                    }
+                }
+            }
+        }
+
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Iterates over the records read incrementally by a lexer, reusing the same key instances for every record.
+     */
+    private static class CSVRecordIterator implements IDataRecordIterator {
+        protected Lexer lexer;
+        protected boolean header;
+        protected String[] keys;
+        protected List<String> fields = new ArrayList<String>();
+        protected IData next;
+        protected boolean finished;
+
+        /**
+         * Constructs a new iterator.
+         *
+         * @param lexer  The lexer to read records with.
+         * @param header Whether the first record is a header containing the keys for subsequent records.
+         */
+        public CSVRecordIterator(Lexer lexer, boolean header) {
+            this.lexer = lexer;
+            this.header = header;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return The next record, or null at the end of the stream.
+         * @throws IOException If an I/O error occurs, or the data is malformed.
+         */
+        protected IData read() throws IOException {
+            if (keys == null) {
+                keys = new String[0];
+                if (header) {
+                    if (!lexer.readRecord(fields)) return null;
+                    keys = fields.toArray(new String[fields.size()]);
+                }
+            }
+
+            if (!lexer.readRecord(fields)) return null;
+
+            int size = fields.size();
+            if (size > keys.length) {
+                int length = keys.length;
+                keys = Arrays.copyOf(keys, size);
+                for (int i = length; i < size; i++) {
+                    keys[i] = Integer.toString(i + 1);
+                }
+            }
+
+            IData record = IDataFactory.create();
+            IDataCursor cursor = record.getCursor();
+            for (int i = 0; i < size; i++) {
+                cursor.insertAfter(keys[i], fields.get(i));
+            }
+            cursor.destroy();
+
+            return record;
+        }
+
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = read();
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+                if (next == null) finished = true;
+            }
+            return next != null;
+        }
+
+        public IData next() {
+            if (!hasNext()) throw new NoSuchElementException("No more records");
+            IData record = next;
+            next = null;
+            return record;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove not supported");
+        }
+
+        public void close() throws IOException {
+            finished = true;
+            next = null;
+            lexer.close();
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataPortable;
+import com.wm.util.Table;
+import com.wm.util.coder.IDataCodable;
+import com.wm.util.coder.ValuesCodable;
+import permafrost.tundra.lang.BasicArrayComparator;
+import permafrost.tundra.lang.BasicObjectComparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes an edit script describing the differences between two IData documents, which IDataPatch can apply to the
+ * first document to produce a document equal to the second according to BasicIDataComparator.
+ *
+ * The script is an IData[] document list, so it can be serialized and sent in place of the whole document. Each edit
+ * contains an "operation" (add, remove or replace), a "path" in the IDataPath syntax such as "a/b[2]/c", the new
+ * "value" for add and replace edits, and "literal" set to true when a top-level key containing path syntax must be
+ * treated literally. An edit without a path replaces or removes the whole document.
+ *
+ * Nested documents are compared key by key, and IData[] document lists index by index, so that only the values that
+ * actually changed are included in the script. Where a change cannot be expressed as edits to individual keys, such as
+ * keys being reordered or a document containing duplicate keys, the enclosing document is replaced in full.
+ *
+ * The IDataHasher structural hash of every nested document and document list is computed once per diff. Subtrees whose
+ * hashes differ are known to differ, so they are descended into without being compared; subtrees whose hashes are
+ * equal are compared once to confirm they are equal, in case of a hash collision, and then skipped.
+ */
+public class IDataDiff {
+    /**
+     * The keys used in each edit in an edit script.
+     */
+    public static final String OPERATION_KEY = "operation", PATH_KEY = "path", VALUE_KEY = "value", LITERAL_KEY = "literal";
+
+    /**
+     * Disallow instantiation of this class.
+     */
+    private IDataDiff() {}
+
+    /**
+     * Returns an edit script which transforms the given before document into the given after document.
+     *
+     * @param before The original document.
+     * @param after  The changed document.
+     * @return       An edit script which transforms before into after, which is empty if they are equal.
+     */
+    public static IData[] compute(IData before, IData after) {
+        List<IData> script = new ArrayList<IData>();
+
+        if (before == null || after == null) {
+            if (before != null) {
+                script.add(edit(IDataEditType.REMOVE, null, false, null));
+            } else if (after != null) {
+                script.add(edit(IDataEditType.REPLACE, null, false, after));
+            }
+        } else {
+            diff(null, before, after, script, new IdentityHashMap<Object, Long>());
+        }
+
+        return script.toArray(new IData[script.size()]);
+    }
+
+    /**
+     * Adds the edits which transform the given before document into the given after document at the given path.
+     *
+     * @param path   The path of the documents being compared, or null for the top-level documents.
+     * @param before The original document.
+     * @param after  The changed document.
+     * @param script The edit script to add edits to.
+     * @param hashes The structural hashes of the documents and document lists compared so far, keyed by identity.
+     */
+    private static void diff(String path, IData before, IData after, List<IData> script, Map<Object, Long> hashes) {
+        if (isSame(before, after, hashes)) return;
+
+        boolean root = path == null;
+        List<String> beforeKeys = new ArrayList<String>(), afterKeys = new ArrayList<String>();
+        Map<String, Object> beforeValues = new HashMap<String, Object>(), afterValues = new HashMap<String, Object>();
+
+        if (!read(before, beforeKeys, beforeValues, root) || !read(after, afterKeys, afterValues, root) || !isOrderPreserved(beforeKeys, afterKeys, beforeValues)) {
+            // this level cannot be expressed as edits to individual keys, and is already known to differ
+            script.add(edit(IDataEditType.REPLACE, path, false, after));
+            return;
+        }
+
+        for (String key : beforeKeys) {
+            if (!afterValues.containsKey(key)) script.add(edit(IDataEditType.REMOVE, child(path, key), isLiteral(key), null));
+        }
+
+        for (String key : afterKeys) {
+            if (beforeValues.containsKey(key)) {
+                diff(child(path, key), isLiteral(key), beforeValues.get(key), afterValues.get(key), script, hashes);
+            }
+        }
+
+        for (String key : afterKeys) {
+            if (!beforeValues.containsKey(key)) script.add(edit(IDataEditType.ADD, child(path, key), isLiteral(key), afterValues.get(key)));
+        }
+    }
+
+    /**
+     * Adds the edits which transform the given before value into the given after value at the given path.
+     *
+     * @param path    The path of the values being compared.
+     * @param literal Whether the path must be treated literally, in which case nested values cannot be addressed.
+     * @param before  The original value.
+     * @param after   The changed value.
+     * @param script  The edit script to add edits to.
+     * @param hashes  The structural hashes of the documents and document lists compared so far, keyed by identity.
+     */
+    private static void diff(String path, boolean literal, Object before, Object after, List<IData> script, Map<Object, Long> hashes) {
+        if (before == after) return;
+
+        if (!literal && before instanceof IData[] && after instanceof IData[]) {
+            diff(path, (IData[])before, (IData[])after, script, hashes);
+        } else if (!literal && isDocument(before) && isDocument(after)) {
+            diff(path, IDataHelper.toIData(before), IDataHelper.toIData(after), script, hashes);
+        } else if (!isEqual(before, after, hashes)) {
+            script.add(edit(IDataEditType.REPLACE, path, literal, after));
+        }
+    }
+
+    /**
+     * Adds the edits which transform the given before document list into the given after document list at the given
+     * path. Items are compared index by index; a run of items removed from the middle of the list is removed in place,
+     * and otherwise items are removed from or added to the end of the list.
+     *
+     * @param path   The path of the document lists being compared.
+     * @param before The original document list.
+     * @param after  The changed document list.
+     * @param script The edit script to add edits to.
+     * @param hashes The structural hashes of the documents and document lists compared so far, keyed by identity.
+     */
+    private static void diff(String path, IData[] before, IData[] after, List<IData> script, Map<Object, Long> hashes) {
+        if (isSame(before, after, hashes)) return;
+
+        int length = Math.min(before.length, after.length);
+
+        int prefix = 0;
+        while (prefix < length && isSame(before[prefix], after[prefix], hashes)) prefix++;
+
+        if (before.length > after.length) {
+            int suffix = 0;
+            while (suffix < length - prefix && isSame(before[before.length - 1 - suffix], after[after.length - 1 - suffix], hashes)) suffix++;
+
+            if (prefix + suffix == after.length) {
+                // items were only removed from the middle of the list, so remove them in place from last to first
+                for (int i = prefix + before.length - after.length - 1; i >= prefix; i--) {
+                    script.add(edit(IDataEditType.REMOVE, item(path, i), false, null));
+                }
+                return;
+            }
+
+            for (int i = before.length - 1; i >= after.length; i--) {
+                script.add(edit(IDataEditType.REMOVE, item(path, i), false, null));
+            }
+        }
+
+        for (int i = prefix; i < length; i++) {
+            if (before[i] != null && after[i] != null) {
+                diff(item(path, i), before[i], after[i], script, hashes);
+            } else if (before[i] != after[i]) {
+                script.add(edit(IDataEditType.REPLACE, item(path, i), false, after[i]));
+            }
+        }
+
+        for (int i = before.length; i < after.length; i++) {
+            script.add(edit(IDataEditType.ADD, item(path, i), false, after[i]));
+        }
+    }
+
+    /**
+     * Reads the keys and values of the given document, returning false if the document contains duplicate keys, or
+     * keys which cannot be addressed by a path.
+     *
+     * @param document The document to be read.
+     * @param keys     The list to add the keys to, in order.
+     * @param values   The map to add the values to.
+     * @param root     Whether the document is a top-level document, whose keys can be addressed literally.
+     * @return         True if every key in the document can be addressed individually.
+     */
+    private static boolean read(IData document, List<String> keys, Map<String, Object> values, boolean root) {
+        IDataCursor cursor = document.getCursor();
+        try {
+            while (cursor.next()) {
+                String key = cursor.getKey();
+                if (values.containsKey(key) || (!root && isLiteral(key))) return false;
+                keys.add(key);
+                values.put(key, cursor.getValue());
+            }
+        } finally {
+            cursor.destroy();
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if removing the keys missing from the after document and then appending the keys missing from the
+     * before document reproduces the key order of the after document.
+     *
+     * @param beforeKeys   The keys of the before document, in order.
+     * @param afterKeys    The keys of the after document, in order.
+     * @param beforeValues The values of the before document, keyed by key.
+     * @return             True if the key order of the after document can be reproduced.
+     */
+    private static boolean isOrderPreserved(List<String> beforeKeys, List<String> afterKeys, Map<String, Object> beforeValues) {
+        List<String> common = new ArrayList<String>(afterKeys.size());
+        boolean added = false;
+
+        for (String key : afterKeys) {
+            if (beforeValues.containsKey(key)) {
+                // a retained key after an added key would end up before it once the added key is appended
+                if (added) return false;
+                common.add(key);
+            } else {
+                added = true;
+            }
+        }
+
+        int i = 0;
+        for (String key : beforeKeys) {
+            if (i < common.size() && key.equals(common.get(i))) i++;
+        }
+
+        return i == common.size();
+    }
+
+    /**
+     * Returns true if the given documents are equal according to BasicIDataComparator. Documents whose structural
+     * hashes differ are known to differ without being compared, while documents whose hashes are equal are compared to
+     * confirm they are equal.
+     *
+     * @param before The first document.
+     * @param after  The second document.
+     * @param hashes The structural hashes of the documents and document lists compared so far, keyed by identity.
+     * @return       True if the given documents are equal.
+     */
+    private static boolean isSame(IData before, IData after, Map<Object, Long> hashes) {
+        if (before == after) return true;
+        if (before == null || after == null) return false;
+        IDataHasher hasher = IDataHasher.getInstance();
+        if (hasher.hash(before, hashes) != hasher.hash(after, hashes)) return false;
+        return BasicIDataComparator.getInstance().compare(before, after) == 0;
+    }
+
+    /**
+     * Returns true if the given document lists are equal according to BasicIDataArrayComparator, using their
+     * structural hashes in the same way as for documents.
+     *
+     * @param before The first document list.
+     * @param after  The second document list.
+     * @param hashes The structural hashes of the documents and document lists compared so far, keyed by identity.
+     * @return       True if the given document lists are equal.
+     */
+    private static boolean isSame(IData[] before, IData[] after, Map<Object, Long> hashes) {
+        if (before == after) return true;
+        IDataHasher hasher = IDataHasher.getInstance();
+        if (hasher.hashValue(before, hashes) != hasher.hashValue(after, hashes)) return false;
+        return BasicIDataArrayComparator.getInstance().compare(before, after) == 0;
+    }
+
+    /**
+     * Returns true if the given values are equal, using the same rules as BasicIDataComparator.
+     *
+     * @param before The first value.
+     * @param after  The second value.
+     * @param hashes The structural hashes of the documents and document lists compared so far, keyed by identity.
+     * @return       True if the given values are equal.
+     */
+    private static boolean isEqual(Object before, Object after, Map<Object, Long> hashes) {
+        if (isDocumentList(before) && isDocumentList(after)) {
+            IDataHasher hasher = IDataHasher.getInstance();
+            if (hasher.hashValue(before, hashes) != hasher.hashValue(after, hashes)) return false;
+            return BasicIDataArrayComparator.getInstance().compare(IDataHelper.toIDataArray(before), IDataHelper.toIDataArray(after)) == 0;
+        } else if (isDocument(before) && isDocument(after)) {
+            return isSame(IDataHelper.toIData(before), IDataHelper.toIData(after), hashes);
+        } else if (before instanceof Object[] && after instanceof Object[]) {
+            return BasicArrayComparator.getInstance().compare((Object[])before, (Object[])after) == 0;
+        } else {
+            return BasicObjectComparator.getInstance().compare(before, after) == 0;
+        }
+    }
+
+    /**
+     * Returns true if the given value is an IData compatible object.
+     *
+     * @param value The value to check.
+     * @return      True if the given value is an IData compatible object.
+     */
+    private static boolean isDocument(Object value) {
+        return value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable;
+    }
+
+    /**
+     * Returns true if the given value is an IData[] compatible object.
+     *
+     * @param value The value to check.
+     * @return      True if the given value is an IData[] compatible object.
+     */
+    private static boolean isDocumentList(Object value) {
+        return value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[];
+    }
+
+    /**
+     * Returns true if the given key cannot be used as a path segment, because it is empty or contains a separator or
+     * index, and must therefore be addressed literally.
+     *
+     * @param key The key to check.
+     * @return    True if the given key must be addressed literally.
+     */
+    private static boolean isLiteral(String key) {
+        return key.length() == 0 || key.contains(IDataPath.SEPARATOR) || IDataPath.INDEX_PATTERN.matcher(key).find();
+    }
+
+    /**
+     * Returns the path of the given key in the document at the given path.
+     *
+     * @param path The path of the parent document, or null for the top-level document.
+     * @param key  The key.
+     * @return     The path of the given key.
+     */
+    private static String child(String path, String key) {
+        return path == null ? key : path + IDataPath.SEPARATOR + key;
+    }
+
+    /**
+     * Returns the path of the given item in the document list at the given path.
+     *
+     * @param path  The path of the document list.
+     * @param index The index of the item.
+     * @return      The path of the given item.
+     */
+    private static String item(String path, int index) {
+        return path + "[" + index + "]";
+    }
+
+    /**
+     * Returns a new edit.
+     *
+     * @param type    The type of edit.
+     * @param path    The path the edit applies to, or null for the whole document.
+     * @param literal Whether the path must be treated literally.
+     * @param value   The new value, ignored for remove edits.
+     * @return        A new edit.
+     */
+    private static IData edit(IDataEditType type, String path, boolean literal, Object value) {
+        IData edit = IDataFactory.create();
+        IDataCursor cursor = edit.getCursor();
+        cursor.insertAfter(OPERATION_KEY, type.name().toLowerCase());
+        if (path != null) cursor.insertAfter(PATH_KEY, path);
+        if (type != IDataEditType.REMOVE) cursor.insertAfter(VALUE_KEY, value);
+        if (literal) cursor.insertAfter(LITERAL_KEY, "true");
+        cursor.destroy();
+        return edit;
+    }
+}
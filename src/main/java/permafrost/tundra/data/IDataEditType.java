@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+/**
+ * The different types of edit in an edit script produced by IDataDiff and applied by IDataPatch.
+ */
+public enum IDataEditType {
+    /**
+     * Sets the value at a path which did not previously exist.
+     */
+    ADD,
+    /**
+     * Removes the value at a path.
+     */
+    REMOVE,
+    /**
+     * Sets the value at a path which already exists.
+     */
+    REPLACE;
+
+    /**
+     * The default edit type, if none is specified.
+     */
+    public static final IDataEditType DEFAULT_EDIT_TYPE = REPLACE;
+
+    /**
+     * Returns an IDataEditType for the given string value.
+     *
+     * @param value The value to be converted to an IDataEditType.
+     * @return The IDataEditType representing the given value.
+     */
+    public static IDataEditType normalize(String value) {
+        return normalize(value == null ? null : valueOf(value.trim().toUpperCase()));
+    }
+
+    /**
+     * Normalizes an IDataEditType.
+     *
+     * @param type The IDataEditType to be normalized.
+     * @return If the given type is null the default type, otherwise the given type.
+     */
+    public static IDataEditType normalize(IDataEditType type) {
+        return type == null ? DEFAULT_EDIT_TYPE : type;
+    }
+}
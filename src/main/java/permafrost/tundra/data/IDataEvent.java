@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+/**
+ * The events reported when streaming an IData document with an IDataStreamReader or IDataHandler.
+ *
+ * A document is reported as START_DOCUMENT, followed by a KEY event and then the value events for each of its
+ * elements, followed by END_DOCUMENT. A value is either a single VALUE event, a nested document, or an array reported
+ * as START_ARRAY, followed by the value events for each of its items without any KEY events, followed by END_ARRAY.
+ */
+public enum IDataEvent {
+    /**
+     * The start of a document.
+     */
+    START_DOCUMENT,
+    /**
+     * The end of a document.
+     */
+    END_DOCUMENT,
+    /**
+     * The key of the next element in the current document.
+     */
+    KEY,
+    /**
+     * A simple value, such as a string, number, or null.
+     */
+    VALUE,
+    /**
+     * The start of an array.
+     */
+    START_ARRAY,
+    /**
+     * The end of an array.
+     */
+    END_ARRAY
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import java.io.IOException;
+
+/**
+ * Push-style callback interface for consuming a streamed IData document, analogous to a SAX content handler. The
+ * sequence of callbacks follows the sequence of events described by IDataEvent.
+ */
+public interface IDataHandler {
+    /**
+     * Called at the start of a document.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void startDocument() throws IOException;
+
+    /**
+     * Called at the end of a document.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void endDocument() throws IOException;
+
+    /**
+     * Called with the key of the next element in the current document, before its value.
+     *
+     * @param key The key of the element.
+     * @throws IOException If an I/O error occurs.
+     */
+    void key(String key) throws IOException;
+
+    /**
+     * Called with a simple value, either an element of the current document or an item of the current array.
+     *
+     * @param value The value, which may be null.
+     * @throws IOException If an I/O error occurs.
+     */
+    void value(Object value) throws IOException;
+
+    /**
+     * Called at the start of an array.
+     *
+     * @param componentType The component type of the array, or null if not known.
+     * @throws IOException If an I/O error occurs.
+     */
+    void startArray(Class<?> componentType) throws IOException;
+
+    /**
+     * Called at the end of an array.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void endArray() throws IOException;
+}
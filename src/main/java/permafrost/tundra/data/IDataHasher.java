@@ -0,0 +1,304 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataPortable;
+import com.wm.util.Table;
+import com.wm.util.coder.IDataCodable;
+import com.wm.util.coder.ValuesCodable;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Computes a 64-bit structural hash of an IData document from all its keys and values in order, including nested
+ * IData and IData[] compatible values. The hash is consistent with BasicIDataComparator: documents which that
+ * comparator considers equal always have the same hash, so documents with different hashes are known to differ
+ * without being compared. Strings, numbers, dates and byte arrays hash to the same value in every JVM; other values
+ * contribute their own hash codes.
+ *
+ * Frozen ReadOnlyIDataMap copies are immutable, so their hashes are computed once and reused, including when they are
+ * nested in other documents being hashed.
+ */
+public class IDataHasher {
+    /**
+     * The FNV-1a 64-bit offset basis, used as the initial hash value.
+     */
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+    /**
+     * The FNV-1a 64-bit prime, used to combine hash values.
+     */
+    private static final long PRIME = 0x100000001B3L;
+    /**
+     * Type tags mixed into hashes so that, for example, a null value and an empty document list differ.
+     */
+    private static final long NULL_TAG = 0x9E3779B97F4A7C15L, DOCUMENT_TAG = 1, DOCUMENT_LIST_TAG = 2, ARRAY_TAG = 3;
+
+    /**
+     * Initialization on demand holder idiom.
+     */
+    private static class Holder {
+        /**
+         * The singleton instance of the class.
+         */
+        private static final IDataHasher INSTANCE = new IDataHasher();
+    }
+
+    /**
+     * Disallow instantiation of this class.
+     */
+    private IDataHasher() {}
+
+    /**
+     * Returns the singleton instance of this class.
+     *
+     * @return The singleton instance of this class.
+     */
+    public static IDataHasher getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the 64-bit structural hash of the given IData document.
+     *
+     * @param document The document to be hashed.
+     * @return         The structural hash of the given document.
+     */
+    public long hash(IData document) {
+        if (document == null) return NULL_TAG;
+        if (document instanceof IDataMap) return ((IDataMap)document).hash();
+        return compute(document, null);
+    }
+
+    /**
+     * Returns the 64-bit structural hash of the given IData document, recording the hash of the document and every
+     * nested IData and IData[] compatible value in the given map, keyed by identity, and reusing any hashes already
+     * recorded there. Documents whose hashes are memoized are not walked.
+     *
+     * @param document The document to be hashed.
+     * @param hashes   The identity map of known hashes to use and update.
+     * @return         The structural hash of the given document.
+     */
+    long hash(IData document, Map<Object, Long> hashes) {
+        if (document == null) return NULL_TAG;
+
+        Long cached = hashes.get(document);
+        if (cached != null) return cached;
+
+        long hash;
+        if (document instanceof IDataMap && ((IDataMap)document).isHashMemoized()) {
+            hash = ((IDataMap)document).hash();
+        } else {
+            hash = compute(document, hashes);
+        }
+        hashes.put(document, hash);
+
+        return hash;
+    }
+
+    /**
+     * Returns the 64-bit structural hash of the given IData[] document list.
+     *
+     * @param array The document list to be hashed.
+     * @return      The structural hash of the given document list.
+     */
+    public long hash(IData[] array) {
+        return hash(array, null);
+    }
+
+    /**
+     * Returns the 64-bit structural hash of the given IData[] document list, optionally recording and reusing the
+     * hashes of the nested documents in the given map.
+     *
+     * @param array  The document list to be hashed.
+     * @param hashes The identity map of known hashes to use and update, or null.
+     * @return       The structural hash of the given document list.
+     */
+    private long hash(IData[] array, Map<Object, Long> hashes) {
+        if (array == null) return NULL_TAG;
+
+        long hash = combine(DOCUMENT_LIST_TAG, array.length);
+        for (IData document : array) {
+            hash = combine(hash, hashes == null ? hash(document) : hash(document, hashes));
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Returns the given 64-bit hash folded into a 32-bit hash code.
+     *
+     * @param hash The 64-bit hash.
+     * @return     The hash folded into 32 bits.
+     */
+    public static int fold(long hash) {
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Computes the structural hash of the given IData document without using any memoized hash it may have.
+     *
+     * @param document The document to be hashed.
+     * @return         The structural hash of the given document.
+     */
+    long compute(IData document) {
+        return compute(document, null);
+    }
+
+    /**
+     * Computes the structural hash of the given IData document without using any memoized hash it may have,
+     * optionally recording and reusing the hashes of nested values in the given map.
+     *
+     * @param document The document to be hashed.
+     * @param hashes   The identity map of known hashes to use and update, or null.
+     * @return         The structural hash of the given document.
+     */
+    private long compute(IData document, Map<Object, Long> hashes) {
+        long hash = DOCUMENT_TAG;
+
+        IDataCursor cursor = document.getCursor();
+        try {
+            while (cursor.next()) {
+                hash = combine(hash, hash(cursor.getKey()));
+                hash = combine(hash, hashValue(cursor.getValue(), hashes));
+            }
+        } finally {
+            cursor.destroy();
+        }
+
+        return mix(hash);
+    }
+
+    /**
+     * Returns the hash of a value in a document, mirroring how BasicIDataComparator compares values. If a map of
+     * known hashes is given, the hashes of IData and IData[] compatible values are recorded in it, keyed by the
+     * identity of the given value, and reused.
+     *
+     * @param value  The value to be hashed.
+     * @param hashes The identity map of known hashes to use and update, or null.
+     * @return       The hash of the given value.
+     */
+    long hashValue(Object value, Map<Object, Long> hashes) {
+        boolean list = value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[];
+        boolean document = !list && (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable);
+
+        if (!list && !document) return hashObject(value);
+
+        if (hashes == null) return list ? hash(IDataHelper.toIDataArray(value)) : hash(IDataHelper.toIData(value));
+
+        Long cached = hashes.get(value);
+        if (cached != null) return cached;
+
+        long hash = list ? hash(IDataHelper.toIDataArray(value), hashes) : hash(IDataHelper.toIData(value), hashes);
+        hashes.put(value, hash);
+
+        return hash;
+    }
+
+    /**
+     * Returns the hash of an object, mirroring how BasicObjectComparator compares objects: values whose natural
+     * ordering ignores differences that their hash codes do not, such as the scale of a BigDecimal or the time zone
+     * of a Calendar, are normalized first.
+     *
+     * @param object The object to be hashed.
+     * @return       The hash of the given object.
+     */
+    private long hashObject(Object object) {
+        long hash;
+
+        if (object == null) {
+            hash = NULL_TAG;
+        } else if (object instanceof String) {
+            hash = hash((String)object);
+        } else if (object instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal)object;
+            // compareTo ignores scale, so 1.0 and 1.00 must hash the same; zero is special-cased as stripTrailingZeros
+            // does not normalize the scale of zero on older runtimes
+            hash = decimal.signum() == 0 ? 0 : decimal.stripTrailingZeros().hashCode();
+        } else if (object instanceof Calendar) {
+            hash = ((Calendar)object).getTimeInMillis();
+        } else if (object instanceof Object[]) {
+            Object[] array = (Object[])object;
+            hash = combine(ARRAY_TAG, array.length);
+            for (Object item : array) {
+                hash = combine(hash, hashObject(item));
+            }
+            hash = mix(hash);
+        } else if (object instanceof byte[]) {
+            hash = OFFSET_BASIS;
+            for (byte b : (byte[])object) {
+                hash = (hash ^ (b & 0xFF)) * PRIME;
+            }
+        } else {
+            hash = object.hashCode();
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns the FNV-1a 64-bit hash of the given string.
+     *
+     * @param string The string to be hashed.
+     * @return       The hash of the given string.
+     */
+    private static long hash(String string) {
+        if (string == null) return NULL_TAG;
+
+        long hash = OFFSET_BASIS;
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Combines the given value into the given running hash, such that the result depends on the order of values.
+     *
+     * @param hash  The running hash.
+     * @param value The value to be combined.
+     * @return      The new running hash.
+     */
+    private static long combine(long hash, long value) {
+        return (hash ^ mix(value)) * PRIME;
+    }
+
+    /**
+     * Scrambles the bits of the given value using the MurmurHash3 64-bit finalizer, so that small differences in the
+     * input affect all bits of the output.
+     *
+     * @param value The value to be scrambled.
+     * @return      The scrambled value.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -37,20 +37,22 @@ import permafrost.tundra.flow.VariableSubstitutor;
 import permafrost.tundra.lang.ArrayHelper;
 import permafrost.tundra.lang.ObjectHelper;
 import permafrost.tundra.lang.StringHelper;
+import permafrost.tundra.lang.ThreadHelper;
 import permafrost.tundra.time.DateTimeHelper;
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -58,6 +60,16 @@ import java.util.regex.Pattern;
  * A collection of convenience methods for working with IData objects.
  */
 public class IDataHelper {
+    /**
+     * The minimum number of items an IData[] must contain before its items are transformed in parallel, when
+     * parallel transformation is requested.
+     */
+    public static final int PARALLEL_THRESHOLD = 10000;
+    /**
+     * The maximum number of items transformed sequentially by a single parallel subtask.
+     */
+    private static final int PARALLEL_BATCH_SIZE = 1000;
+
     /**
      * Disallow instantiation of this class.
      */
@@ -317,80 +329,8 @@ public class IDataHelper {
      * @return The number of occurrences of the given key in the given IData document.
      */
     public static int size(IData document, String key, boolean literal) {
-        int size = 0;
-        if (document != null && key != null) {
-            IDataCursor cursor = document.getCursor();
-
-            if (cursor.first(key)) {
-                size++;
-                while (cursor.next(key)) size++;
-            } else if (Key.isFullyQualified(key, literal)) {
-                size = size(document, Key.parse(key, literal));
-            }
-
-            cursor.destroy();
-        }
-        return size;
-    }
-
-    /**
-     * Returns the number of occurrences of the given fully-qualified key in the given IData document.
-     *
-     * @param document An IData document.
-     * @param keys     The parsed fully-qualified key whose occurrences are to be counted.
-     * @return The number of occurrences of the given parsed fully-qualified key in the given IData document.
-     */
-    private static int size(IData document, Queue<Key> keys) {
-        int size = 0;
-        if (document != null && keys != null && keys.size() > 0) {
-            IDataCursor cursor = document.getCursor();
-            Key key = keys.remove();
-
-            if (keys.size() > 0) {
-                if (key.hasArrayIndex()) {
-                    size = size(ArrayHelper.get(toIDataArray(IDataUtil.get(cursor, key.getKey())), key.getIndex()), keys);
-                } else if (key.hasKeyIndex()) {
-                    size = size(toIData(get(document, key.getKey(), key.getIndex())), keys);
-                } else {
-                    size = size(toIData(IDataUtil.get(cursor, key.getKey())), keys);
-                }
-            } else {
-                if (key.hasArrayIndex()) {
-                    Object[] array = IDataUtil.getObjectArray(cursor, key.getKey());
-                    if (array != null && array.length > key.getIndex()) {
-                        size = 1;
-                    }
-                } else if (key.hasKeyIndex()) {
-                    size = size(document, key.getKey(), key.getIndex());
-                } else {
-                    while (cursor.next(key.getKey())) size++;
-                }
-            }
-            cursor.destroy();
-        }
-        return size;
-    }
-
-    /**
-     * Returns the number of occurrences of the given nth key in the given IData document.
-     *
-     * @param document An IData document.
-     * @param key      The key whose occurrence is to be counted.
-     * @param n        The nth occurrence to be counted.
-     * @return The number of occurrences of the given nth key in the given IData document.
-     */
-    private static int size(IData document, String key, int n) {
-        int size = 0;
-
-        if (document != null && key != null && n >= 0) {
-            int i = 0;
-            IDataCursor cursor = document.getCursor();
-            while (cursor.next(key) && i++ < n) ;
-            if (i > n) size = 1;
-            cursor.destroy();
-        }
-
-        return size;
+        IDataPath path = IDataPath.of(key, literal);
+        return path == null ? 0 : path.size(document);
     }
 
     /**
@@ -482,7 +422,9 @@ public class IDataHelper {
     }
 
     /**
-     * Returns a clone of the given IData document.
+     * Returns a clone of the given IData document. CopyOnWriteIData documents are duplicated in constant time
+     * regardless of the recurse flag, as they convert all nested documents into CopyOnWriteIData documents when
+     * stored, which are then only copied when modified.
      *
      * @param document An IData document to be duplicated.
      * @param recurse  When true, nested IData documents and IData[] document lists will also be duplicated.
@@ -493,7 +435,9 @@ public class IDataHelper {
 
         try {
             if (document != null) {
-                if (recurse) {
+                if (document instanceof CopyOnWriteIData) {
+                    output = ((CopyOnWriteIData)document).duplicate();
+                } else if (recurse) {
                     output = IDataUtil.deepClone(document);
                 } else {
                     output = IDataUtil.clone(document);
@@ -528,70 +472,8 @@ public class IDataHelper {
      * @return The given IData document.
      */
     public static IData drop(IData document, String key, boolean literal) {
-        if (document != null && key != null) {
-            IDataCursor cursor = document.getCursor();
-
-            if (cursor.first(key)) {
-                cursor.delete();
-            } else if (Key.isFullyQualified(key, literal)) {
-                drop(document, Key.parse(key, literal));
-            }
-
-            cursor.destroy();
-        }
-        return document;
-    }
-
-    /**
-     * Removes the value with the given key from the given IData document.
-     *
-     * @param document An IData document.
-     * @param keys     A fully-qualified key identifying the value to be removed from the given IData document.
-     * @return The given IData document.
-     */
-    private static IData drop(IData document, Queue<Key> keys) {
-        if (document != null && keys != null && keys.size() > 0) {
-            IDataCursor cursor = document.getCursor();
-            Key key = keys.remove();
-
-            if (keys.size() > 0) {
-                if (key.hasArrayIndex()) {
-                    drop(ArrayHelper.get(toIDataArray(IDataUtil.get(cursor, key.getKey())), key.getIndex()), keys);
-                } else if (key.hasKeyIndex()) {
-                    drop(toIData(get(document, key.getKey(), key.getIndex())), keys);
-                } else {
-                    drop(toIData(IDataUtil.get(cursor, key.getKey())), keys);
-                }
-            } else {
-                if (key.hasArrayIndex()) {
-                    IDataUtil.put(cursor, key.getKey(), ArrayHelper.drop(IDataUtil.getObjectArray(cursor, key.getKey()), key.getIndex()));
-                } else if (key.hasKeyIndex()) {
-                    drop(document, key.getKey(), key.getIndex());
-                } else {
-                    IDataUtil.remove(cursor, key.getKey());
-                }
-            }
-            cursor.destroy();
-        }
-        return document;
-    }
-
-    /**
-     * Removes the element with the given nth key from the given IData document.
-     *
-     * @param document The IData document to remove the key value pair from.
-     * @param key      The key to be removed.
-     * @param n        Determines which occurrence of the key to remove.
-     */
-    private static void drop(IData document, String key, int n) {
-        if (document == null || key == null || n < 0) return;
-
-        int i = 0;
-
-        IDataCursor cursor = document.getCursor();
-        while (cursor.next(key) && i++ < n) ;
-        if (i > n) cursor.delete();
-        cursor.destroy();
+        IDataPath path = IDataPath.of(key, literal);
+        return path == null ? document : path.drop(document);
     }
 
     /**
@@ -615,56 +497,8 @@ public class IDataHelper {
      * @return The given IData document, to allow for method chaining.
      */
     public static IData dropAll(IData document, String key, boolean literal) {
-        if (document != null && key != null) {
-            IDataCursor cursor = document.getCursor();
-
-            if (cursor.next(key)) {
-                do {
-                    cursor.delete();
-                } while (cursor.next(key));
-            } else if (Key.isFullyQualified(key, literal)) {
-                dropAll(document, Key.parse(key, literal));
-            }
-
-            cursor.destroy();
-        }
-        return document;
-    }
-
-    /**
-     * Removes all occurrences of the given key from the given IData document.
-     *
-     * @param document An IData document.
-     * @param keys     A fully-qualified key identifying the values to be removed from the given IData document.
-     * @return The given IData document.
-     */
-    private static IData dropAll(IData document, Queue<Key> keys) {
-        if (document != null && keys != null && keys.size() > 0) {
-            IDataCursor cursor = document.getCursor();
-            Key key = keys.remove();
-
-            if (keys.size() > 0) {
-                if (key.hasArrayIndex()) {
-                    dropAll(ArrayHelper.get(toIDataArray(IDataUtil.get(cursor, key.getKey())), key.getIndex()), keys);
-                } else if (key.hasKeyIndex()) {
-                    dropAll(toIData(get(document, key.getKey(), key.getIndex())), keys);
-                } else {
-                    dropAll(toIData(IDataUtil.get(cursor, key.getKey())), keys);
-                }
-            } else {
-                if (key.hasArrayIndex()) {
-                    IDataUtil.put(cursor, key.getKey(), ArrayHelper.drop(IDataUtil.getObjectArray(cursor, key.getKey()), key.getIndex()));
-                } else if (key.hasKeyIndex()) {
-                    drop(document, key.getKey(), key.getIndex());
-                } else {
-                    while (cursor.next(key.getKey())) {
-                        cursor.delete();
-                    }
-                }
-            }
-            cursor.destroy();
-        }
-        return document;
+        IDataPath path = IDataPath.of(key, literal);
+        return path == null ? document : path.dropAll(document);
     }
 
     /**
@@ -765,6 +599,18 @@ public class IDataHelper {
      * @return A new IData document that is the given IData squeezed.
      */
     public static IData squeeze(IData document, boolean recurse) {
+        return squeeze(document, recurse, false);
+    }
+
+    /**
+     * Trims all string values, then converts empty strings to nulls, then compacts by removing all null values.
+     *
+     * @param document An IData document to be squeezed.
+     * @param recurse  Whether to also squeeze embedded IData and IData[] objects.
+     * @param parallel Whether to squeeze the items of large embedded IData[] objects in parallel.
+     * @return A new IData document that is the given IData squeezed.
+     */
+    public static IData squeeze(IData document, boolean recurse, boolean parallel) {
         if (document == null) return null;
 
         IData output = IDataFactory.create();
@@ -780,7 +626,7 @@ public class IDataHelper {
             } else if (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[]) {
                 IData[] array = toIDataArray(value);
                 if (recurse) {
-                    value = squeeze(array, recurse);
+                    value = squeeze(array, recurse, parallel);
                 } else {
                     if (array != null && array.length == 0) {
                         value = null;
@@ -791,7 +637,7 @@ public class IDataHelper {
             } else if (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable) {
                 IData data = toIData(value);
                 if (recurse) {
-                    value = squeeze(data, recurse);
+                    value = squeeze(data, recurse, parallel);
                 } else {
                     if (size(data) == 0) {
                         value = null;
@@ -822,12 +668,29 @@ public class IDataHelper {
      * @return A new IData[] that is the given IData[] squeezed.
      */
     public static IData[] squeeze(IData[] array, boolean recurse) {
+        return squeeze(array, recurse, false);
+    }
+
+    /**
+     * Returns a new IData[] with all empty and null items removed.
+     *
+     * @param array    An IData[] to be squeezed.
+     * @param recurse  Whether to also squeeze embedded IData and IData[] objects.
+     * @param parallel Whether to squeeze the items of large IData[] objects in parallel.
+     * @return A new IData[] that is the given IData[] squeezed.
+     */
+    public static IData[] squeeze(IData[] array, final boolean recurse, boolean parallel) {
         if (array == null) return null;
 
-        List<IData> list = new ArrayList<IData>(array.length);
+        IData[] squeezed = transform(array, parallel, new Transformer() {
+            public IData transform(IData document, boolean parallel) {
+                return squeeze(document, recurse, parallel);
+            }
+        });
+
+        List<IData> list = new ArrayList<IData>(squeezed.length);
 
-        for (IData document : array) {
-            document = squeeze(document, recurse);
+        for (IData document : squeezed) {
             if (document != null) list.add(document);
         }
 
@@ -844,6 +707,18 @@ public class IDataHelper {
      * @return         A new IData document that is the given IData nullified.
      */
     public static IData nullify(IData document, boolean recurse) {
+        return nullify(document, recurse, false);
+    }
+
+    /**
+     * Converts all strings that only contain whitespace characters to null.
+     *
+     * @param document An IData document to be nullified.
+     * @param recurse  Whether to also nullify embedded IData and IData[] objects.
+     * @param parallel Whether to nullify the items of large embedded IData[] objects in parallel.
+     * @return         A new IData document that is the given IData nullified.
+     */
+    public static IData nullify(IData document, boolean recurse, boolean parallel) {
         if (document == null) return null;
 
         IData output = IDataFactory.create();
@@ -858,9 +733,9 @@ public class IDataHelper {
                 value = StringHelper.nullify((String)value);
             } else if (recurse) {
                 if (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[]) {
-                    value = nullify(toIDataArray(value), recurse);
+                    value = nullify(toIDataArray(value), recurse, parallel);
                 } else if (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable) {
-                    value = nullify(toIData(value), recurse);
+                    value = nullify(toIData(value), recurse, parallel);
                 }
             }
 
@@ -881,15 +756,25 @@ public class IDataHelper {
      * @return        A new IData[] that is the given IData[] nullify.
      */
     public static IData[] nullify(IData[] input, boolean recurse) {
-        if (input == null) return null;
-
-        IData[] output = new IData[input.length];
+        return nullify(input, recurse, false);
+    }
 
-        for (int i = 0; i < input.length; i++) {
-            output[i] = nullify(input[i], recurse);
-        }
+    /**
+     * Converts all strings that only contain whitespace characters to null.
+     *
+     * @param input    An IData[] to be nullified.
+     * @param recurse  Whether to also nullify embedded IData and IData[] objects.
+     * @param parallel Whether to nullify the items of large IData[] objects in parallel.
+     * @return         A new IData[] that is the given IData[] nullify.
+     */
+    public static IData[] nullify(IData[] input, final boolean recurse, boolean parallel) {
+        if (input == null) return null;
 
-        return output;
+        return transform(input, parallel, new Transformer() {
+            public IData transform(IData document, boolean parallel) {
+                return nullify(document, recurse, parallel);
+            }
+        });
     }
 
     /**
@@ -1050,6 +935,18 @@ public class IDataHelper {
      * @return The stringified IData document.
      */
     public static IData stringify(IData document, boolean recurse) {
+        return stringify(document, recurse, false);
+    }
+
+    /**
+     * Converts all non-string values to strings, except for IData and IData[] compatible objects.
+     *
+     * @param document The IData document to stringify.
+     * @param recurse  Whether embedded IData and IData[] objects should also be stringified recursively.
+     * @param parallel Whether to stringify the items of large embedded IData[] objects in parallel.
+     * @return The stringified IData document.
+     */
+    public static IData stringify(IData document, boolean recurse, boolean parallel) {
         if (document == null) return null;
 
         IData output = IDataFactory.create();
@@ -1063,9 +960,9 @@ public class IDataHelper {
             if (value instanceof String || value instanceof String[] || value instanceof String[][]) {
                 // do nothing, value is already a string
             } else if (recurse && (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[])) {
-                value = stringify(toIDataArray(value), recurse);
+                value = stringify(toIDataArray(value), recurse, parallel);
             } else if (recurse && (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable)) {
-                value = stringify(toIData(value), recurse);
+                value = stringify(toIData(value), recurse, parallel);
             } else if (value instanceof Object[][]) {
                 value = ArrayHelper.toStringTable((Object[][]) value);
             } else if (value instanceof Object[]) {
@@ -1094,15 +991,25 @@ public class IDataHelper {
      * @return The stringified IData[].
      */
     public static IData[] stringify(IData[] array, boolean recurse) {
-        if (array == null) return null;
-
-        IData[] output = new IData[array.length];
+        return stringify(array, recurse, false);
+    }
 
-        for (int i = 0; i < array.length; i++) {
-            output[i] = stringify(array[i], recurse);
-        }
+    /**
+     * Converts all non-string values to strings, except for IData and IData[] compatible objects.
+     *
+     * @param array    The IData[] to stringify.
+     * @param recurse  Whether to stringify embedded IData and IData[] objects recursively.
+     * @param parallel Whether to stringify the items of large IData[] objects in parallel.
+     * @return The stringified IData[].
+     */
+    public static IData[] stringify(IData[] array, final boolean recurse, boolean parallel) {
+        if (array == null) return null;
 
-        return output;
+        return transform(array, parallel, new Transformer() {
+            public IData transform(IData document, boolean parallel) {
+                return stringify(document, recurse, parallel);
+            }
+        });
     }
 
     /**
@@ -1113,6 +1020,18 @@ public class IDataHelper {
      * @return The blankified IData.
      */
     public static IData blankify(IData document, boolean recurse) {
+        return blankify(document, recurse, false);
+    }
+
+    /**
+     * Converts all null values to empty strings.
+     *
+     * @param document The IData document to blankify.
+     * @param recurse  Whether embedded IData and IData[] objects should be recursively blankified.
+     * @param parallel Whether to blankify the items of large embedded IData[] objects in parallel.
+     * @return The blankified IData.
+     */
+    public static IData blankify(IData document, boolean recurse, boolean parallel) {
         if (document == null) return null;
 
         IData output = IDataFactory.create();
@@ -1126,9 +1045,9 @@ public class IDataHelper {
             if (value == null) {
                 value = "";
             } else if (recurse && (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[])) {
-                value = blankify(toIDataArray(value), recurse);
+                value = blankify(toIDataArray(value), recurse, parallel);
             } else if (recurse && (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable)) {
-                value = blankify(toIData(value), recurse);
+                value = blankify(toIData(value), recurse, parallel);
             }
             outputCursor.insertAfter(key, value);
         }
@@ -1147,15 +1066,25 @@ public class IDataHelper {
      * @return The blankified IData[].
      */
     public static IData[] blankify(IData[] array, boolean recurse) {
-        if (array == null) return null;
-
-        IData[] output = new IData[array.length];
+        return blankify(array, recurse, false);
+    }
 
-        for (int i = 0; i < array.length; i++) {
-            output[i] = blankify(array[i], recurse);
-        }
+    /**
+     * Converts all null values to empty strings.
+     *
+     * @param array    The IData[] to blankify.
+     * @param recurse  Whether embedded IData and IData[] objects should be recursively blankified.
+     * @param parallel Whether to blankify the items of large IData[] objects in parallel.
+     * @return The blankified IData[].
+     */
+    public static IData[] blankify(IData[] array, final boolean recurse, boolean parallel) {
+        if (array == null) return null;
 
-        return output;
+        return transform(array, parallel, new Transformer() {
+            public IData transform(IData document, boolean parallel) {
+                return blankify(document, recurse, parallel);
+            }
+        });
     }
 
     /**
@@ -1182,6 +1111,18 @@ public class IDataHelper {
      * @return The compacted IData.
      */
     public static IData compact(IData document, boolean recurse) {
+        return compact(document, recurse, false);
+    }
+
+    /**
+     * Removes all null values from the given IData document.
+     *
+     * @param document The IData document to be compacted.
+     * @param recurse  Whether embedded IData and IData[] objects should be recursively compacted.
+     * @param parallel Whether to compact the items of large embedded IData[] objects in parallel.
+     * @return The compacted IData.
+     */
+    public static IData compact(IData document, boolean recurse, boolean parallel) {
         if (document == null) return null;
 
         IData output = IDataFactory.create();
@@ -1195,9 +1136,9 @@ public class IDataHelper {
             if (value != null) {
                 if (recurse) {
                     if (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[]) {
-                        value = compact(toIDataArray(value), recurse);
+                        value = compact(toIDataArray(value), recurse, parallel);
                     } else if (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable) {
-                        value = compact(toIData(value), recurse);
+                        value = compact(toIData(value), recurse, parallel);
                     } else if (value instanceof Object[][]) {
                         value = ArrayHelper.compact((Object[][])value);
                     } else if (value instanceof Object[]) {
@@ -1222,14 +1163,28 @@ public class IDataHelper {
      * @return The compacted IData[].
      */
     public static IData[] compact(IData[] array, boolean recurse) {
+        return compact(array, recurse, false);
+    }
+
+    /**
+     * Removes all null values from the given IData[].
+     *
+     * @param array    The IData[] to be compacted.
+     * @param recurse  Whether embedded IData and IData[] objects should be recursively compacted.
+     * @param parallel Whether to compact the items of large IData[] objects in parallel.
+     * @return The compacted IData[].
+     */
+    public static IData[] compact(IData[] array, final boolean recurse, boolean parallel) {
         if (array == null) return null;
 
         IData[] output = ArrayHelper.compact(array);
 
         if (recurse) {
-            for (int i = 0; i < array.length; i++) {
-                output[i] = compact(array[i], recurse);
-            }
+            output = transform(output, parallel, new Transformer() {
+                public IData transform(IData document, boolean parallel) {
+                    return compact(document, recurse, parallel);
+                }
+            });
         }
 
         return output;
@@ -1281,6 +1236,22 @@ public class IDataHelper {
      * @return The variable substituted IData.
      */
     public static IData substitute(IData document, String defaultValue, IData scope, boolean recurse) {
+        return substitute(document, defaultValue, scope, recurse, false);
+    }
+
+    /**
+     * Performs variable substitution on all elements of the given IData input document.
+     *
+     * @param document     The IData document to perform variable substitution on.
+     * @param defaultValue The value to substitute if a variable cannot be resolved.
+     * @param scope        The scope against which variables are are resolved.
+     * @param recurse      Whether embedded IData and IData[] should have variable substitution recursively performed on
+     *                     them.
+     * @param parallel     Whether to perform variable substitution on the items of large embedded IData[] objects in
+     *                     parallel.
+     * @return The variable substituted IData.
+     */
+    public static IData substitute(IData document, String defaultValue, IData scope, boolean recurse, boolean parallel) {
         if (document == null) return null;
         if (scope == null) scope = document;
 
@@ -1294,9 +1265,9 @@ public class IDataHelper {
 
             if (value != null) {
                 if (recurse && (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[])) {
-                    value = substitute(toIDataArray(value), defaultValue, scope, recurse);
+                    value = substitute(toIDataArray(value), defaultValue, scope, recurse, parallel);
                 } else if (recurse && (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable)) {
-                    value = substitute(toIData(value), defaultValue, scope, recurse);
+                    value = substitute(toIData(value), defaultValue, scope, recurse, parallel);
                 } else if (value instanceof String) {
                     value = VariableSubstitutor.substitute((String)value, defaultValue, scope);
                 } else if (value instanceof String[]) {
@@ -1325,15 +1296,28 @@ public class IDataHelper {
      * @return The variable substituted IData[].
      */
     public static IData[] substitute(IData[] array, String defaultValue, IData scope, boolean recurse) {
-        if (array == null) return null;
-
-        IData[] output = new IData[array.length];
+        return substitute(array, defaultValue, scope, recurse, false);
+    }
 
-        for (int i = 0; i < array.length; i++) {
-            output[i] = substitute(array[i], defaultValue, scope, recurse);
-        }
+    /**
+     * Performs variable substitution on all elements of the given IData[].
+     *
+     * @param array        The IData[] to perform variable substitution on.
+     * @param defaultValue The value to substitute if a variable cannot be resolved.
+     * @param scope        The scope against which variables are are resolved.
+     * @param recurse      Whether embedded IData and IData[] should have variable substitution recursively performed on
+     *                     them.
+     * @param parallel     Whether to perform variable substitution on the items of large IData[] objects in parallel.
+     * @return The variable substituted IData[].
+     */
+    public static IData[] substitute(IData[] array, final String defaultValue, final IData scope, final boolean recurse, boolean parallel) {
+        if (array == null) return null;
 
-        return output;
+        return transform(array, parallel, new Transformer() {
+            public IData transform(IData document, boolean parallel) {
+                return substitute(document, defaultValue, scope, recurse, parallel);
+            }
+        });
     }
 
     /**
@@ -1673,100 +1657,10 @@ public class IDataHelper {
      * @return         The value associated with the given key in the given IData document.
      */
     public static Object get(IData pipeline, IData scope, String key, boolean literal) {
-        if (key == null) return null;
-
-        Object value = null;
-
-        if (scope != null) {
-            // try finding a value that matches the literal key, and if not found try finding a value
-            // associated with the leaf key if the key is considered fully-qualified
-            IDataCursor cursor = scope.getCursor();
-
-            if (cursor.first(key)) {
-                value = cursor.getValue();
-            } else if (pipeline != null && Key.isAbsolute(key, literal)) {
-                value = get(null, pipeline, key.substring(1), literal);
-            } else if (scope != null && Key.isFullyQualified(key, literal)) {
-                value = get(scope, Key.parse(key, literal));
-            }
-
-            cursor.destroy();
-        } else if (pipeline != null && Key.isAbsolute(key, literal)) {
-            value = get(null, pipeline, key.substring(1), literal);
-        }
-
-        return value;
+        IDataPath path = IDataPath.of(key, literal);
+        return path == null ? null : path.get(pipeline, scope);
     }
 
-    /**
-     * Returns the value associated with the given fully-qualified key from the given IData document.
-     *
-     * @param document An IData document.
-     * @param keys     A fully-qualified key identifying the value in the given IData document to be returned.
-     * @return         The value associated with the given key in the given IData document.
-     */
-    private static Object get(IData document, Queue<Key> keys) {
-        Object value = null;
-
-        if (document != null && keys != null && keys.size() > 0) {
-            IDataCursor cursor = document.getCursor();
-            Key key = keys.remove();
-
-            if (keys.size() > 0) {
-                if (key.hasArrayIndex()) {
-                    value = get(ArrayHelper.get(toIDataArray(IDataUtil.get(cursor, key.getKey())), key.getIndex()), keys);
-                } else if (key.hasKeyIndex()) {
-                    value = get(toIData(get(document, key.getKey(), key.getIndex())), keys);
-                } else {
-                    value = get(IDataUtil.getIData(cursor, key.getKey()), keys);
-                }
-            } else {
-                if (key.hasArrayIndex()) {
-                    value = IDataUtil.get(cursor, key.getKey());
-                    if (value != null) {
-                        if (value instanceof Object[] || value instanceof Table) {
-                            Object[] array = value instanceof Object[] ? (Object[])value : ((Table)value).getValues();
-                            value = ArrayHelper.get(array, key.getIndex());
-                        } else {
-                            value = null;
-                        }
-                    }
-                } else if (key.hasKeyIndex()) {
-                    value = get(document, key.getKey(), key.getIndex());
-                } else {
-                    value = IDataUtil.get(cursor, key.getKey());
-                }
-            }
-
-            cursor.destroy();
-        }
-
-        return value;
-    }
-
-    /**
-     * Returns the nth value associated with the given key.
-     *
-     * @param document The IData document to return the value from.
-     * @param key      The key whose associated value is to be returned.
-     * @param n        Determines which occurrence of the key to return the value for.
-     * @return The value associated with the nth occurrence of the given key in the given IData document.
-     */
-    private static Object get(IData document, String key, int n) {
-        if (document == null || key == null || n < 0) return null;
-
-        Object value = null;
-        int i = 0;
-
-        IDataCursor cursor = document.getCursor();
-        while (cursor.next(key) && i++ < n) ;
-        if (i > n) value = cursor.getValue();
-        cursor.destroy();
-
-        return value;
-    }
-
-
     /**
      * Returns the value associated with the given key from the given IData document as an array.
      *
@@ -1790,77 +1684,8 @@ public class IDataHelper {
      * @return The value associated with the given key in the given IData document as an array.
      */
     public static Object[] getAsArray(IData document, String key, boolean literal) {
-        if (document == null || key == null) return null;
-
-        Object[] output = null;
-        IDataCursor cursor = document.getCursor();
-
-        // try finding a value that matches the literal key, and if not found try finding a value
-        // associated with the leaf key if the key is considered fully-qualified
-        if (cursor.next(key)) {
-            List<Object> list = new LinkedList<Object>();
-            do {
-                list.addAll(ObjectHelper.listify(cursor.getValue()));
-            } while (cursor.next(key));
-            output = ArrayHelper.toArray(list);
-        } else if (Key.isFullyQualified(key, literal)) {
-            output = getAsArray(document, Key.parse(key, literal));
-        }
-
-        cursor.destroy();
-
-        return output;
-    }
-
-    /**
-     * Returns the value associated with the given fully-qualified key from the given IData document as an array.
-     *
-     * @param document An IData document.
-     * @param keys     A fully-qualified key identifying the value in the given IData document to be returned.
-     * @return The value associated with the given key in the given IData document as an array.
-     */
-    private static Object[] getAsArray(IData document, Queue<Key> keys) {
-        Object[] output = null;
-
-        if (document != null && keys != null && keys.size() > 0) {
-            IDataCursor cursor = document.getCursor();
-            Key key = keys.remove();
-
-            if (keys.size() > 0) {
-                if (key.hasArrayIndex()) {
-                    output = getAsArray(ArrayHelper.get(toIDataArray(IDataUtil.get(cursor, key.getKey())), key.getIndex()), keys);
-                } else if (key.hasKeyIndex()) {
-                    output = getAsArray(toIData(get(document, key.getKey(), key.getIndex())), keys);
-                } else {
-                    output = getAsArray(IDataUtil.getIData(cursor, key.getKey()), keys);
-                }
-            } else {
-                List<Object> list = new LinkedList<Object>();
-                if (key.hasArrayIndex()) {
-                    Object value = IDataUtil.get(cursor, key.getKey());
-                    if (value != null) {
-                        if (value instanceof Object[] || value instanceof Table) {
-                            Object[] array = value instanceof Object[] ? (Object[])value : ((Table)value).getValues();
-                            value = ArrayHelper.get(array, key.getIndex());
-                        } else {
-                            value = null;
-                        }
-                    }
-                    list.addAll(ObjectHelper.listify(value));
-                } else if (key.hasKeyIndex()) {
-                    list.addAll(ObjectHelper.listify(get(document, key.getKey(), key.getIndex())));
-                } else {
-                    while (cursor.next(key.getKey())) {
-                        list.addAll(ObjectHelper.listify(cursor.getValue()));
-                    }
-                }
-                output = ArrayHelper.toArray(list);
-            }
-
-            cursor.destroy();
-        }
-
-        return output;
+        IDataPath path = IDataPath.of(key, literal);
+        return path == null ? null : path.getAsArray(document);
     }
 
     /**
@@ -1905,88 +1730,8 @@ public class IDataHelper {
      * @return The input IData document with the value set.
      */
     public static IData put(IData document, String key, Object value, boolean literal, boolean includeNull) {
-        return put(document, Key.parse(key, literal), value, includeNull);
-    }
-
-    /**
-     * Sets the value associated with the given key in the given IData document. Note that this method mutates the given
-     * IData document in place.
-     *
-     * @param document          An IData document.
-     * @param fullyQualifiedKey A fully-qualified key identifying the value to be set.
-     * @param value             The value to be set.
-     * @param includeNull       When true the value is set even when null, otherwise the value is only set when it is
-     *                          not null.
-     * @return The input IData document with the value set.
-     */
-    private static IData put(IData document, Queue<Key> fullyQualifiedKey, Object value, boolean includeNull) {
-        if (!includeNull && value == null) return document;
-
-        if (fullyQualifiedKey != null && fullyQualifiedKey.size() > 0) {
-            if (document == null) document = IDataFactory.create();
-
-            IDataCursor cursor = document.getCursor();
-            Key key = fullyQualifiedKey.remove();
-
-            if (fullyQualifiedKey.size() > 0) {
-                if (key.hasArrayIndex()) {
-                    IData[] array = IDataUtil.getIDataArray(cursor, key.getKey());
-                    IData child = null;
-                    try {
-                        child = ArrayHelper.get(array, key.getIndex());
-                    } catch(ArrayIndexOutOfBoundsException ex) {
-                        // ignore exception
-                    }
-                    value = ArrayHelper.put(array, put(child, fullyQualifiedKey, value, includeNull), key.getIndex(), IData.class);
-                } else if (key.hasKeyIndex()) {
-                    value = put(toIData(get(document, key.getKey(), key.getIndex())), fullyQualifiedKey, value, includeNull);
-                } else {
-                    value = put(IDataUtil.getIData(cursor, key.getKey()), fullyQualifiedKey, value, includeNull);
-                }
-            } else if (key.hasArrayIndex()) {
-                Class klass = Object.class;
-                if (value != null) {
-                    if (value instanceof String) {
-                        klass = String.class;
-                    } else if (value instanceof IData) {
-                        klass = IData.class;
-                    }
-                }
-                value = ArrayHelper.put(IDataUtil.getObjectArray(cursor, key.getKey()), value, key.getIndex(), klass);
-            }
-
-            if (key.hasKeyIndex()) {
-                put(document, key.getKey(), key.getIndex(), value);
-            } else {
-                IDataUtil.put(cursor, key.getKey(), value);
-            }
-            cursor.destroy();
-        }
-
-        return document;
-    }
-
-    /**
-     * Sets the value associated with the given nth key in the given IData document. Note that this method mutates the
-     * given IData document in place.
-     *
-     * @param document The IData document to set the key's associated value in.
-     * @param key      The key whose value is to be set.
-     * @param n        Determines which occurrence of the key to set the value for.
-     * @param value    The value to be set.
-     * @return The IData document with the given nth key set to the given value.
-     */
-    private static IData put(IData document, String key, int n, Object value) {
-        if (document == null || key == null || n < 0) return null;
-
-        IDataCursor cursor = document.getCursor();
-        for (int i = 0; i < n; i++) {
-            if (!cursor.next(key)) cursor.insertAfter(key, null);
-        }
-        cursor.insertAfter(key, value);
-        cursor.destroy();
-
-        return document;
+        IDataPath path = IDataPath.of(key, literal);
+        return path == null ? document : path.put(document, value, includeNull);
     }
 
     /**
@@ -2454,13 +2199,16 @@ public class IDataHelper {
         if (delimiter == null) delimiter = "/";
 
         IData output = IDataFactory.create();
+        IDataProjection projection = IDataProjection.of(pivotKeys);
+        Object[] values = new Object[pivotKeys.length];
 
         outer:
         for (IData item : array) {
             if (item != null) {
+                projection.get(item, values);
                 StringBuilder buffer = new StringBuilder();
                 for (int i = 0; i < pivotKeys.length; i++) {
-                    Object value = get(item, pivotKeys[i]);
+                    Object value = values[i];
                     if (value == null) {
                         continue outer;
                     } else {
@@ -2624,10 +2372,23 @@ public class IDataHelper {
      * @return A new IData[] array sorted by the given criteria.
      */
     public static IData[] sort(IData[] array, IDataComparisonCriterion... criteria) {
+        return sort(array, false, criteria);
+    }
+
+    /**
+     * Returns a new IData[] array with all elements sorted according to the specified criteria, optionally sorting
+     * large arrays in parallel.
+     *
+     * @param array    An IData[] array to be sorted.
+     * @param parallel Whether to sort large arrays in parallel.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array sorted by the given criteria.
+     */
+    public static IData[] sort(IData[] array, boolean parallel, IDataComparisonCriterion... criteria) {
         if (array == null) return null;
 
         if (criteria != null && criteria.length > 0) {
-            array = ArrayHelper.sort(array, new CriteriaBasedIDataComparator(criteria));
+            array = new CriteriaBasedIDataComparator(criteria).sort(array, parallel);
         } else {
             array = Arrays.copyOf(array, array.length);
         }
@@ -2635,6 +2396,107 @@ public class IDataHelper {
         return array;
     }
 
+    /**
+     * Returns a new IData[] array containing the first given number of elements of the given array sorted according
+     * to the specified criteria, identical to the corresponding elements of the array returned by sort. Rather than
+     * sorting the whole array, the elements are selected using a heap bounded to the given number of elements.
+     *
+     * @param array    An IData[] array to select from.
+     * @param limit    The maximum number of elements to return.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array containing the first elements sorted by the given criteria.
+     */
+    public static IData[] top(IData[] array, int limit, IDataComparisonCriterion... criteria) {
+        return select(array, limit, false, criteria);
+    }
+
+    /**
+     * Returns a new IData[] array containing the last given number of elements of the given array sorted according
+     * to the specified criteria, identical to the corresponding elements of the array returned by sort. Rather than
+     * sorting the whole array, the elements are selected using a heap bounded to the given number of elements.
+     *
+     * @param array    An IData[] array to select from.
+     * @param limit    The maximum number of elements to return.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array containing the last elements sorted by the given criteria.
+     */
+    public static IData[] bottom(IData[] array, int limit, IDataComparisonCriterion... criteria) {
+        return select(array, limit, true, criteria);
+    }
+
+    /**
+     * Returns the first given number of documents returned by the given iterator sorted according to the specified
+     * criteria. The iterator is consumed, but only the selected documents are held in memory, so this can be used to
+     * find, for example, the latest or largest records in a stream of any size. The iterator is not closed.
+     *
+     * @param iterator The documents to select from.
+     * @param limit    The maximum number of documents to return.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array containing the first documents sorted by the given criteria.
+     */
+    public static IData[] top(Iterator<? extends IData> iterator, int limit, IDataComparisonCriterion... criteria) {
+        return select(iterator, limit, false, criteria);
+    }
+
+    /**
+     * Returns the last given number of documents returned by the given iterator sorted according to the specified
+     * criteria. The iterator is consumed, but only the selected documents are held in memory, so this can be used to
+     * find, for example, the latest or largest records in a stream of any size. The iterator is not closed.
+     *
+     * @param iterator The documents to select from.
+     * @param limit    The maximum number of documents to return.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array containing the last documents sorted by the given criteria.
+     */
+    public static IData[] bottom(Iterator<? extends IData> iterator, int limit, IDataComparisonCriterion... criteria) {
+        return select(iterator, limit, true, criteria);
+    }
+
+    /**
+     * Returns a new IData[] array containing the first or last given number of elements of the given array sorted
+     * according to the specified criteria.
+     *
+     * @param array    An IData[] array to select from.
+     * @param limit    The maximum number of elements to return.
+     * @param last     If true, the last elements are returned, otherwise the first elements are returned.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array containing the selected elements.
+     */
+    private static IData[] select(IData[] array, int limit, boolean last, IDataComparisonCriterion... criteria) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+        if (array == null) return null;
+
+        if (limit >= array.length) {
+            array = sort(array, criteria);
+        } else if (criteria == null || criteria.length == 0) {
+            array = last ? Arrays.copyOfRange(array, array.length - limit, array.length) : Arrays.copyOf(array, limit);
+        } else {
+            array = new BoundedIDataHeap(limit, last, criteria).select(array);
+        }
+
+        return array;
+    }
+
+    /**
+     * Returns the first or last given number of documents returned by the given iterator sorted according to the
+     * specified criteria.
+     *
+     * @param iterator The documents to select from.
+     * @param limit    The maximum number of documents to return.
+     * @param last     If true, the last documents are returned, otherwise the first documents are returned.
+     * @param criteria One or more sort criteria.
+     * @return A new IData[] array containing the selected documents.
+     */
+    private static IData[] select(Iterator<? extends IData> iterator, int limit, boolean last, IDataComparisonCriterion... criteria) {
+        if (iterator == null) return null;
+
+        BoundedIDataHeap heap = new BoundedIDataHeap(limit, last, criteria);
+        while (limit > 0 && iterator.hasNext()) {
+            heap.add(iterator.next());
+        }
+        return heap.getResult();
+    }
+
     /**
      * Returns a new IData[] array with all elements sorted according to the specified criteria.
      *
@@ -2654,8 +2516,22 @@ public class IDataHelper {
      * @return A new IData[] array sorted by the given criteria.
      */
     public static IData[] sort(IData[] array, IDataComparator comparator) {
+        return sort(array, comparator, false);
+    }
+
+    /**
+     * Returns a new IData[] array with all elements sorted according to the specified criteria, optionally sorting
+     * large arrays in parallel. Parallel sorting produces results identical to sequential sorting, including the
+     * relative order of elements that compare as equal.
+     *
+     * @param array      An IData[] array to be sorted.
+     * @param comparator An IDataComparator object used to determine element ordering.
+     * @param parallel   Whether to sort large arrays in parallel.
+     * @return A new IData[] array sorted by the given criteria.
+     */
+    public static IData[] sort(IData[] array, IDataComparator comparator, boolean parallel) {
         if (array == null) return null;
-        return ArrayHelper.sort(array, comparator);
+        return ArrayHelper.sort(array, comparator, false, parallel);
     }
 
     /**
@@ -2679,207 +2555,27 @@ public class IDataHelper {
     }
 
     /**
-     * Convenience class for fully qualified IData keys.
+     * Groups the given IData[] by the given keys, with the groups returned in ascending order of their key values.
+     *
+     * @param array The IData[] to be grouped.
+     * @param keys  The keys to group items by.
+     * @return The grouped IData[].
      */
-    private static class Key {
-        public static final String SEPARATOR = "/";
-        public static final Pattern INDEX_PATTERN = Pattern.compile("(\\[(-?\\d+?)\\]|\\((\\d+?)\\))$");
-
-        protected boolean hasArrayIndex = false, hasKeyIndex = false;
-        protected int index = 0;
-        protected String key = null;
-
-        /**
-         * Constructs a new key object given a key string.
-         *
-         * @param key An IData key as a string.
-         */
-        public Key(String key) {
-            this(key, false);
-        }
-
-        /**
-         * Constructs a new key object given a key string.
-         *
-         * @param key     An IData key as a string.
-         * @param literal If true, the key is treated literally rather than as a fully-qualified key that could contain
-         *                array or key indexing.
-         */
-        public Key(String key, boolean literal) {
-            if (key == null) throw new NullPointerException("key must not be null");
-
-            if (literal) {
-                this.key = key;
-            } else {
-                StringBuffer buffer = new StringBuffer();
-
-                Matcher matcher = INDEX_PATTERN.matcher(key);
-                while (matcher.find()) {
-                    String arrayIndexString = matcher.group(2);
-                    String keyIndexString = matcher.group(3);
-
-                    if (arrayIndexString != null) {
-                        hasArrayIndex = true;
-                        index = Integer.parseInt(arrayIndexString);
-                    } else {
-                        hasKeyIndex = true;
-                        index = Integer.parseInt(keyIndexString);
-                    }
-                    matcher.appendReplacement(buffer, "");
-                }
-                matcher.appendTail(buffer);
-
-                this.key = buffer.toString();
-            }
-        }
-
-        /**
-         * Returns true if this key includes an array index.
-         *
-         * @return true if this key includes an array index.
-         */
-        public boolean hasArrayIndex() {
-            return hasArrayIndex;
-        }
-
-        /**
-         * Returns true if this key includes an key index.
-         *
-         * @return true if this key includes an key index.
-         */
-        public boolean hasKeyIndex() {
-            return hasKeyIndex;
-        }
-
-        /**
-         * Returns this key's index value.
-         *
-         * @return This key's index value.
-         */
-        public int getIndex() {
-            return index;
-        }
-
-        /**
-         * Returns the key-only component of this Key (with no array or key indexing).
-         *
-         * @return The key-only component of this Key (with no array or key indexing).
-         */
-        public String getKey() {
-            return key;
-        }
-
-        /**
-         * Returns a string representation of this key.
-         *
-         * @return A string representation of this key.
-         */
-        public String toString() {
-            String output;
-            if (hasKeyIndex()) {
-                output = key + "(" + index + ")";
-            } else if (hasArrayIndex()) {
-                output = key + "[" + index + "]";
-            } else {
-                output = key;
-            }
-            return output;
-        }
-
-        /**
-         * Parses a fully-qualified IData key string into its constituent parts.
-         *
-         * @param key A fully-qualified IData key string.
-         * @return The parsed key as a Queue of individual key parts.
-         */
-        public static Queue<Key> parse(String key) {
-            return parse(key, false);
-        }
-
-        /**
-         * Parses a fully-qualified IData key string into its constituent parts.
-         *
-         * @param key     A fully-qualified IData key string.
-         * @param literal If true, the key will be treated as a literal key, rather than potentially as a
-         *                fully-qualified key.
-         * @return The parsed key as a Queue of individual key parts.
-         */
-        public static Queue<Key> parse(String key, boolean literal) {
-            if (key == null) return null;
-
-            String[] parts;
-
-            if (literal) {
-                parts = new String[1];
-                parts[0] = key;
-            } else {
-                parts = key.split(SEPARATOR);
-            }
-
-            Queue<Key> queue = new ArrayDeque<Key>(parts.length);
-
-            for (String part : parts) {
-                queue.add(new Key(part, literal));
-            }
-
-            return queue;
-        }
-
-        /**
-         * Returns true if the given IData key is considered fully-qualified (because it contains either an array index,
-         * key index, or path separated components).
-         *
-         * @param key An IData key string.
-         * @return True if the given key is considered fully-qualified.
-         */
-        public static boolean isFullyQualified(String key) {
-            return isFullyQualified(key, false);
-        }
-
-        /**
-         * Returns true if the given IData key is considered fully-qualified (because it contains either an array index,
-         * key index, or path separated components).
-         *
-         * @param key     An IData key string.
-         * @param literal If true, the key will be treated as a literal key, rather than potentially as a
-         *                fully-qualified key.
-         * @return True if the given key is considered fully-qualified.
-         */
-        public static boolean isFullyQualified(String key, boolean literal) {
-            return !literal && key != null && (key.contains(SEPARATOR) || INDEX_PATTERN.matcher(key).find());
-        }
-
-        /**
-         * Returns true if the given IData key starts with "/", indicating it is an absolute path.
-         *
-         * @param key     An IData key string.
-         * @return        True if the given key is accessing the root scope.
-         */
-        public static boolean isAbsolute(String key) {
-            return isAbsolute(key, false);
-        }
-
-        /**
-         * Returns true if the given IData key starts with "/", indicating it is an absolute path.
-         *
-         * @param key     An IData key string.
-         * @param literal If true, the key will be treated as a literal key, rather than potentially as a
-         *                fully-qualified key.
-         * @return        True if the given key is an absolute path.
-         */
-        public static boolean isAbsolute(String key, boolean literal) {
-            return !literal && key != null && key.startsWith(SEPARATOR);
-        }
+    public static IData[] group(IData[] array, String... keys) {
+        return group(array, true, keys);
     }
 
     /**
-     * Groups the given IData[] by the given keys.
+     * Groups the given IData[] by the given keys. Grouping is hash-based and runs in linear time; sorting the resulting
+     * groups by their key values is optional.
      *
-     * @param array The IData[] to be grouped.
-     * @param keys  The keys to group items by.
+     * @param array  The IData[] to be grouped.
+     * @param sorted If true, the groups are returned in ascending order of their key values, otherwise they are
+     *               returned in the order each group was first encountered.
+     * @param keys   The keys to group items by.
      * @return The grouped IData[].
      */
-    public static IData[] group(IData[] array, String... keys) {
+    public static IData[] group(IData[] array, boolean sorted, String... keys) {
         if (array == null) return null;
 
         IData[] output = null;
@@ -2892,25 +2588,29 @@ public class IDataHelper {
             IDataUtil.put(cursor, "items", array);
             cursor.destroy();
         } else {
-            Map<CompoundKey, List<IData>> groups = new TreeMap<CompoundKey, List<IData>>();
+            Map<CompoundKey, List<IData>> groups = new LinkedHashMap<CompoundKey, List<IData>>();
+            IDataProjection projection = IDataProjection.of(keys);
+            CompoundKey probe = new CompoundKey(keys, new Object[keys.length]);
 
             for (IData item : array) {
                 if (item != null) {
-                    CompoundKey key = new CompoundKey(keys, item);
-                    List<IData> list = groups.get(key);
+                    List<IData> list = groups.get(probe.reset(projection.get(item, probe.values)));
                     if (list == null) {
-                        list = new LinkedList<IData>();
-                        groups.put(key, list);
+                        list = new ArrayList<IData>();
+                        groups.put(probe.copy(), list);
                     }
                     list.add(item);
                 }
             }
 
-            List<IData> result = new ArrayList<IData>(groups.size());
+            List<CompoundKey> groupKeys = new ArrayList<CompoundKey>(groups.keySet());
+            if (sorted) Collections.sort(groupKeys);
+
+            output = new IData[groupKeys.size()];
 
-            for (Map.Entry<CompoundKey, List<IData>> entry : groups.entrySet()) {
-                CompoundKey key = entry.getKey();
-                List<IData> items = entry.getValue();
+            for (int i = 0; i < output.length; i++) {
+                CompoundKey key = groupKeys.get(i);
+                List<IData> items = groups.get(key);
 
                 IData group = IDataFactory.create();
                 IDataCursor cursor = group.getCursor();
@@ -2918,15 +2618,76 @@ public class IDataHelper {
                 IDataUtil.put(cursor, "items", items.toArray(new IData[items.size()]));
                 cursor.destroy();
 
-                result.add(group);
+                output[i] = group;
             }
-
-            output = result.toArray(new IData[result.size()]);
         }
 
         return output;
     }
 
+    /**
+     * Groups the given IData[] by the given keys, and calculates the given aggregates for each group without
+     * materializing the grouped items.
+     *
+     * @param array    The IData[] to be aggregated.
+     * @param keys     The keys to group items by. If null or empty, all items are aggregated into a single group.
+     * @param criteria The aggregates to be calculated for each group.
+     * @return         The aggregate results for each group, in the order each group was first encountered.
+     */
+    public static IData[] aggregate(IData[] array, String[] keys, IDataAggregateCriterion... criteria) {
+        if (array == null) return null;
+        return new IDataAggregator(keys, criteria).addAll(array).getResults();
+    }
+
+    /**
+     * Groups the given IData[] by the given keys, and calculates the given aggregates for each group without
+     * materializing the grouped items.
+     *
+     * @param array    The IData[] to be aggregated.
+     * @param keys     The keys to group items by. If null or empty, all items are aggregated into a single group.
+     * @param criteria The aggregates to be calculated for each group specified as an IData[].
+     * @return         The aggregate results for each group, in the order each group was first encountered.
+     */
+    public static IData[] aggregate(IData[] array, String[] keys, IData[] criteria) {
+        return aggregate(array, keys, IDataAggregateCriterion.of(criteria));
+    }
+
+    /**
+     * Joins the given IData[] document lists on the values associated with the given keys, using a hash index built
+     * over the smaller list.
+     * Documents with a null or missing value for any of the keys never match, as with SQL.
+     *
+     * @param left      The left IData[] document list.
+     * @param right     The right IData[] document list.
+     * @param leftKeys  The keys whose associated values are matched in the left documents.
+     * @param rightKeys The keys whose associated values are matched in the right documents, in the same order as the
+     *                  left keys. If null, the left keys are also used for the right documents.
+     * @param type      The type of join to perform. If null, defaults to an inner join.
+     * @return          The joined documents, in the order of the left list.
+     */
+    public static IData[] join(IData[] left, IData[] right, String[] leftKeys, String[] rightKeys, IDataJoinType type) {
+        return join(left, right, leftKeys, rightKeys, type, false);
+    }
+
+    /**
+     * Joins the given IData[] document lists on the values associated with the given keys, using a hash index built
+     * over the smaller list, and optionally probing the index in parallel.
+     * Documents with a null or missing value for any of the keys never match, as with SQL.
+     *
+     * @param left      The left IData[] document list.
+     * @param right     The right IData[] document list.
+     * @param leftKeys  The keys whose associated values are matched in the left documents.
+     * @param rightKeys The keys whose associated values are matched in the right documents, in the same order as the
+     *                  left keys. If null, the left keys are also used for the right documents.
+     * @param type      The type of join to perform. If null, defaults to an inner join.
+     * @param parallel  Whether to probe the index in parallel for large lists.
+     * @return          The joined documents, in the order of the left list.
+     */
+    public static IData[] join(IData[] left, IData[] right, String[] leftKeys, String[] rightKeys, IDataJoinType type, boolean parallel) {
+        if (left == null) return null;
+        return new IDataJoiner(leftKeys, rightKeys, type).join(left, right, parallel);
+    }
+
     /**
      * Returns a new IData[] document list that only contains unique IData objects from the input IData[] document
      * list.
@@ -2941,7 +2702,8 @@ public class IDataHelper {
 
     /**
      * Returns a new IData[] document list that only contains unique IData objects from the input IData[] document list,
-     * where uniqueness is determined by the values associated with the given list of keys.
+     * where uniqueness is determined by the values associated with the given list of keys. The unique items are
+     * returned in ascending order of their key values.
      *
      * @param array The IData[] document list to find the unique set of.
      * @param keys  The keys whose associated values will be used to determine uniqueness. If not specified, all keys
@@ -2950,6 +2712,23 @@ public class IDataHelper {
      * of values associated with the given list of keys.
      */
     public static IData[] unique(IData[] array, String... keys) {
+        return unique(array, true, keys);
+    }
+
+    /**
+     * Returns a new IData[] document list that only contains unique IData objects from the input IData[] document list,
+     * where uniqueness is determined by the values associated with the given list of keys. Uniqueness is hash-based
+     * and determined in linear time; sorting the resulting items by their key values is optional.
+     *
+     * @param array  The IData[] document list to find the unique set of.
+     * @param sorted If true, the unique items are returned in ascending order of their key values, otherwise they are
+     *               returned in the order they occur in the given array.
+     * @param keys   The keys whose associated values will be used to determine uniqueness. If not specified, all keys
+     *               will be used to determine uniqueness.
+     * @return A new IData[] document list only containing the first occurrence of each IData containing a distinct set
+     * of values associated with the given list of keys.
+     */
+    public static IData[] unique(IData[] array, boolean sorted, String... keys) {
         IData[] output = null;
 
         if (array != null) {
@@ -2958,15 +2737,27 @@ public class IDataHelper {
             } else {
                 if (keys == null || keys.length == 0) keys = getKeys(array);
 
-                Map<CompoundKey, IData> set = new TreeMap<CompoundKey, IData>();
+                Map<CompoundKey, IData> set = new LinkedHashMap<CompoundKey, IData>();
+                IDataProjection projection = IDataProjection.of(keys);
+                CompoundKey probe = new CompoundKey(keys, new Object[keys.length]);
+
                 for (IData item : array) {
                     if (item != null) {
-                        CompoundKey key = new CompoundKey(keys, item);
-                        if (!set.containsKey(key)) set.put(key, item);
+                        if (!set.containsKey(probe.reset(projection.get(item, probe.values)))) set.put(probe.copy(), item);
                     }
                 }
 
-                output = set.values().toArray(new IData[set.size()]);
+                if (sorted) {
+                    List<CompoundKey> uniqueKeys = new ArrayList<CompoundKey>(set.keySet());
+                    Collections.sort(uniqueKeys);
+
+                    output = new IData[uniqueKeys.size()];
+                    for (int i = 0; i < output.length; i++) {
+                        output[i] = set.get(uniqueKeys.get(i));
+                    }
+                } else {
+                    output = set.values().toArray(new IData[set.size()]);
+                }
             }
         }
 
@@ -2974,120 +2765,84 @@ public class IDataHelper {
     }
 
     /**
-     * Represents a compound key which can be used for grouping IData documents together.
+     * Returns a new IData[] containing the result of applying the given transformer to each item in the given IData[],
+     * in the same order. If parallel is true and the given IData[] contains at least PARALLEL_THRESHOLD items, the
+     * items are split into batches which are transformed on the shared executor, and any nested IData[] objects are
+     * then transformed sequentially, so that only the outermost large IData[] is split and no pool thread ever blocks
+     * waiting on another batch. Otherwise the items are transformed on the calling thread, and the parallel flag is
+     * passed on so that a large nested IData[] may still be split.
+     *
+     * @param array       The IData[] to be transformed.
+     * @param parallel    Whether to transform large IData[] objects in parallel.
+     * @param transformer The transformer to apply to each item.
+     * @return            A new IData[] containing the transformed items.
      */
-    private static class CompoundKey extends LinkedHashMap<String, Comparable> implements Comparable<CompoundKey>, IDataCodable {
-        /**
-         * Constructs a new compound key.
-         */
-        public CompoundKey() {
-            super();
-        }
+    private static IData[] transform(IData[] array, boolean parallel, Transformer transformer) {
+        IData[] output = new IData[array.length];
 
-        /**
-         * Constructs a new compound key seeded with the given list of keys and their associated values from the given
-         * IData document.
-         *
-         * @param keys     The keys which together form this compound key.
-         * @param document The IData document containing the seed values associated with the given keys.
-         */
-        public CompoundKey(String[] keys, IData document) {
-            super(keys.length);
-
-            // seed with key value pairs
-            for (String key : keys) {
-                Object value = IDataHelper.get(document, key);
-                if (value instanceof Comparable) {
-                    this.put(key, (Comparable)value);
-                } else if (value != null) {
-                    this.put(key, System.identityHashCode(value));
-                } else {
-                    this.put(key, null);
-                }
+        if (parallel && array.length >= PARALLEL_THRESHOLD) {
+            ExecutorService executor = ThreadHelper.getSharedExecutor();
+            List<Future<?>> futures = new ArrayList<Future<?>>((array.length + PARALLEL_BATCH_SIZE - 1) / PARALLEL_BATCH_SIZE);
+            for (int start = 0; start < array.length; start += PARALLEL_BATCH_SIZE) {
+                futures.add(executor.submit(new TransformerRunnable(array, output, start, Math.min(start + PARALLEL_BATCH_SIZE, array.length), transformer)));
             }
-        }
-
-        /**
-         * Compares this compound key with another compound key.
-         *
-         * @param other The other key to be compared with.
-         * @return 0 if the two keys are equal, < 0 if this key is less than the other key, > 0 if this key is greater
-         * than the other key.
-         */
-        public int compareTo(CompoundKey other) {
-            if (other == null) return 1;
-
-            int result = 0;
-
-            java.util.Iterator<String> iterator = this.keySet().iterator();
-
-            while (iterator.hasNext()) {
-                String key = iterator.next();
-                Comparable thisValue = this.get(key);
-                Comparable otherValue = other.get(key);
-
-                if (thisValue == null) {
-                    if (otherValue != null) result = -1;
-                } else {
-                    if (otherValue == null) {
-                        result = 1;
-                    } else {
-                        result = thisValue.compareTo(otherValue);
-                    }
-                }
-                if (result != 0) break;
+            ThreadHelper.await(futures);
+        } else {
+            for (int i = 0; i < array.length; i++) {
+                output[i] = transformer.transform(array[i], parallel);
             }
-            return result;
         }
 
+        return output;
+    }
+
+    /**
+     * Transforms an IData document into another IData document.
+     */
+    private interface Transformer {
         /**
-         * Returns true if this object is equal to the other object.
+         * Returns the given IData document transformed.
          *
-         * @param other The object to compare for equality with.
-         * @return True if this object is equal to the other object.
+         * @param document The IData document to be transformed.
+         * @param parallel Whether large IData[] objects nested in the document may be transformed in parallel.
+         * @return         The transformed IData document.
          */
-        public boolean equals(Object other) {
-            boolean result = false;
-
-            if (other instanceof CompoundKey) {
-                result = this.compareTo((CompoundKey)other) == 0;
-            }
+        IData transform(IData document, boolean parallel);
+    }
 
-            return result;
-        }
+    /**
+     * Transforms a batch of items in an IData[], writing each result to the same index in the output array so that
+     * the output order does not depend on the order in which the batches complete.
+     */
+    private static class TransformerRunnable implements Runnable {
+        private IData[] input, output;
+        private int start, end;
+        private Transformer transformer;
 
         /**
-         * Returns an IData representation of this compound key.
+         * Constructs a new batch.
          *
-         * @return An IData representation of this compound key.
+         * @param input       The IData[] being transformed.
+         * @param output      The IData[] the transformed items are written to.
+         * @param start       The index of the first item to transform, inclusive.
+         * @param end         The index of the last item to transform, exclusive.
+         * @param transformer The transformer to apply to each item.
          */
-        public IData getIData() {
-            IData output = IDataFactory.create();
-            for (Map.Entry<String, Comparable> entry : entrySet()) {
-                IDataHelper.put(output, entry.getKey(), entry.getValue());
-            }
-            return output;
+        TransformerRunnable(IData[] input, IData[] output, int start, int end, Transformer transformer) {
+            this.input = input;
+            this.output = output;
+            this.start = start;
+            this.end = end;
+            this.transformer = transformer;
         }
 
         /**
-         * Sets the entries in this compound key from the entries in the given IData document.
-         *
-         * @param document The IData document containing entries to be set in this compound key.
+         * Transforms the batch of items, transforming any nested IData[] objects sequentially.
          */
-        public void setIData(IData document) {
-            if (document == null) return;
-
-            this.clear();
-
-            IDataCursor cursor = document.getCursor();
-            while (cursor.next()) {
-                String key = cursor.getKey();
-                Object value = cursor.getValue();
-
-                if (value != null && value instanceof Comparable) this.put(key, (Comparable)value);
+        public void run() {
+            for (int i = start; i < end; i++) {
+                output[i] = transformer.transform(input[i], false);
             }
-            cursor.destroy();
         }
     }
-
 }
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+/**
+ * The different ways JSON numbers can be represented when decoded by the IDataJSONParser class.
+ */
+public enum IDataJSONNumberMode {
+    /**
+     * Numbers are decoded as java.math.BigDecimal objects, which preserve their exact value and scale.
+     */
+    DECIMAL,
+    /**
+     * Numbers are decoded as java.lang.String objects containing the number exactly as written.
+     */
+    STRING;
+
+    /**
+     * The default number mode, if none is specified.
+     */
+    public static final IDataJSONNumberMode DEFAULT_NUMBER_MODE = DECIMAL;
+
+    /**
+     * Returns an IDataJSONNumberMode for the given string value.
+     *
+     * @param value The value to be converted to an IDataJSONNumberMode.
+     * @return The IDataJSONNumberMode representing the given value.
+     */
+    public static IDataJSONNumberMode normalize(String value) {
+        return normalize(value == null ? null : valueOf(value.trim().toUpperCase()));
+    }
+
+    /**
+     * Normalizes an IDataJSONNumberMode.
+     *
+     * @param mode The IDataJSONNumberMode to be normalized.
+     * @return If the given mode is null the default mode, otherwise the given mode.
+     */
+    public static IDataJSONNumberMode normalize(IDataJSONNumberMode mode) {
+        return mode == null ? DEFAULT_NUMBER_MODE : mode;
+    }
+}
@@ -0,0 +1,794 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataPortable;
+import com.wm.util.Table;
+import com.wm.util.coder.IDataCodable;
+import com.wm.util.coder.ValuesCodable;
+import permafrost.tundra.io.StreamHelper;
+import permafrost.tundra.lang.BytesHelper;
+import permafrost.tundra.lang.CharsetHelper;
+import permafrost.tundra.time.DateTimeHelper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Deserializes and serializes IData objects from and to JSON, building IData documents directly from a hand-written
+ * tokenizer rather than via an intermediate java.util.Map representation, and encoding documents directly to the
+ * output stream. Also streams JSON with an IDataStreamReader or IDataHandler.
+ *
+ * JSON objects are decoded as IData documents, with keys in document order; arrays are decoded as IData[] if every
+ * item is an object, String[] if every item is a string, or otherwise Object[]; strings as String; true and false as
+ * Boolean; null as null; and numbers either as BigDecimal or String depending on the parser's number mode.
+ */
+public class IDataJSONParser extends IDataTextParser implements IDataStreamParser {
+    /**
+     * The maximum depth to which objects and arrays may be nested when decoding; deeper input is rejected as malformed
+     * rather than recursing until the stack overflows.
+     */
+    public static final int MAXIMUM_NESTING_DEPTH = 512;
+    /**
+     * Initialization on demand holder idiom.
+     */
+    private static class Holder {
+        /**
+         * The singleton instance of the class which decodes numbers as BigDecimal objects.
+         */
+        private static final IDataJSONParser DECIMAL_INSTANCE = new IDataJSONParser(IDataJSONNumberMode.DECIMAL);
+        /**
+         * The singleton instance of the class which decodes numbers as String objects.
+         */
+        private static final IDataJSONParser STRING_INSTANCE = new IDataJSONParser(IDataJSONNumberMode.STRING);
+    }
+
+    /**
+     * How numbers are represented when decoded.
+     */
+    protected IDataJSONNumberMode numberMode;
+
+    /**
+     * Disallow instantiation of this class.
+     *
+     * @param numberMode How numbers are represented when decoded.
+     */
+    private IDataJSONParser(IDataJSONNumberMode numberMode) {
+        this.numberMode = numberMode;
+    }
+
+    /**
+     * Returns the singleton instance of this class which uses the default number mode.
+     *
+     * @return The singleton instance of this class which uses the default number mode.
+     */
+    public static IDataJSONParser getInstance() {
+        return getInstance(IDataJSONNumberMode.DEFAULT_NUMBER_MODE);
+    }
+
+    /**
+     * Returns the singleton instance of this class which uses the given number mode.
+     *
+     * @param numberMode How numbers are represented when decoded.
+     * @return The singleton instance of this class which uses the given number mode.
+     */
+    public static IDataJSONParser getInstance(IDataJSONNumberMode numberMode) {
+        return IDataJSONNumberMode.normalize(numberMode) == IDataJSONNumberMode.STRING ? Holder.STRING_INSTANCE : Holder.DECIMAL_INSTANCE;
+    }
+
+    /**
+     * Returns how numbers are represented when decoded by this parser.
+     *
+     * @return How numbers are represented when decoded by this parser.
+     */
+    public IDataJSONNumberMode getNumberMode() {
+        return numberMode;
+    }
+
+    /**
+     * Returns the MIME type this parser handles.
+     *
+     * @return The MIME type this parser handles.
+     */
+    public String getContentType() {
+        return "application/json";
+    }
+
+    /**
+     * Returns the estimated number of bytes used to encode an element as JSON in addition to its key and value.
+     *
+     * @return The estimated number of bytes used to encode an element as JSON in addition to its key and value.
+     */
+    @Override
+    protected int getElementOverhead() {
+        return 6;
+    }
+
+    /**
+     * Returns an IData representation of the JSON data read from the given input stream.
+     *
+     * @param inputStream The input stream to be decoded.
+     * @param charset     The character set to use.
+     * @return An IData representation of the given input stream data, or null if the JSON is the literal null.
+     * @throws IOException If there is a problem reading from the stream, or the JSON is malformed or not an object.
+     */
+    public IData decode(InputStream inputStream, Charset charset) throws IOException {
+        if (inputStream == null) throw new NullPointerException("inputStream must not be null");
+        return decode(new InputStreamReader(inputStream, CharsetHelper.normalize(charset)));
+    }
+
+    /**
+     * Decodes the given JSON string as an IData.
+     *
+     * @param string The String to be decoded.
+     * @return The IData representation of the String.
+     * @throws IOException If the JSON is malformed or not an object.
+     */
+    @Override
+    public IData decodeFromString(String string) throws IOException {
+        if (string == null) throw new NullPointerException("string must not be null");
+        return decode(new StringReader(string));
+    }
+
+    /**
+     * Returns an IData representation of the JSON data read from the given reader.
+     *
+     * @param reader The reader to be decoded.
+     * @return An IData representation of the JSON data, or null if the JSON is the literal null.
+     * @throws IOException If there is a problem reading, or the JSON is malformed or not an object.
+     */
+    protected IData decode(Reader reader) throws IOException {
+        Lexer lexer = new Lexer(reader);
+        lexer.skipWhitespace();
+
+        IData document = null;
+        int c = lexer.peek();
+        if (c == '{') {
+            document = readObject(lexer);
+        } else if (c == 'n') {
+            lexer.readLiteral("null");
+        } else {
+            throw lexer.error("object expected");
+        }
+
+        lexer.skipWhitespace();
+        if (lexer.peek() >= 0) throw lexer.error("unexpected trailing data");
+
+        return document;
+    }
+
+    /**
+     * Reads a JSON object as an IData document.
+     *
+     * @param lexer The lexer positioned at the opening brace.
+     * @return The document read.
+     * @throws IOException If the JSON is malformed.
+     */
+    private IData readObject(Lexer lexer) throws IOException {
+        lexer.enter();
+        lexer.read();
+        IData document = IDataFactory.create();
+        IDataCursor cursor = document.getCursor();
+
+        try {
+            lexer.skipWhitespace();
+            if (lexer.peek() == '}') {
+                lexer.read();
+            } else {
+                while (true) {
+                    lexer.skipWhitespace();
+                    String key = lexer.readString();
+                    lexer.skipWhitespace();
+                    lexer.expect(':');
+                    cursor.insertAfter(key, readValue(lexer));
+                    lexer.skipWhitespace();
+
+                    int c = lexer.read();
+                    if (c == '}') break;
+                    if (c != ',') throw lexer.error("',' or '}' expected");
+                }
+            }
+        } finally {
+            cursor.destroy();
+        }
+
+        lexer.leave();
+        return document;
+    }
+
+    /**
+     * Reads a JSON array.
+     *
+     * @param lexer The lexer positioned at the opening bracket.
+     * @return The array read, typed by the most specific common type of its items.
+     * @throws IOException If the JSON is malformed.
+     */
+    private Object[] readArray(Lexer lexer) throws IOException {
+        lexer.enter();
+        lexer.read();
+        List<Object> items = new ArrayList<Object>();
+
+        lexer.skipWhitespace();
+        if (lexer.peek() == ']') {
+            lexer.read();
+        } else {
+            while (true) {
+                items.add(readValue(lexer));
+                lexer.skipWhitespace();
+
+                int c = lexer.read();
+                if (c == ']') break;
+                if (c != ',') throw lexer.error("',' or ']' expected");
+            }
+        }
+
+        lexer.leave();
+        return IDataBuilder.toArray(items, null);
+    }
+
+    /**
+     * Reads any JSON value.
+     *
+     * @param lexer The lexer positioned before the value.
+     * @return The value read.
+     * @throws IOException If the JSON is malformed.
+     */
+    private Object readValue(Lexer lexer) throws IOException {
+        lexer.skipWhitespace();
+        int c = lexer.peek();
+        if (c == '{') return readObject(lexer);
+        if (c == '[') return readArray(lexer);
+        return lexer.readScalar(numberMode);
+    }
+
+    /**
+     * Serializes the given IData document as JSON to the given output stream.
+     *
+     * @param outputStream The stream to write the encoded IData to.
+     * @param document     The IData document to be encoded.
+     * @param charset      The character set to use.
+     * @throws IOException If there is a problem writing to the stream.
+     */
+    public void encode(OutputStream outputStream, IData document, Charset charset) throws IOException {
+        if (outputStream == null) throw new NullPointerException("outputStream must not be null");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, CharsetHelper.normalize(charset)), StreamHelper.DEFAULT_BUFFER_SIZE);
+        writeValue(writer, document);
+        writer.flush();
+    }
+
+    /**
+     * Writes the given value as JSON.
+     *
+     * @param writer The writer to write to.
+     * @param value  The value to be written.
+     * @throws IOException If there is a problem writing.
+     */
+    private static void writeValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            writeString(writer, (String)value);
+        } else if (value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable) {
+            writeObject(writer, IDataHelper.toIData(value));
+        } else if (value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[]) {
+            writeArray(writer, IDataHelper.toIDataArray(value));
+        } else if (value instanceof Object[]) {
+            writeArray(writer, (Object[])value);
+        } else if (value instanceof Boolean) {
+            writer.write(value.toString());
+        } else if (value instanceof Number) {
+            if ((value instanceof Double && (((Double)value).isNaN() || ((Double)value).isInfinite())) ||
+                (value instanceof Float && (((Float)value).isNaN() || ((Float)value).isInfinite()))) {
+                // not representable as JSON numbers
+                writeString(writer, value.toString());
+            } else {
+                writer.write(value.toString());
+            }
+        } else if (value instanceof byte[]) {
+            writeString(writer, BytesHelper.base64Encode((byte[])value));
+        } else if (value instanceof Calendar) {
+            writeString(writer, DateTimeHelper.emit((Calendar)value));
+        } else if (value instanceof Date) {
+            writeString(writer, DateTimeHelper.emit((Date)value));
+        } else {
+            writeString(writer, value.toString());
+        }
+    }
+
+    /**
+     * Writes the given document as a JSON object.
+     *
+     * @param writer   The writer to write to.
+     * @param document The document to be written.
+     * @throws IOException If there is a problem writing.
+     */
+    private static void writeObject(Writer writer, IData document) throws IOException {
+        writer.write('{');
+        IDataCursor cursor = document.getCursor();
+        try {
+            boolean first = true;
+            while (cursor.next()) {
+                if (!first) writer.write(',');
+                first = false;
+                writeString(writer, cursor.getKey());
+                writer.write(':');
+                writeValue(writer, cursor.getValue());
+            }
+        } finally {
+            cursor.destroy();
+        }
+        writer.write('}');
+    }
+
+    /**
+     * Writes the given array as a JSON array.
+     *
+     * @param writer The writer to write to.
+     * @param array  The array to be written.
+     * @throws IOException If there is a problem writing.
+     */
+    private static void writeArray(Writer writer, Object[] array) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) writer.write(',');
+            writeValue(writer, array[i]);
+        }
+        writer.write(']');
+    }
+
+    /**
+     * Writes the given string as a JSON string, escaping characters as required.
+     *
+     * @param writer The writer to write to.
+     * @param string The string to be written.
+     * @throws IOException If there is a problem writing.
+     */
+    private static void writeString(Writer writer, String string) throws IOException {
+        if (string == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        int length = string.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            String escape;
+            if (c == '"') escape = "\\\"";
+            else if (c == '\\') escape = "\\\\";
+            else if (c == '\n') escape = "\\n";
+            else if (c == '\r') escape = "\\r";
+            else if (c == '\t') escape = "\\t";
+            else if (c == '\b') escape = "\\b";
+            else if (c == '\f') escape = "\\f";
+            else if (c < 0x20 || c == 0x2028 || c == 0x2029) escape = String.format("\\u%04x", (int)c);
+            else continue;
+
+            if (i > start) writer.write(string, start, i - start);
+            writer.write(escape);
+            start = i + 1;
+        }
+        if (length > start) writer.write(string, start, length - start);
+        writer.write('"');
+    }
+
+    /**
+     * Returns a reader which streams the JSON in the given input stream, without materializing the whole document in
+     * memory. The top-level JSON value must be an object.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use.
+     * @return A reader which streams the document in the given input stream.
+     * @throws IOException If there is a problem reading from the stream.
+     */
+    public IDataStreamReader read(InputStream inputStream, Charset charset) throws IOException {
+        if (inputStream == null) throw new NullPointerException("inputStream must not be null");
+        return new JSONStreamReader(new Lexer(new InputStreamReader(inputStream, CharsetHelper.normalize(charset))), numberMode);
+    }
+
+    /**
+     * Streams the JSON in the given input stream to the given handler.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use.
+     * @param handler     The handler to be called for each event.
+     * @throws IOException If there is a problem reading from the stream.
+     */
+    public void parse(InputStream inputStream, Charset charset, IDataHandler handler) throws IOException {
+        IDataStreamReader reader = read(inputStream, charset);
+        try {
+            reader.accept(handler);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Tokenizes JSON read from a character stream through an internal buffer, reusing a single StringBuilder for
+     * tokens which span buffer boundaries or contain escape sequences.
+     */
+    private static class Lexer {
+        protected Reader reader;
+        protected char[] buffer = new char[StreamHelper.DEFAULT_BUFFER_SIZE];
+        protected int position;
+        protected int limit;
+        protected long offset;
+        protected StringBuilder builder = new StringBuilder();
+        protected int depth;
+
+        /**
+         * Constructs a new lexer.
+         *
+         * @param reader The reader to tokenize.
+         */
+        public Lexer(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Refills the buffer.
+         *
+         * @return True if more characters were read, false at the end of the stream.
+         * @throws IOException If an I/O error occurs.
+         */
+        private boolean fill() throws IOException {
+            offset += limit;
+            position = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        public int peek() throws IOException {
+            if (position >= limit && !fill()) return -1;
+            return buffer[position];
+        }
+
+        public int read() throws IOException {
+            int c = peek();
+            if (c >= 0) position++;
+            return c;
+        }
+
+        public void expect(char expected) throws IOException {
+            if (read() != expected) throw error("'" + expected + "' expected");
+        }
+
+        public void skipWhitespace() throws IOException {
+            while (true) {
+                int c = peek();
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+                position++;
+            }
+        }
+
+        /**
+         * Records entry into a nested object or array.
+         *
+         * @throws IOException If the maximum nesting depth is exceeded.
+         */
+        public void enter() throws IOException {
+            if (++depth > MAXIMUM_NESTING_DEPTH) throw error("maximum nesting depth of " + MAXIMUM_NESTING_DEPTH + " exceeded");
+        }
+
+        /**
+         * Records exit from a nested object or array.
+         */
+        public void leave() {
+            depth--;
+        }
+
+        /**
+         * Returns an exception describing a syntax error at the current position.
+         *
+         * @param message The description of the error.
+         * @return An exception describing the error.
+         */
+        public IOException error(String message) {
+            return new IOException("Malformed JSON at offset " + (offset + position) + ": " + message);
+        }
+
+        public String readString() throws IOException {
+            if (read() != '"') throw error("string expected");
+            builder.setLength(0);
+
+            while (true) {
+                if (position >= limit && !fill()) throw error("unterminated string");
+
+                int start = position;
+                while (position < limit) {
+                    char c = buffer[position];
+                    if (c == '"' || c == '\\' || c < 0x20) break;
+                    position++;
+                }
+
+                if (position < limit && buffer[position] == '"' && builder.length() == 0) {
+                    // fast path for strings without escapes which lie entirely within the buffer
+                    String string = new String(buffer, start, position - start);
+                    position++;
+                    return string;
+                }
+
+                builder.append(buffer, start, position - start);
+                if (position >= limit) continue;
+
+                char c = buffer[position++];
+                if (c == '"') return builder.toString();
+                if (c < 0x20) throw error("unescaped control character in string");
+
+                int escape = read();
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char)escape);
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) throw error("invalid unicode escape");
+                            code = (code << 4) | digit;
+                        }
+                        builder.append((char)code);
+                        break;
+                    default:
+                        throw error("invalid escape sequence");
+                }
+            }
+        }
+
+        /**
+         * Reads a number, validating that it conforms to the JSON number grammar.
+         *
+         * @param numberMode How the number is represented.
+         * @return The number read.
+         * @throws IOException If the number is malformed.
+         */
+        public Object readNumber(IDataJSONNumberMode numberMode) throws IOException {
+            builder.setLength(0);
+
+            if (peek() == '-') builder.append((char)read());
+
+            int c = peek();
+            if (c == '0') {
+                builder.append((char)read());
+            } else if (c >= '1' && c <= '9') {
+                readDigits();
+            } else {
+                throw error("invalid number");
+            }
+
+            if (peek() == '.') {
+                builder.append((char)read());
+                if (readDigits() == 0) throw error("invalid number");
+            }
+
+            c = peek();
+            if (c == 'e' || c == 'E') {
+                builder.append((char)read());
+                c = peek();
+                if (c == '+' || c == '-') builder.append((char)read());
+                if (readDigits() == 0) throw error("invalid number");
+            }
+
+            String text = builder.toString();
+            return numberMode == IDataJSONNumberMode.STRING ? text : new BigDecimal(text);
+        }
+
+        private int readDigits() throws IOException {
+            int count = 0;
+            while (true) {
+                int c = peek();
+                if (c < '0' || c > '9') return count;
+                builder.append((char)read());
+                count++;
+            }
+        }
+
+        public void readLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (read() != literal.charAt(i)) throw error("invalid literal");
+            }
+        }
+
+        /**
+         * Reads a string, number, boolean or null.
+         *
+         * @param numberMode How numbers are represented.
+         * @return The value read.
+         * @throws IOException If the value is malformed.
+         */
+        public Object readScalar(IDataJSONNumberMode numberMode) throws IOException {
+            int c = peek();
+            if (c == '"') return readString();
+            if (c == '-' || (c >= '0' && c <= '9')) return readNumber(numberMode);
+            if (c == 't') {
+                readLiteral("true");
+                return Boolean.TRUE;
+            }
+            if (c == 'f') {
+                readLiteral("false");
+                return Boolean.FALSE;
+            }
+            if (c == 'n') {
+                readLiteral("null");
+                return null;
+            }
+            if (c < 0) throw error("unexpected end of input");
+            throw error("unexpected character '" + (char)c + "'");
+        }
+    }
+
+    /**
+     * Streams JSON as IData events.
+     */
+    private static class JSONStreamReader extends AbstractIDataStreamReader {
+        protected Lexer lexer;
+        protected IDataJSONNumberMode numberMode;
+        /**
+         * For each enclosing container, whether it is an object rather than an array.
+         */
+        protected boolean[] objects = new boolean[16];
+        /**
+         * For each enclosing container, whether the next element must be preceded by a comma.
+         */
+        protected boolean[] commas = new boolean[16];
+        /**
+         * The number of enclosing containers.
+         */
+        protected int level;
+        protected boolean started;
+        protected boolean afterKey;
+
+        /**
+         * Constructs a new reader.
+         *
+         * @param lexer      The lexer to read tokens from.
+         * @param numberMode How numbers are represented.
+         */
+        public JSONStreamReader(Lexer lexer, IDataJSONNumberMode numberMode) {
+            this.lexer = lexer;
+            this.numberMode = numberMode;
+        }
+
+        /**
+         * Reads the next event.
+         *
+         * @return The next event, or null if there are no more events.
+         * @throws IOException If an I/O error occurs or the JSON is malformed.
+         */
+        protected IDataEvent read() throws IOException {
+            if (afterKey) {
+                afterKey = false;
+                return startValue();
+            }
+
+            lexer.skipWhitespace();
+
+            if (level == 0) {
+                if (!started) {
+                    started = true;
+                    if (lexer.peek() != '{') throw lexer.error("object expected");
+                    return startValue();
+                }
+                if (lexer.peek() >= 0) throw lexer.error("unexpected trailing data");
+                return null;
+            }
+
+            boolean object = objects[level - 1];
+            int c = lexer.peek();
+            if (c == (object ? '}' : ']')) {
+                lexer.read();
+                level--;
+                return object ? IDataEvent.END_DOCUMENT : IDataEvent.END_ARRAY;
+            }
+
+            if (commas[level - 1]) {
+                if (lexer.read() != ',') throw lexer.error(object ? "',' or '}' expected" : "',' or ']' expected");
+                lexer.skipWhitespace();
+            }
+            commas[level - 1] = true;
+
+            if (object) {
+                pendingKey = lexer.readString();
+                lexer.skipWhitespace();
+                lexer.expect(':');
+                afterKey = true;
+                return IDataEvent.KEY;
+            }
+
+            return startValue();
+        }
+
+        /**
+         * Reads the first event of the next value.
+         *
+         * @return The first event of the next value.
+         * @throws IOException If an I/O error occurs or the JSON is malformed.
+         */
+        private IDataEvent startValue() throws IOException {
+            lexer.skipWhitespace();
+            int c = lexer.peek();
+            if (c == '{' || c == '[') {
+                lexer.read();
+                if (level == objects.length) {
+                    objects = Arrays.copyOf(objects, level * 2);
+                    commas = Arrays.copyOf(commas, level * 2);
+                }
+                objects[level] = c == '{';
+                commas[level] = false;
+                level++;
+                return c == '{' ? IDataEvent.START_DOCUMENT : IDataEvent.START_ARRAY;
+            }
+
+            pendingValue = lexer.readScalar(numberMode);
+            return IDataEvent.VALUE;
+        }
+
+        /**
+         * Releases this reader. The underlying input stream is not closed.
+         */
+        public void close() {
+            lexer = null;
+        }
+    }
+}
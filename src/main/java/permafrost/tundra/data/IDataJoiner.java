@@ -0,0 +1,434 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import permafrost.tundra.lang.ThreadHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Joins two lists of IData documents on the values associated with a list of keys in each document, using a hash
+ * index built over the smaller of the two lists, so that a join takes a single linear pass over each list rather
+ * than comparing every pair of documents. Key values are matched using the same semantics as grouping: values that
+ * implement Comparable are matched by equality, and all other values by identity.
+ *
+ * As with SQL, a document with a null or missing value for any of the join keys never matches another document, even
+ * one that is also missing the same key; such left documents are still returned unmatched by left and anti joins.
+ *
+ * Results are always returned in the order of the left list, with the matches for each left document in the order
+ * of the right list, regardless of which list is indexed or whether the probe phase is run in parallel.
+ */
+public class IDataJoiner {
+    /**
+     * The default minimum number of documents probed against the index that will be processed in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_JOIN_THRESHOLD = 8192;
+    /**
+     * The keys whose associated values are matched in the left documents.
+     */
+    protected String[] leftKeys;
+    /**
+     * The keys whose associated values are matched in the right documents.
+     */
+    protected String[] rightKeys;
+    /**
+     * The type of join performed.
+     */
+    protected IDataJoinType type;
+    /**
+     * Extracts the key values from each left document.
+     */
+    protected IDataProjection leftProjection;
+    /**
+     * Extracts the key values from each right document.
+     */
+    protected IDataProjection rightProjection;
+
+    /**
+     * Constructs a new joiner.
+     *
+     * @param leftKeys  The keys whose associated values are matched in the left documents.
+     * @param rightKeys The keys whose associated values are matched in the right documents, in the same order as the
+     *                  left keys. If null, the left keys are also used for the right documents.
+     * @param type      The type of join to perform. If null, defaults to an inner join.
+     */
+    public IDataJoiner(String[] leftKeys, String[] rightKeys, IDataJoinType type) {
+        if (leftKeys == null) throw new NullPointerException("leftKeys must not be null");
+        if (leftKeys.length == 0) throw new IllegalArgumentException("leftKeys must not be empty");
+        if (rightKeys == null) rightKeys = leftKeys;
+        if (leftKeys.length != rightKeys.length) throw new IllegalArgumentException("leftKeys and rightKeys must be the same length");
+
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.type = IDataJoinType.normalize(type);
+        this.leftProjection = IDataProjection.of(leftKeys);
+        this.rightProjection = IDataProjection.of(rightKeys);
+    }
+
+    /**
+     * Joins the given lists of documents.
+     *
+     * @param left  The left list of documents; null items are ignored.
+     * @param right The right list of documents; null items are ignored.
+     * @return      The joined documents: for inner and left joins a new document per match containing the keys and
+     *              values of the left document merged with those of the right document, and for left joins a copy of
+     *              each unmatched left document; for anti joins the unmatched left documents themselves.
+     */
+    public IData[] join(IData[] left, IData[] right) {
+        return join(left, right, null, DEFAULT_PARALLEL_JOIN_THRESHOLD);
+    }
+
+    /**
+     * Joins the given lists of documents, optionally probing the index in parallel using a shared pool of daemon
+     * threads sized to the number of available processors.
+     *
+     * @param left     The left list of documents; null items are ignored.
+     * @param right    The right list of documents; null items are ignored.
+     * @param parallel Whether to probe the index in parallel when the probing list contains at least
+     *                 DEFAULT_PARALLEL_JOIN_THRESHOLD documents.
+     * @return         The joined documents.
+     */
+    public IData[] join(IData[] left, IData[] right, boolean parallel) {
+        return join(left, right, parallel ? ThreadHelper.getSharedExecutor() : null, DEFAULT_PARALLEL_JOIN_THRESHOLD);
+    }
+
+    /**
+     * Joins the given lists of documents, probing the index in parallel using the given executor when the probing
+     * list contains at least the given threshold of documents. The index is built sequentially and is only read
+     * during the probe phase, so it is safely shared between the probing tasks.
+     *
+     * @param left      The left list of documents; null items are ignored.
+     * @param right     The right list of documents; null items are ignored.
+     * @param executor  The executor used to run the parallel probe tasks; if null the index is probed sequentially.
+     * @param threshold The minimum number of probing documents, and of documents per task, probed in parallel.
+     * @return          The joined documents.
+     */
+    public IData[] join(IData[] left, IData[] right, ExecutorService executor, int threshold) {
+        if (left == null) return null;
+        if (right == null) right = new IData[0];
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be at least 1");
+
+        List<IData>[] matches;
+
+        if (left.length <= right.length) {
+            matches = probeRight(left, right, executor, threshold);
+        } else {
+            matches = probeLeft(left, right, executor, threshold);
+        }
+
+        return emit(left, matches);
+    }
+
+    /**
+     * Indexes the left documents, and probes the index with the right documents.
+     *
+     * @param left      The left list of documents.
+     * @param right     The right list of documents.
+     * @param executor  The executor used to run the parallel probe tasks, or null.
+     * @param threshold The minimum number of documents per parallel probe task.
+     * @return          The matching right documents for each left document, in right order.
+     */
+    private List<IData>[] probeRight(IData[] left, IData[] right, ExecutorService executor, int threshold) {
+        Map<CompoundKey, List<Integer>> index = new HashMap<CompoundKey, List<Integer>>(capacity(left.length));
+
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] == null) continue;
+
+            Object[] values = leftProjection.get(left[i]);
+            if (hasNull(values)) continue;
+
+            CompoundKey key = new CompoundKey(leftKeys, values);
+            List<Integer> bucket = index.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<Integer>(1);
+                index.put(key, bucket);
+            }
+            bucket.add(i);
+        }
+
+        List<IData>[] matches = newMatches(left.length);
+        int[] bounds = bounds(right.length, executor, threshold);
+
+        List<int[]> pairs;
+        if (bounds.length > 2) {
+            List<Future<int[]>> futures = new ArrayList<Future<int[]>>(bounds.length - 1);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                futures.add(executor.submit(new RightProbeCallable(index, right, bounds[i], bounds[i + 1])));
+            }
+            pairs = ThreadHelper.await(futures);
+        } else {
+            pairs = new ArrayList<int[]>(1);
+            pairs.add(new RightProbeCallable(index, right, 0, right.length).call());
+        }
+
+        // pairs are applied in probe order, so each left document's matches remain in right order
+        for (int[] chunk : pairs) {
+            for (int i = 0; i < chunk.length; i += 2) {
+                List<IData> list = matches[chunk[i]];
+                if (list == null) {
+                    list = new ArrayList<IData>(1);
+                    matches[chunk[i]] = list;
+                }
+                list.add(right[chunk[i + 1]]);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Indexes the right documents, and probes the index with the left documents.
+     *
+     * @param left      The left list of documents.
+     * @param right     The right list of documents.
+     * @param executor  The executor used to run the parallel probe tasks, or null.
+     * @param threshold The minimum number of documents per parallel probe task.
+     * @return          The matching right documents for each left document, in right order.
+     */
+    private List<IData>[] probeLeft(IData[] left, IData[] right, ExecutorService executor, int threshold) {
+        Map<CompoundKey, List<IData>> index = new HashMap<CompoundKey, List<IData>>(capacity(right.length));
+
+        for (IData item : right) {
+            if (item == null) continue;
+
+            Object[] values = rightProjection.get(item);
+            if (hasNull(values)) continue;
+
+            CompoundKey key = new CompoundKey(rightKeys, values);
+            List<IData> bucket = index.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<IData>(1);
+                index.put(key, bucket);
+            }
+            bucket.add(item);
+        }
+
+        List<IData>[] matches = newMatches(left.length);
+        int[] bounds = bounds(left.length, executor, threshold);
+
+        if (bounds.length > 2) {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>(bounds.length - 1);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                futures.add(executor.submit(new LeftProbeCallable(index, left, matches, bounds[i], bounds[i + 1])));
+            }
+            ThreadHelper.await(futures);
+        } else {
+            new LeftProbeCallable(index, left, matches, 0, left.length).call();
+        }
+
+        return matches;
+    }
+
+    /**
+     * Returns the join results given the matching right documents for each left document.
+     *
+     * @param left    The left list of documents.
+     * @param matches The matching right documents for each left document.
+     * @return        The join results.
+     */
+    private IData[] emit(IData[] left, List<IData>[] matches) {
+        List<IData> output = new ArrayList<IData>(left.length);
+
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] == null) continue;
+
+            List<IData> list = matches[i];
+            if (list == null || list.isEmpty()) {
+                if (type == IDataJoinType.LEFT) {
+                    output.add(IDataHelper.merge(left[i]));
+                } else if (type == IDataJoinType.ANTI) {
+                    output.add(left[i]);
+                }
+            } else if (type != IDataJoinType.ANTI) {
+                for (IData match : list) {
+                    output.add(IDataHelper.merge(left[i], match));
+                }
+            }
+        }
+
+        return output.toArray(new IData[output.size()]);
+    }
+
+    /**
+     * Returns the boundaries of the contiguous ranges the probing list is split into, one range per parallel task.
+     *
+     * @param length    The length of the probing list.
+     * @param executor  The executor used to run the parallel probe tasks, or null.
+     * @param threshold The minimum number of documents per parallel probe task.
+     * @return          The range boundaries, where range i is from bounds[i] inclusive to bounds[i + 1] exclusive.
+     */
+    private static int[] bounds(int length, ExecutorService executor, int threshold) {
+        int tasks = executor == null ? 1 : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), length / threshold));
+
+        int[] bounds = new int[tasks + 1];
+        for (int i = 0; i <= tasks; i++) {
+            bounds[i] = (int)(((long)length * i) / tasks);
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Returns true if any of the given join key values are null, in which case the document cannot match any other.
+     *
+     * @param values The join key values.
+     * @return       True if any of the given values are null.
+     */
+    private static boolean hasNull(Object[] values) {
+        for (Object value : values) {
+            if (value == null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the initial capacity of a hash map that can hold the given number of entries without resizing.
+     *
+     * @param size The number of entries.
+     * @return     The initial capacity.
+     */
+    private static int capacity(int size) {
+        return Math.max(16, (int)(size / 0.75f) + 1);
+    }
+
+    /**
+     * Returns a new array for holding the matching right documents for each left document.
+     *
+     * @param length The number of left documents.
+     * @return       A new array for holding the matching right documents for each left document.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<IData>[] newMatches(int length) {
+        return (List<IData>[])new List[length];
+    }
+
+    /**
+     * Probes an index of left documents with a range of right documents.
+     */
+    private class RightProbeCallable implements Callable<int[]> {
+        protected Map<CompoundKey, List<Integer>> index;
+        protected IData[] right;
+        protected int start, end;
+
+        /**
+         * Creates a new callable that probes the given index with the given range of right documents.
+         *
+         * @param index The index of left document positions by key.
+         * @param right The right list of documents.
+         * @param start The index of the first right document to probe with, inclusive.
+         * @param end   The index of the last right document to probe with, exclusive.
+         */
+        public RightProbeCallable(Map<CompoundKey, List<Integer>> index, IData[] right, int start, int end) {
+            this.index = index;
+            this.right = right;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Probes the index.
+         *
+         * @return The matched (left position, right position) pairs, flattened, in right order.
+         */
+        public int[] call() {
+            CompoundKey probe = new CompoundKey(rightKeys, new Object[rightKeys.length]);
+            int[] pairs = new int[16];
+            int count = 0;
+
+            for (int i = start; i < end; i++) {
+                if (right[i] == null) continue;
+
+                rightProjection.get(right[i], probe.values);
+                if (hasNull(probe.values)) continue;
+
+                List<Integer> bucket = index.get(probe.reset(probe.values));
+                if (bucket != null) {
+                    for (Integer position : bucket) {
+                        if (count + 2 > pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                        pairs[count++] = position;
+                        pairs[count++] = i;
+                    }
+                }
+            }
+
+            return Arrays.copyOf(pairs, count);
+        }
+    }
+
+    /**
+     * Probes an index of right documents with a range of left documents.
+     */
+    private class LeftProbeCallable implements Callable<Object> {
+        protected Map<CompoundKey, List<IData>> index;
+        protected IData[] left;
+        protected List<IData>[] matches;
+        protected int start, end;
+
+        /**
+         * Creates a new callable that probes the given index with the given range of left documents.
+         *
+         * @param index   The index of right documents by key.
+         * @param left    The left list of documents.
+         * @param matches The array the matching right documents for each left document are written to; each task
+         *                writes only to its own range.
+         * @param start   The index of the first left document to probe with, inclusive.
+         * @param end     The index of the last left document to probe with, exclusive.
+         */
+        public LeftProbeCallable(Map<CompoundKey, List<IData>> index, IData[] left, List<IData>[] matches, int start, int end) {
+            this.index = index;
+            this.left = left;
+            this.matches = matches;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Probes the index.
+         *
+         * @return Always null; the matches are written to the matches array.
+         */
+        public Object call() {
+            CompoundKey probe = new CompoundKey(leftKeys, new Object[leftKeys.length]);
+
+            for (int i = start; i < end; i++) {
+                if (left[i] == null) continue;
+
+                leftProjection.get(left[i], probe.values);
+                if (hasNull(probe.values)) continue;
+
+                matches[i] = index.get(probe.reset(probe.values));
+            }
+
+            return null;
+        }
+    }
+}
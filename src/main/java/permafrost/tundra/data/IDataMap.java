@@ -360,6 +360,40 @@ public class IDataMap extends IDataEnvelope implements Iterable<Map.Entry<String
         }
     }
 
+    /**
+     * Returns a new empty IDataMap backed by an IndexedIData document, which provides constant time key lookups and
+     * is therefore suited to wide documents.
+     *
+     * @return A new empty IDataMap backed by an IndexedIData document.
+     */
+    public static IDataMap indexed() {
+        return new IDataMap(new IndexedIData());
+    }
+
+    /**
+     * Returns a new IDataMap backed by an IndexedIData document containing the key value pairs from the given IData
+     * document, which provides constant time key lookups and is therefore suited to wide documents.
+     *
+     * @param document The document to seed the new IDataMap with.
+     * @return A new IDataMap backed by an IndexedIData document.
+     */
+    public static IDataMap indexed(IData document) {
+        return document == null ? indexed() : new IDataMap(IndexedIData.of(document));
+    }
+
+    /**
+     * Returns a new IDataMap backed by an IndexedIData document containing the key value pairs from the given Map,
+     * which provides constant time key lookups and is therefore suited to wide documents.
+     *
+     * @param map The Map to seed the new IDataMap with.
+     * @return A new IDataMap backed by an IndexedIData document.
+     */
+    public static IDataMap indexed(Map<? extends String, ?> map) {
+        IDataMap output = new IDataMap(new IndexedIData(map == null ? 0 : map.size()));
+        if (map != null) output.putAll(map);
+        return output;
+    }
+
     /**
      * Returns the value to which the specified key is mapped, or null if this map contains no mapping for the key.
      *
@@ -414,7 +448,40 @@ public class IDataMap extends IDataEnvelope implements Iterable<Map.Entry<String
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof IData)) return false;
-        return this == other || DEFAULT_COMPARATOR.compare(document, (IData)other) == 0;
+        if (this == other) return true;
+        // documents whose hashes are already known and differ cannot be equal, so skip the deep comparison
+        if (isHashMemoized() && other instanceof IDataMap && ((IDataMap)other).isHashMemoized() && hash() != ((IDataMap)other).hash()) return false;
+        return DEFAULT_COMPARATOR.compare(document, (IData)other) == 0;
+    }
+
+    /**
+     * Returns a hash code for this object, consistent with equals, computed from all the keys and values in the
+     * wrapped document.
+     *
+     * @return A hash code for this object.
+     */
+    @Override
+    public int hashCode() {
+        return IDataHasher.fold(hash());
+    }
+
+    /**
+     * Returns the 64-bit structural hash of the wrapped document.
+     *
+     * @return The 64-bit structural hash of the wrapped document.
+     */
+    protected long hash() {
+        return IDataHasher.getInstance().hash(document);
+    }
+
+    /**
+     * Returns true if the hash of this object has been computed and cannot change, so that it can be used to detect
+     * inequality without comparing documents.
+     *
+     * @return True if the hash of this object is memoized.
+     */
+    protected boolean isHashMemoized() {
+        return false;
     }
 
     /**
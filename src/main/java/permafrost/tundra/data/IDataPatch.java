@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataUtil;
+import permafrost.tundra.lang.BooleanHelper;
+
+/**
+ * Applies an edit script produced by IDataDiff to an IData document.
+ */
+public class IDataPatch {
+    /**
+     * Disallow instantiation of this class.
+     */
+    private IDataPatch() {}
+
+    /**
+     * Returns a new document which is the given document with the given edit script applied. The given document is
+     * not modified: it is duplicated before the edits are applied, which for a CopyOnWriteIData document is a constant
+     * time operation that only copies the parts of the document that the edits change.
+     *
+     * @param document The document to be patched.
+     * @param script   The edit script to apply, as produced by IDataDiff.compute.
+     * @return         A new document with the given edits applied.
+     */
+    public static IData apply(IData document, IData[] script) {
+        IData output = IDataHelper.duplicate(document, true);
+
+        if (script != null) {
+            for (IData edit : script) {
+                if (edit != null) output = apply(output, edit);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Applies the given edit to the given document in place.
+     *
+     * @param document The document to be edited.
+     * @param edit     The edit to be applied.
+     * @return         The edited document, which is a different document if the edit replaces the whole document.
+     */
+    private static IData apply(IData document, IData edit) {
+        IDataCursor cursor = edit.getCursor();
+        IDataEditType type;
+        String path;
+        boolean literal;
+        Object value;
+
+        try {
+            type = IDataEditType.normalize(IDataUtil.getString(cursor, IDataDiff.OPERATION_KEY));
+            path = IDataUtil.getString(cursor, IDataDiff.PATH_KEY);
+            Object flag = IDataUtil.get(cursor, IDataDiff.LITERAL_KEY);
+            literal = flag != null && BooleanHelper.parse(flag.toString());
+            value = IDataUtil.get(cursor, IDataDiff.VALUE_KEY);
+        } finally {
+            cursor.destroy();
+        }
+
+        if (path == null) {
+            document = type == IDataEditType.REMOVE ? null : IDataHelper.duplicate(IDataHelper.toIData(value), true);
+        } else if (type == IDataEditType.REMOVE) {
+            IDataPath.of(path, literal).drop(document);
+        } else {
+            document = IDataPath.of(path, literal).put(document, copy(value));
+        }
+
+        return document;
+    }
+
+    /**
+     * Returns a copy of the given edit value, so that the patched document does not share mutable values with the
+     * edit script.
+     *
+     * @param value The value to be copied.
+     * @return      A copy of the given value.
+     */
+    private static Object copy(Object value) {
+        if (value instanceof IData) {
+            value = IDataHelper.duplicate((IData)value, true);
+        } else if (value instanceof Object[]) {
+            Object[] array = ((Object[])value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = copy(array[i]);
+            }
+            value = array;
+        }
+        return value;
+    }
+}
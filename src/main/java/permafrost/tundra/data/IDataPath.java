@@ -0,0 +1,893 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataUtil;
+import com.wm.util.Table;
+import permafrost.tundra.lang.ArrayHelper;
+import permafrost.tundra.lang.ObjectHelper;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled, immutable representation of a simple or fully-qualified IData key, such as "a/b[2]/c(1)". Paths are
+ * parsed once on construction and then interned in a bounded cache, so that repeatedly resolving the same key against
+ * different documents does not repeatedly parse the key.
+ */
+public class IDataPath {
+    /**
+     * The separator used between the individual keys of a fully-qualified path.
+     */
+    public static final String SEPARATOR = "/";
+    /**
+     * Regular expression used to detect array indexes, such as "[1]", and key indexes, such as "(1)".
+     */
+    public static final Pattern INDEX_PATTERN = Pattern.compile("(\\[(-?\\d+?)\\]|\\((\\d+?)\\))$");
+    /**
+     * The maximum number of compiled paths held in each intern cache.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 8192;
+
+    /**
+     * Intern caches of compiled paths, one for paths treated as potentially fully-qualified and one for literal paths.
+     */
+    private static final ConcurrentMap<String, IDataPath> PATHS = new ConcurrentHashMap<String, IDataPath>();
+    private static final ConcurrentMap<String, IDataPath> LITERAL_PATHS = new ConcurrentHashMap<String, IDataPath>();
+
+    /**
+     * The path string this object was compiled from.
+     */
+    protected final String path;
+    /**
+     * Whether the path is treated literally rather than as potentially fully-qualified.
+     */
+    protected final boolean literal;
+    /**
+     * Whether the path contains either an array index, key index, or path separated components.
+     */
+    protected final boolean fullyQualified;
+    /**
+     * Whether the path starts with the separator, and is therefore resolved against the pipeline.
+     */
+    protected final boolean absolute;
+    /**
+     * The parsed individual keys of this path.
+     */
+    protected final Segment[] segments;
+    /**
+     * For absolute paths, the equivalent path relative to the pipeline.
+     */
+    protected final IDataPath relative;
+
+    /**
+     * Constructs a new compiled path.
+     *
+     * @param path    A simple or fully-qualified IData key.
+     * @param literal If true, the key will be treated as a literal key, rather than potentially as a fully-qualified
+     *                key.
+     */
+    protected IDataPath(String path, boolean literal) {
+        if (path == null) throw new NullPointerException("path must not be null");
+
+        this.path = path;
+        this.literal = literal;
+        this.fullyQualified = !literal && (path.contains(SEPARATOR) || INDEX_PATTERN.matcher(path).find());
+        this.absolute = !literal && path.startsWith(SEPARATOR);
+        this.relative = absolute ? of(path.substring(1), literal) : null;
+
+        String[] parts;
+        if (literal) {
+            parts = new String[1];
+            parts[0] = path;
+        } else {
+            parts = path.split(SEPARATOR);
+        }
+
+        this.segments = new Segment[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            segments[i] = new Segment(parts[i], literal);
+        }
+    }
+
+    /**
+     * Returns a compiled representation of the given simple or fully-qualified IData key.
+     *
+     * @param path A simple or fully-qualified IData key.
+     * @return     The compiled path, or null if the given path was null.
+     */
+    public static IDataPath of(String path) {
+        return of(path, false);
+    }
+
+    /**
+     * Returns a compiled representation of the given simple or fully-qualified IData key.
+     *
+     * @param path    A simple or fully-qualified IData key.
+     * @param literal If true, the key will be treated as a literal key, rather than potentially as a fully-qualified
+     *                key.
+     * @return        The compiled path, or null if the given path was null.
+     */
+    public static IDataPath of(String path, boolean literal) {
+        if (path == null) return null;
+
+        ConcurrentMap<String, IDataPath> cache = literal ? LITERAL_PATHS : PATHS;
+
+        IDataPath compiled = cache.get(path);
+        if (compiled == null) {
+            compiled = new IDataPath(path, literal);
+            if (cache.size() >= DEFAULT_CACHE_CAPACITY) evict(cache);
+            IDataPath existing = cache.putIfAbsent(path, compiled);
+            if (existing != null) compiled = existing;
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Returns compiled representations of the given simple or fully-qualified IData keys.
+     *
+     * @param paths   A list of simple or fully-qualified IData keys.
+     * @param literal If true, the keys will be treated as literal keys, rather than potentially as fully-qualified
+     *                keys.
+     * @return        The compiled paths.
+     */
+    public static IDataPath[] of(String[] paths, boolean literal) {
+        if (paths == null) return null;
+
+        IDataPath[] output = new IDataPath[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            output[i] = of(paths[i], literal);
+        }
+
+        return output;
+    }
+
+    /**
+     * Removes an arbitrary entry from the given cache, to keep it within its capacity bound.
+     *
+     * @param cache The cache to evict an entry from.
+     */
+    private static void evict(ConcurrentMap<String, IDataPath> cache) {
+        Iterator<String> iterator = cache.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Returns the path string this object was compiled from.
+     *
+     * @return The path string this object was compiled from.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns true if this path is treated literally rather than as potentially fully-qualified.
+     *
+     * @return True if this path is treated literally.
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    /**
+     * Returns true if this path is considered fully-qualified (because it contains either an array index, key index,
+     * or path separated components).
+     *
+     * @return True if this path is considered fully-qualified.
+     */
+    public boolean isFullyQualified() {
+        return fullyQualified;
+    }
+
+    /**
+     * Returns true if this path starts with "/", indicating it is an absolute path.
+     *
+     * @return True if this path is an absolute path.
+     */
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    /**
+     * Returns the parsed individual keys of this path.
+     *
+     * @return The parsed individual keys of this path.
+     */
+    public Segment[] getSegments() {
+        return segments.clone();
+    }
+
+    /**
+     * Returns the value associated with this path from the given IData document.
+     *
+     * @param scope An IData document.
+     * @return      The value associated with this path in the given IData document.
+     */
+    public Object get(IData scope) {
+        return get(null, scope);
+    }
+
+    /**
+     * Returns the value associated with this path from the given scope (if relative) or pipeline (if absolute).
+     *
+     * @param pipeline The pipeline, required if the path is absolute.
+     * @param scope    An IData document used to scope the path if it is relative.
+     * @return         The value associated with this path.
+     */
+    public Object get(IData pipeline, IData scope) {
+        Object value = null;
+
+        if (scope != null) {
+            // try finding a value that matches the literal key, and if not found try finding a value
+            // associated with the leaf key if the key is considered fully-qualified
+            IDataCursor cursor = scope.getCursor();
+
+            if (cursor.first(path)) {
+                value = cursor.getValue();
+            } else if (pipeline != null && absolute) {
+                value = relative.get(null, pipeline);
+            } else if (fullyQualified) {
+                value = get(scope, 0);
+            }
+
+            cursor.destroy();
+        } else if (pipeline != null && absolute) {
+            value = relative.get(null, pipeline);
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the value associated with the segments of this path starting at the given position.
+     *
+     * @param document An IData document.
+     * @param position The position of the segment to resolve against the given document.
+     * @return         The value associated with the remaining segments.
+     */
+    private Object get(IData document, int position) {
+        Object value = null;
+
+        if (document != null && position < segments.length) {
+            Segment segment = segments[position];
+
+            if (position < segments.length - 1) {
+                value = get(segment.resolve(document), position + 1);
+            } else {
+                value = segment.get(document);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the value associated with this path from the given IData document as an array.
+     *
+     * @param document An IData document.
+     * @return         The value associated with this path in the given IData document as an array.
+     */
+    public Object[] getAsArray(IData document) {
+        if (document == null) return null;
+
+        Object[] output = null;
+        IDataCursor cursor = document.getCursor();
+
+        // try finding a value that matches the literal key, and if not found try finding a value
+        // associated with the leaf key if the key is considered fully-qualified
+        if (cursor.next(path)) {
+            List<Object> list = new LinkedList<Object>();
+            do {
+                list.addAll(ObjectHelper.listify(cursor.getValue()));
+            } while (cursor.next(path));
+            output = ArrayHelper.toArray(list);
+        } else if (fullyQualified) {
+            output = getAsArray(document, 0);
+        }
+
+        cursor.destroy();
+
+        return output;
+    }
+
+    /**
+     * Returns the value associated with the segments of this path starting at the given position as an array.
+     *
+     * @param document An IData document.
+     * @param position The position of the segment to resolve against the given document.
+     * @return         The value associated with the remaining segments as an array.
+     */
+    private Object[] getAsArray(IData document, int position) {
+        Object[] output = null;
+
+        if (document != null && position < segments.length) {
+            Segment segment = segments[position];
+
+            if (position < segments.length - 1) {
+                output = getAsArray(segment.resolve(document), position + 1);
+            } else {
+                List<Object> list = new LinkedList<Object>();
+                if (segment.hasArrayIndex() || segment.hasKeyIndex()) {
+                    list.addAll(ObjectHelper.listify(segment.get(document)));
+                } else {
+                    IDataCursor cursor = document.getCursor();
+                    while (cursor.next(segment.getKey())) {
+                        list.addAll(ObjectHelper.listify(cursor.getValue()));
+                    }
+                    cursor.destroy();
+                }
+                output = ArrayHelper.toArray(list);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of occurrences of this path in the given IData document.
+     *
+     * @param document An IData document.
+     * @return         The number of occurrences of this path in the given IData document.
+     */
+    public int size(IData document) {
+        int size = 0;
+
+        if (document != null) {
+            IDataCursor cursor = document.getCursor();
+
+            if (cursor.first(path)) {
+                size++;
+                while (cursor.next(path)) size++;
+            } else if (fullyQualified) {
+                size = size(document, 0);
+            }
+
+            cursor.destroy();
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the number of occurrences of the segments of this path starting at the given position.
+     *
+     * @param document An IData document.
+     * @param position The position of the segment to resolve against the given document.
+     * @return         The number of occurrences of the remaining segments.
+     */
+    private int size(IData document, int position) {
+        int size = 0;
+
+        if (document != null && position < segments.length) {
+            Segment segment = segments[position];
+
+            if (position < segments.length - 1) {
+                size = size(segment.resolve(document), position + 1);
+            } else {
+                IDataCursor cursor = document.getCursor();
+
+                if (segment.hasArrayIndex()) {
+                    Object[] array = IDataUtil.getObjectArray(cursor, segment.getKey());
+                    if (array != null && array.length > segment.getIndex()) {
+                        size = 1;
+                    }
+                } else if (segment.hasKeyIndex()) {
+                    size = size(document, segment.getKey(), segment.getIndex());
+                } else {
+                    while (cursor.next(segment.getKey())) size++;
+                }
+
+                cursor.destroy();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns true if this path exists in the given IData document.
+     *
+     * @param document An IData document.
+     * @return         True if this path exists in the given IData document.
+     */
+    public boolean exists(IData document) {
+        return size(document) > 0;
+    }
+
+    /**
+     * Sets the value associated with this path in the given IData document. Note that this method mutates the given
+     * IData document in place.
+     *
+     * @param document An IData document.
+     * @param value    The value to be set.
+     * @return         The input IData document with the value set.
+     */
+    public IData put(IData document, Object value) {
+        return put(document, value, true);
+    }
+
+    /**
+     * Sets the value associated with this path in the given IData document. Note that this method mutates the given
+     * IData document in place.
+     *
+     * @param document    An IData document.
+     * @param value       The value to be set.
+     * @param includeNull When true the value is set even when null, otherwise the value is only set when it is not
+     *                    null.
+     * @return            The input IData document with the value set.
+     */
+    public IData put(IData document, Object value, boolean includeNull) {
+        if (!includeNull && value == null) return document;
+        return put(document, 0, value, includeNull);
+    }
+
+    /**
+     * Sets the value associated with the segments of this path starting at the given position.
+     *
+     * @param document    An IData document.
+     * @param position    The position of the segment to resolve against the given document.
+     * @param value       The value to be set.
+     * @param includeNull When true the value is set even when null, otherwise the value is only set when it is not
+     *                    null.
+     * @return            The input IData document with the value set.
+     */
+    private IData put(IData document, int position, Object value, boolean includeNull) {
+        if (document == null) document = IDataFactory.create();
+        // a path consisting only of separators, such as "/", has no segments to put
+        if (position >= segments.length) return document;
+
+        IDataCursor cursor = document.getCursor();
+        Segment segment = segments[position];
+
+        if (position < segments.length - 1) {
+            if (segment.hasArrayIndex()) {
+                IData[] array = IDataUtil.getIDataArray(cursor, segment.getKey());
+                IData child = null;
+                try {
+                    child = ArrayHelper.get(array, segment.getIndex());
+                } catch(ArrayIndexOutOfBoundsException ex) {
+                    // ignore exception
+                }
+                value = ArrayHelper.put(array, put(child, position + 1, value, includeNull), segment.getIndex(), IData.class);
+            } else if (segment.hasKeyIndex()) {
+                value = put(IDataHelper.toIData(get(document, segment.getKey(), segment.getIndex())), position + 1, value, includeNull);
+            } else {
+                value = put(IDataUtil.getIData(cursor, segment.getKey()), position + 1, value, includeNull);
+            }
+        } else if (segment.hasArrayIndex()) {
+            Class klass = Object.class;
+            if (value != null) {
+                if (value instanceof String) {
+                    klass = String.class;
+                } else if (value instanceof IData) {
+                    klass = IData.class;
+                }
+            }
+            value = ArrayHelper.put(IDataUtil.getObjectArray(cursor, segment.getKey()), value, segment.getIndex(), klass);
+        }
+
+        if (segment.hasKeyIndex()) {
+            put(document, segment.getKey(), segment.getIndex(), value);
+        } else {
+            IDataUtil.put(cursor, segment.getKey(), value);
+        }
+        cursor.destroy();
+
+        return document;
+    }
+
+    /**
+     * Removes this path from the given IData document, returning the associated value if one exists.
+     *
+     * @param document The document to remove the path from.
+     * @return         The value that was associated with this path.
+     */
+    public Object remove(IData document) {
+        Object value = get(document);
+        drop(document);
+        return value;
+    }
+
+    /**
+     * Removes all occurrences of this path from the given IData document, returning the associated values if there
+     * were any.
+     *
+     * @param document The document to remove the path from.
+     * @return         The values that were associated with this path.
+     */
+    public Object[] removeAll(IData document) {
+        Object[] value = getAsArray(document);
+        dropAll(document);
+        return value;
+    }
+
+    /**
+     * Removes the value associated with this path from the given IData document.
+     *
+     * @param document An IData document.
+     * @return         The given IData document.
+     */
+    public IData drop(IData document) {
+        if (document != null) {
+            IDataCursor cursor = document.getCursor();
+
+            if (cursor.first(path)) {
+                cursor.delete();
+            } else if (fullyQualified) {
+                drop(document, 0, false);
+            }
+
+            cursor.destroy();
+        }
+        return document;
+    }
+
+    /**
+     * Removes all occurrences of this path from the given IData document.
+     *
+     * @param document An IData document.
+     * @return         The given IData document.
+     */
+    public IData dropAll(IData document) {
+        if (document != null) {
+            IDataCursor cursor = document.getCursor();
+
+            if (cursor.next(path)) {
+                do {
+                    cursor.delete();
+                } while (cursor.next(path));
+            } else if (fullyQualified) {
+                drop(document, 0, true);
+            }
+
+            cursor.destroy();
+        }
+        return document;
+    }
+
+    /**
+     * Removes the value associated with the segments of this path starting at the given position.
+     *
+     * @param document An IData document.
+     * @param position The position of the segment to resolve against the given document.
+     * @param all      Whether to remove all occurrences of a trailing simple key, or only the first occurrence.
+     */
+    private void drop(IData document, int position, boolean all) {
+        if (document == null || position >= segments.length) return;
+
+        Segment segment = segments[position];
+
+        if (position < segments.length - 1) {
+            drop(segment.resolve(document), position + 1, all);
+        } else {
+            IDataCursor cursor = document.getCursor();
+
+            if (segment.hasArrayIndex()) {
+                IDataUtil.put(cursor, segment.getKey(), ArrayHelper.drop(IDataUtil.getObjectArray(cursor, segment.getKey()), segment.getIndex()));
+            } else if (segment.hasKeyIndex()) {
+                drop(document, segment.getKey(), segment.getIndex());
+            } else if (all) {
+                while (cursor.next(segment.getKey())) {
+                    cursor.delete();
+                }
+            } else {
+                IDataUtil.remove(cursor, segment.getKey());
+            }
+
+            cursor.destroy();
+        }
+    }
+
+    /**
+     * Returns the nth value associated with the given key.
+     *
+     * @param document The IData document to return the value from.
+     * @param key      The key whose associated value is to be returned.
+     * @param n        Determines which occurrence of the key to return the value for.
+     * @return         The value associated with the nth occurrence of the given key in the given IData document.
+     */
+    static Object get(IData document, String key, int n) {
+        if (document == null || key == null || n < 0) return null;
+
+        Object value = null;
+        int i = 0;
+
+        IDataCursor cursor = document.getCursor();
+        while (cursor.next(key) && i++ < n) ;
+        if (i > n) value = cursor.getValue();
+        cursor.destroy();
+
+        return value;
+    }
+
+    /**
+     * Returns the number of occurrences of the given nth key in the given IData document.
+     *
+     * @param document An IData document.
+     * @param key      The key whose occurrence is to be counted.
+     * @param n        The nth occurrence to be counted.
+     * @return         The number of occurrences of the given nth key in the given IData document.
+     */
+    private static int size(IData document, String key, int n) {
+        int size = 0;
+
+        if (document != null && key != null && n >= 0) {
+            int i = 0;
+            IDataCursor cursor = document.getCursor();
+            while (cursor.next(key) && i++ < n) ;
+            if (i > n) size = 1;
+            cursor.destroy();
+        }
+
+        return size;
+    }
+
+    /**
+     * Sets the value associated with the given nth key in the given IData document. Note that this method mutates the
+     * given IData document in place.
+     *
+     * @param document The IData document to set the key's associated value in.
+     * @param key      The key whose value is to be set.
+     * @param n        Determines which occurrence of the key to set the value for.
+     * @param value    The value to be set.
+     * @return         The IData document with the given nth key set to the given value.
+     */
+    private static IData put(IData document, String key, int n, Object value) {
+        if (document == null || key == null || n < 0) return null;
+
+        IDataCursor cursor = document.getCursor();
+        for (int i = 0; i < n; i++) {
+            if (!cursor.next(key)) cursor.insertAfter(key, null);
+        }
+        cursor.insertAfter(key, value);
+        cursor.destroy();
+
+        return document;
+    }
+
+    /**
+     * Removes the element with the given nth key from the given IData document.
+     *
+     * @param document The IData document to remove the key value pair from.
+     * @param key      The key to be removed.
+     * @param n        Determines which occurrence of the key to remove.
+     */
+    private static void drop(IData document, String key, int n) {
+        if (document == null || key == null || n < 0) return;
+
+        int i = 0;
+
+        IDataCursor cursor = document.getCursor();
+        while (cursor.next(key) && i++ < n) ;
+        if (i > n) cursor.delete();
+        cursor.destroy();
+    }
+
+    /**
+     * Returns true if the given object is a path equal to this path.
+     *
+     * @param other The object to compare for equality with.
+     * @return      True if the given object is a path equal to this path.
+     */
+    @Override
+    public boolean equals(Object other) {
+        boolean result = false;
+
+        if (other instanceof IDataPath) {
+            IDataPath otherPath = (IDataPath)other;
+            result = this.literal == otherPath.literal && this.path.equals(otherPath.path);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a hash code for this path.
+     *
+     * @return A hash code for this path.
+     */
+    @Override
+    public int hashCode() {
+        return literal ? ~path.hashCode() : path.hashCode();
+    }
+
+    /**
+     * Returns the path string this object was compiled from.
+     *
+     * @return The path string this object was compiled from.
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * An individual key in a fully-qualified path, with its optional array or key index.
+     */
+    public static class Segment {
+        protected boolean hasArrayIndex = false, hasKeyIndex = false;
+        protected int index = 0;
+        protected String key = null;
+
+        /**
+         * Constructs a new segment object given a key string.
+         *
+         * @param key     An IData key as a string.
+         * @param literal If true, the key is treated literally rather than as a key that could contain array or key
+         *                indexing.
+         */
+        public Segment(String key, boolean literal) {
+            if (key == null) throw new NullPointerException("key must not be null");
+
+            if (literal) {
+                this.key = key;
+            } else {
+                StringBuffer buffer = new StringBuffer();
+
+                Matcher matcher = INDEX_PATTERN.matcher(key);
+                while (matcher.find()) {
+                    String arrayIndexString = matcher.group(2);
+                    String keyIndexString = matcher.group(3);
+
+                    if (arrayIndexString != null) {
+                        hasArrayIndex = true;
+                        index = Integer.parseInt(arrayIndexString);
+                    } else {
+                        hasKeyIndex = true;
+                        index = Integer.parseInt(keyIndexString);
+                    }
+                    matcher.appendReplacement(buffer, "");
+                }
+                matcher.appendTail(buffer);
+
+                this.key = buffer.toString();
+            }
+        }
+
+        /**
+         * Returns true if this segment includes an array index.
+         *
+         * @return True if this segment includes an array index.
+         */
+        public boolean hasArrayIndex() {
+            return hasArrayIndex;
+        }
+
+        /**
+         * Returns true if this segment includes a key index.
+         *
+         * @return True if this segment includes a key index.
+         */
+        public boolean hasKeyIndex() {
+            return hasKeyIndex;
+        }
+
+        /**
+         * Returns this segment's index value.
+         *
+         * @return This segment's index value.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the key-only component of this segment (with no array or key indexing).
+         *
+         * @return The key-only component of this segment (with no array or key indexing).
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value associated with this segment in the given IData document.
+         *
+         * @param document An IData document.
+         * @return         The value associated with this segment in the given IData document.
+         */
+        public Object get(IData document) {
+            if (document == null) return null;
+
+            Object value;
+
+            if (hasKeyIndex) {
+                value = IDataPath.get(document, key, index);
+            } else {
+                IDataCursor cursor = document.getCursor();
+                value = IDataUtil.get(cursor, key);
+                cursor.destroy();
+
+                if (hasArrayIndex && value != null) {
+                    if (value instanceof Object[] || value instanceof Table) {
+                        Object[] array = value instanceof Object[] ? (Object[])value : ((Table)value).getValues();
+                        value = ArrayHelper.get(array, index);
+                    } else {
+                        value = null;
+                    }
+                }
+            }
+
+            return value;
+        }
+
+        /**
+         * Returns the child IData document associated with this segment in the given IData document, for traversing
+         * to the next segment in a fully-qualified path.
+         *
+         * @param document An IData document.
+         * @return         The child IData document associated with this segment, or null if there is none.
+         */
+        public IData resolve(IData document) {
+            if (document == null) return null;
+
+            IData child;
+
+            if (hasArrayIndex) {
+                IDataCursor cursor = document.getCursor();
+                child = ArrayHelper.get(IDataHelper.toIDataArray(IDataUtil.get(cursor, key)), index);
+                cursor.destroy();
+            } else if (hasKeyIndex) {
+                child = IDataHelper.toIData(IDataPath.get(document, key, index));
+            } else {
+                IDataCursor cursor = document.getCursor();
+                child = IDataHelper.toIData(IDataUtil.get(cursor, key));
+                cursor.destroy();
+            }
+
+            return child;
+        }
+
+        /**
+         * Returns a string representation of this segment.
+         *
+         * @return A string representation of this segment.
+         */
+        @Override
+        public String toString() {
+            String output;
+            if (hasKeyIndex()) {
+                output = key + "(" + index + ")";
+            } else if (hasArrayIndex()) {
+                output = key + "[" + index + "]";
+            } else {
+                output = key;
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.util.Table;
+import permafrost.tundra.lang.ArrayHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the values associated with a fixed list of keys from an IData document in a single traversal. The keys
+ * are compiled into a trie, so that keys sharing a common prefix (such as "a/b/c" and "a/b/d") resolve the shared
+ * parent documents only once, and each document visited is walked with a single cursor pass rather than once per key.
+ * The values returned are identical to calling IDataPath.get for each key in turn.
+ */
+public class IDataProjection {
+    /**
+     * The compiled paths being projected, in slot order.
+     */
+    protected IDataPath[] paths;
+    /**
+     * The slots that are satisfied by a top-level key exactly matching the path string, keyed by path string.
+     */
+    protected Map<String, int[]> literals;
+    /**
+     * The number of slots with a non-null path, each of which may be satisfied by an exactly matching top-level key.
+     */
+    protected int literalCount;
+    /**
+     * The root of the trie of fully-qualified path segments.
+     */
+    protected Node root;
+    /**
+     * Whether any of the paths are absolute, and may therefore need to be resolved against a pipeline.
+     */
+    protected boolean hasAbsolutePaths;
+    /**
+     * The number of distinct keys indexed across all trie nodes, each of which needs an occurrence counter per walk.
+     */
+    protected int keyCount;
+
+    /**
+     * Constructs a new projection for the given compiled paths.
+     *
+     * @param paths The paths whose values are to be extracted, in slot order. Null paths are permitted, and always
+     *              project a null value.
+     */
+    public IDataProjection(IDataPath... paths) {
+        if (paths == null) throw new NullPointerException("paths must not be null");
+
+        this.paths = Arrays.copyOf(paths, paths.length);
+        this.root = new Node(null);
+
+        Map<String, List<Integer>> literalSlots = new LinkedHashMap<String, List<Integer>>();
+
+        for (int i = 0; i < paths.length; i++) {
+            IDataPath path = paths[i];
+            if (path == null) continue; // a null path has no associated value, so its slot is always null
+
+            List<Integer> slots = literalSlots.get(path.getPath());
+            if (slots == null) {
+                slots = new ArrayList<Integer>(1);
+                literalSlots.put(path.getPath(), slots);
+            }
+            slots.add(i);
+            literalCount++;
+
+            if (path.isFullyQualified()) {
+                Node node = root;
+                for (IDataPath.Segment segment : path.getSegments()) {
+                    node = node.add(segment);
+                }
+                node.terminate(i);
+            }
+
+            if (path.isAbsolute()) hasAbsolutePaths = true;
+        }
+
+        this.literals = new HashMap<String, int[]>(literalSlots.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : literalSlots.entrySet()) {
+            literals.put(entry.getKey(), toIntArray(entry.getValue()));
+        }
+
+        keyCount = root.compile(0);
+    }
+
+    /**
+     * Returns a new projection for the given simple or fully-qualified IData keys.
+     *
+     * @param keys The keys whose values are to be extracted, in slot order.
+     * @return     A new projection for the given keys.
+     */
+    public static IDataProjection of(String... keys) {
+        return of(keys, false);
+    }
+
+    /**
+     * Returns a new projection for the given simple or fully-qualified IData keys.
+     *
+     * @param keys    The keys whose values are to be extracted, in slot order.
+     * @param literal If true, the keys will be treated as literal keys, rather than potentially as fully-qualified
+     *                keys.
+     * @return        A new projection for the given keys.
+     */
+    public static IDataProjection of(String[] keys, boolean literal) {
+        if (keys == null) throw new NullPointerException("keys must not be null");
+        return new IDataProjection(IDataPath.of(keys, literal));
+    }
+
+    /**
+     * Returns the number of paths, and therefore slots, in this projection.
+     *
+     * @return The number of paths in this projection.
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Returns the paths being projected, in slot order.
+     *
+     * @return The paths being projected.
+     */
+    public IDataPath[] getPaths() {
+        return Arrays.copyOf(paths, paths.length);
+    }
+
+    /**
+     * Returns the values associated with each of this projection's paths in the given IData document.
+     *
+     * @param document An IData document.
+     * @return         A new array containing the value associated with each path, in slot order.
+     */
+    public Object[] get(IData document) {
+        return get(null, document, new Object[paths.length]);
+    }
+
+    /**
+     * Returns the values associated with each of this projection's paths in the given IData document, reusing the
+     * given slot array.
+     *
+     * @param document An IData document.
+     * @param slots    The array to store the values in, which must have a length of at least size().
+     * @return         The given slot array containing the value associated with each path, in slot order.
+     */
+    public Object[] get(IData document, Object[] slots) {
+        return get(null, document, slots);
+    }
+
+    /**
+     * Returns the values associated with each of this projection's paths in the given scope (if relative) or
+     * pipeline (if absolute), reusing the given slot array.
+     *
+     * @param pipeline The pipeline, required if any of the paths are absolute.
+     * @param scope    An IData document used to scope the paths that are relative.
+     * @param slots    The array to store the values in, which must have a length of at least size().
+     * @return         The given slot array containing the value associated with each path, in slot order.
+     */
+    public Object[] get(IData pipeline, IData scope, Object[] slots) {
+        if (slots == null) throw new NullPointerException("slots must not be null");
+        if (slots.length < paths.length) throw new IllegalArgumentException("slots length must be at least " + paths.length);
+
+        Arrays.fill(slots, 0, paths.length, null);
+
+        if (paths.length == 1) {
+            // a single path gains nothing from a shared walk, and IDataPath can use the document's own key lookup
+            if (paths[0] != null) slots[0] = paths[0].get(pipeline, scope);
+            return slots;
+        }
+
+        // the first paths.length elements flag the slots satisfied by an exactly matching top-level key, and the
+        // remaining elements count the occurrences of each indexed key seen so far
+        int[] state = new int[paths.length + keyCount];
+
+        if (scope != null) scan(scope, root, slots, state, true);
+
+        if (pipeline != null && hasAbsolutePaths) {
+            for (int i = 0; i < paths.length; i++) {
+                if (state[i] == 0 && paths[i] != null && paths[i].isAbsolute()) slots[i] = paths[i].get(pipeline, null);
+            }
+        }
+
+        return slots;
+    }
+
+    /**
+     * Walks the given IData document, resolving the children of the given trie node, and stopping as soon as every
+     * slot that depends on the document has been resolved.
+     *
+     * @param document The IData document to walk.
+     * @param node     The trie node whose children are to be resolved against the document.
+     * @param slots    The array to store the resolved values in.
+     * @param state    The flags of the slots satisfied by an exactly matching top-level key, followed by the
+     *                 occurrence counts of each indexed key.
+     * @param top      Whether the document is the top-level scope, and exactly matching keys should be checked.
+     */
+    private void scan(IData document, Node node, Object[] slots, int[] state, boolean top) {
+        // a top-level key exactly matching a path takes precedence over resolving the path, so the top-level walk can
+        // only stop early once every path has been matched exactly
+        int unmatched = top ? literalCount : 0;
+        int pending = node.keys.length;
+
+        if (unmatched == 0 && pending == 0) return;
+
+        IDataCursor cursor = document.getCursor();
+
+        try {
+            while ((unmatched > 0 || pending > 0) && cursor.next()) {
+                String key = cursor.getKey();
+
+                if (unmatched > 0) {
+                    int[] matches = literals.get(key);
+                    if (matches != null) {
+                        for (int slot : matches) {
+                            if (state[slot] == 0) {
+                                slots[slot] = cursor.getValue();
+                                state[slot] = 1;
+                                unmatched--;
+                            }
+                        }
+                    }
+                }
+
+                if (pending > 0) {
+                    KeyMatch match = node.index.get(key);
+                    if (match != null) {
+                        // only the first occurrence of a key is used, unless a key index selects a later one
+                        int counter = paths.length + match.id;
+                        int occurrence = state[counter];
+                        if (occurrence <= match.last) {
+                            state[counter] = occurrence + 1;
+                            for (Node child : match.nodes) {
+                                int wanted = child.segment.hasKeyIndex() ? child.segment.getIndex() : 0;
+                                if (occurrence == wanted) visit(child, cursor.getValue(), slots, state);
+                            }
+                            if (occurrence == match.last) pending--;
+                        }
+                    }
+                }
+            }
+        } finally {
+            cursor.destroy();
+        }
+    }
+
+    /**
+     * Resolves the given trie node against the value associated with its segment.
+     *
+     * @param node   The trie node being resolved.
+     * @param value  The value associated with the node's segment key.
+     * @param slots  The array to store the resolved values in.
+     * @param state  The flags of the slots satisfied by an exactly matching top-level key, followed by the
+     *               occurrence counts of each indexed key.
+     */
+    private void visit(Node node, Object value, Object[] slots, int[] state) {
+        IDataPath.Segment segment = node.segment;
+
+        if (node.slots != null) {
+            Object result = value;
+            if (segment.hasArrayIndex()) {
+                if (value instanceof Object[] || value instanceof Table) {
+                    Object[] array = value instanceof Object[] ? (Object[])value : ((Table)value).getValues();
+                    result = ArrayHelper.get(array, segment.getIndex());
+                } else {
+                    result = null;
+                }
+            }
+
+            for (int slot : node.slots) {
+                if (state[slot] == 0) slots[slot] = result;
+            }
+        }
+
+        if (node.keys.length > 0) {
+            IData child;
+            if (segment.hasArrayIndex()) {
+                child = ArrayHelper.get(IDataHelper.toIDataArray(value), segment.getIndex());
+            } else {
+                child = IDataHelper.toIData(value);
+            }
+            if (child != null) scan(child, node, slots, state, false);
+        }
+    }
+
+    /**
+     * Converts the given list of integers to a primitive array.
+     *
+     * @param list The list to be converted.
+     * @return     The list as a primitive array.
+     */
+    private static int[] toIntArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * A node in the trie of path segments.
+     */
+    private static class Node {
+        protected IDataPath.Segment segment;
+        protected Map<String, Node> children = new LinkedHashMap<String, Node>();
+        protected List<Integer> terminals;
+        protected int[] slots;
+        protected Map<String, KeyMatch> index;
+        protected KeyMatch[] keys;
+
+        /**
+         * Constructs a new trie node for the given segment.
+         *
+         * @param segment The path segment this node represents, or null for the root node.
+         */
+        public Node(IDataPath.Segment segment) {
+            this.segment = segment;
+        }
+
+        /**
+         * Returns the child node for the given segment, creating it if required.
+         *
+         * @param segment The path segment the child node represents.
+         * @return        The child node for the given segment.
+         */
+        public Node add(IDataPath.Segment segment) {
+            String name = segment.toString();
+            Node child = children.get(name);
+            if (child == null) {
+                child = new Node(segment);
+                children.put(name, child);
+            }
+            return child;
+        }
+
+        /**
+         * Records that the path with the given slot ends at this node.
+         *
+         * @param slot The slot of the path that ends at this node.
+         */
+        public void terminate(int slot) {
+            if (terminals == null) terminals = new ArrayList<Integer>(1);
+            terminals.add(slot);
+        }
+
+        /**
+         * Builds the lookup structures used when walking documents, for this node and all its descendants.
+         *
+         * @param id The identifier to assign to the first key indexed by this node.
+         * @return   The identifier to assign to the next key indexed after this node and its descendants.
+         */
+        public int compile(int id) {
+            if (terminals != null) slots = toIntArray(terminals);
+
+            Map<String, List<Node>> grouped = new LinkedHashMap<String, List<Node>>();
+            for (Node child : children.values()) {
+                String key = child.segment.getKey();
+                List<Node> list = grouped.get(key);
+                if (list == null) {
+                    list = new ArrayList<Node>(1);
+                    grouped.put(key, list);
+                }
+                list.add(child);
+            }
+
+            index = new HashMap<String, KeyMatch>(grouped.size() * 2);
+            keys = new KeyMatch[grouped.size()];
+            int i = 0;
+            for (Map.Entry<String, List<Node>> entry : grouped.entrySet()) {
+                List<Node> list = entry.getValue();
+                KeyMatch match = new KeyMatch(id++, list.toArray(new Node[list.size()]));
+                index.put(entry.getKey(), match);
+                keys[i++] = match;
+            }
+
+            for (Node child : children.values()) {
+                id = child.compile(id);
+            }
+
+            return id;
+        }
+    }
+
+    /**
+     * The child trie nodes whose segments share the same key.
+     */
+    private static class KeyMatch {
+        protected int id;
+        protected Node[] nodes;
+        /**
+         * The last occurrence of the key used by any of the nodes, after which the key can be ignored.
+         */
+        protected int last;
+
+        /**
+         * Constructs a new key match.
+         *
+         * @param id    The identifier of the key's occurrence counter.
+         * @param nodes The child trie nodes whose segments share the key.
+         */
+        public KeyMatch(int id, Node[] nodes) {
+            this.id = id;
+            this.nodes = nodes;
+            for (Node node : nodes) {
+                if (node.segment.hasKeyIndex()) last = Math.max(last, node.segment.getIndex());
+            }
+        }
+    }
+}
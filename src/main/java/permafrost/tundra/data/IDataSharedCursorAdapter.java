@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.DataException;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataSharedCursor;
+import com.wm.txn.ITransaction;
+import com.wm.txn.TransactionException;
+
+/**
+ * Adapts an IDataCursor to the IDataSharedCursor interface, for IData implementations which do not otherwise
+ * support shared cursors. Transactions are not supported.
+ */
+public class IDataSharedCursorAdapter implements IDataSharedCursor {
+    protected IDataCursor cursor;
+
+    /**
+     * Constructs a new shared cursor adapter.
+     *
+     * @param cursor The cursor to be adapted.
+     */
+    public IDataSharedCursorAdapter(IDataCursor cursor) {
+        if (cursor == null) throw new NullPointerException("cursor must not be null");
+        this.cursor = cursor;
+    }
+
+    public void home() throws DataException {
+        cursor.home();
+    }
+
+    public String getKey() throws DataException {
+        return cursor.getKey();
+    }
+
+    public void setKey(String key) throws DataException {
+        cursor.setKey(key);
+    }
+
+    public Object getValue() throws DataException {
+        return cursor.getValue();
+    }
+
+    public void setValue(Object value) throws DataException {
+        cursor.setValue(value);
+    }
+
+    public Object getValueReference() throws DataException {
+        return cursor.getValue();
+    }
+
+    public boolean delete() throws DataException {
+        return cursor.delete();
+    }
+
+    public void insertBefore(String key, Object value) throws DataException {
+        cursor.insertBefore(key, value);
+    }
+
+    public void insertAfter(String key, Object value) throws DataException {
+        cursor.insertAfter(key, value);
+    }
+
+    public IData insertDataBefore(String key) throws DataException {
+        return cursor.insertDataBefore(key);
+    }
+
+    public IData insertDataAfter(String key) throws DataException {
+        return cursor.insertDataAfter(key);
+    }
+
+    public boolean next() throws DataException {
+        return cursor.next();
+    }
+
+    public boolean next(String key) throws DataException {
+        return cursor.next(key);
+    }
+
+    public boolean previous() throws DataException {
+        return cursor.previous();
+    }
+
+    public boolean previous(String key) throws DataException {
+        return cursor.previous(key);
+    }
+
+    public boolean first() throws DataException {
+        return cursor.first();
+    }
+
+    public boolean first(String key) throws DataException {
+        return cursor.first(key);
+    }
+
+    public boolean last() throws DataException {
+        return cursor.last();
+    }
+
+    public boolean last(String key) throws DataException {
+        return cursor.last(key);
+    }
+
+    public boolean hasMoreData() throws DataException {
+        return cursor.hasMoreData();
+    }
+
+    public void destroy() {
+        cursor.destroy();
+    }
+
+    public IDataSharedCursor getCursorClone() throws DataException {
+        return new IDataSharedCursorAdapter(cursor.getCursorClone());
+    }
+
+    public boolean isTXNSupported() {
+        return false;
+    }
+
+    public ITransaction startTXN() throws TransactionException {
+        throw new UnsupportedOperationException("startTXN not implemented");
+    }
+
+    public void txnJoin(ITransaction transaction) throws TransactionException {
+        throw new UnsupportedOperationException("txnJoin not implemented");
+    }
+
+    public void txnAborted() throws TransactionException {
+        throw new UnsupportedOperationException("txnAborted not implemented");
+    }
+
+    public void txnCommitted() throws TransactionException {
+        throw new UnsupportedOperationException("txnCommitted not implemented");
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataFactory;
+import permafrost.tundra.flow.ConditionEvaluator;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A lazy, single-use pipeline of operations over a sequence of IData documents. Intermediate operations such as map,
+ * filter, flatMap, project, distinct and limit wrap the source without reading it, and documents are pulled through
+ * every operation one at a time only when a terminal operation such as toArray, count or forEach is invoked, so that
+ * multi-step transformations run in a single pass without building intermediate arrays.
+ *
+ * As a stream is itself an IDataRecordIterator, it can be consumed directly by anything that accepts an iterator of
+ * documents, such as IDataCSVParser. Closing a stream closes its source, if the source is closeable.
+ */
+public class IDataStream implements IDataRecordIterator {
+    /**
+     * The documents produced by this stream.
+     */
+    protected Iterator<? extends IData> iterator;
+    /**
+     * The resource to close when this stream is closed, if any.
+     */
+    protected Closeable source;
+
+    /**
+     * Constructs a new stream.
+     *
+     * @param iterator The documents produced by this stream.
+     * @param source   The resource to close when this stream is closed, or null.
+     */
+    protected IDataStream(Iterator<? extends IData> iterator, Closeable source) {
+        if (iterator == null) throw new NullPointerException("iterator must not be null");
+        this.iterator = iterator;
+        this.source = source;
+    }
+
+    /**
+     * Returns a new stream over the given documents.
+     *
+     * @param array The documents to stream.
+     * @return      A new stream over the given documents.
+     */
+    public static IDataStream of(IData... array) {
+        List<IData> list = array == null ? Collections.<IData>emptyList() : Arrays.asList(array);
+        return new IDataStream(list.iterator(), null);
+    }
+
+    /**
+     * Returns a new stream over the documents returned by the given iterator. If the iterator is closeable, it is
+     * closed when the stream is closed.
+     *
+     * @param iterator The documents to stream.
+     * @return         A new stream over the given documents.
+     */
+    public static IDataStream of(Iterator<? extends IData> iterator) {
+        if (iterator instanceof IDataStream) return (IDataStream)iterator;
+        return new IDataStream(iterator, iterator instanceof Closeable ? (Closeable)iterator : null);
+    }
+
+    /**
+     * Returns a new stream of the documents returned by applying the given function to each document in this stream.
+     * Null documents and results are skipped.
+     *
+     * @param function The function to apply to each document.
+     * @return         A new stream of the transformed documents.
+     */
+    public IDataStream map(final Function function) {
+        if (function == null) throw new NullPointerException("function must not be null");
+        return new IDataStream(new LookaheadIterator() {
+            protected IData fetch() {
+                while (iterator.hasNext()) {
+                    IData item = iterator.next();
+                    IData result = item == null ? null : function.apply(item);
+                    if (result != null) return result;
+                }
+                return null;
+            }
+        }, this);
+    }
+
+    /**
+     * Returns a new stream of only the documents in this stream that match the given predicate.
+     *
+     * @param predicate The predicate documents must match.
+     * @return          A new stream of the matching documents.
+     */
+    public IDataStream filter(final Predicate predicate) {
+        if (predicate == null) throw new NullPointerException("predicate must not be null");
+        return new IDataStream(new LookaheadIterator() {
+            protected IData fetch() {
+                while (iterator.hasNext()) {
+                    IData item = iterator.next();
+                    if (item != null && predicate.test(item)) return item;
+                }
+                return null;
+            }
+        }, this);
+    }
+
+    /**
+     * Returns a new stream of only the documents in this stream for which the given condition evaluates to true.
+     *
+     * @param condition The condition documents must satisfy, in webMethods Integration Server flow condition syntax.
+     * @return          A new stream of the matching documents.
+     */
+    public IDataStream filter(String condition) {
+        if (condition == null) return this;
+        final ConditionEvaluator evaluator = ConditionEvaluator.of(condition);
+        return filter(new Predicate() {
+            public boolean test(IData document) {
+                return evaluator.evaluate(document);
+            }
+        });
+    }
+
+    /**
+     * Returns a new stream of the documents returned by applying the given function to each document in this stream,
+     * and concatenating the resulting lists. Null documents, results and items are skipped.
+     *
+     * @param function The function to apply to each document.
+     * @return         A new stream of the concatenated documents.
+     */
+    public IDataStream flatMap(final ListFunction function) {
+        if (function == null) throw new NullPointerException("function must not be null");
+        return new IDataStream(new LookaheadIterator() {
+            private IData[] current;
+            private int index;
+
+            protected IData fetch() {
+                while (true) {
+                    while (current != null && index < current.length) {
+                        IData item = current[index++];
+                        if (item != null) return item;
+                    }
+                    if (!iterator.hasNext()) return null;
+                    IData item = iterator.next();
+                    current = item == null ? null : function.apply(item);
+                    index = 0;
+                }
+            }
+        }, this);
+    }
+
+    /**
+     * Returns a new stream of new documents containing only the values associated with the given keys in each
+     * document in this stream. Keys without a value are omitted.
+     *
+     * @param keys The simple or fully-qualified keys to be projected.
+     * @return     A new stream of the projected documents.
+     */
+    public IDataStream project(String... keys) {
+        if (keys == null) throw new NullPointerException("keys must not be null");
+        final IDataProjection projection = IDataProjection.of(keys);
+        final IDataPath[] paths = projection.getPaths();
+        return map(new Function() {
+            private Object[] values = new Object[paths.length];
+
+            public IData apply(IData document) {
+                values = projection.get(document, values);
+                IData output = IDataFactory.create();
+                for (int i = 0; i < paths.length; i++) {
+                    if (paths[i] != null) paths[i].put(output, values[i], false);
+                }
+                return output;
+            }
+        });
+    }
+
+    /**
+     * Returns a new stream of only the first document in this stream with each distinct set of values associated
+     * with the given keys. Only the distinct key values seen so far are retained, not the documents themselves.
+     *
+     * @param keys The keys whose associated values determine uniqueness.
+     * @return     A new stream of the distinct documents.
+     */
+    public IDataStream distinct(final String... keys) {
+        if (keys == null || keys.length == 0) throw new IllegalArgumentException("keys must not be null or empty");
+        final IDataProjection projection = IDataProjection.of(keys);
+        return filter(new Predicate() {
+            private Set<CompoundKey> seen = new HashSet<CompoundKey>();
+            private CompoundKey probe = new CompoundKey(keys, new Object[keys.length]);
+
+            public boolean test(IData document) {
+                if (seen.contains(probe.reset(projection.get(document, probe.values)))) return false;
+                seen.add(probe.copy());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Returns a new stream of at most the given number of documents from this stream, skipping null documents. No
+     * further documents are read from the source once the limit is reached.
+     *
+     * @param limit The maximum number of documents.
+     * @return      A new stream of at most the given number of documents.
+     */
+    public IDataStream limit(final long limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+        return new IDataStream(new LookaheadIterator() {
+            private long count;
+
+            protected IData fetch() {
+                // null documents are skipped rather than counted, as returning one would end the stream
+                while (count < limit && iterator.hasNext()) {
+                    IData document = iterator.next();
+                    if (document != null) {
+                        count++;
+                        return document;
+                    }
+                }
+                return null;
+            }
+        }, this);
+    }
+
+    /**
+     * Returns an iterator over consecutive batches of documents from this stream, each of the given size except
+     * possibly the last. Only one batch is held in memory at a time. Closing this stream closes the batches' source.
+     *
+     * @param size The number of documents in each batch.
+     * @return     An iterator over batches of documents.
+     */
+    public Iterator<IData[]> batch(final int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be greater than zero");
+        return new Iterator<IData[]>() {
+            public boolean hasNext() {
+                return IDataStream.this.hasNext();
+            }
+
+            public IData[] next() {
+                if (!hasNext()) throw new NoSuchElementException("No more batches");
+                List<IData> batch = new ArrayList<IData>(size);
+                while (batch.size() < size && IDataStream.this.hasNext()) {
+                    batch.add(IDataStream.this.next());
+                }
+                return batch.toArray(new IData[batch.size()]);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException("remove not supported");
+            }
+        };
+    }
+
+    /**
+     * Passes each remaining document in this stream to the given collector, closes this stream, and returns the
+     * collector's result.
+     *
+     * @param collector The collector to accumulate the documents.
+     * @param <T>       The type of result returned by the collector.
+     * @return          The collector's result.
+     */
+    public <T> T collect(Collector<T> collector) {
+        if (collector == null) throw new NullPointerException("collector must not be null");
+        try {
+            while (iterator.hasNext()) {
+                IData item = iterator.next();
+                if (item != null) collector.add(item);
+            }
+        } finally {
+            closeQuietly();
+        }
+        return collector.getResult();
+    }
+
+    /**
+     * Returns the remaining documents in this stream as a list, and closes this stream.
+     *
+     * @return The remaining documents in this stream.
+     */
+    public List<IData> toList() {
+        return collect(new Collector<List<IData>>() {
+            private List<IData> list = new ArrayList<IData>();
+
+            public void add(IData document) {
+                list.add(document);
+            }
+
+            public List<IData> getResult() {
+                return list;
+            }
+        });
+    }
+
+    /**
+     * Returns the remaining documents in this stream as an IData[], and closes this stream.
+     *
+     * @return The remaining documents in this stream.
+     */
+    public IData[] toArray() {
+        List<IData> list = toList();
+        return list.toArray(new IData[list.size()]);
+    }
+
+    /**
+     * Returns the number of remaining documents in this stream, and closes this stream.
+     *
+     * @return The number of remaining documents in this stream.
+     */
+    public long count() {
+        return collect(new Collector<Long>() {
+            private long count;
+
+            public void add(IData document) {
+                count++;
+            }
+
+            public Long getResult() {
+                return count;
+            }
+        });
+    }
+
+    /**
+     * Returns the first given number of remaining documents in this stream sorted according to the specified
+     * criteria, and closes this stream. Only the selected documents are held in memory.
+     *
+     * @param limit    The maximum number of documents to return.
+     * @param criteria One or more sort criteria.
+     * @return         The first documents sorted by the given criteria.
+     */
+    public IData[] top(int limit, IDataComparisonCriterion... criteria) {
+        return collect(new BoundedIDataHeap(limit, false, criteria));
+    }
+
+    /**
+     * Returns the last given number of remaining documents in this stream sorted according to the specified
+     * criteria, and closes this stream. Only the selected documents are held in memory.
+     *
+     * @param limit    The maximum number of documents to return.
+     * @param criteria One or more sort criteria.
+     * @return         The last documents sorted by the given criteria.
+     */
+    public IData[] bottom(int limit, IDataComparisonCriterion... criteria) {
+        return collect(new BoundedIDataHeap(limit, true, criteria));
+    }
+
+    /**
+     * Returns the next document in this stream, or null if there are none, and closes this stream.
+     *
+     * @return The next document in this stream, or null.
+     */
+    public IData first() {
+        try {
+            return hasNext() ? next() : null;
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Passes each remaining document in this stream to the given consumer, and closes this stream.
+     *
+     * @param consumer The consumer to pass each document to.
+     */
+    public void forEach(final Consumer consumer) {
+        if (consumer == null) throw new NullPointerException("consumer must not be null");
+        collect(new Collector<Void>() {
+            public void add(IData document) {
+                consumer.accept(document);
+            }
+
+            public Void getResult() {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns true if this stream has more documents.
+     *
+     * @return True if this stream has more documents.
+     */
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    /**
+     * Returns the next document in this stream.
+     *
+     * @return The next document in this stream.
+     */
+    public IData next() {
+        return iterator.next();
+    }
+
+    /**
+     * Not supported, as streams are read only.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("remove not supported");
+    }
+
+    /**
+     * Closes this stream and its source, if the source is closeable.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void close() throws IOException {
+        if (source != null) source.close();
+    }
+
+    /**
+     * Closes this stream, wrapping any I/O error in a RuntimeException.
+     */
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * A function which transforms one document into another.
+     */
+    public interface Function {
+        /**
+         * Returns the result of applying this function to the given document.
+         *
+         * @param document The document to be transformed.
+         * @return         The transformed document, or null to drop the document from the stream.
+         */
+        IData apply(IData document);
+    }
+
+    /**
+     * A function which transforms one document into a list of documents.
+     */
+    public interface ListFunction {
+        /**
+         * Returns the result of applying this function to the given document.
+         *
+         * @param document The document to be transformed.
+         * @return         The resulting list of documents, or null if there are none.
+         */
+        IData[] apply(IData document);
+    }
+
+    /**
+     * A predicate which documents can be tested against.
+     */
+    public interface Predicate {
+        /**
+         * Returns true if the given document matches this predicate.
+         *
+         * @param document The document to be tested.
+         * @return         True if the given document matches this predicate.
+         */
+        boolean test(IData document);
+    }
+
+    /**
+     * A consumer of documents.
+     */
+    public interface Consumer {
+        /**
+         * Processes the given document.
+         *
+         * @param document The document to be processed.
+         */
+        void accept(IData document);
+    }
+
+    /**
+     * Accumulates documents into a result.
+     *
+     * @param <T> The type of result.
+     */
+    public interface Collector<T> {
+        /**
+         * Adds the given document to the result.
+         *
+         * @param document The document to be added.
+         */
+        void add(IData document);
+
+        /**
+         * Returns the accumulated result.
+         *
+         * @return The accumulated result.
+         */
+        T getResult();
+    }
+
+    /**
+     * An iterator which fetches its next document ahead of time, where a null document indicates the end.
+     */
+    private static abstract class LookaheadIterator implements Iterator<IData> {
+        private IData next;
+        private boolean finished;
+
+        /**
+         * Returns the next document, or null if there are no more documents.
+         *
+         * @return The next document, or null.
+         */
+        protected abstract IData fetch();
+
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                next = fetch();
+                if (next == null) finished = true;
+            }
+            return next != null;
+        }
+
+        public IData next() {
+            if (!hasNext()) throw new NoSuchElementException("No more documents");
+            IData item = next;
+            next = null;
+            return item;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove not supported");
+        }
+    }
+}
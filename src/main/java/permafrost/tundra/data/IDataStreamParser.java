@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Interface for parsers which can stream a serialized IData document, either by pulling events from an
+ * IDataStreamReader or by pushing events to an IDataHandler, without materializing the whole document in memory.
+ */
+public interface IDataStreamParser {
+    /**
+     * Returns a reader which streams the serialized document in the given input stream.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use when decoding the data in the input stream.
+     * @return A reader which streams the document in the given input stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    IDataStreamReader read(InputStream inputStream, Charset charset) throws IOException;
+
+    /**
+     * Streams the serialized document in the given input stream to the given handler.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use when decoding the data in the input stream.
+     * @param handler     The handler to be called for each event.
+     * @throws IOException If an I/O error occurs.
+     */
+    void parse(InputStream inputStream, Charset charset, IDataHandler handler) throws IOException;
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull-style streaming interface for reading a serialized IData document one event at a time, analogous to a StAX
+ * XMLStreamReader, which allows arbitrarily large documents to be filtered, projected, or counted in constant memory.
+ */
+public interface IDataStreamReader extends Closeable {
+    /**
+     * Returns true if there are more events to be read.
+     *
+     * @return True if there are more events to be read.
+     * @throws IOException If an I/O error occurs.
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * Advances to and returns the next event.
+     *
+     * @return The next event.
+     * @throws IOException                      If an I/O error occurs.
+     * @throws java.util.NoSuchElementException If there are no more events.
+     */
+    IDataEvent next() throws IOException;
+
+    /**
+     * Returns the current event, or null if next has not yet been called.
+     *
+     * @return The current event.
+     */
+    IDataEvent getEvent();
+
+    /**
+     * Returns the key of the current KEY event.
+     *
+     * @return The key of the current KEY event, or null if the current event is not a KEY event.
+     */
+    String getKey();
+
+    /**
+     * Returns the value of the current VALUE event.
+     *
+     * @return The value of the current VALUE event, or null if the current event is not a VALUE event.
+     */
+    Object getValue();
+
+    /**
+     * Returns the component type of the array started by the current START_ARRAY event.
+     *
+     * @return The component type of the current array, or null if not known or if the current event is not a
+     *         START_ARRAY event.
+     */
+    Class<?> getComponentType();
+
+    /**
+     * Returns the number of documents and arrays which enclose the current event.
+     *
+     * @return The nesting depth of the current event.
+     */
+    int getDepth();
+
+    /**
+     * Skips the value at the current position: if the current event is a KEY event, the value following the key is
+     * skipped; if it is a START_DOCUMENT or START_ARRAY event, all events up to and including the matching end event
+     * are skipped; otherwise nothing is skipped.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void skip() throws IOException;
+
+    /**
+     * Materializes the value at the current position: if the current event is a KEY event, the value following the key
+     * is read; if it is a START_DOCUMENT or START_ARRAY event, all events up to and including the matching end event
+     * are read and returned as an IData or array respectively; if it is a VALUE event its value is returned.
+     *
+     * @return The value at the current position.
+     * @throws IOException           If an I/O error occurs.
+     * @throws IllegalStateException If the current event does not start a value.
+     */
+    Object readValue() throws IOException;
+
+    /**
+     * Materializes the document at the current position, as per readValue.
+     *
+     * @return The document at the current position.
+     * @throws IOException           If an I/O error occurs.
+     * @throws IllegalStateException If the current position is not the start of a document.
+     */
+    IData readDocument() throws IOException;
+
+    /**
+     * Pushes all remaining events to the given handler.
+     *
+     * @param handler The handler to be called for each remaining event.
+     * @throws IOException If an I/O error occurs.
+     */
+    void accept(IDataHandler handler) throws IOException;
+}
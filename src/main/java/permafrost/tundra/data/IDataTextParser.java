@@ -25,7 +25,13 @@
 package permafrost.tundra.data;
 
 import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataPortable;
+import com.wm.util.coder.IDataCodable;
 import com.wm.util.coder.IDataCoder;
+import permafrost.tundra.io.ProducerInputStream;
+import permafrost.tundra.io.StreamHelper;
+import permafrost.tundra.io.StreamProducer;
 import permafrost.tundra.lang.CharsetHelper;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -38,6 +44,15 @@ import java.nio.charset.Charset;
  * Serializes and deserializes IData documents to and from a text representation.
  */
 public abstract class IDataTextParser extends IDataCoder implements IDataParser {
+    /**
+     * The largest byte[] that can safely be allocated.
+     */
+    private static final int MAXIMUM_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    /**
+     * The default estimated number of bytes used to encode an element in addition to its key and value.
+     */
+    protected static final int DEFAULT_ELEMENT_OVERHEAD = 16;
+
     /**
      * Encodes the given IData document as a string.
      *
@@ -90,7 +105,7 @@ public abstract class IDataTextParser extends IDataCoder implements IDataParser
      * @throws IOException If there is a problem writing to the stream.
      */
     public byte[] encodeToBytes(IData document, Charset charset) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PresizedByteArrayOutputStream outputStream = new PresizedByteArrayOutputStream(estimateSize(document, MAXIMUM_ARRAY_SIZE));
         this.encode(outputStream, document, CharsetHelper.normalize(charset));
         return outputStream.toByteArray();
     }
@@ -242,10 +257,38 @@ public abstract class IDataTextParser extends IDataCoder implements IDataParser
      * @throws IOException If an I/O error occurs.
      */
     public InputStream emit(IData document, Charset charset) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PresizedByteArrayOutputStream outputStream = new PresizedByteArrayOutputStream(estimateSize(document, MAXIMUM_ARRAY_SIZE));
         encode(outputStream, document, charset);
-        byte[] bytes = outputStream.toByteArray();
-        return new ByteArrayInputStream(bytes);
+        return outputStream.toInputStream();
+    }
+
+    /**
+     * Serializes the given IData document lazily. Small documents are encoded immediately. Larger documents are
+     * encoded on another thread as the returned stream is read, through a bounded buffer, so that the whole encoding
+     * is never held in memory.
+     *
+     * The returned stream must always be closed, even if it is read to the end, as the encoding thread otherwise
+     * remains blocked holding the document until it can write more. The document must not be modified until the
+     * returned stream has been closed.
+     *
+     * @param document The IData document to be serialized.
+     * @param charset  The character set to use when serializing the IData document.
+     * @return A serialized representation of the given IData document, which must be closed.
+     * @throws IOException If an I/O error occurs.
+     */
+    public InputStream emitLazily(final IData document, final Charset charset) throws IOException {
+        int estimate = estimateSize(document, StreamHelper.DEFAULT_BUFFER_SIZE + 1);
+        if (estimate <= StreamHelper.DEFAULT_BUFFER_SIZE) {
+            PresizedByteArrayOutputStream outputStream = new PresizedByteArrayOutputStream(estimate);
+            encode(outputStream, document, charset);
+            return outputStream.toInputStream();
+        }
+
+        return new ProducerInputStream(new StreamProducer() {
+            public void produce(OutputStream outputStream) throws IOException {
+                encode(outputStream, document, charset);
+            }
+        });
     }
 
     /**
@@ -270,4 +313,98 @@ public abstract class IDataTextParser extends IDataCoder implements IDataParser
     public InputStream emit(IData document) throws IOException {
         return emit(document, CharsetHelper.DEFAULT_CHARSET);
     }
+
+    /**
+     * Returns the estimated number of bytes used to encode an element in addition to its key and value. Subclasses
+     * should override this to reflect the verbosity of their encoding.
+     *
+     * @return The estimated number of bytes used to encode an element in addition to its key and value.
+     */
+    protected int getElementOverhead() {
+        return DEFAULT_ELEMENT_OVERHEAD;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes required to encode the given document, used to size buffers.
+     *
+     * @param document The document to be encoded.
+     * @param limit    The estimate at which to stop walking the document.
+     * @return         The estimated encoded size of the document, or the limit if the estimate reaches it.
+     */
+    protected int estimateSize(IData document, int limit) {
+        return (int)Math.min(estimateSize(document, getElementOverhead(), limit), limit);
+    }
+
+    /**
+     * Returns an estimate of the number of bytes required to encode the given value.
+     *
+     * @param value    The value to be encoded.
+     * @param overhead The estimated number of bytes used to encode an element in addition to its key and value.
+     * @param limit    The estimate at which to stop walking the value.
+     * @return         The estimated encoded size of the value, which may exceed the limit.
+     */
+    private static long estimateSize(Object value, int overhead, long limit) {
+        if (value instanceof IDataCodable) value = ((IDataCodable)value).getIData();
+        if (value instanceof IDataPortable) value = ((IDataPortable)value).getAsData();
+
+        long size = 0;
+        if (value instanceof IData) {
+            size += overhead;
+            IDataCursor cursor = ((IData)value).getCursor();
+            try {
+                while (size < limit && cursor.next()) {
+                    String key = cursor.getKey();
+                    size += overhead + (key == null ? 0 : key.length()) + estimateSize(cursor.getValue(), overhead, limit - size);
+                }
+            } finally {
+                cursor.destroy();
+            }
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[])value;
+            size += overhead;
+            for (int i = 0; i < array.length && size < limit; i++) {
+                size += overhead + estimateSize(array[i], overhead, limit - size);
+            }
+        } else if (value instanceof String) {
+            size += ((String)value).length();
+        } else if (value != null) {
+            size += overhead;
+        }
+
+        return size;
+    }
+
+    /**
+     * A ByteArrayOutputStream with a given initial capacity, which avoids copying its buffer when its contents are
+     * returned if the buffer is exactly full, or when its contents are wrapped as an input stream.
+     */
+    private static class PresizedByteArrayOutputStream extends ByteArrayOutputStream {
+        /**
+         * Constructs a new stream with the given initial capacity.
+         *
+         * @param capacity The initial capacity of the stream.
+         */
+        public PresizedByteArrayOutputStream(int capacity) {
+            super(Math.max(capacity, 32));
+        }
+
+        /**
+         * Returns the bytes written to this stream.
+         *
+         * @return The bytes written to this stream.
+         */
+        @Override
+        public synchronized byte[] toByteArray() {
+            return count == buf.length ? buf : super.toByteArray();
+        }
+
+        /**
+         * Returns an input stream over the bytes written to this stream, without copying them.
+         *
+         * @return An input stream over the bytes written to this stream.
+         */
+        public synchronized InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
 }
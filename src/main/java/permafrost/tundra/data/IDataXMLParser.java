@@ -30,12 +30,21 @@ import permafrost.tundra.lang.CharsetHelper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.charset.Charset;
+import java.util.LinkedList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
- * Deserializes and serializes IData objects from and to XML.
+ * Deserializes and serializes IData objects from and to XML, and streams IDataXMLCoder formatted XML with an
+ * IDataStreamReader or IDataHandler.
  */
-public class IDataXMLParser extends IDataTextParser {
+public class IDataXMLParser extends IDataTextParser implements IDataStreamParser {
     /**
      * Initialization on demand holder idiom.
      */
@@ -44,6 +53,23 @@ public class IDataXMLParser extends IDataTextParser {
          * The singleton instance of the class.
          */
         private static final IDataXMLParser INSTANCE = new IDataXMLParser();
+        /**
+         * The factory used to create streaming XML readers, with DTDs and external entities disabled.
+         */
+        private static final XMLInputFactory FACTORY = createInputFactory();
+
+        /**
+         * Returns a new XMLInputFactory with DTDs and external entities disabled.
+         *
+         * @return A new XMLInputFactory.
+         */
+        private static XMLInputFactory createInputFactory() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            return factory;
+        }
     }
 
     /**
@@ -69,6 +95,16 @@ public class IDataXMLParser extends IDataTextParser {
         return "text/xml";
     }
 
+    /**
+     * Returns the estimated number of bytes used to encode an element as XML in addition to its key and value.
+     *
+     * @return The estimated number of bytes used to encode an element as XML in addition to its key and value.
+     */
+    @Override
+    protected int getElementOverhead() {
+        return 48;
+    }
+
     /**
      * Returns an IData representation of the XML data read from the given input stream.
      *
@@ -94,4 +130,212 @@ public class IDataXMLParser extends IDataTextParser {
         IDataXMLCoder parser = new IDataXMLCoder(CharsetHelper.normalize(charset).displayName());
         parser.encode(outputStream, document);
     }
+
+    /**
+     * Returns a reader which streams the IDataXMLCoder formatted XML in the given input stream, without materializing
+     * the whole document in memory.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use.
+     * @return A reader which streams the document in the given input stream.
+     * @throws IOException If there is a problem reading from the stream.
+     */
+    public IDataStreamReader read(InputStream inputStream, Charset charset) throws IOException {
+        if (inputStream == null) throw new NullPointerException("inputStream must not be null");
+
+        try {
+            return new IDataXMLStreamReader(Holder.FACTORY.createXMLStreamReader(inputStream, CharsetHelper.normalize(charset).name()));
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Streams the IDataXMLCoder formatted XML in the given input stream to the given handler.
+     *
+     * @param inputStream The input stream to be read.
+     * @param charset     The character set to use.
+     * @param handler     The handler to be called for each event.
+     * @throws IOException If there is a problem reading from the stream.
+     */
+    public void parse(InputStream inputStream, Charset charset, IDataHandler handler) throws IOException {
+        IDataStreamReader reader = read(inputStream, charset);
+        try {
+            reader.accept(handler);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Streams IDataXMLCoder formatted XML, where documents are represented by record elements, arrays by array
+     * elements, and simple values by value, null, number and boolean elements, with element keys given by the name
+     * attribute.
+     */
+    private static class IDataXMLStreamReader extends AbstractIDataStreamReader {
+        protected XMLStreamReader reader;
+        /**
+         * The stack of enclosing containers, where true represents a document and false an array.
+         */
+        protected LinkedList<Boolean> containers = new LinkedList<Boolean>();
+        /**
+         * The local name of an element whose KEY event has been read but whose value events have not.
+         */
+        protected String pendingElement;
+
+        /**
+         * Constructs a new reader.
+         *
+         * @param reader The XML reader to stream events from.
+         */
+        public IDataXMLStreamReader(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next event.
+         *
+         * @return The next event, or null if there are no more events.
+         * @throws IOException If an I/O error occurs.
+         */
+        protected IDataEvent read() throws IOException {
+            try {
+                if (pendingElement != null) {
+                    String element = pendingElement;
+                    pendingElement = null;
+                    return readValue(element);
+                }
+
+                while (reader.hasNext()) {
+                    int type = reader.next();
+                    if (type == XMLStreamConstants.START_ELEMENT) {
+                        String element = reader.getLocalName();
+                        if (element.equals("IDataXMLCoder")) continue;
+
+                        if (!containers.isEmpty() && containers.peek()) {
+                            pendingKey = reader.getAttributeValue(null, "name");
+                            pendingElement = element;
+                            return IDataEvent.KEY;
+                        }
+                        return readValue(element);
+                    } else if (type == XMLStreamConstants.END_ELEMENT) {
+                        String element = reader.getLocalName();
+                        if (element.equals("record")) {
+                            containers.pop();
+                            return IDataEvent.END_DOCUMENT;
+                        } else if (element.equals("array")) {
+                            containers.pop();
+                            return IDataEvent.END_ARRAY;
+                        }
+                    }
+                }
+            } catch (XMLStreamException ex) {
+                throw new IOException(ex);
+            }
+
+            return null;
+        }
+
+        /**
+         * Reads the value events for the element at the current position of the XML reader.
+         *
+         * @param element The local name of the element.
+         * @return The first event for the element's value.
+         * @throws IOException        If the element is not supported.
+         * @throws XMLStreamException If the XML is malformed.
+         */
+        private IDataEvent readValue(String element) throws IOException, XMLStreamException {
+            if (element.equals("record")) {
+                containers.push(Boolean.TRUE);
+                return IDataEvent.START_DOCUMENT;
+            } else if (element.equals("array")) {
+                pendingComponentType = getComponentType(reader.getAttributeValue(null, "type"), reader.getAttributeValue(null, "depth"));
+                containers.push(Boolean.FALSE);
+                return IDataEvent.START_ARRAY;
+            } else if (element.equals("value")) {
+                pendingValue = reader.getElementText();
+            } else if (element.equals("null")) {
+                reader.getElementText();
+                pendingValue = null;
+            } else if (element.equals("number")) {
+                String className = reader.getAttributeValue(null, "type");
+                pendingValue = toNumber(reader.getElementText(), className);
+            } else if (element.equals("boolean")) {
+                pendingValue = Boolean.valueOf(reader.getElementText().trim());
+            } else {
+                throw new IOException("Unsupported IDataXMLCoder element: " + element);
+            }
+            return IDataEvent.VALUE;
+        }
+
+        /**
+         * Returns the component type of an array with the given type and depth attributes.
+         *
+         * @param type  The type attribute of the array element.
+         * @param depth The depth attribute of the array element.
+         * @return      The component type of the array, or null if not known.
+         */
+        private static Class<?> getComponentType(String type, String depth) {
+            Class<?> componentType;
+            if ("value".equals(type)) {
+                componentType = String.class;
+            } else if ("record".equals(type)) {
+                componentType = IData.class;
+            } else {
+                return null;
+            }
+
+            int dimensions = 1;
+            if (depth != null) {
+                try {
+                    dimensions = Integer.parseInt(depth.trim());
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+
+            for (int i = 1; i < dimensions; i++) {
+                componentType = Array.newInstance(componentType, 0).getClass();
+            }
+
+            return componentType;
+        }
+
+        /**
+         * Converts the given text to a number of the given class.
+         *
+         * @param text      The text to be converted.
+         * @param className The class name of the number, or null if not known.
+         * @return          The converted number.
+         * @throws IOException If the text is not a valid number.
+         */
+        private static Object toNumber(String text, String className) throws IOException {
+            text = text.trim();
+            try {
+                if ("java.lang.Integer".equals(className)) return Integer.valueOf(text);
+                if ("java.lang.Long".equals(className)) return Long.valueOf(text);
+                if ("java.lang.Short".equals(className)) return Short.valueOf(text);
+                if ("java.lang.Byte".equals(className)) return Byte.valueOf(text);
+                if ("java.lang.Float".equals(className)) return Float.valueOf(text);
+                if ("java.lang.Double".equals(className)) return Double.valueOf(text);
+                if ("java.math.BigInteger".equals(className)) return new BigInteger(text);
+                return new BigDecimal(text);
+            } catch (NumberFormatException ex) {
+                throw new IOException("Invalid number: " + text, ex);
+            }
+        }
+
+        /**
+         * Closes the XML reader. The underlying input stream is not closed.
+         *
+         * @throws IOException If an I/O error occurs.
+         */
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException ex) {
+                throw new IOException(ex);
+            }
+        }
+    }
 }
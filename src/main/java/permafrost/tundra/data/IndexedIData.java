@@ -0,0 +1,665 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.data;
+
+import com.wm.data.DataException;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataHashCursor;
+import com.wm.data.IDataIndexCursor;
+import com.wm.data.IDataSharedCursor;
+import com.wm.data.IDataTreeCursor;
+
+/**
+ * An IData implementation for wide documents, which keeps the ordered and duplicate key semantics of IData but adds
+ * an open addressing hash index of its keys, so that key lookups such as IDataCursor.first(key) and last(key) take
+ * constant rather than linear time. Entries are held in a doubly linked list in document order, and the entries for
+ * each distinct key are additionally chained together in document order, so that iterating duplicate keys with
+ * next(key) from a matching entry is also constant time per step.
+ *
+ * As with other IData implementations, this class is not thread-safe.
+ */
+public class IndexedIData implements IData {
+    /**
+     * The default initial number of slots in the hash index.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * The first and last entries in document order.
+     */
+    protected Entry head, tail;
+    /**
+     * The number of entries in this document.
+     */
+    protected int size;
+    /**
+     * The hash index: for each distinct key, the first and last entries with that key in document order, stored at
+     * the same slot in each array and located using linear probing. Empty slots are null.
+     */
+    protected Entry[] firsts, lasts;
+    /**
+     * The number of distinct keys in the hash index.
+     */
+    protected int keyCount;
+
+    /**
+     * Constructs a new empty IndexedIData document.
+     */
+    public IndexedIData() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new empty IndexedIData document sized for the given number of distinct keys.
+     *
+     * @param capacity The expected number of distinct keys.
+     */
+    public IndexedIData(int capacity) {
+        int slots = DEFAULT_CAPACITY;
+        while (slots < capacity * 2) slots <<= 1;
+        firsts = new Entry[slots];
+        lasts = new Entry[slots];
+    }
+
+    /**
+     * Returns an IndexedIData representation of the given IData document: the document itself if it is already an
+     * IndexedIData document, otherwise a new IndexedIData document containing the keys and values of the given
+     * document in the same order. The values themselves are not copied.
+     *
+     * @param document The IData document to be converted.
+     * @return         An IndexedIData document with the same keys and values as the given document.
+     */
+    public static IndexedIData of(IData document) {
+        if (document == null) return null;
+        if (document instanceof IndexedIData) return (IndexedIData)document;
+        if (document instanceof IDataEnvelope && ((IDataEnvelope)document).getIData() instanceof IndexedIData) {
+            return (IndexedIData)((IDataEnvelope)document).getIData();
+        }
+
+        IndexedIData output = new IndexedIData();
+        IDataCursor cursor = document.getCursor();
+        while (cursor.next()) {
+            output.insert(null, cursor.getKey(), cursor.getValue());
+        }
+        cursor.destroy();
+
+        return output;
+    }
+
+    /**
+     * Returns the number of entries in this document.
+     *
+     * @return The number of entries in this document.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an IDataCursor for this IData object. An IDataCursor contains the basic methods you use to traverse an
+     * IData object and get or set elements within it.
+     *
+     * @return An IDataCursor for this object.
+     */
+    public IDataCursor getCursor() {
+        return new IndexedIDataCursor(this);
+    }
+
+    /**
+     * Returns an IDataSharedCursor for this IData object. An IDataSharedCursor contains the basic methods you use to
+     * traverse an IData object and get or set elements within it.
+     *
+     * @return An IDataSharedCursor for this object.
+     */
+    public IDataSharedCursor getSharedCursor() {
+        return new IDataSharedCursorAdapter(new IndexedIDataCursor(this));
+    }
+
+    /**
+     * Returns an IDataIndexCursor for traversing this IData.
+     *
+     * @return An IDataIndexCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataIndexCursor getIndexCursor() {
+        throw new UnsupportedOperationException("getIndexCursor not implemented");
+    }
+
+    /**
+     * Returns an IDataTreeCursor for traversing this IData.
+     *
+     * @return An IDataTreeCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataTreeCursor getTreeCursor() {
+        throw new UnsupportedOperationException("getTreeCursor not implemented");
+    }
+
+    /**
+     * Returns an IDataHashCursor for traversing this IData.
+     *
+     * @return An IDataHashCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataHashCursor getHashCursor() {
+        throw new UnsupportedOperationException("getHashCursor not implemented");
+    }
+
+    /**
+     * Returns the first entry with the given key in document order, or null if there is no such entry.
+     *
+     * @param key The key to look up.
+     * @return    The first entry with the given key, or null.
+     */
+    protected Entry first(String key) {
+        int slot = slot(key);
+        return slot < 0 ? null : firsts[slot];
+    }
+
+    /**
+     * Returns the last entry with the given key in document order, or null if there is no such entry.
+     *
+     * @param key The key to look up.
+     * @return    The last entry with the given key, or null.
+     */
+    protected Entry last(String key) {
+        int slot = slot(key);
+        return slot < 0 ? null : lasts[slot];
+    }
+
+    /**
+     * Inserts a new entry before the given entry, or at the end of the document if the given entry is null.
+     *
+     * @param before The entry the new entry is inserted before, or null to append.
+     * @param key    The key of the new entry.
+     * @param value  The value of the new entry.
+     * @return       The new entry.
+     */
+    protected Entry insert(Entry before, String key, Object value) {
+        Entry entry = new Entry(key, value);
+
+        if (before == null) {
+            entry.previous = tail;
+            if (tail == null) head = entry; else tail.next = entry;
+            tail = entry;
+        } else {
+            entry.previous = before.previous;
+            entry.next = before;
+            if (before.previous == null) head = entry; else before.previous.next = entry;
+            before.previous = entry;
+        }
+        size++;
+
+        index(entry);
+
+        return entry;
+    }
+
+    /**
+     * Removes the given entry from this document.
+     *
+     * @param entry The entry to be removed.
+     */
+    protected void remove(Entry entry) {
+        if (entry.removed) return;
+
+        unindex(entry);
+
+        if (entry.previous == null) head = entry.next; else entry.previous.next = entry.next;
+        if (entry.next == null) tail = entry.previous; else entry.next.previous = entry.previous;
+        size--;
+
+        // the entry's own links are left intact, so that cursors positioned on it can still move past it
+        entry.removed = true;
+    }
+
+    /**
+     * Changes the key of the given entry.
+     *
+     * @param entry The entry to be changed.
+     * @param key   The new key.
+     */
+    protected void rekey(Entry entry, String key) {
+        if (entry.removed) return;
+        unindex(entry);
+        entry.key = key;
+        index(entry);
+    }
+
+    /**
+     * Adds the given entry, which must already be linked into the document, to its key's chain in the hash index.
+     *
+     * @param entry The entry to be indexed.
+     */
+    private void index(Entry entry) {
+        int slot = slot(entry.key);
+
+        if (slot < 0) {
+            if ((keyCount + 1) * 2 > firsts.length) {
+                resize(firsts.length * 2);
+            }
+            slot = -(slot(entry.key) + 1);
+            firsts[slot] = entry;
+            lasts[slot] = entry;
+            entry.previousWithKey = null;
+            entry.nextWithKey = null;
+            keyCount++;
+        } else {
+            // find the preceding entry with the same key; appending to the document, the common case, is immediate
+            Entry preceding = entry.next == null ? lasts[slot] : null;
+            for (Entry current = entry.previous; preceding == null && current != null; current = current.previous) {
+                if (keyEquals(current.key, entry.key)) preceding = current;
+            }
+
+            if (preceding == null) {
+                entry.previousWithKey = null;
+                entry.nextWithKey = firsts[slot];
+                firsts[slot].previousWithKey = entry;
+                firsts[slot] = entry;
+            } else {
+                entry.previousWithKey = preceding;
+                entry.nextWithKey = preceding.nextWithKey;
+                if (preceding.nextWithKey == null) lasts[slot] = entry; else preceding.nextWithKey.previousWithKey = entry;
+                preceding.nextWithKey = entry;
+            }
+        }
+    }
+
+    /**
+     * Removes the given entry from its key's chain in the hash index.
+     *
+     * @param entry The entry to be unindexed.
+     */
+    private void unindex(Entry entry) {
+        int slot = slot(entry.key);
+
+        if (entry.previousWithKey == null) firsts[slot] = entry.nextWithKey; else entry.previousWithKey.nextWithKey = entry.nextWithKey;
+        if (entry.nextWithKey == null) lasts[slot] = entry.previousWithKey; else entry.nextWithKey.previousWithKey = entry.previousWithKey;
+
+        entry.previousWithKey = null;
+        entry.nextWithKey = null;
+
+        if (firsts[slot] == null) removeSlot(slot);
+    }
+
+    /**
+     * Returns the hash index slot for the given key if present, otherwise -(insertion slot + 1).
+     *
+     * @param key The key to look up.
+     * @return    The slot for the given key if present, otherwise -(insertion slot + 1).
+     */
+    private int slot(String key) {
+        int mask = firsts.length - 1;
+        int slot = hash(key) & mask;
+
+        while (firsts[slot] != null) {
+            if (keyEquals(firsts[slot].key, key)) return slot;
+            slot = (slot + 1) & mask;
+        }
+
+        return -(slot + 1);
+    }
+
+    /**
+     * Empties the given hash index slot, shifting back any subsequent entries in the same probe sequence so that
+     * lookups remain correct without tombstones.
+     *
+     * @param slot The slot to be emptied.
+     */
+    private void removeSlot(int slot) {
+        int mask = firsts.length - 1;
+        int current = slot;
+
+        while (true) {
+            current = (current + 1) & mask;
+            if (firsts[current] == null) break;
+
+            int ideal = hash(firsts[current].key) & mask;
+            boolean reachable = slot <= current ? (slot < ideal && ideal <= current) : (slot < ideal || ideal <= current);
+            if (!reachable) {
+                firsts[slot] = firsts[current];
+                lasts[slot] = lasts[current];
+                slot = current;
+            }
+        }
+
+        firsts[slot] = null;
+        lasts[slot] = null;
+        keyCount--;
+    }
+
+    /**
+     * Resizes the hash index to the given number of slots.
+     *
+     * @param capacity The new number of slots, which must be a power of two.
+     */
+    private void resize(int capacity) {
+        Entry[] oldFirsts = firsts, oldLasts = lasts;
+        firsts = new Entry[capacity];
+        lasts = new Entry[capacity];
+
+        for (int i = 0; i < oldFirsts.length; i++) {
+            if (oldFirsts[i] != null) {
+                int slot = -(slot(oldFirsts[i].key) + 1);
+                firsts[slot] = oldFirsts[i];
+                lasts[slot] = oldLasts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a well distributed hash code for the given key.
+     *
+     * @param key The key to be hashed.
+     * @return    The hash code.
+     */
+    private static int hash(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /**
+     * Returns true if the two given keys are equal.
+     *
+     * @param first  The first key.
+     * @param second The second key.
+     * @return       True if the two keys are equal.
+     */
+    private static boolean keyEquals(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    /**
+     * A key value entry in an IndexedIData document.
+     */
+    protected static class Entry {
+        protected String key;
+        protected Object value;
+        protected Entry previous, next;
+        protected Entry previousWithKey, nextWithKey;
+        protected boolean removed;
+
+        /**
+         * Constructs a new entry.
+         *
+         * @param key   The entry's key.
+         * @param value The entry's value.
+         */
+        public Entry(String key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * An IDataCursor for traversing and modifying an IndexedIData document.
+     */
+    private static class IndexedIDataCursor implements IDataCursor {
+        protected IndexedIData document;
+        /**
+         * The entry the cursor is positioned on; when null, the cursor is either before the first entry or, if end
+         * is true, after the last entry.
+         */
+        protected Entry current;
+        protected boolean end;
+        /**
+         * Whether the entry the cursor was positioned on was deleted, in which case the cursor is positioned on the
+         * entry that followed it, and the next call to next() does not advance.
+         */
+        protected boolean deleted;
+
+        /**
+         * Constructs a new cursor for the given document.
+         *
+         * @param document The document to be traversed.
+         */
+        public IndexedIDataCursor(IndexedIData document) {
+            this.document = document;
+        }
+
+        private boolean isPositioned() {
+            return current != null && !current.removed;
+        }
+
+        private void position(Entry entry) {
+            current = entry;
+            end = false;
+            deleted = false;
+        }
+
+        public void setErrorMode(int mode) {}
+
+        public DataException getLastError() {
+            return null;
+        }
+
+        public boolean hasMoreErrors() {
+            return false;
+        }
+
+        public void home() {
+            position(null);
+        }
+
+        public String getKey() {
+            return isPositioned() ? current.key : null;
+        }
+
+        public void setKey(String key) {
+            if (isPositioned()) document.rekey(current, key);
+        }
+
+        public Object getValue() {
+            return isPositioned() ? current.value : null;
+        }
+
+        public void setValue(Object value) {
+            if (isPositioned()) current.value = value;
+        }
+
+        public boolean delete() {
+            if (!isPositioned()) return false;
+
+            Entry following = current.next;
+            document.remove(current);
+            current = following;
+            end = following == null;
+            deleted = true;
+
+            return true;
+        }
+
+        public void insertBefore(String key, Object value) {
+            Entry before;
+            if (isPositioned()) {
+                before = current;
+            } else {
+                before = end ? null : document.head;
+            }
+            position(document.insert(before, key, value));
+        }
+
+        public void insertAfter(String key, Object value) {
+            Entry before;
+            if (isPositioned()) {
+                before = current.next;
+            } else {
+                before = end ? null : document.head;
+            }
+            position(document.insert(before, key, value));
+        }
+
+        public IData insertDataBefore(String key) {
+            IData child = new IndexedIData();
+            insertBefore(key, child);
+            return child;
+        }
+
+        public IData insertDataAfter(String key) {
+            IData child = new IndexedIData();
+            insertAfter(key, child);
+            return child;
+        }
+
+        public boolean next() {
+            if (deleted) {
+                deleted = false;
+                if (current != null) return true;
+            }
+
+            Entry candidate;
+            if (current != null) {
+                candidate = current.next;
+            } else {
+                candidate = end ? null : document.head;
+            }
+
+            if (candidate == null) {
+                current = null;
+                end = true;
+                return false;
+            }
+
+            position(candidate);
+            return true;
+        }
+
+        public boolean next(String key) {
+            Entry candidate;
+            if (deleted) {
+                candidate = current;
+            } else if (current != null) {
+                // from an entry with the same key, the next match is simply the next entry in the key's chain
+                if (!current.removed && keyEquals(current.key, key)) {
+                    if (current.nextWithKey == null) return false;
+                    position(current.nextWithKey);
+                    return true;
+                }
+                candidate = current.next;
+            } else if (end) {
+                return false;
+            } else {
+                return first(key);
+            }
+
+            while (candidate != null && !keyEquals(candidate.key, key)) {
+                candidate = candidate.next;
+            }
+
+            if (candidate == null) return false;
+            position(candidate);
+            return true;
+        }
+
+        public boolean previous() {
+            Entry candidate;
+            if (current != null) {
+                candidate = current.previous;
+            } else {
+                candidate = end ? document.tail : null;
+            }
+
+            if (candidate == null) return false;
+            position(candidate);
+            return true;
+        }
+
+        public boolean previous(String key) {
+            Entry candidate;
+            if (current != null) {
+                if (!current.removed && !deleted && keyEquals(current.key, key)) {
+                    if (current.previousWithKey == null) return false;
+                    position(current.previousWithKey);
+                    return true;
+                }
+                candidate = current.previous;
+            } else if (end) {
+                return last(key);
+            } else {
+                return false;
+            }
+
+            while (candidate != null && !keyEquals(candidate.key, key)) {
+                candidate = candidate.previous;
+            }
+
+            if (candidate == null) return false;
+            position(candidate);
+            return true;
+        }
+
+        public boolean first() {
+            if (document.head == null) return false;
+            position(document.head);
+            return true;
+        }
+
+        public boolean first(String key) {
+            Entry entry = document.first(key);
+            if (entry == null) return false;
+            position(entry);
+            return true;
+        }
+
+        public boolean last() {
+            if (document.tail == null) return false;
+            position(document.tail);
+            return true;
+        }
+
+        public boolean last(String key) {
+            Entry entry = document.last(key);
+            if (entry == null) return false;
+            position(entry);
+            return true;
+        }
+
+        public boolean hasMoreData() {
+            // after a delete the cursor is on the following entry, which next() has yet to return
+            if (deleted) return current != null;
+            if (current != null) return current.next != null;
+            return !end && document.head != null;
+        }
+
+        public void destroy() {
+            document = null;
+            current = null;
+        }
+
+        public IDataCursor getCursorClone() {
+            IndexedIDataCursor clone = new IndexedIDataCursor(document);
+            clone.current = current;
+            clone.end = end;
+            clone.deleted = deleted;
+            return clone;
+        }
+    }
+}
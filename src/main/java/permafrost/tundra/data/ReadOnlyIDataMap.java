@@ -37,9 +37,29 @@ import com.wm.txn.TransactionException;
 import com.wm.util.Table;
 import com.wm.util.coder.IDataCodable;
 import com.wm.util.coder.ValuesCodable;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 public class ReadOnlyIDataMap extends IDataMap {
+    /**
+     * If this object is a view, the read-only views of the nested documents and document lists accessed so far,
+     * keyed by identity and shared by all views of the same tree; null if this object is a frozen copy.
+     */
+    protected Map<Object, Object> views;
+    /**
+     * Whether this object wraps its own private copy of the document, which therefore cannot change; false for views
+     * and for objects wrapping the live document of an IDataCodable, IDataPortable or ValuesCodable object.
+     */
+    protected boolean owned;
+    /**
+     * The memoized structural hash of this object, valid only when hashed is true.
+     */
+    protected volatile long hash;
+    /**
+     * Whether the structural hash of this object has been memoized.
+     */
+    protected volatile boolean hashed;
+
     /**
      * Construct a new ReadOnlyIDataMap object.
      *
@@ -47,6 +67,7 @@ public class ReadOnlyIDataMap extends IDataMap {
      */
     public ReadOnlyIDataMap(IData document) {
         super(IDataHelper.duplicate(document, true));
+        this.owned = true;
         // recursively freeze all child IData and IData[] elements as read-only
         freeze();
     }
@@ -148,6 +169,17 @@ public class ReadOnlyIDataMap extends IDataMap {
         setComparator(comparator);
     }
 
+    /**
+     * Constructs a new ReadOnlyIDataMap view of the given IData document.
+     *
+     * @param document The IData document to be viewed.
+     * @param views    The read-only views of nested documents and document lists shared by the tree.
+     */
+    private ReadOnlyIDataMap(IData document, Map<Object, Object> views) {
+        super(document);
+        this.views = views;
+    }
+
     /**
      * Returns a new IDataMap wrapping the given IData document.
      *
@@ -183,6 +215,127 @@ public class ReadOnlyIDataMap extends IDataMap {
         return output;
     }
 
+    /**
+     * Returns a read-only view of the given IData document in constant time. Unlike the constructors, the document is
+     * not copied: each nested IData document or IData[] document list is wrapped in a read-only view the first time
+     * it is accessed, and the same view is returned on subsequent accesses. Changes made to the underlying document
+     * by its owner are visible through the view. A view can be safely shared across threads, provided the underlying
+     * document is no longer being modified.
+     *
+     * @param document The document to be viewed.
+     * @return         A read-only view of the given document.
+     */
+    public static ReadOnlyIDataMap view(IData document) {
+        if (document instanceof ReadOnlyIDataMap) return (ReadOnlyIDataMap)document;
+        return new ReadOnlyIDataMap(document, new IdentityHashMap<Object, Object>());
+    }
+
+    /**
+     * Returns a read-only view of each document in the given IData[] document list, in constant time per document.
+     *
+     * @param array An IData[] document list.
+     * @return      A new array containing a read-only view of each document in the given list.
+     */
+    public static ReadOnlyIDataMap[] view(IData[] array) {
+        if (array == null) return null;
+        return (ReadOnlyIDataMap[])toView(array, new IdentityHashMap<Object, Object>());
+    }
+
+    /**
+     * Returns true if this object is a lazy view of a document, rather than a frozen copy.
+     *
+     * @return True if this object is a lazy view of a document.
+     */
+    public boolean isView() {
+        return views != null;
+    }
+
+    /**
+     * Returns the given value as it should be seen through this view: nested IData and IData[] compatible values
+     * are returned as read-only views, created on first access, and all other values are returned as is.
+     *
+     * @param value The value to be viewed.
+     * @return      The value as seen through this view.
+     */
+    protected Object toView(Object value) {
+        return views == null ? value : toView(value, views);
+    }
+
+    /**
+     * Returns the given value as it should be seen through a view: nested IData and IData[] compatible values are
+     * returned as read-only views, created on first access and cached in the given map, and all other values are
+     * returned as is.
+     *
+     * @param value The value to be viewed.
+     * @param views The read-only views of the nested documents and document lists accessed so far.
+     * @return      The value as seen through a view.
+     */
+    private static Object toView(Object value, Map<Object, Object> views) {
+        if (value == null || value instanceof ReadOnlyIDataMap || value instanceof ReadOnlyIDataMap[]) return value;
+
+        boolean isArray = value instanceof IData[] || value instanceof Table || value instanceof IDataCodable[] || value instanceof IDataPortable[] || value instanceof ValuesCodable[];
+        if (!isArray && !(value instanceof IData || value instanceof IDataCodable || value instanceof IDataPortable || value instanceof ValuesCodable)) return value;
+
+        Object view;
+        synchronized (views) {
+            view = views.get(value);
+            if (view == null) {
+                if (isArray) {
+                    IData[] array = IDataHelper.toIDataArray(value);
+                    ReadOnlyIDataMap[] output = new ReadOnlyIDataMap[array.length];
+                    for (int i = 0; i < array.length; i++) {
+                        output[i] = (ReadOnlyIDataMap)toView(array[i], views);
+                    }
+                    view = output;
+                } else {
+                    view = new ReadOnlyIDataMap(IDataHelper.toIData(value), views);
+                }
+                views.put(value, view);
+            }
+        }
+
+        // arrays are mutable, so each caller gets its own copy of the cached array of views
+        return isArray ? ((ReadOnlyIDataMap[])view).clone() : view;
+    }
+
+    /**
+     * Returns the IData document that this object wraps. Views return themselves rather than the underlying
+     * document, so that the underlying document cannot be modified via the view.
+     *
+     * @return The IData document this object wraps.
+     */
+    @Override
+    public IData getIData() {
+        return views == null ? super.getIData() : this;
+    }
+
+    /**
+     * Returns the 64-bit structural hash of this object. Frozen copies of a document cannot change, so their hash is
+     * computed once and memoized; views, and objects wrapping the live document of a codable object, reflect changes
+     * to the underlying document, so their hash is computed on every call.
+     *
+     * @return The 64-bit structural hash of this object.
+     */
+    @Override
+    protected long hash() {
+        if (!owned) return super.hash();
+        if (!hashed) {
+            hash = super.hash();
+            hashed = true;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns true if this object is a frozen copy of a document whose hash has been computed.
+     *
+     * @return True if the hash of this object is memoized.
+     */
+    @Override
+    protected boolean isHashMemoized() {
+        return hashed;
+    }
+
     /**
      * Converts all IData and IData[] compatible elements to read-only representations.
      */
@@ -209,7 +362,7 @@ public class ReadOnlyIDataMap extends IDataMap {
      */
     @Override
     public IDataCursor getCursor() {
-        return ReadOnlyIDataCursor.of(document.getCursor());
+        return ReadOnlyIDataCursor.of(document.getCursor(), this);
     }
 
     /**
@@ -220,7 +373,7 @@ public class ReadOnlyIDataMap extends IDataMap {
      */
     @Override
     public IDataSharedCursor getSharedCursor() {
-        return ReadOnlyIDataSharedCursor.of(document.getSharedCursor());
+        return ReadOnlyIDataSharedCursor.of(document.getSharedCursor(), this);
     }
 
     /**
@@ -335,19 +488,21 @@ public class ReadOnlyIDataMap extends IDataMap {
      */
     private static class ReadOnlyIDataCursor implements IDataCursor {
         protected IDataCursor cursor;
+        protected ReadOnlyIDataMap map;
 
-        public ReadOnlyIDataCursor(IDataCursor cursor) {
+        public ReadOnlyIDataCursor(IDataCursor cursor, ReadOnlyIDataMap map) {
             if (cursor == null) throw new NullPointerException("cursor must not be null");
             this.cursor = cursor;
+            this.map = map;
         }
 
-        public static ReadOnlyIDataCursor of(IDataCursor cursor) {
+        public static ReadOnlyIDataCursor of(IDataCursor cursor, ReadOnlyIDataMap map) {
             ReadOnlyIDataCursor readOnlyIDataCursor = null;
 
             if (cursor instanceof ReadOnlyIDataCursor) {
                 readOnlyIDataCursor = (ReadOnlyIDataCursor)cursor;
             } else if (cursor != null) {
-                readOnlyIDataCursor = new ReadOnlyIDataCursor(cursor);
+                readOnlyIDataCursor = new ReadOnlyIDataCursor(cursor, map);
             }
 
             return readOnlyIDataCursor;
@@ -378,7 +533,7 @@ public class ReadOnlyIDataMap extends IDataMap {
         }
 
         public Object getValue() {
-            return cursor.getValue();
+            return map.toView(cursor.getValue());
         }
 
         public void setValue(Object value) {
@@ -446,7 +601,7 @@ public class ReadOnlyIDataMap extends IDataMap {
         }
 
         public IDataCursor getCursorClone() {
-            return of(cursor.getCursorClone());
+            return of(cursor.getCursorClone(), map);
         }
     }
 
@@ -455,19 +610,21 @@ public class ReadOnlyIDataMap extends IDataMap {
      */
     private static class ReadOnlyIDataSharedCursor implements IDataSharedCursor {
         IDataSharedCursor cursor;
+        ReadOnlyIDataMap map;
 
-        public ReadOnlyIDataSharedCursor(IDataSharedCursor cursor) {
+        public ReadOnlyIDataSharedCursor(IDataSharedCursor cursor, ReadOnlyIDataMap map) {
             if (cursor == null) throw new NullPointerException("cursor must not be null");
             this.cursor = cursor;
+            this.map = map;
         }
 
-        public static ReadOnlyIDataSharedCursor of(IDataSharedCursor cursor) {
+        public static ReadOnlyIDataSharedCursor of(IDataSharedCursor cursor, ReadOnlyIDataMap map) {
             ReadOnlyIDataSharedCursor readOnlyIDataSharedCursor = null;
 
             if (cursor instanceof ReadOnlyIDataCursor) {
                 readOnlyIDataSharedCursor = (ReadOnlyIDataSharedCursor)cursor;
             } else if (cursor != null) {
-                readOnlyIDataSharedCursor = new ReadOnlyIDataSharedCursor(cursor);
+                readOnlyIDataSharedCursor = new ReadOnlyIDataSharedCursor(cursor, map);
             }
 
             return readOnlyIDataSharedCursor;
@@ -486,7 +643,7 @@ public class ReadOnlyIDataMap extends IDataMap {
         }
 
         public Object getValue() throws DataException {
-            return cursor.getValue();
+            return map.toView(cursor.getValue());
         }
 
         public void setValue(Object value) throws DataException {
@@ -494,7 +651,7 @@ public class ReadOnlyIDataMap extends IDataMap {
         }
 
         public Object getValueReference() throws DataException {
-            return cursor.getValueReference();
+            return map.toView(cursor.getValueReference());
         }
 
         public boolean delete() throws DataException {
@@ -558,7 +715,7 @@ public class ReadOnlyIDataMap extends IDataMap {
         }
 
         public IDataSharedCursor getCursorClone() throws DataException {
-            return of(cursor.getCursorClone());
+            return of(cursor.getCursorClone(), map);
         }
 
         public boolean isTXNSupported() {
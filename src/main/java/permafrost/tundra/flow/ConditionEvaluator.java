@@ -25,18 +25,32 @@
 package permafrost.tundra.flow;
 
 import com.wm.data.IData;
-import com.wm.data.IDataCursor;
 import com.wm.data.IDataFactory;
-import com.wm.data.IDataUtil;
 import com.wm.lang.flow.ExpressionEvaluator;
 import com.wm.lang.flow.MalformedExpressionException;
-import java.util.regex.Matcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
  * Performs webMethods Integration Server flow language conditional statement evaluation against a specified scope.
+ *
+ * Conditions are compiled once on construction: detection of the legacy null, true and false key words happens here
+ * rather than on every evaluation, and the key words are then resolved against a read-only overlay of the scope
+ * rather than a clone of it. Evaluators are immutable and thread-safe, and compiled evaluators are cached in a
+ * bounded least recently used cache keyed by condition.
  */
 public class ConditionEvaluator {
+    /**
+     * The maximum number of compiled conditions that are cached.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+    /**
+     * The cache of compiled conditions, in least recently used order.
+     */
+    private static final Map<String, ConditionEvaluator> CACHE = Collections.synchronizedMap(new LRUCache<String, ConditionEvaluator>(DEFAULT_CACHE_CAPACITY));
     /**
      * Regular expressions to detect backwards-compatibility mode to support the previous ANTLR-based implementation of
      * the evaluate function, which allowed use of the key words: null, true and false
@@ -49,6 +63,14 @@ public class ConditionEvaluator {
      * The conditional statement to be evaluated by this object.
      */
     protected String condition;
+    /**
+     * The keys of the legacy key words used by the condition, or null if backwards-compatibility is not required.
+     */
+    protected String[] literalKeys;
+    /**
+     * The values the legacy key words used by the condition resolve to.
+     */
+    protected Object[] literalValues;
 
     /**
      * Constructs a new flow condition.
@@ -57,6 +79,67 @@ public class ConditionEvaluator {
      */
     public ConditionEvaluator(String condition) {
         this.condition = condition;
+
+        if (condition != null) {
+            List<String> keys = new ArrayList<String>(3);
+            List<Object> values = new ArrayList<Object>(3);
+
+            if (NULL_PATTERN.matcher(condition).find()) {
+                keys.add("null");
+                values.add(null);
+            }
+            if (TRUE_PATTERN.matcher(condition).find()) {
+                keys.add("true");
+                values.add("true");
+            }
+            if (FALSE_PATTERN.matcher(condition).find()) {
+                keys.add("false");
+                values.add("false");
+            }
+
+            if (keys.size() > 0) {
+                this.literalKeys = keys.toArray(new String[keys.size()]);
+                this.literalValues = values.toArray(new Object[values.size()]);
+            }
+        }
+    }
+
+    /**
+     * Returns a compiled evaluator for the given condition, either from the cache or by compiling and caching a new
+     * evaluator.
+     *
+     * @param condition The conditional statement to be evaluated.
+     * @return          A compiled evaluator for the given condition.
+     */
+    public static ConditionEvaluator of(String condition) {
+        if (condition == null) return new ConditionEvaluator(null);
+
+        ConditionEvaluator evaluator = CACHE.get(condition);
+        if (evaluator == null) {
+            evaluator = new ConditionEvaluator(condition);
+            CACHE.put(condition, evaluator);
+        }
+
+        return evaluator;
+    }
+
+    /**
+     * Returns true if this condition uses the legacy null, true or false key words, and therefore requires them to
+     * be resolved against the scope.
+     *
+     * @return True if this condition requires backwards-compatibility mode.
+     */
+    public boolean isBackwardsCompatibilityRequired() {
+        return literalKeys != null;
+    }
+
+    /**
+     * Returns the conditional statement evaluated by this object.
+     *
+     * @return The conditional statement evaluated by this object.
+     */
+    public String getCondition() {
+        return condition;
     }
 
     /**
@@ -69,29 +152,8 @@ public class ConditionEvaluator {
         boolean result = true;
 
         if (condition != null) {
-            Matcher nullMatcher = NULL_PATTERN.matcher(condition);
-            Matcher trueMatcher = TRUE_PATTERN.matcher(condition);
-            Matcher falseMatcher = FALSE_PATTERN.matcher(condition);
-
-            boolean nullFound = nullMatcher.find();
-            boolean trueFound = trueMatcher.find();
-            boolean falseFound = falseMatcher.find();
-
-            boolean backwardsCompatibilityRequired = nullFound || trueFound || falseFound;
-
-            if (scope == null) {
-                scope = IDataFactory.create();
-            } else {
-                if (backwardsCompatibilityRequired) scope = IDataUtil.clone(scope);
-            }
-
-            if (backwardsCompatibilityRequired) {
-                IDataCursor cursor = scope.getCursor();
-                if (nullFound) IDataUtil.put(cursor, "null", null);
-                if (trueFound) IDataUtil.put(cursor, "true", "true");
-                if (falseFound) IDataUtil.put(cursor, "false", "false");
-                cursor.destroy();
-            }
+            if (scope == null) scope = IDataFactory.create();
+            if (literalKeys != null) scope = new ConditionScope(scope, literalKeys, literalValues);
 
             try {
                 result = ExpressionEvaluator.evalToBoolean(condition, scope);
@@ -104,16 +166,14 @@ public class ConditionEvaluator {
     }
 
     /**
-     * Evaluates the conditional statement against the given scope. This is a convenience method which constructs a new
-     * Condition object and evaluates it.
+     * Evaluates the conditional statement against the given scope. This is a convenience method which uses a cached
+     * compiled evaluator for the condition.
      *
      * @param condition The conditional statement to be evaluated.
      * @param scope     The scope against which the conditional statement is evaluated.
      * @return True if the conditional statement evaluates to true, otherwise false.
      */
     public static boolean evaluate(String condition, IData scope) {
-        ConditionEvaluator evaluator = new ConditionEvaluator(condition);
-        return evaluator.evaluate(scope);
+        return of(condition).evaluate(scope);
     }
 }
-
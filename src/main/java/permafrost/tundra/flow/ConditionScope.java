@@ -0,0 +1,364 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.flow;
+
+import com.wm.data.DataException;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataHashCursor;
+import com.wm.data.IDataIndexCursor;
+import com.wm.data.IDataSharedCursor;
+import com.wm.data.IDataTreeCursor;
+import permafrost.tundra.data.IDataSharedCursorAdapter;
+
+/**
+ * A read-only view of a condition evaluation scope which overlays a small set of virtual key value pairs, such as the
+ * legacy null, true and false literals, on top of the underlying scope without copying it. The virtual keys hide any
+ * top-level elements in the underlying scope with the same keys, and appear after all other elements when traversed.
+ */
+class ConditionScope implements IData {
+    /**
+     * The underlying scope.
+     */
+    protected IData scope;
+    /**
+     * The keys of the virtual elements, which must be distinct.
+     */
+    protected String[] keys;
+    /**
+     * The values of the virtual elements.
+     */
+    protected Object[] values;
+
+    /**
+     * Constructs a new scope overlaying the given virtual elements on the given underlying scope.
+     *
+     * @param scope  The underlying scope.
+     * @param keys   The distinct keys of the virtual elements.
+     * @param values The values of the virtual elements.
+     */
+    public ConditionScope(IData scope, String[] keys, Object[] values) {
+        if (scope == null) throw new NullPointerException("scope must not be null");
+        if (keys == null) throw new NullPointerException("keys must not be null");
+        if (values == null) throw new NullPointerException("values must not be null");
+        if (keys.length != values.length) throw new IllegalArgumentException("keys and values must be the same length");
+
+        this.scope = scope;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Returns the index of the virtual element with the given key, or -1 if there is no such element.
+     *
+     * @param key The key to look up.
+     * @return    The index of the virtual element with the given key, or -1 if there is no such element.
+     */
+    protected int indexOf(String key) {
+        if (key != null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns an IDataCursor for this IData object. The returned cursor is read only: all modifications are ignored.
+     *
+     * @return An IDataCursor for this object.
+     */
+    public IDataCursor getCursor() {
+        return new ConditionScopeCursor(this, scope.getCursor());
+    }
+
+    /**
+     * Returns an IDataSharedCursor for this IData object. The returned cursor is read only: all modifications are
+     * ignored.
+     *
+     * @return An IDataSharedCursor for this object.
+     */
+    public IDataSharedCursor getSharedCursor() {
+        return new IDataSharedCursorAdapter(getCursor());
+    }
+
+    /**
+     * Returns an IDataIndexCursor for traversing this IData.
+     *
+     * @return An IDataIndexCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataIndexCursor getIndexCursor() {
+        throw new UnsupportedOperationException("getIndexCursor not implemented");
+    }
+
+    /**
+     * Returns an IDataTreeCursor for traversing this IData.
+     *
+     * @return An IDataTreeCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataTreeCursor getTreeCursor() {
+        throw new UnsupportedOperationException("getTreeCursor not implemented");
+    }
+
+    /**
+     * Returns an IDataHashCursor for traversing this IData.
+     *
+     * @return An IDataHashCursor for traversing this IData.
+     * @throws UnsupportedOperationException As this method is not implemented.
+     * @deprecated
+     */
+    public IDataHashCursor getHashCursor() {
+        throw new UnsupportedOperationException("getHashCursor not implemented");
+    }
+
+    /**
+     * Read-only cursor which traverses the visible elements of the underlying scope followed by the virtual elements.
+     */
+    private static class ConditionScopeCursor implements IDataCursor {
+        private static final int HOME = 0, UNDERLYING = 1, VIRTUAL = 2, END = 3;
+
+        protected ConditionScope document;
+        protected IDataCursor cursor;
+        protected int state = HOME;
+        protected int index = -1;
+
+        /**
+         * Constructs a new cursor for the given document.
+         *
+         * @param document The document to be traversed.
+         * @param cursor   A cursor over the document's underlying scope.
+         */
+        public ConditionScopeCursor(ConditionScope document, IDataCursor cursor) {
+            this.document = document;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Returns true if the underlying cursor is on an element hidden by a virtual element.
+         *
+         * @return True if the underlying cursor is on an element hidden by a virtual element.
+         */
+        private boolean isHidden() {
+            return document.indexOf(cursor.getKey()) >= 0;
+        }
+
+        private boolean positionVirtual(int index) {
+            this.state = VIRTUAL;
+            this.index = index;
+            return true;
+        }
+
+        private boolean positionEnd() {
+            state = END;
+            index = -1;
+            return false;
+        }
+
+        private boolean lastVisible() {
+            if (cursor.last()) {
+                do {
+                    if (!isHidden()) {
+                        state = UNDERLYING;
+                        return true;
+                    }
+                } while (cursor.previous());
+            }
+            state = HOME;
+            return false;
+        }
+
+        public void setErrorMode(int mode) {
+            cursor.setErrorMode(mode);
+        }
+
+        public DataException getLastError() {
+            return cursor.getLastError();
+        }
+
+        public boolean hasMoreErrors() {
+            return cursor.hasMoreErrors();
+        }
+
+        public void home() {
+            cursor.home();
+            state = HOME;
+            index = -1;
+        }
+
+        public String getKey() {
+            if (state == VIRTUAL) return document.keys[index];
+            if (state == UNDERLYING) return cursor.getKey();
+            return null;
+        }
+
+        public void setKey(String key) {
+            // do nothing as cursor is read only
+        }
+
+        public Object getValue() {
+            if (state == VIRTUAL) return document.values[index];
+            if (state == UNDERLYING) return cursor.getValue();
+            return null;
+        }
+
+        public void setValue(Object value) {
+            // do nothing as cursor is read only
+        }
+
+        public boolean delete() {
+            // do nothing as cursor is read only
+            return false;
+        }
+
+        public void insertBefore(String key, Object value) {
+            // do nothing as cursor is read only
+        }
+
+        public void insertAfter(String key, Object value) {
+            // do nothing as cursor is read only
+        }
+
+        public IData insertDataBefore(String key) {
+            // do nothing as cursor is read only
+            return null;
+        }
+
+        public IData insertDataAfter(String key) {
+            // do nothing as cursor is read only
+            return null;
+        }
+
+        public boolean next() {
+            if (state == HOME || state == UNDERLYING) {
+                while (cursor.next()) {
+                    if (!isHidden()) {
+                        state = UNDERLYING;
+                        return true;
+                    }
+                }
+                return document.keys.length > 0 ? positionVirtual(0) : positionEnd();
+            } else if (state == VIRTUAL && index + 1 < document.keys.length) {
+                return positionVirtual(index + 1);
+            }
+            return positionEnd();
+        }
+
+        public boolean next(String key) {
+            int i = document.indexOf(key);
+            if (i >= 0) {
+                if (state == END || (state == VIRTUAL && index >= i)) return false;
+                return positionVirtual(i);
+            } else if ((state == HOME || state == UNDERLYING) && cursor.next(key)) {
+                state = UNDERLYING;
+                return true;
+            }
+            return false;
+        }
+
+        public boolean previous() {
+            if (state == VIRTUAL && index > 0) {
+                return positionVirtual(index - 1);
+            } else if (state == END) {
+                return document.keys.length > 0 ? positionVirtual(document.keys.length - 1) : lastVisible();
+            } else if (state == VIRTUAL) {
+                return lastVisible();
+            } else if (state == UNDERLYING) {
+                while (cursor.previous()) {
+                    if (!isHidden()) return true;
+                }
+                state = HOME;
+            }
+            return false;
+        }
+
+        public boolean previous(String key) {
+            int i = document.indexOf(key);
+            if (i >= 0) {
+                if (state == END || (state == VIRTUAL && index > i)) return positionVirtual(i);
+                return false;
+            } else if (state == VIRTUAL || state == END) {
+                if (cursor.last(key)) {
+                    state = UNDERLYING;
+                    return true;
+                }
+            } else if (state == UNDERLYING) {
+                return cursor.previous(key);
+            }
+            return false;
+        }
+
+        public boolean first() {
+            home();
+            return next();
+        }
+
+        public boolean first(String key) {
+            int i = document.indexOf(key);
+            if (i >= 0) return positionVirtual(i);
+            if (cursor.first(key)) {
+                state = UNDERLYING;
+                return true;
+            }
+            return false;
+        }
+
+        public boolean last() {
+            if (document.keys.length > 0) return positionVirtual(document.keys.length - 1);
+            return lastVisible();
+        }
+
+        public boolean last(String key) {
+            int i = document.indexOf(key);
+            if (i >= 0) return positionVirtual(i);
+            if (cursor.last(key)) {
+                state = UNDERLYING;
+                return true;
+            }
+            return false;
+        }
+
+        public boolean hasMoreData() {
+            if (state == VIRTUAL) return index + 1 < document.keys.length;
+            if (state == END) return false;
+            return document.keys.length > 0 || cursor.hasMoreData();
+        }
+
+        public void destroy() {
+            cursor.destroy();
+            document = null;
+        }
+
+        public IDataCursor getCursorClone() {
+            ConditionScopeCursor clone = new ConditionScopeCursor(document, cursor.getCursorClone());
+            clone.state = state;
+            clone.index = index;
+            return clone;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.flow;
+
+import com.wm.data.IData;
+import permafrost.tundra.data.IDataPath;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A set of webMethods Integration Server flow language conditional statements, each identified by a rule ID, which
+ * are compiled together so that every matching rule can be found with a single pass over the referenced keys.
+ *
+ * Conditions which are a conjunction of simple comparisons between a "%key%" variable and a literal, such as
+ * <code>%a% == "x" and %b% &gt;= 10</code>, are decomposed into predicates which are indexed by key: equality
+ * predicates in hash and sorted maps keyed by literal, and range predicates in sorted maps keyed by threshold. When
+ * matching, each indexed key is read from the scope exactly once, and only the predicates it satisfies or violates are
+ * visited, so routing cost grows with the number of distinct keys rather than the number of rules. Any other
+ * condition, and any predicate whose outcome cannot be decided from the index alone (for example when the value is
+ * not a string or number), falls back to evaluation with a {@link ConditionEvaluator}, so results always agree with
+ * evaluating each condition individually.
+ *
+ * Condition sets are immutable and thread-safe.
+ */
+public class ConditionSet {
+    /**
+     * Comparison operators supported by indexed predicates.
+     */
+    private static final int EQ = 0, NE = 1, LT = 2, LE = 3, GT = 4, GE = 5;
+    /**
+     * The rule IDs, in the order they were specified.
+     */
+    protected String[] ids;
+    /**
+     * The conditions of each rule.
+     */
+    protected String[] conditions;
+    /**
+     * The number of predicates which must be satisfied for each indexed rule to match, or -1 for rules which are
+     * always evaluated with a ConditionEvaluator.
+     */
+    protected int[] required;
+    /**
+     * The rules which are always evaluated with a ConditionEvaluator.
+     */
+    protected int[] fallbackRules;
+    /**
+     * The indexed rules which have no predicates that must be satisfied.
+     */
+    protected int[] unconditionalRules;
+    /**
+     * The predicate indexes for each distinct key referenced by an indexed rule.
+     */
+    protected KeyIndex[] keys;
+
+    /**
+     * Constructs a new condition set.
+     *
+     * @param ids        The rule IDs.
+     * @param conditions The condition for each rule; a null condition always matches.
+     */
+    public ConditionSet(String[] ids, String[] conditions) {
+        if (ids == null) throw new NullPointerException("ids must not be null");
+        if (conditions == null) throw new NullPointerException("conditions must not be null");
+        if (ids.length != conditions.length) throw new IllegalArgumentException("ids and conditions must be the same length");
+
+        this.ids = Arrays.copyOf(ids, ids.length);
+        this.conditions = Arrays.copyOf(conditions, conditions.length);
+        this.required = new int[ids.length];
+
+        Map<String, KeyIndex> indexes = new LinkedHashMap<String, KeyIndex>();
+        List<Integer> fallbacks = new ArrayList<Integer>();
+        List<Integer> unconditionals = new ArrayList<Integer>();
+
+        for (int rule = 0; rule < conditions.length; rule++) {
+            List<Predicate> predicates = parse(conditions[rule]);
+            if (predicates == null) {
+                required[rule] = -1;
+                fallbacks.add(rule);
+            } else {
+                for (Predicate predicate : predicates) {
+                    KeyIndex index = indexes.get(predicate.key);
+                    if (index == null) {
+                        index = new KeyIndex(predicate.key);
+                        indexes.put(predicate.key, index);
+                    }
+                    index.add(rule, predicate);
+                    if (predicate.operator != NE) required[rule]++;
+                }
+                if (required[rule] == 0) unconditionals.add(rule);
+            }
+        }
+
+        this.fallbackRules = toArray(fallbacks);
+        this.unconditionalRules = toArray(unconditionals);
+        this.keys = indexes.values().toArray(new KeyIndex[indexes.size()]);
+    }
+
+    /**
+     * Constructs a new condition set.
+     *
+     * @param rules The conditions keyed by rule ID, in the order they should be reported when matched.
+     */
+    public ConditionSet(Map<String, String> rules) {
+        this(rules == null ? null : rules.keySet().toArray(new String[rules.size()]), rules == null ? null : rules.values().toArray(new String[rules.size()]));
+    }
+
+    /**
+     * Returns the number of rules in this set.
+     *
+     * @return The number of rules in this set.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the IDs of all the rules whose conditions evaluate to true against the given scope.
+     *
+     * @param scope The scope against which the conditions are evaluated.
+     * @return      The IDs of the matching rules, in the order the rules were specified.
+     */
+    public String[] match(IData scope) {
+        int[] counts = new int[ids.length];
+        byte[] states = new byte[ids.length];
+        List<Integer> candidates = new ArrayList<Integer>();
+        List<Integer> undetermined = new ArrayList<Integer>();
+
+        for (int rule : unconditionalRules) candidates.add(rule);
+
+        if (keys.length > 0) {
+            Matcher matcher = new Matcher(counts, states, candidates, undetermined);
+            for (KeyIndex index : keys) {
+                index.match(scope == null ? null : index.path.get(scope), matcher);
+            }
+        }
+
+        List<Integer> matches = new ArrayList<Integer>(candidates.size() + undetermined.size() + fallbackRules.length);
+        for (int rule : candidates) {
+            if (states[rule] == Matcher.NONE) matches.add(rule);
+        }
+        for (int rule : undetermined) {
+            if (states[rule] == Matcher.UNDETERMINED && ConditionEvaluator.of(conditions[rule]).evaluate(scope)) matches.add(rule);
+        }
+        for (int rule : fallbackRules) {
+            if (ConditionEvaluator.of(conditions[rule]).evaluate(scope)) matches.add(rule);
+        }
+
+        int[] sorted = toArray(matches);
+        Arrays.sort(sorted);
+
+        String[] output = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            output[i] = ids[sorted[i]];
+        }
+
+        return output;
+    }
+
+    /**
+     * Converts the given list of integers to an array.
+     *
+     * @param list The list to be converted.
+     * @return     An array containing the integers in the list.
+     */
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Parses the given condition into a list of predicates which must all be true for the condition to be true.
+     *
+     * @param condition The condition to be parsed.
+     * @return          The predicates for the given condition, or null if the condition cannot be indexed.
+     */
+    protected static List<Predicate> parse(String condition) {
+        List<Predicate> predicates = new ArrayList<Predicate>();
+        if (condition == null) return predicates;
+
+        List<Token> tokens = tokenize(condition);
+        if (tokens == null || tokens.size() % 4 != 3) return null;
+
+        for (int i = 0; i < tokens.size(); i += 4) {
+            if (i > 0 && tokens.get(i - 1).type != Token.AND) return null;
+
+            Token left = tokens.get(i), operator = tokens.get(i + 1), right = tokens.get(i + 2);
+            if (operator.type != Token.OPERATOR) return null;
+
+            int op = operator.operator;
+            Token variable, literal;
+            if (left.type == Token.VARIABLE && (right.type == Token.STRING || right.type == Token.NUMBER)) {
+                variable = left;
+                literal = right;
+            } else if (right.type == Token.VARIABLE && (left.type == Token.STRING || left.type == Token.NUMBER)) {
+                variable = right;
+                literal = left;
+                if (op == LT) op = GT;
+                else if (op == LE) op = GE;
+                else if (op == GT) op = LT;
+                else if (op == GE) op = LE;
+            } else {
+                return null;
+            }
+
+            // strings are only indexed for equality, and only when they cannot be mistaken for numbers
+            if (literal.type == Token.STRING && (op > NE || toNumber(literal.text) != null)) return null;
+
+            predicates.add(new Predicate(variable.text, op, literal.text, literal.type == Token.NUMBER ? toNumber(literal.text) : null));
+        }
+
+        return predicates;
+    }
+
+    /**
+     * Splits the given condition into tokens.
+     *
+     * @param condition The condition to be tokenized.
+     * @return          The tokens in the given condition, or null if it contains any unsupported syntax.
+     */
+    private static List<Token> tokenize(String condition) {
+        List<Token> tokens = new ArrayList<Token>();
+        int length = condition.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = condition.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '%' || c == '"') {
+                int end = condition.indexOf(c, i + 1);
+                if (end < 0 || (c == '%' && end == i + 1)) return null;
+                String text = condition.substring(i + 1, end);
+                if (c == '"' && text.indexOf('\\') >= 0) return null;
+                tokens.add(new Token(c == '%' ? Token.VARIABLE : Token.STRING, text, -1));
+                i = end + 1;
+            } else if (isOperatorCharacter(c)) {
+                int start = i;
+                while (i < length && isOperatorCharacter(condition.charAt(i))) i++;
+                String text = condition.substring(start, i);
+                int operator;
+                if (text.equals("==") || text.equals("=")) operator = EQ;
+                else if (text.equals("!=") || text.equals("<>")) operator = NE;
+                else if (text.equals("<")) operator = LT;
+                else if (text.equals("<=")) operator = LE;
+                else if (text.equals(">")) operator = GT;
+                else if (text.equals(">=")) operator = GE;
+                else return null;
+                tokens.add(new Token(Token.OPERATOR, text, operator));
+            } else if (c == '(' || c == ')') {
+                return null;
+            } else {
+                int start = i;
+                while (i < length && !isDelimiter(condition.charAt(i))) i++;
+                String text = condition.substring(start, i);
+                if (text.equals("and") || text.equals("&&")) {
+                    tokens.add(new Token(Token.AND, text, -1));
+                } else if (toNumber(text) != null) {
+                    tokens.add(new Token(Token.NUMBER, text, -1));
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Returns true if the given character is part of a comparison operator.
+     *
+     * @param c The character to check.
+     * @return  True if the given character is part of a comparison operator.
+     */
+    private static boolean isOperatorCharacter(char c) {
+        return c == '=' || c == '!' || c == '<' || c == '>';
+    }
+
+    /**
+     * Returns true if the given character ends a bare word.
+     *
+     * @param c The character to check.
+     * @return  True if the given character ends a bare word.
+     */
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || isOperatorCharacter(c) || c == '%' || c == '"' || c == '(' || c == ')';
+    }
+
+    /**
+     * Converts the given value to a number.
+     *
+     * @param value The value to be converted.
+     * @return      The value as a BigDecimal, or null if it is not a string or number with a decimal representation.
+     */
+    private static BigDecimal toNumber(Object value) {
+        if (value instanceof BigDecimal) return (BigDecimal)value;
+        if (value instanceof String || value instanceof Number) {
+            try {
+                return new BigDecimal(value.toString());
+            } catch (NumberFormatException ex) {
+                // fall through
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A single comparison between a key and a literal.
+     */
+    protected static class Predicate {
+        protected String key;
+        protected int operator;
+        protected String literal;
+        protected BigDecimal number;
+        protected int rule = -1;
+
+        /**
+         * Constructs a new predicate.
+         *
+         * @param key      The key whose value is compared.
+         * @param operator The comparison operator.
+         * @param literal  The literal the value is compared with, as written.
+         * @param number   The literal as a number, or null if the literal is a string.
+         */
+        public Predicate(String key, int operator, String literal, BigDecimal number) {
+            this.key = key;
+            this.operator = operator;
+            this.literal = literal;
+            this.number = number;
+        }
+    }
+
+    /**
+     * A lexical token in a condition.
+     */
+    private static class Token {
+        static final int VARIABLE = 0, STRING = 1, NUMBER = 2, OPERATOR = 3, AND = 4;
+
+        int type;
+        String text;
+        int operator;
+
+        Token(int type, String text, int operator) {
+            this.type = type;
+            this.text = text;
+            this.operator = operator;
+        }
+    }
+
+    /**
+     * The per-match state, recording how many predicates each rule has satisfied and whether it has failed or cannot
+     * be decided from the index.
+     */
+    private static class Matcher {
+        static final byte NONE = 0, FAILED = 1, UNDETERMINED = 2;
+
+        int[] counts;
+        byte[] states;
+        List<Integer> candidates, undetermined;
+
+        Matcher(int[] counts, byte[] states, List<Integer> candidates, List<Integer> undetermined) {
+            this.counts = counts;
+            this.states = states;
+            this.candidates = candidates;
+            this.undetermined = undetermined;
+        }
+
+        void satisfy(int rule, int required) {
+            if (++counts[rule] == required) candidates.add(rule);
+        }
+
+        void fail(int rule) {
+            states[rule] = FAILED;
+        }
+
+        void undetermine(int rule) {
+            if (states[rule] == NONE) {
+                states[rule] = UNDETERMINED;
+                undetermined.add(rule);
+            }
+        }
+    }
+
+    /**
+     * The indexed predicates for a single key.
+     */
+    protected class KeyIndex {
+        protected IDataPath path;
+        protected Map<String, List<Integer>> stringEquals = new HashMap<String, List<Integer>>();
+        protected Map<String, List<Integer>> stringNotEquals = new HashMap<String, List<Integer>>();
+        protected List<Integer> stringRules = new ArrayList<Integer>();
+        protected NavigableMap<BigDecimal, List<Predicate>> numberEquals = new TreeMap<BigDecimal, List<Predicate>>();
+        protected NavigableMap<BigDecimal, List<Predicate>> numberNotEquals = new TreeMap<BigDecimal, List<Predicate>>();
+        protected List<NavigableMap<BigDecimal, List<Integer>>> ranges = new ArrayList<NavigableMap<BigDecimal, List<Integer>>>(4);
+        protected List<Integer> numberRules = new ArrayList<Integer>();
+
+        /**
+         * Constructs a new index for the given key.
+         *
+         * @param key The key whose predicates are indexed.
+         */
+        public KeyIndex(String key) {
+            this.path = IDataPath.of(key);
+            for (int i = LT; i <= GE; i++) {
+                ranges.add(new TreeMap<BigDecimal, List<Integer>>());
+            }
+        }
+
+        /**
+         * Adds the given predicate for the given rule to this index.
+         *
+         * @param rule      The rule the predicate belongs to.
+         * @param predicate The predicate to be indexed.
+         */
+        public void add(int rule, Predicate predicate) {
+            predicate.rule = rule;
+            if (predicate.number == null) {
+                add(predicate.operator == EQ ? stringEquals : stringNotEquals, predicate.literal, rule);
+                stringRules.add(rule);
+            } else {
+                if (predicate.operator == EQ || predicate.operator == NE) {
+                    NavigableMap<BigDecimal, List<Predicate>> map = predicate.operator == EQ ? numberEquals : numberNotEquals;
+                    List<Predicate> list = map.get(predicate.number);
+                    if (list == null) {
+                        list = new ArrayList<Predicate>();
+                        map.put(predicate.number, list);
+                    }
+                    list.add(predicate);
+                } else {
+                    add(ranges.get(predicate.operator - LT), predicate.number, rule);
+                }
+                numberRules.add(rule);
+            }
+        }
+
+        private <K> void add(Map<K, List<Integer>> map, K key, int rule) {
+            List<Integer> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<Integer>();
+                map.put(key, list);
+            }
+            list.add(rule);
+        }
+
+        /**
+         * Applies the predicates in this index to the given value of the key.
+         *
+         * @param value   The value of the key in the scope being matched.
+         * @param matcher The per-match state to be updated.
+         */
+        public void match(Object value, Matcher matcher) {
+            if (value == null || value instanceof String) {
+                List<Integer> hits = stringEquals.get(value);
+                if (hits != null) {
+                    for (int rule : hits) matcher.satisfy(rule, required[rule]);
+                }
+                hits = stringNotEquals.get(value);
+                if (hits != null) {
+                    for (int rule : hits) matcher.fail(rule);
+                }
+            } else {
+                for (int rule : stringRules) matcher.undetermine(rule);
+            }
+
+            if (numberRules.isEmpty()) return;
+
+            BigDecimal number = toNumber(value);
+            if (number == null) {
+                for (int rule : numberRules) matcher.undetermine(rule);
+                return;
+            }
+
+            // numerically equal values written differently may or may not compare equal, so leave them undecided
+            String text = value.toString();
+            List<Predicate> predicates = numberEquals.get(number);
+            if (predicates != null) {
+                for (Predicate predicate : predicates) {
+                    if (predicate.literal.equals(text)) matcher.satisfy(predicate.rule, required[predicate.rule]);
+                    else matcher.undetermine(predicate.rule);
+                }
+            }
+            predicates = numberNotEquals.get(number);
+            if (predicates != null) {
+                for (Predicate predicate : predicates) {
+                    if (predicate.literal.equals(text)) matcher.fail(predicate.rule);
+                    else matcher.undetermine(predicate.rule);
+                }
+            }
+
+            satisfy(ranges.get(LT - LT).tailMap(number, false), matcher);
+            satisfy(ranges.get(LE - LT).tailMap(number, true), matcher);
+            satisfy(ranges.get(GT - LT).headMap(number, false), matcher);
+            satisfy(ranges.get(GE - LT).headMap(number, true), matcher);
+        }
+
+        private void satisfy(Map<BigDecimal, List<Integer>> hits, Matcher matcher) {
+            for (List<Integer> list : hits.values()) {
+                for (int rule : list) matcher.satisfy(rule, required[rule]);
+            }
+        }
+    }
+}
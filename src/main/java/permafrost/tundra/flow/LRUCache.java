@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.flow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map with a bounded size which evicts its least recently used entry when full. Callers requiring thread-safety
+ * should wrap instances with Collections.synchronizedMap, as access order is updated on every get.
+ *
+ * @param <K> The type of keys held by the cache.
+ * @param <V> The type of values held by the cache.
+ */
+class LRUCache<K, V> extends LinkedHashMap<K, V> {
+    protected int capacity;
+
+    /**
+     * Constructs a new cache with the given capacity.
+     *
+     * @param capacity The maximum number of entries held by the cache.
+     */
+    public LRUCache(int capacity) {
+        super(16, 0.75f, true);
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be greater than zero");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns true if the eldest entry should be evicted because the cache is over capacity.
+     *
+     * @param eldest The least recently used entry.
+     * @return       True if the cache is over capacity.
+     */
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+    }
+}
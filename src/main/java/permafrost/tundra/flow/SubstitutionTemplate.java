@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.flow;
+
+import com.wm.data.IData;
+import permafrost.tundra.data.IDataPath;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A variable substitution template, compiled once from a string containing "%key%" variable substitution statements
+ * into its literal and variable segments, with each variable's key compiled into an IDataPath. Rendering a compiled
+ * template against a scope therefore requires no regular expression matching or key parsing.
+ *
+ * Templates are immutable and thread-safe, and compiled templates are cached in a bounded least recently used cache
+ * keyed by template string.
+ */
+public class SubstitutionTemplate {
+    /**
+     * The maximum number of compiled templates that are cached.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+    /**
+     * The cache of compiled templates, in least recently used order.
+     */
+    private static final Map<String, SubstitutionTemplate> CACHE = Collections.synchronizedMap(new LRUCache<String, SubstitutionTemplate>(DEFAULT_CACHE_CAPACITY));
+    /**
+     * The delimiter used to mark the start and end of a variable substitution statement.
+     */
+    private static final char DELIMITER = '%';
+
+    /**
+     * The template string this template was compiled from.
+     */
+    protected String template;
+    /**
+     * The literal segments of the template: literals[i] precedes variable i, and the last literal follows the last
+     * variable.
+     */
+    protected String[] literals;
+    /**
+     * The original "%key%" statement for each variable, which is retained in the output if the variable cannot be
+     * resolved and no default value is specified.
+     */
+    protected String[] statements;
+    /**
+     * The compiled key path for each variable.
+     */
+    protected IDataPath[] paths;
+
+    /**
+     * Compiles the given template string.
+     *
+     * @param template The template string to be compiled.
+     */
+    protected SubstitutionTemplate(String template) {
+        if (template == null) throw new NullPointerException("template must not be null");
+
+        List<String> literals = new ArrayList<String>();
+        List<String> statements = new ArrayList<String>();
+
+        // equivalent to repeatedly matching the regular expression %([^%]+)%
+        int start = 0, open = template.indexOf(DELIMITER);
+        while (open >= 0) {
+            int close = template.indexOf(DELIMITER, open + 1);
+            if (close < 0) break;
+
+            if (close == open + 1) {
+                // an empty statement: the closing delimiter may itself open the next statement
+                open = close;
+            } else {
+                literals.add(template.substring(start, open));
+                statements.add(template.substring(open, close + 1));
+                start = close + 1;
+                open = template.indexOf(DELIMITER, start);
+            }
+        }
+        literals.add(template.substring(start));
+
+        this.template = template;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.statements = statements.toArray(new String[statements.size()]);
+        this.paths = new IDataPath[this.statements.length];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = IDataPath.of(this.statements[i].substring(1, this.statements[i].length() - 1));
+        }
+    }
+
+    /**
+     * Returns a compiled template for the given template string, from the cache if it was previously compiled.
+     *
+     * @param template The template string.
+     * @return         The compiled template, or null if the given string is null.
+     */
+    public static SubstitutionTemplate of(String template) {
+        if (template == null) return null;
+
+        SubstitutionTemplate compiled = CACHE.get(template);
+        if (compiled == null) {
+            compiled = new SubstitutionTemplate(template);
+            CACHE.put(template, compiled);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Returns the template string this template was compiled from.
+     *
+     * @return The template string this template was compiled from.
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Returns true if this template contains any variable substitution statements.
+     *
+     * @return True if this template contains any variable substitution statements.
+     */
+    public boolean hasVariables() {
+        return paths.length > 0;
+    }
+
+    /**
+     * Renders this template by replacing each variable with the associated value from the given scope.
+     *
+     * @param scope An IData document containing the variables being substituted.
+     * @return      The rendered string.
+     */
+    public String substitute(IData scope) {
+        return substitute(null, scope);
+    }
+
+    /**
+     * Renders this template by replacing each variable with the associated value from the given scope; if the key
+     * has no value, the given defaultValue (if not null) is used instead. Variables whose value is not a string, or
+     * whose value is null when no default value is specified, are left unsubstituted.
+     *
+     * @param defaultValue A default value to be substituted when the variable being substituted has a value of null.
+     * @param scope        An IData document containing the variables being substituted.
+     * @return             The rendered string.
+     */
+    public String substitute(String defaultValue, IData scope) {
+        if (scope == null || paths.length == 0) return template;
+        return substitute(defaultValue, scope, new StringBuilder(template.length() + 16 * paths.length)).toString();
+    }
+
+    /**
+     * Renders this template into the given StringBuilder, which allows a single builder to be reused when rendering
+     * many templates.
+     *
+     * @param defaultValue A default value to be substituted when the variable being substituted has a value of null.
+     * @param scope        An IData document containing the variables being substituted.
+     * @param output       The StringBuilder the rendered string is appended to.
+     * @return             The given StringBuilder.
+     */
+    public StringBuilder substitute(String defaultValue, IData scope, StringBuilder output) {
+        for (int i = 0; i < paths.length; i++) {
+            output.append(literals[i]);
+
+            Object value = scope == null ? null : paths[i].get(scope);
+            if (value instanceof String) {
+                output.append((String)value);
+            } else if (value == null && defaultValue != null) {
+                output.append(defaultValue);
+            } else {
+                output.append(statements[i]);
+            }
+        }
+
+        return output.append(literals[paths.length]);
+    }
+
+    /**
+     * Returns the template string this template was compiled from.
+     *
+     * @return The template string this template was compiled from.
+     */
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -1,7 +1,6 @@
 package permafrost.tundra.flow;
 
 import com.wm.data.IData;
-import permafrost.tundra.data.IDataHelper;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -99,27 +98,9 @@ public class VariableSubstitutor {
      * @return The string after variable substitution has been performed.
      */
     public static String substitute(String substitutionString, String defaultValue, IData scope) {
-        if (substitutionString == null || scope == null) return substitutionString;
-
-        Matcher matcher = matcher(substitutionString);
-        StringBuffer output = new StringBuffer();
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            Object value = IDataHelper.get(scope, key);
-
-            if (value != null && value instanceof String) {
-                matcher.appendReplacement(output, Matcher.quoteReplacement((String)value));
-            } else if (value == null && defaultValue != null) {
-                matcher.appendReplacement(output, Matcher.quoteReplacement(defaultValue));
-            } else {
-                matcher.appendReplacement(output, Matcher.quoteReplacement(matcher.group(0)));
-            }
-        }
-
-        matcher.appendTail(output);
-
-        return output.toString();
+        // strings without any variables are returned without consulting the template cache
+        if (substitutionString == null || scope == null || substitutionString.indexOf('%') < 0) return substitutionString;
+        return SubstitutionTemplate.of(substitutionString).substitute(defaultValue, scope);
     }
 
     /**
@@ -136,9 +117,19 @@ public class VariableSubstitutor {
         if (array == null) return null;
 
         String[] output = new String[array.length];
+        StringBuilder builder = null;
 
         for (int i = 0; i < array.length; i++) {
-            output[i] = substitute(array[i], defaultValue, scope);
+            String item = array[i];
+            if (item != null && scope != null && item.indexOf('%') >= 0) {
+                SubstitutionTemplate template = SubstitutionTemplate.of(item);
+                if (template.hasVariables()) {
+                    // reuse a single builder for rendering all the items in the array
+                    if (builder == null) builder = new StringBuilder(); else builder.setLength(0);
+                    item = template.substitute(defaultValue, scope, builder).toString();
+                }
+            }
+            output[i] = item;
         }
 
         return output;
@@ -0,0 +1,303 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.io;
+
+import permafrost.tundra.lang.ThreadHelper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An input stream whose content is produced on demand by a StreamProducer running on another thread, which writes
+ * into a bounded ring buffer that this stream reads from. The producer is not started until the first read, blocks
+ * whenever the buffer is full, and is stopped if this stream is closed early, so peak memory is limited to the buffer
+ * size regardless of how much content is produced. Any exception thrown by the producer is rethrown to the reader
+ * once the content produced before the exception has been read.
+ *
+ * The stream must always be closed, as a producer blocked on a full buffer otherwise waits forever. If the executor
+ * rejects the producer, for example because all the threads of a bounded executor are busy, the content is instead
+ * produced in full on the reading thread when first read.
+ */
+public class ProducerInputStream extends InputStream {
+    /**
+     * The producer of this stream's content.
+     */
+    protected StreamProducer producer;
+    /**
+     * The executor the producer is run on.
+     */
+    protected ExecutorService executor;
+    /**
+     * The ring buffer the producer writes to and this stream reads from.
+     */
+    protected byte[] buffer;
+    /**
+     * The position in the buffer of the next byte to be read.
+     */
+    protected int position;
+    /**
+     * The number of unread bytes in the buffer.
+     */
+    protected int count;
+    /**
+     * Whether the producer has been started.
+     */
+    protected boolean started;
+    /**
+     * Whether the producer has finished.
+     */
+    protected boolean finished;
+    /**
+     * Whether this stream has been closed.
+     */
+    protected boolean closed;
+    /**
+     * The exception thrown by the producer, if any.
+     */
+    protected Throwable error;
+    /**
+     * The lock guarding the buffer and state, used to signal between the producer and reader.
+     */
+    private final Object lock = new Object();
+    /**
+     * The buffer used by read() to read a single byte.
+     */
+    private final byte[] single = new byte[1];
+
+    /**
+     * Constructs a new stream using the default buffer size and ThreadHelper's shared blocking executor.
+     *
+     * @param producer The producer of this stream's content.
+     */
+    public ProducerInputStream(StreamProducer producer) {
+        this(producer, StreamHelper.DEFAULT_BUFFER_SIZE, ThreadHelper.getBlockingExecutor());
+    }
+
+    /**
+     * Constructs a new stream.
+     *
+     * @param producer   The producer of this stream's content.
+     * @param bufferSize The size of the ring buffer.
+     * @param executor   The executor to run the producer on, which must not queue the producer behind tasks that
+     *                   may block on this stream.
+     */
+    public ProducerInputStream(StreamProducer producer, int bufferSize, ExecutorService executor) {
+        if (producer == null) throw new NullPointerException("producer must not be null");
+        if (executor == null) throw new NullPointerException("executor must not be null");
+        if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be greater than zero");
+
+        this.producer = producer;
+        this.executor = executor;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Starts the producer, if not already started.
+     */
+    private void start() {
+        synchronized (lock) {
+            if (started) return;
+            started = true;
+        }
+
+        try {
+            executor.submit(new Runnable() {
+                public void run() {
+                    Throwable exception = null;
+                    try {
+                        producer.produce(new Sink());
+                    } catch (Throwable ex) {
+                        exception = ex;
+                    } finally {
+                        synchronized (lock) {
+                            error = exception;
+                            finished = true;
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            produce();
+        }
+    }
+
+    /**
+     * Runs the producer on the current thread, buffering all the content it produces in memory.
+     */
+    private void produce() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(buffer.length);
+        Throwable exception = null;
+        try {
+            producer.produce(outputStream);
+        } catch (Throwable ex) {
+            exception = ex;
+        }
+
+        synchronized (lock) {
+            buffer = outputStream.toByteArray();
+            position = 0;
+            count = buffer.length;
+            error = exception;
+            finished = true;
+        }
+    }
+
+    /**
+     * Reads the next byte of data.
+     *
+     * @return The next byte of data, or -1 if the end of the stream has been reached.
+     * @throws IOException If the stream is closed, the producer failed, or the current thread is interrupted.
+     */
+    @Override
+    public int read() throws IOException {
+        int length = read(single, 0, 1);
+        return length < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    /**
+     * Reads up to len bytes of data into the given array, blocking until at least one byte is available.
+     *
+     * @param bytes  The array to read data into.
+     * @param offset The offset in the array at which to start writing data.
+     * @param length The maximum number of bytes to read.
+     * @return       The number of bytes read, or -1 if the end of the stream has been reached.
+     * @throws IOException If the stream is closed, the producer failed, or the current thread is interrupted.
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (bytes == null) throw new NullPointerException("bytes must not be null");
+        if (offset < 0 || length < 0 || length > bytes.length - offset) throw new IndexOutOfBoundsException();
+        if (length == 0) return 0;
+
+        start();
+
+        synchronized (lock) {
+            while (count == 0 && !finished && !closed) {
+                await();
+            }
+
+            if (closed) throw new IOException("Stream closed");
+            if (count == 0) {
+                if (error == null) return -1;
+                if (error instanceof IOException) throw new IOException(error.getMessage(), error);
+                throw new IOException(error);
+            }
+
+            int total = Math.min(length, count);
+            int first = Math.min(total, buffer.length - position);
+            System.arraycopy(buffer, position, bytes, offset, first);
+            System.arraycopy(buffer, 0, bytes, offset + first, total - first);
+
+            position = (position + total) % buffer.length;
+            count -= total;
+            lock.notifyAll();
+
+            return total;
+        }
+    }
+
+    /**
+     * Returns the number of bytes that can be read without blocking.
+     *
+     * @return The number of bytes that can be read without blocking.
+     */
+    @Override
+    public int available() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    /**
+     * Closes this stream, stopping the producer if it is still running.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits on the lock until signalled, converting interruption to an InterruptedIOException.
+     *
+     * @throws InterruptedIOException If the current thread is interrupted.
+     */
+    private void await() throws InterruptedIOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException ex) {
+            // preserve interrupt status
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * The output stream given to the producer, which writes into the ring buffer.
+     */
+    private class Sink extends OutputStream {
+        /**
+         * The buffer used by write(int) to write a single byte.
+         */
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte)b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (bytes == null) throw new NullPointerException("bytes must not be null");
+            if (offset < 0 || length < 0 || length > bytes.length - offset) throw new IndexOutOfBoundsException();
+
+            synchronized (lock) {
+                while (length > 0) {
+                    while (count == buffer.length && !closed) {
+                        await();
+                    }
+                    if (closed) throw new IOException("Pipe closed");
+
+                    int tail = (position + count) % buffer.length;
+                    int total = Math.min(length, Math.min(buffer.length - count, buffer.length - tail));
+                    System.arraycopy(bytes, offset, buffer, tail, total);
+
+                    count += total;
+                    offset += total;
+                    length -= total;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
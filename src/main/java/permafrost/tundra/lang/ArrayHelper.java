@@ -30,11 +30,18 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A collection of convenience methods for working with arrays.
  */
 public class ArrayHelper {
+    /**
+     * The default minimum array length that will be sorted in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_SORT_THRESHOLD = 8192;
+
     /**
      * Disallow instantiation of this class.
      */
@@ -669,6 +676,97 @@ public class ArrayHelper {
         return copy;
     }
 
+    /**
+     * Returns a new array with all elements sorted according to the given comparator, optionally sorting large arrays
+     * in parallel using a shared pool of daemon threads sized to the number of available processors.
+     *
+     * @param array      The array to be sorted.
+     * @param comparator The comparator used to determine element ordering.
+     * @param descending Whether to sort in descending or ascending order.
+     * @param parallel   Whether to sort arrays at least DEFAULT_PARALLEL_SORT_THRESHOLD in length in parallel.
+     * @param <T>        The class of items stored in the array.
+     * @return A new copy of the given array but with the items sorted.
+     */
+    public static <T> T[] sort(T[] array, Comparator<T> comparator, boolean descending, boolean parallel) {
+        return sort(array, comparator, descending, parallel ? ThreadHelper.getSharedExecutor() : null, DEFAULT_PARALLEL_SORT_THRESHOLD);
+    }
+
+    /**
+     * Returns a new array with all elements sorted according to the given comparator, sorting in parallel using the
+     * given executor when the array is at least the given threshold in length. The array is split into contiguous
+     * runs which are sorted concurrently, then adjacent runs are merged concurrently in successive rounds. Because
+     * both the run sorts and the merges are stable, the result is identical to the sequential sort.
+     *
+     * @param array      The array to be sorted.
+     * @param comparator The comparator used to determine element ordering.
+     * @param descending Whether to sort in descending or ascending order.
+     * @param executor   The executor used to run the parallel sort tasks; if null the array is sorted sequentially.
+     * @param threshold  The minimum length of array, and of each run, that will be sorted in parallel.
+     * @param <T>        The class of items stored in the array.
+     * @return A new copy of the given array but with the items sorted.
+     */
+    public static <T> T[] sort(T[] array, Comparator<T> comparator, boolean descending, ExecutorService executor, int threshold) {
+        if (array == null) return null;
+        if (threshold < 2) throw new IllegalArgumentException("threshold must be at least 2");
+
+        int runs = Math.min(Math.max(2, Runtime.getRuntime().availableProcessors()), array.length / threshold);
+        if (executor == null || runs < 2) return sort(array, comparator, descending);
+
+        T[] source = Arrays.copyOf(array, array.length);
+        T[] target = Arrays.copyOf(array, array.length);
+
+        int[] bounds = new int[runs + 1];
+        for (int i = 0; i <= runs; i++) {
+            bounds[i] = (int)(((long)array.length * i) / runs);
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>(runs);
+        for (int i = 0; i < runs; i++) {
+            futures.add(executor.submit(new SortRunnable<T>(source, bounds[i], bounds[i + 1], comparator)));
+        }
+        ThreadHelper.await(futures);
+
+        while (bounds.length > 2) {
+            int count = bounds.length - 1;
+            int[] merged = new int[(count + 1) / 2 + 1];
+
+            futures.clear();
+            for (int i = 0, j = 0; i < count; i += 2, j++) {
+                merged[j] = bounds[i];
+                if (i + 1 < count) {
+                    futures.add(executor.submit(new MergeRunnable<T>(source, target, bounds[i], bounds[i + 1], bounds[i + 2], comparator)));
+                } else {
+                    System.arraycopy(source, bounds[i], target, bounds[i], bounds[i + 1] - bounds[i]);
+                }
+            }
+            merged[merged.length - 1] = array.length;
+            ThreadHelper.await(futures);
+
+            T[] swap = source;
+            source = target;
+            target = swap;
+            bounds = merged;
+        }
+
+        if (descending) source = reverse(source);
+
+        return source;
+    }
+
+    /**
+     * Compares the two given items using the given comparator, or their natural ordering if the comparator is null.
+     *
+     * @param comparator The comparator used to determine element ordering, or null for natural ordering.
+     * @param first      The first item to be compared.
+     * @param second     The second item to be compared.
+     * @param <T>        The class of the items being compared.
+     * @return           The comparison result.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(Comparator<T> comparator, T first, T second) {
+        return comparator == null ? ((Comparable<Object>)first).compareTo(second) : comparator.compare(first, second);
+    }
+
     /**
      * Returns a new array with all duplicate elements removed.
      *
@@ -867,4 +965,85 @@ public class ArrayHelper {
 
         return output;
     }
+
+    /**
+     * A runnable which sorts a range of an array in place.
+     *
+     * @param <T> The class of items stored in the array.
+     */
+    private static class SortRunnable<T> implements Runnable {
+        protected T[] array;
+        protected int start, end;
+        protected Comparator<T> comparator;
+
+        /**
+         * Creates a new runnable that sorts the given range of the given array.
+         *
+         * @param array      The array to be sorted.
+         * @param start      The index of the first item to be sorted, inclusive.
+         * @param end        The index of the last item to be sorted, exclusive.
+         * @param comparator The comparator used to determine element ordering.
+         */
+        public SortRunnable(T[] array, int start, int end, Comparator<T> comparator) {
+            this.array = array;
+            this.start = start;
+            this.end = end;
+            this.comparator = comparator;
+        }
+
+        /**
+         * Sorts the range of the array.
+         */
+        public void run() {
+            Arrays.sort(array, start, end, comparator);
+        }
+    }
+
+    /**
+     * A runnable which stably merges two adjacent sorted ranges of a source array into a target array.
+     *
+     * @param <T> The class of items stored in the array.
+     */
+    private static class MergeRunnable<T> implements Runnable {
+        protected T[] source, target;
+        protected int start, middle, end;
+        protected Comparator<T> comparator;
+
+        /**
+         * Creates a new runnable that merges the sorted ranges [start, middle) and [middle, end).
+         *
+         * @param source     The array containing the sorted ranges.
+         * @param target     The array the merged range is written to.
+         * @param start      The index of the first item of the first range, inclusive.
+         * @param middle     The index of the first item of the second range.
+         * @param end        The index of the last item of the second range, exclusive.
+         * @param comparator The comparator used to determine element ordering.
+         */
+        public MergeRunnable(T[] source, T[] target, int start, int middle, int end, Comparator<T> comparator) {
+            this.source = source;
+            this.target = target;
+            this.start = start;
+            this.middle = middle;
+            this.end = end;
+            this.comparator = comparator;
+        }
+
+        /**
+         * Merges the ranges, preferring items from the first range when items compare equal to preserve stability.
+         */
+        public void run() {
+            int i = start, j = middle, k = start;
+
+            while (i < middle && j < end) {
+                if (compare(comparator, source[j], source[i]) < 0) {
+                    target[k++] = source[j++];
+                } else {
+                    target[k++] = source[i++];
+                }
+            }
+
+            if (i < middle) System.arraycopy(source, i, target, k, middle - i);
+            if (j < end) System.arraycopy(source, j, target, k, end - j);
+        }
+    }
 }
@@ -73,7 +73,7 @@ public class BasicArrayComparator implements ArrayComparator {
         } else {
             if (array1.length < array2.length) {
                 result = -1;
-            } else if (array2.length > array1.length) {
+            } else if (array1.length > array2.length) {
                 result = 1;
             } else {
                 for (int i = 0; i < array1.length; i++) {
@@ -77,6 +77,10 @@ public class BasicObjectComparator implements ObjectComparator {
             } else if (object2 instanceof Comparable && object2.getClass().isAssignableFrom(object1.getClass())) {
                 int comparison = ((Comparable)object2).compareTo(object1);
                 result = comparison < 0 ? 1 : comparison > 0 ? -1 : 0;
+            } else if (object1 instanceof Object[] && object2 instanceof Object[]) {
+                result = BasicArrayComparator.getInstance().compare((Object[])object1, (Object[])object2);
+            } else if (object1 instanceof byte[] && object2 instanceof byte[]) {
+                result = compare((byte[])object1, (byte[])object2);
             } else if (object1 != object2) {
                 // last ditch effort: compare two incomparable objects using their hash codes
                 result = Integer.valueOf(object1.hashCode()).compareTo(object2.hashCode());
@@ -85,4 +89,21 @@ public class BasicObjectComparator implements ObjectComparator {
 
         return result;
     }
+
+    /**
+     * Compares two byte arrays lexicographically by their unsigned contents.
+     *
+     * @param bytes1 The first byte array to be compared.
+     * @param bytes2 The second byte array to be compared.
+     * @return A value less than zero if the first array comes before the second array, a value of zero if they are
+     * equal, or a value of greater than zero if the first array comes after the second array.
+     */
+    private static int compare(byte[] bytes1, byte[] bytes2) {
+        int length = Math.min(bytes1.length, bytes2.length);
+        for (int i = 0; i < length; i++) {
+            int result = (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+            if (result != 0) return result;
+        }
+        return bytes1.length - bytes2.length;
+    }
 }
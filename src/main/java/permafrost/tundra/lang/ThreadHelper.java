@@ -28,12 +28,27 @@ import com.wm.data.IData;
 import com.wm.data.IDataCursor;
 import com.wm.data.IDataFactory;
 import com.wm.data.IDataUtil;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A collection of convenience methods for working with Thread objects.
  */
 public class ThreadHelper {
+    /**
+     * The maximum number of threads in the shared blocking executor.
+     */
+    public static final int BLOCKING_EXECUTOR_MAXIMUM_POOL_SIZE = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+
     /**
      * Disallow instantiation of this class.
      */
@@ -163,4 +178,102 @@ public class ThreadHelper {
 
         return output;
     }
+
+    /**
+     * Returns a shared executor backed by a fixed pool of daemon threads sized to the number of available processors,
+     * for use by methods that optionally process large inputs in parallel. Tasks submitted to this executor must not
+     * themselves wait on other tasks submitted to it.
+     *
+     * @return The shared executor.
+     */
+    public static ExecutorService getSharedExecutor() {
+        return SharedExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Returns a shared executor backed by a cached pool of daemon threads, for tasks which may block indefinitely on
+     * another thread, such as producers feeding a bounded pipe. Unlike the executor returned by getSharedExecutor,
+     * a blocked task never prevents another task from running: tasks are never queued, and once the pool has
+     * reached BLOCKING_EXECUTOR_MAXIMUM_POOL_SIZE threads further tasks are rejected with a
+     * RejectedExecutionException, which callers must handle.
+     *
+     * @return The shared blocking executor.
+     */
+    public static ExecutorService getBlockingExecutor() {
+        return BlockingExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Waits for all the given futures to complete, rethrowing any exception thrown by the associated tasks. If any
+     * task fails or the current thread is interrupted, the remaining tasks are cancelled.
+     *
+     * @param futures The futures to wait for.
+     * @param <V>     The class of result returned by the futures.
+     * @return        The results of the given futures, in the same order as the futures.
+     */
+    public static <V> List<V> await(List<? extends Future<? extends V>> futures) {
+        List<V> results = new ArrayList<V>(futures.size());
+
+        try {
+            for (Future<? extends V> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            cancel(futures);
+            // preserve interrupt status
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            cancel(futures);
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw new RuntimeException(cause);
+        }
+
+        return results;
+    }
+
+    /**
+     * Cancels all the given futures, interrupting the associated tasks if they are running.
+     *
+     * @param futures The futures to be cancelled.
+     */
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Initialization on demand holder idiom for the shared executor.
+     */
+    private static class SharedExecutorHolder {
+        /**
+         * The shared executor.
+         */
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory());
+    }
+
+    /**
+     * Initialization on demand holder idiom for the shared blocking executor.
+     */
+    private static class BlockingExecutorHolder {
+        /**
+         * The shared blocking executor.
+         */
+        private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, BLOCKING_EXECUTOR_MAXIMUM_POOL_SIZE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory());
+    }
+
+    /**
+     * Thread factory that names the returned threads, and marks them as daemons so they do not prevent shutdown.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName("Tundra/ThreadHelper#" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
\ No newline at end of file
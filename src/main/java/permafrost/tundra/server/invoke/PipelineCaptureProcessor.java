@@ -29,10 +29,10 @@ import com.wm.app.b2b.server.invoke.InvokeChainProcessor;
 import com.wm.app.b2b.server.invoke.InvokeManager;
 import com.wm.app.b2b.server.invoke.ServiceStatus;
 import com.wm.data.IData;
-import com.wm.data.IDataUtil;
 import com.wm.util.ServerException;
 import com.wm.util.coder.IDataCodable;
 import com.wm.util.coder.IDataXMLCoder;
+import permafrost.tundra.data.IDataHelper;
 import permafrost.tundra.data.IDataMap;
 import permafrost.tundra.io.FileHelper;
 import permafrost.tundra.lang.BooleanHelper;
@@ -343,12 +343,8 @@ public class PipelineCaptureProcessor implements InvokeChainProcessor, IDataCoda
             if (pipeline == null) throw new NullPointerException("pipeline must not be null");
             if (target == null) throw new NullPointerException("target must not be null");
 
-            try {
-                this.pipeline = IDataUtil.deepClone(pipeline);
-                this.target = target;
-            } catch(IOException ex) {
-                throw new RuntimeException(ex);
-            }
+            this.pipeline = IDataHelper.duplicate(pipeline, true);
+            this.target = target;
         }
 
         /**
@@ -0,0 +1,26 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.wm.data.IData;
+import org.junit.Test;
+
+public class BasicIDataArrayComparatorTest {
+    private static final BasicIDataArrayComparator COMPARATOR = BasicIDataArrayComparator.getInstance();
+
+    private static IData document(String value) {
+        return IDataHelper.put(null, "a", value);
+    }
+
+    @Test
+    public void testLongerArrayComesAfter() throws Exception {
+        assertTrue(COMPARATOR.compare(new IData[] { document("1"), document("2") }, new IData[] { document("9") }) > 0);
+        assertTrue(COMPARATOR.compare(new IData[] { document("9") }, new IData[] { document("1"), document("2") }) < 0);
+    }
+
+    @Test
+    public void testSameLengthComparesItems() throws Exception {
+        assertEquals(0, COMPARATOR.compare(new IData[] { document("1") }, new IData[] { document("1") }));
+        assertTrue(COMPARATOR.compare(new IData[] { document("1") }, new IData[] { document("2") }) < 0);
+    }
+}
@@ -0,0 +1,89 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.wm.data.IData;
+import org.junit.Test;
+
+public class BasicIDataComparatorTest {
+    private static final BasicIDataComparator COMPARATOR = BasicIDataComparator.getInstance();
+
+    private static IData document(Object... pairs) {
+        IData document = null;
+        for (int i = 0; i < pairs.length; i += 2) {
+            document = IDataHelper.put(document, (String)pairs[i], pairs[i + 1], true);
+        }
+        return document == null ? new IDataMap() : document;
+    }
+
+    @Test
+    public void testNulls() throws Exception {
+        assertEquals(0, COMPARATOR.compare(null, null));
+        assertTrue(COMPARATOR.compare(null, document()) < 0);
+        assertTrue(COMPARATOR.compare(document(), null) > 0);
+    }
+
+    @Test
+    public void testSizeTakesPrecedence() throws Exception {
+        assertTrue(COMPARATOR.compare(document("z", "1"), document("a", "1", "b", "2")) < 0);
+        assertTrue(COMPARATOR.compare(document("a", "1", "b", "2"), document("z", "1")) > 0);
+        assertTrue(COMPARATOR.compare(document("a", "2", "b", "2"), document("a", "1")) > 0);
+    }
+
+    @Test
+    public void testKeysThenValues() throws Exception {
+        assertTrue(COMPARATOR.compare(document("a", "1"), document("b", "0")) < 0);
+        assertTrue(COMPARATOR.compare(document("a", "2"), document("a", "1")) > 0);
+        assertTrue(COMPARATOR.compare(document("a", null), document("a", "1")) < 0);
+        assertEquals(0, COMPARATOR.compare(document("a", "1", "b", null), document("a", "1", "b", null)));
+    }
+
+    @Test
+    public void testValueKinds() throws Exception {
+        IData child1 = document("c", "1"), child2 = document("c", "2");
+
+        assertTrue(COMPARATOR.compare(document("a", child1), document("a", child2)) < 0);
+        assertTrue(COMPARATOR.compare(document("a", new IData[] { child1, child2 }), document("a", new IData[] { child1 })) > 0);
+        assertTrue(COMPARATOR.compare(document("a", new String[] { "x", "y" }), document("a", new String[] { "x", "z" })) < 0);
+        // a document list and a string list are both compared as arrays
+        assertTrue(COMPARATOR.compare(document("a", new IData[0]), document("a", new String[] { "x" })) < 0);
+        assertEquals(0, COMPARATOR.compare(document("a", new IDataMap(child1)), document("a", child1)));
+    }
+
+    @Test
+    public void testMemoizedHashes() throws Exception {
+        ReadOnlyIDataMap first = new ReadOnlyIDataMap(document("a", "1", "b", document("c", "2")));
+        ReadOnlyIDataMap second = new ReadOnlyIDataMap(document("a", "1", "b", document("c", "2")));
+        first.hashCode();
+        second.hashCode();
+
+        assertEquals(0, COMPARATOR.compare(first, second));
+        assertEquals(0, COMPARATOR.compare(first, document("a", "1", "b", document("c", "2"))));
+        assertTrue(COMPARATOR.compare(first, new ReadOnlyIDataMap(document("a", "1", "b", document("c", "3")))) < 0);
+    }
+
+    @Test
+    public void testEqualMemoizedHashesDoNotImplyEquality() throws Exception {
+        IDataMap first = new CollidingIDataMap(document("a", "1"));
+        IDataMap second = new CollidingIDataMap(document("a", "2"));
+
+        assertTrue(COMPARATOR.compare(first, second) < 0);
+        assertTrue(COMPARATOR.compare(second, first) > 0);
+    }
+
+    private static class CollidingIDataMap extends IDataMap {
+        public CollidingIDataMap(IData document) {
+            super(document);
+        }
+
+        @Override
+        protected long hash() {
+            return 42;
+        }
+
+        @Override
+        protected boolean isHashMemoized() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataUtil;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CopyOnWriteIDataTest {
+    CopyOnWriteIData document;
+
+    @Before
+    public void setUp() throws Exception {
+        IData source = IDataFactory.create();
+        IDataHelper.put(source, "a", "1");
+        IDataHelper.put(source, "b/c", "2");
+        IDataHelper.put(source, "d[0]/e", "3");
+        IDataHelper.put(source, "d[1]/e", "4");
+
+        document = CopyOnWriteIData.of(source);
+    }
+
+    @Test
+    public void testOf() throws Exception {
+        assertEquals("1", IDataHelper.get(document, "a"));
+        assertEquals("2", IDataHelper.get(document, "b/c"));
+        assertEquals("4", IDataHelper.get(document, "d[1]/e"));
+        assertTrue(IDataHelper.get(document, "b") instanceof CopyOnWriteIData);
+    }
+
+    @Test
+    public void testDuplicateSharesUntilModified() throws Exception {
+        CopyOnWriteIData copy = document.duplicate();
+        assertSame(document.node, copy.node);
+
+        IDataHelper.put(copy, "a", "changed");
+
+        assertNotSame(document.node, copy.node);
+        assertEquals("1", IDataHelper.get(document, "a"));
+        assertEquals("changed", IDataHelper.get(copy, "a"));
+    }
+
+    @Test
+    public void testDuplicateIsolatesNestedModifications() throws Exception {
+        CopyOnWriteIData copy = document.duplicate();
+
+        IDataHelper.put(copy, "b/c", "changed");
+        IDataHelper.put(document, "d[0]/e", "changed");
+
+        assertEquals("2", IDataHelper.get(document, "b/c"));
+        assertEquals("changed", IDataHelper.get(copy, "b/c"));
+        assertEquals("changed", IDataHelper.get(document, "d[0]/e"));
+        assertEquals("3", IDataHelper.get(copy, "d[0]/e"));
+    }
+
+    @Test
+    public void testDuplicateCopiesOnlyModifiedPath() throws Exception {
+        CopyOnWriteIData copy = document.duplicate();
+
+        IDataHelper.put(copy, "b/c", "changed");
+
+        CopyOnWriteIData original = (CopyOnWriteIData)IDataHelper.get(document, "d[0]");
+        CopyOnWriteIData shared = (CopyOnWriteIData)IDataHelper.get(copy, "d[0]");
+        assertSame(original.node, shared.node);
+    }
+
+    @Test
+    public void testStaleChildDoesNotModifySnapshot() throws Exception {
+        IData child = (IData)IDataHelper.get(document, "b");
+        CopyOnWriteIData copy = document.duplicate();
+
+        IDataHelper.put(child, "c", "changed");
+
+        assertEquals("2", IDataHelper.get(copy, "b/c"));
+    }
+
+    @Test
+    public void testAdoptedChildIsFrozenByDuplicate() throws Exception {
+        CopyOnWriteIData child = new CopyOnWriteIData();
+        IDataHelper.put(document, "f", child);
+        IDataHelper.put(child, "g", "1");
+
+        assertEquals("1", IDataHelper.get(document, "f/g"));
+
+        CopyOnWriteIData copy = document.duplicate();
+        IDataHelper.put(child, "g", "2");
+
+        assertEquals("1", IDataHelper.get(copy, "f/g"));
+    }
+
+    @Test
+    public void testInsertDataAfterModifiesInPlace() throws Exception {
+        IDataCursor cursor = document.getCursor();
+        cursor.last();
+        IData child = cursor.insertDataAfter("h");
+        cursor.destroy();
+
+        IDataHelper.put(child, "i", "1");
+        assertEquals("1", IDataHelper.get(document, "h/i"));
+    }
+
+    @Test
+    public void testCursorDelete() throws Exception {
+        IDataCursor cursor = document.getCursor();
+        assertTrue(cursor.first());
+        assertTrue(cursor.delete());
+        assertEquals("b", cursor.getKey());
+        assertTrue(cursor.next());
+        assertEquals("b", cursor.getKey());
+        assertTrue(cursor.next());
+        assertEquals("d", cursor.getKey());
+        assertFalse(cursor.next());
+        cursor.destroy();
+
+        assertNull(IDataHelper.get(document, "a"));
+    }
+
+    @Test
+    public void testCursorHasMoreDataAfterDelete() throws Exception {
+        IData document = new CopyOnWriteIData();
+        IDataHelper.put(document, "x", "1");
+        IDataHelper.put(document, "y", "2");
+        IDataHelper.put(document, "z", "3");
+
+        IDataCursor cursor = document.getCursor();
+        assertTrue(cursor.first("y"));
+        assertTrue(cursor.delete());
+        assertTrue(cursor.hasMoreData());
+
+        IDataCursor clone = cursor.getCursorClone();
+        assertTrue(clone.next());
+        assertEquals("z", clone.getKey());
+        assertFalse(clone.hasMoreData());
+        clone.destroy();
+
+        assertTrue(cursor.next());
+        assertEquals("z", cursor.getKey());
+        assertTrue(cursor.delete());
+        assertFalse(cursor.hasMoreData());
+        assertFalse(cursor.next());
+        cursor.destroy();
+    }
+
+    @Test
+    public void testDuplicateHelper() throws Exception {
+        IData copy = IDataHelper.duplicate(document);
+        assertTrue(copy instanceof CopyOnWriteIData);
+
+        IDataCursor cursor = copy.getCursor();
+        IDataUtil.put(cursor, "a", "changed");
+        cursor.destroy();
+
+        assertEquals("1", IDataHelper.get(document, "a"));
+    }
+
+    @Test
+    public void testPlainDocumentsAreNotSharedBetweenDuplicates() throws Exception {
+        IData child = IDataFactory.create();
+        IDataHelper.put(child, "x", "1");
+        IDataHelper.put(document, "plain", child);
+
+        IData copy = IDataHelper.duplicate(document, true);
+        IData nested = (IData)IDataHelper.get(copy, "plain");
+        assertTrue(nested instanceof CopyOnWriteIData);
+        IDataHelper.put(nested, "x", "2");
+        IDataHelper.put(child, "x", "3");
+
+        assertEquals("1", IDataHelper.get(document, "plain/x"));
+        assertEquals("2", IDataHelper.get(copy, "plain/x"));
+    }
+
+    @Test
+    public void testStoredArraysAreCopied() throws Exception {
+        IData child = IDataFactory.create();
+        IDataHelper.put(child, "x", "1");
+        IData[] array = new IData[] { child };
+        String[] strings = new String[] { "a" };
+
+        IDataCursor cursor = document.getCursor();
+        IDataUtil.put(cursor, "list", array);
+        IDataUtil.put(cursor, "strings", strings);
+        cursor.destroy();
+
+        assertSame(child, array[0]);
+        strings[0] = "b";
+        assertEquals("a", ((String[])IDataHelper.get(document, "strings"))[0]);
+        assertTrue(((IData[])IDataHelper.get(document, "list"))[0] instanceof CopyOnWriteIData);
+    }
+}
@@ -0,0 +1,82 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.wm.data.IData;
+import org.junit.Test;
+import permafrost.tundra.lang.ArrayHelper;
+
+public class CriteriaBasedIDataComparatorTest {
+    private static IData[] documents(String key, String... values) {
+        IData[] array = new IData[values.length * 3];
+        for (int i = 0; i < array.length; i++) {
+            IDataMap document = new IDataMap();
+            document.put("position", i);
+            String value = values[(i * 7) % values.length];
+            if (value != null) document.put(key, value);
+            array[i] = document;
+        }
+        return array;
+    }
+
+    private static void assertSortMatchesComparator(IData[] array, IDataComparisonCriterion... criteria) {
+        CriteriaBasedIDataComparator comparator = new CriteriaBasedIDataComparator(criteria);
+        IData[] expected = ArrayHelper.sort(array, comparator);
+
+        for (boolean parallel : new boolean[] { false, true }) {
+            IData[] actual = comparator.sort(array, parallel);
+            assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertTrue("position " + i, expected[i] == actual[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSortIntegersWithOverflow() throws Exception {
+        IData[] array = documents("value", "1", "-1", null, "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809", "0", "+5", "123456789012345678901234567890");
+
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.INTEGER, false));
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.INTEGER, true));
+    }
+
+    @Test
+    public void testSortDecimalsWithMixedScales() throws Exception {
+        IData[] array = documents("value", "1.5", "1.50", "-0.001", null, "2", "0", "0.000", "1E+3", "999.9999999999999999", "1000", "-9223372036854775808", "-922337203685477580.9", "92233720368547758070", "1e-30", "123456789.123456789123456789");
+
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.DECIMAL, false));
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.DECIMAL, true));
+    }
+
+    @Test
+    public void testSortDatetimes() throws Exception {
+        IData[] array = documents("value", "2015-01-01T00:00:00Z", null, "2014-12-31T23:59:59.999Z", "2015-01-01T10:00:00+10:00", "1969-07-20T20:17:00Z");
+
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.DATETIME, false));
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.DATETIME, true));
+    }
+
+    @Test
+    public void testSortDurations() throws Exception {
+        IData[] array = documents("value", "PT1S", "PT1M", null, "PT0.5S", "P1D", "-PT2S");
+
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.DURATION, false));
+        assertSortMatchesComparator(array, new IDataComparisonCriterion("value", IDataComparisonType.DURATION, true));
+    }
+
+    @Test
+    public void testSortWithMultipleCriteria() throws Exception {
+        IData[] array = new IData[300];
+        for (int i = 0; i < array.length; i++) {
+            IDataMap document = new IDataMap();
+            document.put("position", i);
+            if (i % 5 != 0) document.put("group", Integer.toString(i % 4));
+            document.put("amount", (i % 7) + "." + (i % 3 == 0 ? "5" : "50"));
+            array[i] = document;
+        }
+
+        assertSortMatchesComparator(array,
+            new IDataComparisonCriterion("group", IDataComparisonType.INTEGER, true),
+            new IDataComparisonCriterion("amount", IDataComparisonType.DECIMAL, false));
+    }
+}
@@ -0,0 +1,153 @@
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class IDataAggregatorTest {
+    IData[] array;
+
+    @Before
+    public void setUp() throws Exception {
+        String[][] rows = {
+            { "b", "1.5" },
+            { "a", "2" },
+            { "b", "3.25" },
+            { "a", null },
+            { "b", "0.5" }
+        };
+
+        array = new IData[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            IDataMap item = new IDataMap();
+            item.put("partner", rows[i][0]);
+            if (rows[i][1] != null) item.put("amount", rows[i][1]);
+            array[i] = item;
+        }
+    }
+
+    private IDataAggregateCriterion[] criteria() {
+        return new IDataAggregateCriterion[] {
+            new IDataAggregateCriterion(null, IDataAggregateFunction.COUNT, null, null, "total"),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.COUNT),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.SUM),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.AVG),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.MIN, IDataComparisonType.DECIMAL),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.MAX, IDataComparisonType.DECIMAL),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.FIRST),
+            new IDataAggregateCriterion("amount", IDataAggregateFunction.LAST)
+        };
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        IData[] results = IDataHelper.aggregate(array, new String[] { "partner" }, criteria());
+
+        assertEquals(2, results.length);
+
+        IDataMap b = IDataMap.of(results[0]);
+        assertEquals("b", IDataHelper.get(b, "group/partner"));
+        assertEquals(BigInteger.valueOf(3), IDataHelper.get(b, "total"));
+        assertEquals(BigInteger.valueOf(3), IDataHelper.get(b, "count/amount"));
+        assertEquals(new BigDecimal("5.25"), IDataHelper.get(b, "sum/amount"));
+        assertEquals(new BigDecimal("1.75"), IDataHelper.get(b, "avg/amount"));
+        assertEquals("0.5", IDataHelper.get(b, "min/amount"));
+        assertEquals("3.25", IDataHelper.get(b, "max/amount"));
+        assertEquals("1.5", IDataHelper.get(b, "first/amount"));
+        assertEquals("0.5", IDataHelper.get(b, "last/amount"));
+
+        IDataMap a = IDataMap.of(results[1]);
+        assertEquals("a", IDataHelper.get(a, "group/partner"));
+        assertEquals(BigInteger.valueOf(2), IDataHelper.get(a, "total"));
+        assertEquals(BigInteger.valueOf(1), IDataHelper.get(a, "count/amount"));
+        assertEquals(new BigDecimal("2"), IDataHelper.get(a, "sum/amount"));
+    }
+
+    @Test
+    public void testIntegerAverageIsNotTruncated() throws Exception {
+        IData[] items = new IData[] { IDataHelper.put(null, "n", "1"), IDataHelper.put(null, "n", "2"), IDataHelper.put(null, "n", "4") };
+        IDataAggregateCriterion[] criteria = new IDataAggregateCriterion[] {
+            new IDataAggregateCriterion("n", IDataAggregateFunction.AVG, IDataComparisonType.INTEGER)
+        };
+
+        IData[] results = IDataHelper.aggregate(Arrays.copyOf(items, 2), new String[0], criteria);
+        assertEquals(new BigDecimal("1.5"), IDataHelper.get(results[0], "avg/n"));
+
+        results = IDataHelper.aggregate(new IData[] { items[0], items[2] }, new String[0], criteria);
+        assertEquals(new BigDecimal("2.5"), IDataHelper.get(results[0], "avg/n"));
+
+        results = IDataHelper.aggregate(new IData[] { items[1], items[2] }, new String[0], criteria);
+        assertEquals(new BigDecimal("3"), IDataHelper.get(results[0], "avg/n"));
+
+        results = IDataHelper.aggregate(items, new String[0], criteria);
+        assertEquals(new BigDecimal("2.3333333333333333"), IDataHelper.get(results[0], "avg/n"));
+    }
+
+    @Test
+    public void testDefaultAverageIsNotRounded() throws Exception {
+        IData[] items = new IData[] { IDataHelper.put(null, "n", "1"), IDataHelper.put(null, "n", "2"), IDataHelper.put(null, "n", "2.00") };
+        IDataAggregateCriterion[] criteria = new IDataAggregateCriterion[] { new IDataAggregateCriterion("n", IDataAggregateFunction.AVG) };
+
+        IData[] results = IDataHelper.aggregate(Arrays.copyOf(items, 2), new String[0], criteria);
+        assertEquals(new BigDecimal("1.5"), IDataHelper.get(results[0], "avg/n"));
+
+        results = IDataHelper.aggregate(new IData[] { items[1], items[2] }, new String[0], criteria);
+        assertEquals(new BigDecimal("2.00"), IDataHelper.get(results[0], "avg/n"));
+
+        results = IDataHelper.aggregate(items, new String[0], criteria);
+        assertEquals(new BigDecimal("1.666666666666666667"), IDataHelper.get(results[0], "avg/n"));
+    }
+
+    @Test
+    public void testSortedResults() throws Exception {
+        IData[] results = new IDataAggregator(new String[] { "partner" }, criteria()).addAll(array).getResults(true);
+        assertEquals("a", IDataHelper.get(results[0], "group/partner"));
+        assertEquals("b", IDataHelper.get(results[1], "group/partner"));
+    }
+
+    @Test
+    public void testAggregateWithoutKeys() throws Exception {
+        IData[] results = IDataHelper.aggregate(array, null, criteria());
+
+        assertEquals(1, results.length);
+        assertEquals(BigInteger.valueOf(5), IDataHelper.get(results[0], "total"));
+        assertEquals(new BigDecimal("7.25"), IDataHelper.get(results[0], "sum/amount"));
+    }
+
+    @Test
+    public void testMergeMatchesSinglePass() throws Exception {
+        IDataAggregator whole = new IDataAggregator(new String[] { "partner" }, criteria());
+        whole.addAll(Arrays.asList(array).iterator());
+
+        IDataAggregator first = whole.newInstance().addAll(Arrays.copyOfRange(array, 0, 2));
+        IDataAggregator second = whole.newInstance().addAll(Arrays.copyOfRange(array, 2, array.length));
+        first.merge(second);
+
+        IData[] expected = whole.getResults();
+        IData[] actual = first.getResults();
+
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(IDataMap.of(expected[i]), IDataMap.of(actual[i]));
+        }
+    }
+
+    @Test
+    public void testIgnoresNullValues() throws Exception {
+        IData[] results = IDataHelper.aggregate(new IData[] { array[3], null }, new String[] { "partner" }, criteria());
+
+        assertEquals(1, results.length);
+        assertNull(IDataHelper.get(results[0], "sum/amount"));
+        assertNull(IDataHelper.get(results[0], "min/amount"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSumRejectsDatetime() throws Exception {
+        new IDataAggregateCriterion("amount", IDataAggregateFunction.SUM, IDataComparisonType.DATETIME);
+    }
+}
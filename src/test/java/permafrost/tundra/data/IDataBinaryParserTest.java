@@ -0,0 +1,150 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.wm.data.IData;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+public class IDataBinaryParserTest {
+    private static IData document() {
+        IDataMap child = new IDataMap();
+        child.put("a", "1");
+        child.put("b", null);
+
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("Australia/Sydney"));
+        calendar.setTimeInMillis(1234567890123L);
+
+        IDataMap map = new IDataMap();
+        map.put("string", "héllo 世界 😀");
+        map.put("empty", "");
+        map.put("null", null);
+        map.put("strings", new String[] { "x", null, "z" });
+        map.put("table", new String[][] { { "r1c1", "r1c2" }, null, { } });
+        map.put("child", child);
+        map.put("children", new IData[] { child, null, new IDataMap((IData)child) });
+        map.put("bytes", new byte[] { 0, 1, (byte)0xFF });
+        map.put("decimal", new BigDecimal("-12345678901234567890.0012300"));
+        map.put("integer", new BigInteger("98765432109876543210"));
+        map.put("calendar", calendar);
+        map.put("date", new Date(987654321L));
+        map.put("int", Integer.MIN_VALUE);
+        map.put("long", Long.MAX_VALUE);
+        map.put("double", -0.5d);
+        map.put("float", 1.25f);
+        map.put("boolean", Boolean.TRUE);
+        map.put("integers", new Integer[] { 1, null, -1 });
+        map.put("objects", new Object[] { "a", 1, new String[] { "b" } });
+        return map;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        IData document = document();
+        byte[] bytes = IDataBinaryParser.getInstance().encodeToBytes(document);
+        IData decoded = IDataBinaryParser.getInstance().decodeFromBytes(bytes);
+
+        assertEquals(0, BasicIDataComparator.getInstance().compare(document, decoded));
+
+        IDataMap map = IDataMap.of(decoded);
+        assertEquals(BigDecimal.class, map.get("decimal").getClass());
+        assertEquals("-12345678901234567890.0012300", map.get("decimal").toString());
+        assertEquals("Australia/Sydney", ((Calendar)map.get("calendar")).getTimeZone().getID());
+        assertEquals(Integer[].class, map.get("integers").getClass());
+        assertArrayEquals(new byte[] { 0, 1, (byte)0xFF }, (byte[])map.get("bytes"));
+        assertTrue(Arrays.asList(map.keySet().toArray()).indexOf("null") >= 0);
+    }
+
+    @Test
+    public void testRoundTripThroughStream() throws Exception {
+        IData document = document();
+        byte[] bytes = IDataBinaryParser.getInstance().encodeToBytes(document);
+        IData decoded = IDataBinaryParser.getInstance().decode(new ByteArrayInputStream(bytes));
+
+        assertEquals(0, BasicIDataComparator.getInstance().compare(document, decoded));
+    }
+
+    @Test
+    public void testRepeatedKeysAreWrittenOnce() throws Exception {
+        IData[] records = new IData[100];
+        for (int i = 0; i < records.length; i++) {
+            IDataMap record = new IDataMap();
+            record.put("aVeryLongRepeatedKeyName", "" + i);
+            records[i] = record;
+        }
+        IDataMap map = new IDataMap();
+        map.put("records", records);
+
+        byte[] bytes = IDataBinaryParser.getInstance().encodeToBytes(map);
+        assertTrue(bytes.length < 100 * "aVeryLongRepeatedKeyName".length());
+        assertEquals(0, BasicIDataComparator.getInstance().compare(map, IDataBinaryParser.getInstance().decodeFromBytes(bytes)));
+    }
+
+    @Test
+    public void testMalformedData() throws Exception {
+        byte[] bytes = IDataBinaryParser.getInstance().encodeToBytes(document());
+
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                IDataBinaryParser.getInstance().decodeFromBytes(Arrays.copyOf(bytes, length));
+                fail();
+            } catch (IOException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testNestingDepth() throws Exception {
+        IData document = new IDataMap();
+        for (int i = 1; i < IDataBinaryParser.MAXIMUM_NESTING_DEPTH; i++) {
+            IDataMap parent = new IDataMap();
+            parent.put("a", i % 2 == 0 ? document : new IData[] { document });
+            document = parent;
+        }
+        byte[] bytes = IDataBinaryParser.getInstance().encodeToBytes(document);
+        assertEquals(0, BasicIDataComparator.getInstance().compare(document, IDataBinaryParser.getInstance().decodeFromBytes(bytes)));
+
+        IDataMap parent = new IDataMap();
+        parent.put("a", document);
+        try {
+            IDataBinaryParser.getInstance().decodeFromBytes(IDataBinaryParser.getInstance().encodeToBytes(parent));
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testDeeplyNestedDataDoesNotOverflowStack() throws Exception {
+        int depth = 100000;
+        byte[] level = { 4, 1, 0, 2, 'a' };
+        byte[] bytes = new byte[4 + depth * level.length + 2];
+        bytes[0] = 'T';
+        bytes[1] = 'D';
+        bytes[2] = 'B';
+        bytes[3] = 1;
+        for (int i = 0; i < depth; i++) {
+            System.arraycopy(level, 0, bytes, 4 + i * level.length, level.length);
+        }
+        bytes[bytes.length - 2] = 4;
+        IDataBinaryParser.getInstance().decodeFromBytes(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedValue() throws Exception {
+        IDataMap map = new IDataMap();
+        map.put("object", new Object());
+        IDataBinaryParser.getInstance().encodeToBytes(map);
+    }
+}
@@ -0,0 +1,126 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class IDataCSVParserTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+
+    @Test
+    public void testIterate() throws Exception {
+        String csv = "a,b,c\r\n1,\"x, y\",\"he said \"\"hi\"\"\"\n\n2,\"line1\r\nline2\",\r3,,\n";
+        IDataRecordIterator iterator = IDataCSVParser.getInstance().iterate(stream(csv), UTF_8);
+
+        assertTrue(iterator.hasNext());
+        IDataMap first = IDataMap.of(iterator.next());
+        assertEquals("1", first.get("a"));
+        assertEquals("x, y", first.get("b"));
+        assertEquals("he said \"hi\"", first.get("c"));
+
+        IDataMap second = IDataMap.of(iterator.next());
+        assertEquals("line1\r\nline2", second.get("b"));
+        assertEquals("", second.get("c"));
+
+        IDataMap third = IDataMap.of(iterator.next());
+        assertEquals("3", third.get("a"));
+        assertEquals("", third.get("b"));
+
+        assertFalse(iterator.hasNext());
+        iterator.close();
+    }
+
+    @Test
+    public void testSharedHeaderKeys() throws Exception {
+        IDataRecordIterator iterator = IDataCSVParser.getInstance().iterate(stream("key\n1\n2\n"), UTF_8);
+        IDataCursor first = iterator.next().getCursor();
+        IDataCursor second = iterator.next().getCursor();
+        first.next();
+        second.next();
+        assertSame(first.getKey(), second.getKey());
+        iterator.close();
+    }
+
+    @Test
+    public void testExtraAndMissingColumns() throws Exception {
+        IDataRecordIterator iterator = IDataCSVParser.getInstance().iterate(stream("a,b\n1,2,3\n4\n"), UTF_8);
+        IDataMap first = IDataMap.of(iterator.next());
+        assertEquals("3", first.get("3"));
+        IDataMap second = IDataMap.of(iterator.next());
+        assertEquals(1, second.size());
+        assertFalse(second.containsKey("b"));
+        iterator.close();
+    }
+
+    @Test
+    public void testDelimiterWithoutHeader() throws Exception {
+        IDataRecordIterator iterator = new IDataCSVParser('|', false).iterate(stream("a|b,c\n"), UTF_8);
+        IDataMap record = IDataMap.of(iterator.next());
+        assertEquals("a", record.get("1"));
+        assertEquals("b,c", record.get("2"));
+        iterator.close();
+    }
+
+    @Test
+    public void testLargeFieldSpanningBuffers() throws Exception {
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'z');
+        String large = new String(chars);
+        IDataRecordIterator iterator = IDataCSVParser.getInstance().iterate(stream("a,b\n" + large + ",\"" + large + "\"\n"), UTF_8);
+        IDataMap record = IDataMap.of(iterator.next());
+        assertEquals(large, record.get("a"));
+        assertEquals(large, record.get("b"));
+        iterator.close();
+    }
+
+    @Test
+    public void testUnterminatedQuote() throws Exception {
+        try {
+            IDataCSVParser.getInstance().decode(stream("a\n\"open\n"), UTF_8);
+            fail();
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("line 2"));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        IData[] records = new IData[2];
+        records[0] = IDataHelper.put(null, "a", "1, \"quoted\"");
+        records[1] = IDataHelper.put(IDataHelper.put(null, "a", "2"), "b", "multi\nline");
+
+        IData document = IDataHelper.put(null, IDataCSVParser.RECORDS_KEY, records);
+        String csv = IDataCSVParser.getInstance().encodeToString(document);
+        assertEquals("a,b\r\n\"1, \"\"quoted\"\"\",\r\n2,\"multi\nline\"\r\n", csv);
+
+        IData[] decoded = (IData[])IDataMap.of(IDataCSVParser.getInstance().decodeFromString(csv)).get(IDataCSVParser.RECORDS_KEY);
+        assertEquals(2, decoded.length);
+        assertEquals("1, \"quoted\"", IDataMap.of(decoded[0]).get("a"));
+        assertEquals("", IDataMap.of(decoded[0]).get("b"));
+        assertEquals("multi\nline", IDataMap.of(decoded[1]).get("b"));
+    }
+
+    @Test
+    public void testStreamingEncode() throws Exception {
+        Iterator<IData> records = Arrays.asList(IDataHelper.put(IDataHelper.put(null, "a", "1"), "b", "2"), IDataHelper.put(null, "b", "3")).iterator();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new IDataCSVParser(';').encode(outputStream, records, new String[] { "b", "a" }, UTF_8);
+        assertEquals("b;a\r\n2;1\r\n3;\r\n", new String(outputStream.toByteArray(), UTF_8));
+    }
+}
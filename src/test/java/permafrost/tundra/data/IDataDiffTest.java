@@ -0,0 +1,196 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import org.junit.Test;
+import java.util.Random;
+
+public class IDataDiffTest {
+    private static IDataMap catalogue() {
+        IDataMap item1 = new IDataMap();
+        item1.put("sku", "A1");
+        item1.put("price", "10.00");
+
+        IDataMap item2 = new IDataMap();
+        item2.put("sku", "B2");
+        item2.put("price", "20.00");
+
+        IDataMap map = new IDataMap();
+        map.put("name", "Catalogue");
+        map.put("owner", IDataHelper.put(null, "id", "42"));
+        map.put("items", new IData[] { item1, item2 });
+        map.put("tags", new String[] { "x", "y" });
+        return map;
+    }
+
+    private static void assertRoundTrip(IData before, IData after) {
+        IData[] script = IDataDiff.compute(before, after);
+        IData patched = IDataPatch.apply(before, script);
+        assertEquals(IDataHelper.join(after), IDataHelper.join(patched));
+        assertEquals(0, BasicIDataComparator.getInstance().compare(after, patched));
+    }
+
+    private static String edit(IData edit) {
+        return IDataHelper.get(edit, IDataDiff.OPERATION_KEY) + " " + IDataHelper.get(edit, IDataDiff.PATH_KEY);
+    }
+
+    @Test
+    public void testEqualDocumentsHaveEmptyScript() throws Exception {
+        assertEquals(0, IDataDiff.compute(catalogue(), catalogue()).length);
+        assertEquals(0, IDataDiff.compute(null, null).length);
+    }
+
+    @Test
+    public void testNestedChangesAreAddressedByPath() throws Exception {
+        IDataMap before = catalogue();
+        IDataMap after = catalogue();
+        IDataHelper.put(after, "items[1]/price", "25.00");
+        IDataHelper.put(after, "owner/name", "Bob");
+        after.remove("tags");
+
+        IData[] script = IDataDiff.compute(before, after);
+        assertEquals(3, script.length);
+        assertEquals("remove tags", edit(script[0]));
+        assertEquals("add owner/name", edit(script[1]));
+        assertEquals("replace items[1]/price", edit(script[2]));
+        assertEquals("25.00", IDataHelper.get(script[2], IDataDiff.VALUE_KEY));
+
+        assertRoundTrip(before, after);
+        // the original document is not modified by patching
+        assertEquals("20.00", IDataHelper.get(before, "items[1]/price"));
+    }
+
+    @Test
+    public void testArrayItemsAddedAndRemoved() throws Exception {
+        IDataMap before = catalogue();
+        IDataMap after = catalogue();
+        IData[] items = (IData[])after.get("items");
+        after.put("items", new IData[] { items[0], items[1], IDataHelper.put(null, "sku", "C3") });
+
+        IData[] script = IDataDiff.compute(before, after);
+        assertEquals(1, script.length);
+        assertEquals("add items[2]", edit(script[0]));
+        assertRoundTrip(before, after);
+
+        script = IDataDiff.compute(after, before);
+        assertEquals(1, script.length);
+        assertEquals("remove items[2]", edit(script[0]));
+        assertRoundTrip(after, before);
+
+        after.put("items", new IData[] { items[1] });
+        script = IDataDiff.compute(before, after);
+        assertEquals(1, script.length);
+        assertEquals("remove items[0]", edit(script[0]));
+        assertRoundTrip(before, after);
+    }
+
+    @Test
+    public void testReorderedKeysReplaceDocument() throws Exception {
+        IData before = IDataHelper.put(IDataHelper.put(null, "a", "1"), "b", "2");
+        IData after = IDataHelper.put(IDataHelper.put(null, "b", "2"), "a", "1");
+
+        IData[] script = IDataDiff.compute(before, after);
+        assertEquals(1, script.length);
+        assertNull(IDataHelper.get(script[0], IDataDiff.PATH_KEY));
+        assertRoundTrip(before, after);
+
+        IData nestedBefore = IDataHelper.put(null, "n", before);
+        IData nestedAfter = IDataHelper.put(null, "n", after);
+        assertEquals("replace n", edit(IDataDiff.compute(nestedBefore, nestedAfter)[0]));
+        assertRoundTrip(nestedBefore, nestedAfter);
+    }
+
+    @Test
+    public void testLiteralKeys() throws Exception {
+        IData before = IDataHelper.put(null, "a/b", "1", true);
+        IData after = IDataHelper.put(null, "a/b", "2", true);
+        IDataHelper.put(after, "c[0]", "3", true);
+
+        IData[] script = IDataDiff.compute(before, after);
+        assertEquals(2, script.length);
+        assertEquals("true", IDataHelper.get(script[0], IDataDiff.LITERAL_KEY));
+        assertRoundTrip(before, after);
+    }
+
+    @Test
+    public void testFrozenSubtreesAreSkipped() throws Exception {
+        IDataMap changed = catalogue();
+        changed.put("name", "Renamed");
+
+        ReadOnlyIDataMap before = new ReadOnlyIDataMap((IData)catalogue());
+        ReadOnlyIDataMap after = new ReadOnlyIDataMap((IData)changed);
+
+        IData[] script = IDataDiff.compute(before, after);
+        assertEquals(1, script.length);
+        assertEquals("replace name", edit(script[0]));
+    }
+
+    @Test
+    public void testEqualHashesAreConfirmed() throws Exception {
+        IData before = IDataHelper.put(null, "owner", new CollidingIDataMap(IDataHelper.put(null, "id", "1")));
+        IData after = IDataHelper.put(null, "owner", new CollidingIDataMap(IDataHelper.put(null, "id", "2")));
+
+        IData[] script = IDataDiff.compute(before, after);
+        assertEquals(1, script.length);
+        assertEquals("replace owner/id", edit(script[0]));
+    }
+
+    private static class CollidingIDataMap extends IDataMap {
+        public CollidingIDataMap(IData document) {
+            super(document);
+        }
+
+        @Override
+        protected long hash() {
+            return 42;
+        }
+
+        @Override
+        protected boolean isHashMemoized() {
+            return true;
+        }
+    }
+
+    @Test
+    public void testNullDocuments() throws Exception {
+        IData document = catalogue();
+        assertNull(IDataPatch.apply(document, IDataDiff.compute(document, null)));
+        assertEquals(0, BasicIDataComparator.getInstance().compare(document, IDataPatch.apply(null, IDataDiff.compute(null, document))));
+    }
+
+    private static IData random(Random random, int depth) {
+        IData document = IDataFactory.create();
+        IDataCursor cursor = document.getCursor();
+        int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            String key = "k" + random.nextInt(5);
+            if (cursor.first(key)) continue;
+            cursor.last();
+            int kind = depth > 2 ? 0 : random.nextInt(3);
+            if (kind == 0) {
+                cursor.insertAfter(key, random.nextInt(3) == 0 ? null : "v" + random.nextInt(3));
+            } else if (kind == 1) {
+                cursor.insertAfter(key, random(random, depth + 1));
+            } else {
+                IData[] array = new IData[random.nextInt(4)];
+                for (int j = 0; j < array.length; j++) {
+                    array[j] = random.nextInt(6) == 0 ? null : random(random, depth + 1);
+                }
+                cursor.insertAfter(key, array);
+            }
+        }
+        cursor.destroy();
+        return document;
+    }
+
+    @Test
+    public void testRandomRoundTrips() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            assertRoundTrip(random(random, 0), random(random, 0));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import com.wm.data.IData;
+import com.wm.util.coder.IDataCodable;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+public class IDataHasherTest {
+    private static IDataMap sample() {
+        IDataMap child = new IDataMap();
+        child.put("c", new String[] { "x", null, "y" });
+        child.put("d", new BigDecimal("1.50"));
+
+        IDataMap map = new IDataMap();
+        map.put("a", "1");
+        map.put("b", child);
+        map.put("e", new IData[] { IDataHelper.put(null, "f", "g"), IDataHelper.put(null, "f", null) });
+        map.put("h", new byte[] { 1, 2, 3 });
+        map.put("i", null);
+        return map;
+    }
+
+    @Test
+    public void testEqualDocumentsHaveEqualHashes() throws Exception {
+        IDataHasher hasher = IDataHasher.getInstance();
+        IDataMap first = sample(), second = sample();
+
+        assertEquals(0, BasicIDataComparator.getInstance().compare(first, second));
+        assertEquals(hasher.hash(first), hasher.hash(second));
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void testDifferentDocumentsHaveDifferentHashes() throws Exception {
+        IDataHasher hasher = IDataHasher.getInstance();
+        IDataMap first = sample(), second = sample();
+        ((IDataMap)second.get("b")).put("c", new String[] { "x", null, "z" });
+
+        assertTrue(hasher.hash(first) != hasher.hash(second));
+        assertTrue(hasher.hash(IDataHelper.put(null, "a", null)) != hasher.hash(IDataHelper.put(null, "a", new IData[0])));
+        assertTrue(hasher.hash(IDataHelper.put(IDataHelper.put(null, "a", "1"), "b", "2")) != hasher.hash(IDataHelper.put(IDataHelper.put(null, "b", "2"), "a", "1")));
+    }
+
+    @Test
+    public void testNormalizedValues() throws Exception {
+        IDataHasher hasher = IDataHasher.getInstance();
+        assertEquals(hasher.hash(IDataHelper.put(null, "a", new BigDecimal("2.0"))), hasher.hash(IDataHelper.put(null, "a", new BigDecimal("2.000"))));
+        assertEquals(hasher.hash(IDataHelper.put(null, "a", new BigDecimal("0.00"))), hasher.hash(IDataHelper.put(null, "a", BigDecimal.ZERO)));
+
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Calendar sydney = Calendar.getInstance(TimeZone.getTimeZone("Australia/Sydney"));
+        sydney.setTimeInMillis(utc.getTimeInMillis());
+        assertEquals(hasher.hash(IDataHelper.put(null, "a", utc)), hasher.hash(IDataHelper.put(null, "a", sydney)));
+    }
+
+    @Test
+    public void testStableStringHash() throws Exception {
+        // string hashes do not depend on the JVM instance
+        assertEquals(IDataHasher.getInstance().hash(IDataHelper.put(null, "a", "b")), IDataHasher.getInstance().hash(IDataHelper.put(null, "a", "b")));
+        assertTrue(IDataHasher.getInstance().hash((IData)null) != IDataHasher.getInstance().hash(new IData[0]));
+    }
+
+    @Test
+    public void testReadOnlyMemoizedHash() throws Exception {
+        ReadOnlyIDataMap first = new ReadOnlyIDataMap((IData)sample());
+        ReadOnlyIDataMap second = new ReadOnlyIDataMap((IData)sample());
+        IDataMap other = sample();
+        other.put("a", "2");
+        ReadOnlyIDataMap third = new ReadOnlyIDataMap((IData)other);
+
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.hashCode(), sample().hashCode());
+        assertTrue(first.isHashMemoized());
+        assertEquals(first, second);
+        assertTrue(third.hashCode() != first.hashCode());
+        assertFalse(first.equals(third));
+        assertEquals(first.hashCode(), ReadOnlyIDataMap.view(sample()).hashCode());
+    }
+
+    @Test
+    public void testCodableHashIsNotMemoized() throws Exception {
+        final IData source = IDataHelper.put(null, "a", "1");
+        ReadOnlyIDataMap map = new ReadOnlyIDataMap(new IDataCodable() {
+            public IData getIData() {
+                return source;
+            }
+
+            public void setIData(IData document) {}
+        });
+
+        int before = map.hashCode();
+        assertFalse(map.isHashMemoized());
+        IDataHelper.put(source, "a", "2");
+
+        assertTrue(map.hashCode() != before);
+        assertEquals(IDataHasher.fold(IDataHasher.getInstance().hash(IDataHelper.put(null, "a", "2"))), map.hashCode());
+    }
+}
@@ -11,6 +11,12 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import permafrost.tundra.io.StreamHelper;
+import permafrost.tundra.lang.ArrayHelper;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
 import java.util.regex.Pattern;
 
 public class IDataHelperTest {
@@ -1022,6 +1028,78 @@ public class IDataHelperTest {
         assertEquals("z", sixth.get("key2"));
     }
 
+    @Test
+    public void testSortMatchesComparatorWithNullsAndDuplicates() throws Exception {
+        String[] decimals = { "10.5", null, "2", "2.0", "-1", null, "10.5", "3" };
+        IData[] array = new IData[decimals.length * 2];
+
+        for (int i = 0; i < array.length; i++) {
+            IDataMap item = new IDataMap();
+            item.put("position", i);
+            if (decimals[i % decimals.length] != null) item.put("decimal", decimals[i % decimals.length]);
+            if (i % 3 != 0) item.put("string", i % 2 == 0 ? "b" : "a");
+            array[i] = item;
+        }
+
+        IDataComparisonCriterion[] criteria = new IDataComparisonCriterion[] {
+            new IDataComparisonCriterion("string", IDataComparisonType.STRING, true),
+            new IDataComparisonCriterion("decimal", IDataComparisonType.DECIMAL, false)
+        };
+
+        IData[] expected = ArrayHelper.sort(array, new CriteriaBasedIDataComparator(criteria));
+        IData[] actual = IDataHelper.sort(array, criteria);
+
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue("position " + i, expected[i] == actual[i]);
+        }
+    }
+
+    @Test
+    public void testTopAndBottomMatchSort() throws Exception {
+        java.util.Random random = new java.util.Random(42);
+        IData[] array = new IData[500];
+        for (int i = 0; i < array.length; i++) {
+            IDataMap item = new IDataMap();
+            item.put("position", i);
+            if (random.nextInt(10) != 0) item.put("amount", random.nextInt(50) + "." + random.nextInt(10));
+            item.put("group", Integer.toString(random.nextInt(3)));
+            array[i] = item;
+        }
+
+        IDataComparisonCriterion[] criteria = new IDataComparisonCriterion[] {
+            new IDataComparisonCriterion("group", IDataComparisonType.INTEGER, true),
+            new IDataComparisonCriterion("amount", IDataComparisonType.DECIMAL, false)
+        };
+
+        IData[] sorted = IDataHelper.sort(array, criteria);
+
+        for (int limit : new int[] { 0, 1, 7, 16, 17, 100, 499, 500, 1000 }) {
+            int length = Math.min(limit, array.length);
+            IData[] first = Arrays.copyOf(sorted, length);
+            IData[] last = Arrays.copyOfRange(sorted, sorted.length - length, sorted.length);
+
+            assertArrayEquals("top " + limit, first, IDataHelper.top(array, limit, criteria));
+            assertArrayEquals("bottom " + limit, last, IDataHelper.bottom(array, limit, criteria));
+            assertArrayEquals("top iterator " + limit, first, IDataHelper.top(Arrays.asList(array).iterator(), limit, criteria));
+            assertArrayEquals("bottom iterator " + limit, last, IDataHelper.bottom(Arrays.asList(array).iterator(), limit, criteria));
+        }
+    }
+
+    @Test
+    public void testTopAndBottomWithoutCriteria() throws Exception {
+        IData[] array = new IData[] { IDataFactory.create(), IDataFactory.create(), IDataFactory.create() };
+
+        assertArrayEquals(new IData[] { array[0], array[1] }, IDataHelper.top(array, 2));
+        assertArrayEquals(new IData[] { array[1], array[2] }, IDataHelper.bottom(array, 2));
+        assertArrayEquals(new IData[] { array[1], array[2] }, IDataHelper.bottom(Arrays.asList(array).iterator(), 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopWithNegativeLimit() throws Exception {
+        IDataHelper.top(new IData[0], -1, new IDataComparisonCriterion("key"));
+    }
+
     @Test
     public void testGetAsArrayWithSingleOccurrence() throws Exception {
         Object[] expected = new String[] { "1" };
@@ -1361,6 +1439,78 @@ public class IDataHelperTest {
         assertEquals("z", fifth.get("key3"));
     }
 
+    @Test
+    public void testUniqueUnsortedPreservesOrder() throws Exception {
+        String[] values = { "z", "a", "z", "m", "a" };
+        IData[] array = new IData[values.length];
+        for (int i = 0; i < values.length; i++) {
+            IDataMap item = new IDataMap();
+            item.put("key", values[i]);
+            item.put("position", i);
+            array[i] = item;
+        }
+
+        IData[] result = IDataHelper.unique(array, false, "key");
+
+        assertEquals(3, result.length);
+        assertTrue(result[0] == array[0]);
+        assertTrue(result[1] == array[1]);
+        assertTrue(result[2] == array[3]);
+    }
+
+    @Test
+    public void testGroup() throws Exception {
+        String[] values = { "z", "a", null, "z", "a", null };
+        IData[] array = new IData[values.length];
+        for (int i = 0; i < values.length; i++) {
+            IDataMap item = new IDataMap();
+            if (values[i] != null) item.put("key", values[i]);
+            array[i] = item;
+        }
+
+        IData[] sorted = IDataHelper.group(array, "key");
+        assertEquals(3, sorted.length);
+        assertEquals(null, IDataHelper.get(sorted[0], "group/key"));
+        assertEquals("a", IDataHelper.get(sorted[1], "group/key"));
+        assertEquals("z", IDataHelper.get(sorted[2], "group/key"));
+
+        IData[] unsorted = IDataHelper.group(array, false, "key");
+        assertEquals(3, unsorted.length);
+        assertEquals("z", IDataHelper.get(unsorted[0], "group/key"));
+        assertEquals("a", IDataHelper.get(unsorted[1], "group/key"));
+        assertEquals(null, IDataHelper.get(unsorted[2], "group/key"));
+
+        IData[] items = (IData[])IDataHelper.get(unsorted[0], "items");
+        assertEquals(2, items.length);
+        assertTrue(items[0] == array[0]);
+        assertTrue(items[1] == array[3]);
+    }
+
+    @Test
+    public void testGroupMatchesByNaturalOrdering() throws Exception {
+        Calendar sydney = new GregorianCalendar(TimeZone.getTimeZone("Australia/Sydney"));
+        sydney.setTimeInMillis(1234567890123L);
+        Calendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(1234567890123L);
+
+        Object[][] lists = { { new BigDecimal("1.0"), new BigDecimal("2"), new BigDecimal("1.00"), new BigDecimal("0.0"), BigDecimal.ZERO }, { sydney, utc } };
+        int[] expected = { 3, 1 };
+
+        for (int i = 0; i < lists.length; i++) {
+            IData[] array = new IData[lists[i].length];
+            for (int j = 0; j < array.length; j++) {
+                IDataMap item = new IDataMap();
+                item.put("key", lists[i][j]);
+                array[j] = item;
+            }
+
+            for (boolean sorted : new boolean[] { false, true }) {
+                assertEquals(expected[i], IDataHelper.group(array, sorted, "key").length);
+                assertEquals(expected[i], IDataHelper.unique(array, sorted, "key").length);
+            }
+        }
+    }
+
     @Test
     public void testGetLeafValuesForIData() throws Exception {
         String[] expected = new String[] { "1", "2", "3", "4", "6" };
@@ -1465,4 +1615,55 @@ public class IDataHelperTest {
         assertEquals("z = null; a = 1; b = 2; c = {d = [null, 3, 4]; e = [[5, 6], [7, 8], null, [null, 9]]}; f = [9, 10, null, 12, null]; g = [{h = 13; i = 14}, {j = 15; k = null}]; l = []", IDataHelper.join(map, "; ", ", ", " = ", true));
         assertEquals("a = 1; b = 2; c = {d = [3, 4]; e = [[5, 6], [7, 8], [9]]}; f = [9, 10, 12]; g = [{h = 13; i = 14}, {j = 15}]; l = []", IDataHelper.join(map, "; ", ", ", " = ", false));
     }
+
+    private static IData[] catalogue(int size, int nestedSize) {
+        IData[] array = new IData[size];
+        for (int i = 0; i < size; i++) {
+            IDataMap item = new IDataMap();
+            item.put("id", " " + i + " ");
+            item.put("blank", "  ");
+            item.put("missing", null);
+            item.put("number", i);
+            if (i == 0) item.put("children", catalogue(nestedSize, 0));
+            array[i] = i % 7 == 3 ? null : item;
+        }
+        return array;
+    }
+
+    @Test
+    public void testParallelTransformsMatchSequential() throws Exception {
+        IData[] array = catalogue(IDataHelper.PARALLEL_THRESHOLD * 2 + 1, IDataHelper.PARALLEL_THRESHOLD);
+        IData document = IDataHelper.put(null, "items", array);
+
+        assertEquals(IDataHelper.join(IDataHelper.squeeze(document, true, false)), IDataHelper.join(IDataHelper.squeeze(document, true, true)));
+        assertEquals(IDataHelper.join(IDataHelper.compact(array, true, false)), IDataHelper.join(IDataHelper.compact(array, true, true)));
+        IData[] compacted = IDataHelper.compact(array, true);
+        assertEquals(IDataHelper.join(IDataHelper.stringify(compacted, true, false)), IDataHelper.join(IDataHelper.stringify(compacted, true, true)));
+        assertEquals(IDataHelper.join(IDataHelper.blankify(array, true, false)), IDataHelper.join(IDataHelper.blankify(array, true, true)));
+        assertEquals(IDataHelper.join(IDataHelper.nullify(array, true, false)), IDataHelper.join(IDataHelper.nullify(array, true, true)));
+        assertEquals(IDataHelper.join(IDataHelper.substitute(array, null, document, true, false)), IDataHelper.join(IDataHelper.substitute(array, null, document, true, true)));
+    }
+
+    @Test
+    public void testCompactArrayRecursesOverCompactedItems() throws Exception {
+        IData nested = IDataHelper.put(IDataHelper.put(null, "c", null), "d", "4");
+        IData[] array = new IData[] { null, null, IDataHelper.put(null, "nested", nested), null };
+
+        IData[] output = IDataHelper.compact(array, true);
+
+        assertEquals(1, output.length);
+        IData compacted = (IData)IDataHelper.get(output[0], "nested");
+        assertEquals(1, IDataHelper.size(compacted));
+        assertEquals("4", IDataHelper.get(compacted, "d"));
+    }
+
+    @Test
+    public void testCompactArrayWithNullItems() throws Exception {
+        IData[] array = new IData[] { IDataHelper.put(null, "a", null), null, IDataHelper.put(null, "b", "2") };
+        IData[] output = IDataHelper.compact(array, true);
+
+        assertEquals(2, output.length);
+        assertEquals(0, IDataHelper.size(output[0]));
+        assertEquals("2", IDataHelper.get(output[1], "b"));
+    }
 }
@@ -0,0 +1,165 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.wm.data.IData;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class IDataJSONParserTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String JSON = "{ \"a\" : \"1\", \"b\": {\"c\": -12.50e+2, \"d\": null}, \"e\": [\"p\", \"q\\n\\u00e9\"],\n" +
+        "\"f\": [{\"g\": true}, {\"g\": false}], \"h\": [1, \"x\", null], \"i\": [], \"j\": [[\"r\"]] }";
+
+    @Test
+    public void testDecode() throws Exception {
+        IDataMap map = IDataMap.of(IDataJSONParser.getInstance().decodeFromString(JSON));
+
+        assertEquals("1", map.get("a"));
+        IDataMap b = IDataMap.of((IData)map.get("b"));
+        assertEquals(new BigDecimal("-12.50e+2"), b.get("c"));
+        assertTrue(b.containsKey("d"));
+        assertNull(b.get("d"));
+        assertArrayEquals(new String[] { "p", "q\n\u00e9" }, (String[])map.get("e"));
+        IData[] f = (IData[])map.get("f");
+        assertEquals(Boolean.FALSE, IDataMap.of(f[1]).get("g"));
+        assertArrayEquals(new Object[] { new BigDecimal("1"), "x", null }, (Object[])map.get("h"));
+        assertEquals(0, ((Object[])map.get("i")).length);
+        assertArrayEquals(new String[][] { { "r" } }, (Object[])map.get("j"));
+    }
+
+    @Test
+    public void testDecodeNumbersAsStrings() throws Exception {
+        IData document = IDataJSONParser.getInstance(IDataJSONNumberMode.STRING).decodeFromString("{\"a\": 1.0E3, \"b\": [0, -1]}");
+        IDataMap map = IDataMap.of(document);
+
+        assertEquals("1.0E3", map.get("a"));
+        assertArrayEquals(new String[] { "0", "-1" }, (String[])map.get("b"));
+    }
+
+    @Test
+    public void testDecodeLongStringsAcrossBuffers() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append((char)('a' + i % 26));
+            if (i % 1000 == 0) builder.append("\\\"");
+        }
+        String value = builder.toString();
+
+        IData document = IDataJSONParser.getInstance().decode(new ByteArrayInputStream(("{\"a\": \"" + value + "\"}").getBytes(UTF_8)), UTF_8);
+        assertEquals(value.replace("\\\"", "\""), IDataMap.of(document).get("a"));
+    }
+
+    @Test
+    public void testMalformedJSON() throws Exception {
+        String[] inputs = { "", "[]", "{", "{\"a\"}", "{\"a\": }", "{\"a\": 1,}", "{\"a\": 01}", "{\"a\": 1.}", "{\"a\": tru}", "{\"a\": \"x}", "{} x", "{\"a\": [1,]}", "{\"a\": \"\\x\"}" };
+
+        for (String input : inputs) {
+            try {
+                IDataJSONParser.getInstance().decodeFromString(input);
+                fail();
+            } catch (IOException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testNestingDepth() throws Exception {
+        // objects and arrays both count towards the depth
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i < IDataJSONParser.MAXIMUM_NESTING_DEPTH; i++) {
+            builder.append(i % 2 == 1 ? "{\"a\": " : "[");
+        }
+        builder.append("{}");
+        for (int i = IDataJSONParser.MAXIMUM_NESTING_DEPTH - 1; i > 0; i--) {
+            builder.append(i % 2 == 1 ? "}" : "]");
+        }
+        assertTrue(IDataJSONParser.getInstance().decodeFromString(builder.toString()) != null);
+
+        try {
+            IDataJSONParser.getInstance().decodeFromString("{\"a\": " + builder + "}");
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testDeeplyNestedJSONDoesNotOverflowStack() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            builder.append("{\"a\": [");
+        }
+        IDataJSONParser.getInstance().decodeFromString(builder.toString());
+    }
+
+    @Test
+    public void testEncode() throws Exception {
+        IDataMap child = new IDataMap();
+        child.put("x", Boolean.TRUE);
+
+        IDataMap map = new IDataMap();
+        map.put("a", "quote \" slash \\ newline \n tab \t control \u0001");
+        map.put("b", new BigDecimal("1.50"));
+        map.put("c", null);
+        map.put("d", new String[] { "p", null });
+        map.put("e", new IData[] { child });
+        map.put("f", 42);
+        map.put("g", Double.NaN);
+
+        String json = IDataJSONParser.getInstance().encodeToString(map);
+
+        assertEquals("{\"a\":\"quote \\\" slash \\\\ newline \\n tab \\t control \\u0001\",\"b\":1.50,\"c\":null,\"d\":[\"p\",null],\"e\":[{\"x\":true}],\"f\":42,\"g\":\"NaN\"}", json);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        IData document = IDataJSONParser.getInstance().decodeFromString(JSON);
+        String json = IDataJSONParser.getInstance().encodeToString(document);
+
+        assertEquals(0, BasicIDataComparator.getInstance().compare(document, IDataJSONParser.getInstance().decodeFromString(json)));
+    }
+
+    @Test
+    public void testStreamEvents() throws Exception {
+        IDataStreamReader reader = IDataJSONParser.getInstance().read(new ByteArrayInputStream(JSON.getBytes(UTF_8)), UTF_8);
+        List<String> keys = new ArrayList<String>();
+        Object e = null;
+
+        while (reader.hasNext()) {
+            if (reader.next() == IDataEvent.KEY && reader.getDepth() == 1) {
+                keys.add(reader.getKey());
+                if (reader.getKey().equals("f")) {
+                    e = reader.readValue();
+                } else {
+                    reader.skip();
+                }
+            }
+        }
+        reader.close();
+
+        assertEquals(Arrays.asList("a", "b", "e", "f", "h", "i", "j"), keys);
+        assertEquals(2, ((IData[])e).length);
+    }
+
+    @Test
+    public void testStreamMatchesDecode() throws Exception {
+        IDataStreamReader reader = IDataJSONParser.getInstance().read(new ByteArrayInputStream(JSON.getBytes(UTF_8)), UTF_8);
+        reader.next();
+        IData streamed = reader.readDocument();
+        reader.close();
+
+        assertEquals(0, BasicIDataComparator.getInstance().compare(IDataJSONParser.getInstance().decodeFromString(JSON), streamed));
+    }
+}
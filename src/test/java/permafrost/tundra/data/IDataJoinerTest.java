@@ -0,0 +1,156 @@
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class IDataJoinerTest {
+    IData[] lines, products;
+
+    @Before
+    public void setUp() throws Exception {
+        lines = new IData[] {
+            line("1", "p1"),
+            line("2", "p3"),
+            line("3", "p2"),
+            line("4", "p1")
+        };
+
+        products = new IData[] {
+            product("p1", "widget"),
+            product("p2", "gadget"),
+            product("p2", "gizmo")
+        };
+    }
+
+    private static IData line(String number, String sku) {
+        IDataMap line = new IDataMap();
+        line.put("number", number);
+        line.put("sku", sku);
+        return line;
+    }
+
+    private static IData product(String code, String name) {
+        IDataMap product = new IDataMap();
+        product.put("code", code);
+        product.put("name", name);
+        return product;
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        IData[] results = IDataHelper.join(lines, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.INNER);
+
+        assertEquals(4, results.length);
+        assertEquals("1", IDataHelper.get(results[0], "number"));
+        assertEquals("widget", IDataHelper.get(results[0], "name"));
+        assertEquals("3", IDataHelper.get(results[1], "number"));
+        assertEquals("gadget", IDataHelper.get(results[1], "name"));
+        assertEquals("3", IDataHelper.get(results[2], "number"));
+        assertEquals("gizmo", IDataHelper.get(results[2], "name"));
+        assertEquals("4", IDataHelper.get(results[3], "number"));
+        assertEquals("widget", IDataHelper.get(results[3], "name"));
+    }
+
+    @Test
+    public void testInnerJoinIndexingEitherSideGivesSameOrder() throws Exception {
+        IData[] fewer = new IData[] { lines[2], lines[0] };
+        IData[] results = IDataHelper.join(fewer, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.INNER);
+
+        assertEquals(3, results.length);
+        assertEquals("gadget", IDataHelper.get(results[0], "name"));
+        assertEquals("gizmo", IDataHelper.get(results[1], "name"));
+        assertEquals("widget", IDataHelper.get(results[2], "name"));
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        IData[] results = IDataHelper.join(lines, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.LEFT);
+
+        assertEquals(5, results.length);
+        assertEquals("2", IDataHelper.get(results[1], "number"));
+        assertNull(IDataHelper.get(results[1], "name"));
+    }
+
+    @Test
+    public void testAntiJoin() throws Exception {
+        IData[] results = IDataHelper.join(lines, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.ANTI);
+
+        assertEquals(1, results.length);
+        assertSame(lines[1], results[0]);
+    }
+
+    @Test
+    public void testNullKeysNeverMatch() throws Exception {
+        IData[] left = new IData[] { line("1", "p1"), line("2", null), new IDataMap() };
+        IData[] right = new IData[] { product("p1", "widget"), product(null, "gadget"), new IDataMap() };
+
+        // both sides are indexed in turn, as the smaller list is always the one indexed
+        IData[] larger = new IData[] { right[0], right[1], right[2], product("p9", "spare") };
+        for (IData[] products : new IData[][] { right, larger }) {
+            IData[] results = IDataHelper.join(left, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.INNER);
+            assertEquals(1, results.length);
+            assertEquals("widget", IDataHelper.get(results[0], "name"));
+
+            results = IDataHelper.join(products, left, new String[] { "code" }, new String[] { "sku" }, IDataJoinType.INNER);
+            assertEquals(1, results.length);
+
+            results = IDataHelper.join(left, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.LEFT);
+            assertEquals(3, results.length);
+            assertEquals("2", IDataHelper.get(results[1], "number"));
+            assertNull(IDataHelper.get(results[1], "name"));
+            assertNull(IDataHelper.get(results[2], "name"));
+
+            results = IDataHelper.join(left, products, new String[] { "sku" }, new String[] { "code" }, IDataJoinType.ANTI);
+            assertEquals(2, results.length);
+            assertSame(left[1], results[0]);
+            assertSame(left[2], results[1]);
+        }
+    }
+
+    @Test
+    public void testParallelJoinMatchesSequential() throws Exception {
+        IData[] left = new IData[1000];
+        for (int i = 0; i < left.length; i++) {
+            left[i] = line("" + i, "p" + (i % 7));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (IDataJoinType type : IDataJoinType.values()) {
+                IDataJoiner joiner = new IDataJoiner(new String[] { "sku" }, new String[] { "code" }, type);
+
+                IData[] expected = joiner.join(left, products);
+                IData[] actual = joiner.join(left, products, executor, 100);
+
+                assertEquals(expected.length, actual.length);
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(IDataHelper.get(expected[i], "number"), IDataHelper.get(actual[i], "number"));
+                    assertEquals(IDataHelper.get(expected[i], "name"), IDataHelper.get(actual[i], "name"));
+                }
+
+                // probing with the larger right list, after indexing the smaller left list
+                joiner = new IDataJoiner(new String[] { "code" }, new String[] { "sku" }, type);
+                expected = joiner.join(products, left);
+                actual = joiner.join(products, left, executor, 100);
+
+                assertEquals(expected.length, actual.length);
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(IDataHelper.get(expected[i], "number"), IDataHelper.get(actual[i], "number"));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedKeys() throws Exception {
+        new IDataJoiner(new String[] { "a", "b" }, new String[] { "a" }, IDataJoinType.INNER);
+    }
+}
@@ -0,0 +1,162 @@
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataUtil;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IDataPathTest {
+    IData document;
+
+    @Before
+    public void setUp() throws Exception {
+        IData child = IDataFactory.create();
+        IDataCursor cursor = child.getCursor();
+        IDataUtil.put(cursor, "c", "3");
+        cursor.destroy();
+
+        IData item1 = IDataFactory.create();
+        cursor = item1.getCursor();
+        IDataUtil.put(cursor, "e", "5");
+        cursor.destroy();
+
+        IData item2 = IDataFactory.create();
+        cursor = item2.getCursor();
+        IDataUtil.put(cursor, "e", "6");
+        cursor.destroy();
+
+        document = IDataFactory.create();
+        cursor = document.getCursor();
+        IDataUtil.put(cursor, "a", "1");
+        IDataUtil.put(cursor, "b", child);
+        IDataUtil.put(cursor, "d", new IData[] { item1, item2 });
+        IDataUtil.put(cursor, "f/g", "7");
+        cursor.destroy();
+    }
+
+    @Test
+    public void testOfIsCached() throws Exception {
+        assertSame(IDataPath.of("b/c"), IDataPath.of("b/c"));
+        assertSame(IDataPath.of("b/c", true), IDataPath.of("b/c", true));
+        assertFalse(IDataPath.of("b/c").equals(IDataPath.of("b/c", true)));
+        assertNull(IDataPath.of(null));
+    }
+
+    @Test
+    public void testOfParsesSegments() throws Exception {
+        IDataPath path = IDataPath.of("/a/b[1]/c(2)");
+
+        assertTrue(path.isAbsolute());
+        assertTrue(path.isFullyQualified());
+        assertFalse(path.isLiteral());
+
+        IDataPath.Segment[] segments = IDataPath.of("a/b[-1]/c(2)").getSegments();
+        assertEquals(3, segments.length);
+        assertEquals("a", segments[0].getKey());
+        assertTrue(segments[1].hasArrayIndex());
+        assertEquals(-1, segments[1].getIndex());
+        assertTrue(segments[2].hasKeyIndex());
+        assertEquals(2, segments[2].getIndex());
+    }
+
+    @Test
+    public void testLiteral() throws Exception {
+        IDataPath path = IDataPath.of("b/c", true);
+        assertFalse(path.isFullyQualified());
+        assertEquals(1, path.getSegments().length);
+        assertNull(path.get(document));
+        assertEquals("7", IDataPath.of("f/g", true).get(document));
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        assertEquals("1", IDataPath.of("a").get(document));
+        assertEquals("3", IDataPath.of("b/c").get(document));
+        assertEquals("5", IDataPath.of("d[0]/e").get(document));
+        assertEquals("6", IDataPath.of("d[-1]/e").get(document));
+        assertEquals("7", IDataPath.of("f/g").get(document));
+        assertNull(IDataPath.of("b/z").get(document));
+        assertNull(IDataPath.of("b/c").get(null));
+    }
+
+    @Test
+    public void testGetAbsolute() throws Exception {
+        IData scope = IDataFactory.create();
+        assertEquals("3", IDataPath.of("/b/c").get(document, scope));
+        assertNull(IDataPath.of("b/c").get(document, scope));
+    }
+
+    @Test
+    public void testGetAsArray() throws Exception {
+        assertArrayEquals(new Object[] { "3" }, IDataPath.of("b/c").getAsArray(document));
+        assertArrayEquals(new Object[] { "6" }, IDataPath.of("d[1]/e").getAsArray(document));
+    }
+
+    @Test
+    public void testSizeAndExists() throws Exception {
+        assertEquals(1, IDataPath.of("b/c").size(document));
+        assertEquals(1, IDataPath.of("d[1]").size(document));
+        assertEquals(0, IDataPath.of("d[2]").size(document));
+        assertTrue(IDataPath.of("b/c").exists(document));
+        assertFalse(IDataPath.of("b/z").exists(document));
+    }
+
+    @Test
+    public void testPut() throws Exception {
+        IDataPath path = IDataPath.of("x/y[1]/z");
+        IData output = path.put(null, "8");
+
+        assertEquals("8", path.get(output));
+        assertEquals(2, ((IData[])IDataPath.of("x/y").get(output)).length);
+
+        path.put(output, null, false);
+        assertEquals("8", path.get(output));
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        IDataPath.of("b/c").drop(document);
+        assertFalse(IDataPath.of("b/c").exists(document));
+
+        IDataPath.of("d[0]").drop(document);
+        assertEquals("6", IDataPath.of("d[0]/e").get(document));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        assertEquals("3", IDataPath.of("b/c").remove(document));
+        assertNull(IDataPath.of("b/c").get(document));
+    }
+
+    @Test
+    public void testSeparatorOnlyPath() throws Exception {
+        assertNull(IDataPath.of("/").get(document));
+        assertEquals(0, IDataPath.of("//").size(document));
+        assertFalse(IDataPath.of("/").exists(document));
+    }
+
+    @Test
+    public void testSeparatorOnlyPathIsIgnoredByUpdates() throws Exception {
+        int size = IDataHelper.size(document);
+
+        assertNull(IDataPath.of("/").getAsArray(document));
+        assertSame(document, IDataPath.of("/").put(document, "value"));
+        assertSame(document, IDataPath.of("//").drop(document));
+        assertSame(document, IDataPath.of("//").dropAll(document));
+        assertEquals(size, IDataHelper.size(document));
+    }
+
+    @Test
+    public void testHelperUsesSamePath() throws Exception {
+        assertEquals(IDataPath.of("d[1]/e").get(document), IDataHelper.get(document, "d[1]/e"));
+        assertEquals(IDataPath.of("b/c").size(document), IDataHelper.size(document, "b/c"));
+    }
+}
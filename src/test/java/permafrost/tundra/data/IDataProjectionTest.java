@@ -0,0 +1,131 @@
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import com.wm.data.IDataUtil;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IDataProjectionTest {
+    IData document;
+
+    @Before
+    public void setUp() throws Exception {
+        IData child = IDataFactory.create();
+        IDataCursor cursor = child.getCursor();
+        IDataUtil.put(cursor, "c", "3");
+        IDataUtil.put(cursor, "d", "4");
+        cursor.destroy();
+
+        IData item1 = IDataFactory.create();
+        cursor = item1.getCursor();
+        IDataUtil.put(cursor, "e", "5");
+        cursor.destroy();
+
+        IData item2 = IDataFactory.create();
+        cursor = item2.getCursor();
+        IDataUtil.put(cursor, "e", "6");
+        cursor.destroy();
+
+        document = IDataFactory.create();
+        cursor = document.getCursor();
+        IDataUtil.put(cursor, "a", "1");
+        IDataUtil.put(cursor, "b", child);
+        IDataUtil.put(cursor, "list", new IData[] { item1, item2 });
+        cursor.insertAfter("a", "2");
+        cursor.insertAfter("b/c", "literal");
+        cursor.destroy();
+    }
+
+    @Test
+    public void testGetMatchesPathGet() throws Exception {
+        String[] keys = { "a", "a(1)", "b/c", "b/d", "list[0]/e", "list[-1]/e", "list[1]", "missing", "b/missing", "a(5)" };
+
+        Object[] values = IDataProjection.of(keys).get(document);
+
+        assertEquals(keys.length, values.length);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], IDataPath.of(keys[i]).get(document), values[i]);
+        }
+        assertEquals("1", values[0]);
+        assertEquals("2", values[1]);
+        assertEquals("literal", values[2]);
+        assertEquals("4", values[3]);
+        assertEquals("6", values[5]);
+    }
+
+    @Test
+    public void testGetWithDuplicateAndNullKeys() throws Exception {
+        Object[] values = IDataProjection.of("b/d", null, "b/d").get(document);
+        assertArrayEquals(new Object[] { "4", null, "4" }, values);
+    }
+
+    @Test
+    public void testGetReusesSlots() throws Exception {
+        IDataProjection projection = IDataProjection.of("a", "b/d");
+        Object[] slots = new Object[] { "x", "y", "z" };
+
+        assertSame(slots, projection.get(document, slots));
+        assertArrayEquals(new Object[] { "1", "4", "z" }, slots);
+
+        projection.get((IData)null, slots);
+        assertArrayEquals(new Object[] { null, null, "z" }, slots);
+    }
+
+    @Test
+    public void testGetAbsolute() throws Exception {
+        IData scope = IDataFactory.create();
+        IDataCursor cursor = scope.getCursor();
+        IDataUtil.put(cursor, "a", "scoped");
+        cursor.destroy();
+
+        Object[] values = IDataProjection.of("a", "/a", "/b/d").get(document, scope, new Object[3]);
+        assertArrayEquals(new Object[] { "scoped", "1", "4" }, values);
+    }
+
+    @Test
+    public void testGetSingleKey() throws Exception {
+        assertArrayEquals(new Object[] { "literal" }, IDataProjection.of("b/c").get(document));
+        assertArrayEquals(new Object[] { "2" }, IDataProjection.of("a(1)").get(document));
+        assertArrayEquals(new Object[] { null }, IDataProjection.of(new String[] { null }).get(document));
+    }
+
+    @Test
+    public void testGetWithRepeatedDocuments() throws Exception {
+        IData first = IDataFactory.create();
+        IDataCursor cursor = first.getCursor();
+        IDataUtil.put(cursor, "x", "1");
+        IDataUtil.put(cursor, "x", "2");
+        cursor.insertAfter("x", "3");
+        cursor.destroy();
+
+        IData second = IDataFactory.create();
+        cursor = second.getCursor();
+        IDataUtil.put(cursor, "y", "4");
+        cursor.destroy();
+
+        IData scope = IDataFactory.create();
+        cursor = scope.getCursor();
+        IDataUtil.put(cursor, "p", first);
+        cursor.insertAfter("p", second);
+        cursor.insertAfter("q", "5");
+        cursor.destroy();
+
+        String[] keys = { "p/x", "p/x(1)", "p(1)/y", "p(1)/x", "q", "p/y" };
+        Object[] values = IDataProjection.of(keys).get(scope);
+
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], IDataPath.of(keys[i]).get(scope), values[i]);
+        }
+        assertArrayEquals(new Object[] { "2", "3", "4", null, "5", null }, values);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetWithShortSlots() throws Exception {
+        IDataProjection.of("a", "b").get(document, new Object[1]);
+    }
+}
@@ -0,0 +1,146 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import com.wm.data.IData;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class IDataStreamTest {
+    private static IData document(String key, Object value) {
+        return IDataHelper.put(null, key, value);
+    }
+
+    private static IData[] numbers(int count) {
+        IData[] array = new IData[count];
+        for (int i = 0; i < count; i++) {
+            array[i] = IDataHelper.put(document("n", Integer.toString(i)), "parity", i % 2 == 0 ? "even" : "odd");
+        }
+        return array;
+    }
+
+    @Test
+    public void testPipeline() throws Exception {
+        IData[] result = IDataStream.of(numbers(10)).filter(new IDataStream.Predicate() {
+            public boolean test(IData document) {
+                return "even".equals(IDataHelper.get(document, "parity"));
+            }
+        }).map(new IDataStream.Function() {
+            public IData apply(IData document) {
+                return document("m", IDataHelper.get(document, "n") + "!");
+            }
+        }).limit(3).toArray();
+
+        assertEquals(3, result.length);
+        assertEquals("0!", IDataHelper.get(result[0], "m"));
+        assertEquals("4!", IDataHelper.get(result[2], "m"));
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        final int[] calls = new int[1];
+        IDataStream stream = IDataStream.of(numbers(100)).map(new IDataStream.Function() {
+            public IData apply(IData document) {
+                calls[0]++;
+                return document;
+            }
+        }).limit(2);
+
+        assertEquals(0, calls[0]);
+        assertEquals(2, stream.count());
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void testFilterCondition() throws Exception {
+        assertEquals(5, IDataStream.of(numbers(10)).filter("%parity% == \"odd\"").count());
+    }
+
+    @Test
+    public void testLimitSkipsNulls() throws Exception {
+        IData a = document("a", "1"), b = document("a", "2");
+        IData[] result = IDataStream.of(a, null, b).limit(3).toArray();
+
+        assertEquals(2, result.length);
+        assertSame(a, result[0]);
+        assertSame(b, result[1]);
+
+        result = IDataStream.of(null, a, null, b).limit(1).toArray();
+        assertEquals(1, result.length);
+        assertSame(a, result[0]);
+    }
+
+    @Test
+    public void testFlatMapSkipsNulls() throws Exception {
+        IData[] result = IDataStream.of(document("a", "1"), null, document("a", "2")).flatMap(new IDataStream.ListFunction() {
+            public IData[] apply(IData document) {
+                return "1".equals(IDataHelper.get(document, "a")) ? null : new IData[] { document, null, document };
+            }
+        }).toArray();
+
+        assertEquals(2, result.length);
+    }
+
+    @Test
+    public void testProjectAndDistinct() throws Exception {
+        IData[] result = IDataStream.of(numbers(6)).distinct("parity").project("parity", "missing", "x/y").toArray();
+
+        assertEquals(2, result.length);
+        assertEquals("even", IDataHelper.get(result[0], "parity"));
+        assertEquals("odd", IDataHelper.get(result[1], "parity"));
+        assertEquals(1, IDataHelper.size(result[0]));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        Iterator<IData[]> batches = IDataStream.of(numbers(5)).batch(2);
+        assertEquals(2, batches.next().length);
+        assertEquals(2, batches.next().length);
+        assertEquals(1, batches.next().length);
+        assertFalse(batches.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testExhausted() throws Exception {
+        IDataStream stream = IDataStream.of(numbers(1)).limit(0);
+        assertNull(stream.first());
+        stream.next();
+    }
+
+    @Test
+    public void testClosesSource() throws Exception {
+        final boolean[] closed = new boolean[1];
+        ByteArrayInputStream inputStream = new ByteArrayInputStream("a\n1\n2\n".getBytes(Charset.forName("UTF-8"))) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        };
+
+        IData first = IDataStream.of(IDataCSVParser.getInstance().iterate(inputStream, null)).first();
+        assertEquals("1", IDataHelper.get(first, "a"));
+        assertTrue(closed[0]);
+    }
+
+    @Test
+    public void testTopAndBottom() throws Exception {
+        IDataComparisonCriterion criterion = new IDataComparisonCriterion("n", IDataComparisonType.INTEGER, true);
+
+        IData[] top = IDataStream.of(numbers(100)).filter("%parity% == \"odd\"").top(3, criterion);
+        assertEquals(3, top.length);
+        assertEquals("99", IDataHelper.get(top[0], "n"));
+        assertEquals("95", IDataHelper.get(top[2], "n"));
+
+        IData[] bottom = IDataStream.of(numbers(100)).bottom(2, criterion);
+        assertEquals(2, bottom.length);
+        assertEquals("1", IDataHelper.get(bottom[0], "n"));
+        assertEquals("0", IDataHelper.get(bottom[1], "n"));
+    }
+}
@@ -0,0 +1,86 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import org.junit.Test;
+import permafrost.tundra.io.ProducerInputStream;
+import permafrost.tundra.io.StreamHelper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+public class IDataTextParserTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Encodes each element of a flat document as a "key=value" line.
+     */
+    private static final IDataTextParser PARSER = new IDataTextParser() {
+        public void encode(OutputStream outputStream, IData document, Charset charset) throws IOException {
+            IDataCursor cursor = document.getCursor();
+            while (cursor.next()) {
+                outputStream.write((cursor.getKey() + "=" + cursor.getValue() + "\n").getBytes(charset));
+            }
+            cursor.destroy();
+        }
+
+        public IData decode(InputStream inputStream, Charset charset) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        public String getContentType() {
+            return "text/plain";
+        }
+    };
+
+    private static IData document(int size) {
+        IDataMap map = new IDataMap();
+        for (int i = 0; i < size; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        return map;
+    }
+
+    @Test
+    public void testEmitSmallDocument() throws Exception {
+        IData document = document(3);
+        InputStream inputStream = PARSER.emit(document, UTF_8);
+
+        assertEquals(ByteArrayInputStream.class, inputStream.getClass());
+        assertEquals("key0=value0\nkey1=value1\nkey2=value2\n", new String(StreamHelper.readToBytes(inputStream), UTF_8));
+    }
+
+    @Test
+    public void testEmitLargeDocumentImmediately() throws Exception {
+        IDataMap document = (IDataMap)document(10000);
+        byte[] expected = PARSER.encodeToBytes(document, UTF_8);
+        InputStream inputStream = PARSER.emit(document, UTF_8);
+        document.put("key0", "changed");
+
+        assertEquals(ByteArrayInputStream.class, inputStream.getClass());
+        assertArrayEquals(expected, StreamHelper.readToBytes(inputStream));
+    }
+
+    @Test
+    public void testEmitLargeDocumentLazily() throws Exception {
+        IData document = document(10000);
+        InputStream inputStream = PARSER.emitLazily(document, UTF_8);
+
+        try {
+            assertEquals(ProducerInputStream.class, inputStream.getClass());
+            assertArrayEquals(PARSER.encodeToBytes(document, UTF_8), StreamHelper.readToBytes(inputStream));
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void testEncodeToBytes() throws Exception {
+        assertEquals("key0=value0\n", new String(PARSER.encodeToBytes(document(1), UTF_8), UTF_8));
+        assertEquals(0, PARSER.encodeToBytes(document(0), UTF_8).length);
+    }
+}
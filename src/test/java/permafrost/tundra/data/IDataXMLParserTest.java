@@ -0,0 +1,166 @@
+package permafrost.tundra.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import com.wm.data.IData;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class IDataXMLParserTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<IDataXMLCoder version=\"1.0\">\n" +
+        "  <record javaclass=\"com.wm.data.ISMemDataImpl\">\n" +
+        "    <value name=\"a\">1</value>\n" +
+        "    <record name=\"b\" javaclass=\"com.wm.data.ISMemDataImpl\">\n" +
+        "      <value name=\"c\">x &amp; y</value>\n" +
+        "      <null name=\"d\"/>\n" +
+        "    </record>\n" +
+        "    <array name=\"e\" type=\"value\" depth=\"1\">\n" +
+        "      <value>p</value>\n" +
+        "      <value>q</value>\n" +
+        "    </array>\n" +
+        "    <array name=\"f\" type=\"record\" depth=\"1\">\n" +
+        "      <record javaclass=\"com.wm.data.ISMemDataImpl\"><value name=\"g\">1</value></record>\n" +
+        "      <record javaclass=\"com.wm.data.ISMemDataImpl\"><value name=\"g\">2</value></record>\n" +
+        "    </array>\n" +
+        "    <array name=\"h\" type=\"value\" depth=\"2\">\n" +
+        "      <array type=\"value\" depth=\"1\"><value>r</value></array>\n" +
+        "    </array>\n" +
+        "    <number name=\"i\" type=\"java.lang.Integer\">42</number>\n" +
+        "    <boolean name=\"j\">true</boolean>\n" +
+        "  </record>\n" +
+        "</IDataXMLCoder>\n";
+
+    private static IDataStreamReader reader() throws IOException {
+        return IDataXMLParser.getInstance().read(new ByteArrayInputStream(XML.getBytes(UTF_8)), UTF_8);
+    }
+
+    @Test
+    public void testReadEvents() throws Exception {
+        IDataStreamReader reader = reader();
+
+        assertEquals(IDataEvent.START_DOCUMENT, reader.next());
+        assertEquals(0, reader.getDepth());
+        assertEquals(IDataEvent.KEY, reader.next());
+        assertEquals("a", reader.getKey());
+        assertEquals(1, reader.getDepth());
+        assertTrue(reader.hasNext());
+        assertEquals("a", reader.getKey());
+        assertEquals(IDataEvent.VALUE, reader.next());
+        assertEquals("1", reader.getValue());
+        assertEquals(IDataEvent.KEY, reader.next());
+        assertEquals("b", reader.getKey());
+        assertEquals(IDataEvent.START_DOCUMENT, reader.next());
+        assertEquals(1, reader.getDepth());
+        assertEquals(IDataEvent.KEY, reader.next());
+        assertEquals(2, reader.getDepth());
+        assertEquals(IDataEvent.VALUE, reader.next());
+        assertEquals("x & y", reader.getValue());
+        assertEquals(IDataEvent.KEY, reader.next());
+        assertEquals("d", reader.getKey());
+        assertEquals(IDataEvent.VALUE, reader.next());
+        assertNull(reader.getValue());
+        assertEquals(IDataEvent.END_DOCUMENT, reader.next());
+        assertEquals(1, reader.getDepth());
+        assertEquals(IDataEvent.KEY, reader.next());
+        assertEquals(IDataEvent.START_ARRAY, reader.next());
+        assertEquals(String.class, reader.getComponentType());
+        assertEquals(IDataEvent.VALUE, reader.next());
+        assertEquals("p", reader.getValue());
+        assertEquals(IDataEvent.VALUE, reader.next());
+        assertEquals(IDataEvent.END_ARRAY, reader.next());
+
+        reader.close();
+    }
+
+    @Test
+    public void testReadDocument() throws Exception {
+        IDataStreamReader reader = reader();
+        reader.next();
+        IData document = reader.readDocument();
+        assertFalse(reader.hasNext());
+        reader.close();
+
+        IDataMap map = IDataMap.of(document);
+        assertEquals("1", map.get("a"));
+        assertEquals("x & y", IDataMap.of((IData)map.get("b")).get("c"));
+        assertTrue(IDataMap.of((IData)map.get("b")).containsKey("d"));
+        assertArrayEquals(new String[] { "p", "q" }, (String[])map.get("e"));
+        IData[] records = (IData[])map.get("f");
+        assertEquals(2, records.length);
+        assertEquals("2", IDataMap.of(records[1]).get("g"));
+        assertArrayEquals(new String[][] { { "r" } }, (String[][])map.get("h"));
+        assertEquals(42, map.get("i"));
+        assertEquals(Boolean.TRUE, map.get("j"));
+    }
+
+    @Test
+    public void testSkipAndProject() throws Exception {
+        IDataStreamReader reader = reader();
+        List<String> keys = new ArrayList<String>();
+        Object e = null;
+
+        while (reader.hasNext()) {
+            if (reader.next() == IDataEvent.KEY && reader.getDepth() == 1) {
+                keys.add(reader.getKey());
+                if (reader.getKey().equals("e")) {
+                    e = reader.readValue();
+                } else {
+                    reader.skip();
+                }
+            }
+        }
+        reader.close();
+
+        assertEquals(Arrays.asList("a", "b", "e", "f", "h", "i", "j"), keys);
+        assertArrayEquals(new String[] { "p", "q" }, (String[])e);
+    }
+
+    @Test
+    public void testParseWithHandler() throws Exception {
+        final int[] counts = new int[2];
+
+        IDataXMLParser.getInstance().parse(new ByteArrayInputStream(XML.getBytes(UTF_8)), UTF_8, new IDataHandler() {
+            public void startDocument() { counts[0]++; }
+            public void endDocument() {}
+            public void key(String key) {}
+            public void value(Object value) { counts[1]++; }
+            public void startArray(Class<?> componentType) {}
+            public void endArray() {}
+        });
+
+        assertEquals(4, counts[0]);
+        assertEquals(10, counts[1]);
+    }
+
+    @Test
+    public void testBuilderInfersArrayType() throws Exception {
+        IDataBuilder builder = new IDataBuilder();
+        builder.startDocument();
+        builder.key("a");
+        builder.startArray(null);
+        builder.value("x");
+        builder.value(null);
+        builder.endArray();
+        builder.key("b");
+        builder.startArray(null);
+        builder.value("x");
+        builder.value(1);
+        builder.endArray();
+        builder.endDocument();
+
+        IDataMap map = IDataMap.of(builder.getDocument());
+        assertEquals(String[].class, map.get("a").getClass());
+        assertEquals(Object[].class, map.get("b").getClass());
+    }
+}
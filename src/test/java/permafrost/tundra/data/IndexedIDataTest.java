@@ -0,0 +1,180 @@
+package permafrost.tundra.data;
+
+import com.wm.data.IData;
+import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IndexedIDataTest {
+    @Test
+    public void testDuplicateKeysKeepDocumentOrder() throws Exception {
+        IndexedIData document = new IndexedIData();
+        IDataCursor cursor = document.getCursor();
+        cursor.insertAfter("a", "1");
+        cursor.insertAfter("b", "2");
+        cursor.insertAfter("a", "3");
+        cursor.first("b");
+        cursor.insertBefore("a", "4");
+
+        assertTrue(cursor.first("a"));
+        assertEquals("1", cursor.getValue());
+        assertTrue(cursor.next("a"));
+        assertEquals("4", cursor.getValue());
+        assertTrue(cursor.next("a"));
+        assertEquals("3", cursor.getValue());
+        assertFalse(cursor.next("a"));
+        assertTrue(cursor.last("a"));
+        assertEquals("3", cursor.getValue());
+        assertTrue(cursor.previous("a"));
+        assertEquals("4", cursor.getValue());
+        cursor.destroy();
+
+        assertEquals(4, document.size());
+    }
+
+    @Test
+    public void testWideDocument() throws Exception {
+        IDataMap map = IDataMap.indexed();
+        for (int i = 0; i < 5000; i++) {
+            map.put("key" + i, "value" + i);
+        }
+
+        assertEquals(5000, map.size());
+        assertEquals("value4321", map.get("key4321"));
+        assertTrue(map.containsKey("key0"));
+        assertFalse(map.containsKey("key5000"));
+
+        for (int i = 0; i < 5000; i += 2) {
+            map.remove("key" + i);
+        }
+
+        assertEquals(2500, map.size());
+        assertNull(map.get("key4320"));
+        assertEquals("value4321", map.get("key4321"));
+    }
+
+    @Test
+    public void testIndexedOfReturnsSameDocument() throws Exception {
+        IndexedIData document = new IndexedIData();
+        assertSame(document, IndexedIData.of(document));
+        assertSame(document, IndexedIData.of(IDataMap.indexed(document)));
+    }
+
+    @Test
+    public void testCursorHasMoreDataAfterDelete() throws Exception {
+        IData document = new IndexedIData();
+        IDataHelper.put(document, "x", "1");
+        IDataHelper.put(document, "y", "2");
+        IDataHelper.put(document, "z", "3");
+
+        IDataCursor cursor = document.getCursor();
+        assertTrue(cursor.first("y"));
+        assertTrue(cursor.delete());
+        assertTrue(cursor.hasMoreData());
+
+        IDataCursor clone = cursor.getCursorClone();
+        assertTrue(clone.next());
+        assertEquals("z", clone.getKey());
+        assertFalse(clone.hasMoreData());
+        clone.destroy();
+
+        assertTrue(cursor.next());
+        assertEquals("z", cursor.getKey());
+        assertTrue(cursor.delete());
+        assertFalse(cursor.hasMoreData());
+        assertFalse(cursor.next());
+        cursor.destroy();
+    }
+
+    @Test
+    public void testCursorMatchesDefaultImplementation() throws Exception {
+        Random random = new Random(42);
+
+        for (int round = 0; round < 50; round++) {
+            IData expected = IDataFactory.create();
+            IData actual = new IndexedIData();
+            IDataCursor expectedCursor = expected.getCursor();
+            IDataCursor actualCursor = actual.getCursor();
+
+            for (int step = 0; step < 200; step++) {
+                String key = "k" + random.nextInt(6);
+                String value = "v" + step;
+                int operation = random.nextInt(13);
+
+                switch (operation) {
+                    case 0:
+                        expectedCursor.insertAfter(key, value);
+                        actualCursor.insertAfter(key, value);
+                        break;
+                    case 1:
+                        expectedCursor.insertBefore(key, value);
+                        actualCursor.insertBefore(key, value);
+                        break;
+                    case 2:
+                        // a deletion leaves the cursor on the following entry, which the next call to next() returns
+                        assertEquals(expectedCursor.delete(), actualCursor.delete());
+                        assertEquals(expectedCursor.next(), actualCursor.next());
+                        break;
+                    case 3:
+                        assertEquals(expectedCursor.next(), actualCursor.next());
+                        break;
+                    case 4:
+                        assertEquals(expectedCursor.next(key), actualCursor.next(key));
+                        break;
+                    case 5:
+                        assertEquals(expectedCursor.first(key), actualCursor.first(key));
+                        break;
+                    case 6:
+                        assertEquals(expectedCursor.last(key), actualCursor.last(key));
+                        break;
+                    case 7:
+                        assertEquals(expectedCursor.previous(key), actualCursor.previous(key));
+                        break;
+                    case 8:
+                        expectedCursor.setKey(key);
+                        actualCursor.setKey(key);
+                        break;
+                    case 9:
+                        expectedCursor.setValue(value);
+                        actualCursor.setValue(value);
+                        break;
+                    case 10:
+                        expectedCursor.home();
+                        actualCursor.home();
+                        break;
+                    case 11:
+                        assertEquals(expectedCursor.first(), actualCursor.first());
+                        break;
+                    default:
+                        assertEquals(expectedCursor.last(), actualCursor.last());
+                        break;
+                }
+
+                assertEquals(expectedCursor.getKey(), actualCursor.getKey());
+                assertEquals(expectedCursor.getValue(), actualCursor.getValue());
+                assertEquals(entries(expected), entries(actual));
+            }
+
+            expectedCursor.destroy();
+            actualCursor.destroy();
+        }
+    }
+
+    private static List<String> entries(IData document) {
+        List<String> entries = new ArrayList<String>();
+        IDataCursor cursor = document.getCursor();
+        while (cursor.next()) {
+            entries.add(cursor.getKey() + "=" + cursor.getValue());
+        }
+        cursor.destroy();
+        return entries;
+    }
+}
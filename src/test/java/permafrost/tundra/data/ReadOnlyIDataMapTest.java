@@ -57,4 +57,51 @@ public class ReadOnlyIDataMapTest {
         ReadOnlyIDataMap map = ReadOnlyIDataMap.of((IData)null);
         assertEquals(0, map.size());
     }
+
+    @Test
+    public void testViewDoesNotCopy() throws Exception {
+        IData document = IDataFactory.create();
+        IDataHelper.put(document, "a/b", "1");
+        IDataHelper.put(document, "c[0]/d", "2");
+
+        ReadOnlyIDataMap view = ReadOnlyIDataMap.view(document);
+        assertTrue(view.isView());
+        assertEquals("1", IDataHelper.get(view, "a/b"));
+        assertEquals("2", IDataHelper.get(view, "c[0]/d"));
+
+        IDataHelper.put(document, "a/b", "changed");
+        assertEquals("changed", IDataHelper.get(view, "a/b"));
+    }
+
+    @Test
+    public void testViewWrapsChildrenLazilyAsReadOnly() throws Exception {
+        IData document = IDataFactory.create();
+        IDataHelper.put(document, "a/b", "1");
+        IDataHelper.put(document, "c[0]/d", "2");
+
+        ReadOnlyIDataMap view = ReadOnlyIDataMap.view(document);
+
+        Object child = view.get("a");
+        assertTrue(child instanceof ReadOnlyIDataMap);
+        assertSame(child, view.get("a"));
+
+        IDataHelper.put((IData)child, "b", "changed");
+        IDataHelper.put(view, "c[0]/d", "changed");
+        assertEquals("1", IDataHelper.get(document, "a/b"));
+        assertEquals("2", IDataHelper.get(document, "c[0]/d"));
+
+        Object array = view.get("c");
+        assertTrue(array instanceof ReadOnlyIDataMap[]);
+        ((Object[])array)[0] = null;
+        assertNotNull(((Object[])view.get("c"))[0]);
+    }
+
+    @Test
+    public void testViewGetIDataDoesNotExposeDocument() throws Exception {
+        IData document = IDataFactory.create();
+        ReadOnlyIDataMap view = ReadOnlyIDataMap.view(document);
+
+        assertSame(view, view.getIData());
+        assertSame(view, ReadOnlyIDataMap.view(view));
+    }
 }
\ No newline at end of file
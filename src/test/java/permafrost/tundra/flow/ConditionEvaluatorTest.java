@@ -24,8 +24,12 @@
 
 package permafrost.tundra.flow;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import com.wm.data.IDataCursor;
 import org.junit.Test;
 import permafrost.tundra.data.IDataMap;
 
@@ -130,4 +134,94 @@ public class ConditionEvaluatorTest {
 
         assertTrue(!result);
     }
+
+    @Test
+    public void testEvaluateNullKeyWord() throws Exception {
+        IDataMap map = new IDataMap();
+        map.put("a", "1");
+
+        assertTrue(ConditionEvaluator.evaluate("%b% == null", map));
+        assertFalse(ConditionEvaluator.evaluate("%a% == null", map));
+        assertFalse(map.containsKey("null"));
+    }
+
+    @Test
+    public void testEvaluateTrueAndFalseKeyWords() throws Exception {
+        IDataMap map = new IDataMap();
+        map.put("a", "true");
+        map.put("b", "false");
+
+        assertTrue(ConditionEvaluator.evaluate("%a% == true and %b% == false", map));
+        assertFalse(ConditionEvaluator.evaluate("%a% == false", map));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testEvaluateKeyWordHidesScopeElement() throws Exception {
+        IDataMap map = new IDataMap();
+        map.put("a", "true");
+        map.put("true", "other");
+
+        assertTrue(ConditionEvaluator.evaluate("%a% == true", map));
+        assertEquals("other", map.get("true"));
+    }
+
+    @Test
+    public void testEvaluateKeyWordWithNullScope() throws Exception {
+        assertTrue(ConditionEvaluator.evaluate("%a% == null", null));
+    }
+
+    @Test
+    public void testCompiledConditionIsCached() throws Exception {
+        ConditionEvaluator evaluator = ConditionEvaluator.of("%a% == null");
+
+        assertSame(evaluator, ConditionEvaluator.of("%a% == null"));
+        assertTrue(evaluator.isBackwardsCompatibilityRequired());
+        assertFalse(ConditionEvaluator.of("%a% == 1").isBackwardsCompatibilityRequired());
+    }
+
+    @Test
+    public void testConditionScopeTraversal() throws Exception {
+        IDataMap map = new IDataMap();
+        map.put("a", "1");
+        map.put("null", "hidden");
+        map.put("b", "2");
+
+        ConditionScope scope = new ConditionScope(map, new String[] { "null", "true" }, new Object[] { null, "true" });
+        IDataCursor cursor = scope.getCursor();
+
+        assertTrue(cursor.next());
+        assertEquals("a", cursor.getKey());
+        assertTrue(cursor.next());
+        assertEquals("b", cursor.getKey());
+        assertTrue(cursor.next());
+        assertEquals("null", cursor.getKey());
+        assertNull(cursor.getValue());
+        assertTrue(cursor.next());
+        assertEquals("true", cursor.getKey());
+        assertFalse(cursor.next());
+
+        assertTrue(cursor.previous());
+        assertEquals("true", cursor.getKey());
+        assertTrue(cursor.previous());
+        assertTrue(cursor.previous());
+        assertEquals("b", cursor.getKey());
+        assertTrue(cursor.previous());
+        assertEquals("a", cursor.getKey());
+        assertFalse(cursor.previous());
+
+        assertTrue(cursor.first("null"));
+        assertNull(cursor.getValue());
+        assertTrue(cursor.first("b"));
+        assertEquals("2", cursor.getValue());
+        assertFalse(cursor.first("c"));
+
+        cursor.first("a");
+        cursor.setValue("changed");
+        cursor.delete();
+        cursor.destroy();
+
+        assertEquals("1", map.get("a"));
+        assertEquals(3, map.size());
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.flow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import permafrost.tundra.data.IDataMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ConditionSetTest {
+    @Test
+    public void testMatchEquality() throws Exception {
+        ConditionSet set = new ConditionSet(new String[] { "r1", "r2", "r3", "r4" }, new String[] { "%type% == \"order\"", "%type% == \"invoice\"", "%type% == \"order\" and %region% == \"AU\"", "\"AU\" == %region%" });
+
+        IDataMap scope = new IDataMap();
+        scope.put("type", "order");
+        scope.put("region", "AU");
+
+        assertArrayEquals(new String[] { "r1", "r3", "r4" }, set.match(scope));
+
+        scope.put("region", "NZ");
+        assertArrayEquals(new String[] { "r1" }, set.match(scope));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    public void testMatchInequality() throws Exception {
+        ConditionSet set = new ConditionSet(new String[] { "r1", "r2" }, new String[] { "%type% != \"order\"", "%type% == \"invoice\" and %region% <> \"AU\"" });
+
+        IDataMap scope = new IDataMap();
+        scope.put("type", "invoice");
+
+        assertArrayEquals(new String[] { "r1", "r2" }, set.match(scope));
+
+        scope.put("region", "AU");
+        assertArrayEquals(new String[] { "r1" }, set.match(scope));
+
+        scope.put("type", "order");
+        assertArrayEquals(new String[0], set.match(scope));
+    }
+
+    @Test
+    public void testMatchRanges() throws Exception {
+        Map<String, String> rules = new LinkedHashMap<String, String>();
+        rules.put("small", "%size% < 10");
+        rules.put("medium", "%size% >= 10 and %size% <= 100");
+        rules.put("large", "100 < %size%");
+        rules.put("exact", "%size% == 50");
+
+        ConditionSet set = new ConditionSet(rules);
+
+        IDataMap scope = new IDataMap();
+        scope.put("size", "5");
+        assertArrayEquals(new String[] { "small" }, set.match(scope));
+
+        scope.put("size", "10");
+        assertArrayEquals(new String[] { "medium" }, set.match(scope));
+
+        scope.put("size", 50);
+        assertArrayEquals(new String[] { "medium", "exact" }, set.match(scope));
+
+        scope.put("size", "100.5");
+        assertArrayEquals(new String[] { "large" }, set.match(scope));
+
+        scope.put("size", "unknown");
+        assertArrayEquals(new String[0], set.match(scope));
+    }
+
+    @Test
+    public void testMatchNestedKey() throws Exception {
+        ConditionSet set = new ConditionSet(new String[] { "r1" }, new String[] { "%header/type% == \"order\"" });
+
+        IDataMap header = new IDataMap();
+        header.put("type", "order");
+        IDataMap scope = new IDataMap();
+        scope.put("header", header);
+
+        assertArrayEquals(new String[] { "r1" }, set.match(scope));
+    }
+
+    @Test
+    public void testMatchFallbackAndNullConditions() throws Exception {
+        ConditionSet set = new ConditionSet(new String[] { "always", "either", "never" }, new String[] { null, "%a% == \"x\" or %a% == \"y\"", "%a% == \"z\"" });
+
+        IDataMap scope = new IDataMap();
+        scope.put("a", "y");
+
+        assertArrayEquals(new String[] { "always", "either" }, set.match(scope));
+        assertArrayEquals(new String[] { "always" }, set.match(null));
+    }
+
+    @Test
+    public void testMatchAgreesWithConditionEvaluator() throws Exception {
+        Random random = new Random(42);
+        String[] keys = { "a", "b", "c" };
+        String[] literals = { "\"x\"", "\"y\"", "1", "2" };
+        String[] operators = { "==", "!=" };
+        String[] values = { "x", "y", "1", "1.0", "2", null };
+
+        int count = 200;
+        String[] ids = new String[count];
+        String[] conditions = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder builder = new StringBuilder();
+            int predicates = 1 + random.nextInt(3);
+            for (int j = 0; j < predicates; j++) {
+                if (j > 0) builder.append(random.nextInt(5) == 0 ? " or " : " and ");
+                builder.append('%').append(keys[random.nextInt(keys.length)]).append("% ");
+                builder.append(operators[random.nextInt(operators.length)]).append(' ');
+                builder.append(literals[random.nextInt(literals.length)]);
+            }
+            ids[i] = "r" + i;
+            conditions[i] = builder.toString();
+        }
+
+        ConditionSet set = new ConditionSet(ids, conditions);
+
+        for (int i = 0; i < 100; i++) {
+            IDataMap scope = new IDataMap();
+            for (String key : keys) {
+                String value = values[random.nextInt(values.length)];
+                if (value != null) scope.put(key, value);
+            }
+
+            List<String> expected = new ArrayList<String>();
+            for (int j = 0; j < count; j++) {
+                if (ConditionEvaluator.evaluate(conditions[j], scope)) expected.add(ids[j]);
+            }
+
+            assertArrayEquals(expected.toArray(new String[expected.size()]), set.match(scope));
+        }
+    }
+}
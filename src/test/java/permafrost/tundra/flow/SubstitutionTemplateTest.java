@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.flow;
+
+import com.wm.data.IData;
+import com.wm.data.IDataFactory;
+import permafrost.tundra.data.IDataHelper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+public class SubstitutionTemplateTest {
+    IData scope;
+
+    @Before
+    public void setUp() throws Exception {
+        scope = IDataFactory.create();
+        IDataHelper.put(scope, "a", "1");
+        IDataHelper.put(scope, "b/c", "$2\\");
+        IDataHelper.put(scope, "d", new String[] { "x" });
+    }
+
+    @Test
+    public void testSubstitute() throws Exception {
+        assertEquals("1-$2\\-%d%-%e%", SubstitutionTemplate.of("%a%-%b/c%-%d%-%e%").substitute(scope));
+        assertEquals("1-$2\\-%d%-?", SubstitutionTemplate.of("%a%-%b/c%-%d%-%e%").substitute("?", scope));
+        assertEquals("%%1%", SubstitutionTemplate.of("%%%a%%").substitute(scope));
+    }
+
+    @Test
+    public void testTemplatesAreCached() throws Exception {
+        SubstitutionTemplate template = SubstitutionTemplate.of("%a%");
+        assertSame(template, SubstitutionTemplate.of("%a%"));
+        assertTrue(template.hasVariables());
+        assertFalse(SubstitutionTemplate.of("a%b").hasVariables());
+    }
+
+    @Test
+    public void testMatchesRegularExpressionSemantics() throws Exception {
+        Random random = new Random(7);
+        char[] alphabet = { '%', '%', 'a', 'b', '/', 'c', 'e' };
+
+        for (int i = 0; i < 2000; i++) {
+            char[] characters = new char[random.nextInt(12)];
+            for (int j = 0; j < characters.length; j++) {
+                characters[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String template = new String(characters);
+
+            assertEquals(template, substitute(template, null), SubstitutionTemplate.of(template).substitute(scope));
+            assertEquals(template, substitute(template, "?"), SubstitutionTemplate.of(template).substitute("?", scope));
+        }
+    }
+
+    private String substitute(String template, String defaultValue) {
+        Matcher matcher = VariableSubstitutor.matcher(template);
+        StringBuffer output = new StringBuffer();
+
+        while (matcher.find()) {
+            Object value = IDataHelper.get(scope, matcher.group(1));
+            String replacement = matcher.group(0);
+            if (value instanceof String) {
+                replacement = (String)value;
+            } else if (value == null && defaultValue != null) {
+                replacement = defaultValue;
+            }
+            matcher.appendReplacement(output, Matcher.quoteReplacement(replacement));
+        }
+
+        matcher.appendTail(output);
+        return output.toString();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import permafrost.tundra.lang.ThreadHelper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ProducerInputStreamTest {
+    @Test
+    public void testReadProducedContent() throws Exception {
+        final byte[] expected = new byte[100000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte)(i * 31);
+        }
+
+        ProducerInputStream inputStream = new ProducerInputStream(new StreamProducer() {
+            public void produce(OutputStream outputStream) throws IOException {
+                for (int i = 0; i < expected.length; i += 777) {
+                    outputStream.write(expected, i, Math.min(777, expected.length - i));
+                }
+            }
+        }, 1000, ThreadHelper.getBlockingExecutor());
+
+        assertArrayEquals(expected, StreamHelper.readToBytes(inputStream));
+    }
+
+    @Test
+    public void testProducerErrorIsRethrownAfterContent() throws Exception {
+        ProducerInputStream inputStream = new ProducerInputStream(new StreamProducer() {
+            public void produce(OutputStream outputStream) throws IOException {
+                outputStream.write(new byte[] { 1, 2, 3 });
+                throw new IOException("boom");
+            }
+        });
+
+        assertEquals(1, inputStream.read());
+        assertEquals(2, inputStream.read());
+        assertEquals(3, inputStream.read());
+        try {
+            inputStream.read();
+            fail();
+        } catch (IOException ex) {
+            assertEquals("boom", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseStopsProducer() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+
+        ProducerInputStream inputStream = new ProducerInputStream(new StreamProducer() {
+            public void produce(OutputStream outputStream) throws IOException {
+                try {
+                    while (true) {
+                        outputStream.write(new byte[100]);
+                    }
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        }, 256, ThreadHelper.getBlockingExecutor());
+
+        assertTrue(inputStream.read(new byte[10]) > 0);
+        inputStream.close();
+
+        assertTrue(stopped.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectedProducerRunsOnReader() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        ProducerInputStream inputStream = new ProducerInputStream(new StreamProducer() {
+            public void produce(OutputStream outputStream) throws IOException {
+                for (int i = 0; i < 1000; i++) {
+                    outputStream.write(i);
+                }
+            }
+        }, 16, executor);
+
+        byte[] bytes = StreamHelper.readToBytes(inputStream);
+        assertEquals(1000, bytes.length);
+        assertEquals((byte)999, bytes[999]);
+    }
+}
@@ -26,7 +26,12 @@ package permafrost.tundra.lang;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import org.junit.Test;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ArrayHelperTest {
     @Test
@@ -161,4 +166,44 @@ public class ArrayHelperTest {
 
         assertEquals(false, ArrayHelper.equal(array1, array2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelSortMatchesSequentialSort() throws Exception {
+        Integer[][] array = new Integer[10007][];
+        Random random = new Random(42);
+        for (int i = 0; i < array.length; i++) {
+            array[i] = new Integer[] { random.nextInt(100), i };
+        }
+
+        Comparator<Integer[]> comparator = new Comparator<Integer[]>() {
+            public int compare(Integer[] first, Integer[] second) {
+                return first[0].compareTo(second[0]);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (boolean descending : new boolean[] { false, true }) {
+                Integer[][] expected = ArrayHelper.sort(array, comparator, descending);
+                Integer[][] actual = ArrayHelper.sort(array, comparator, descending, executor, 100);
+
+                assertEquals(expected.length, actual.length);
+                for (int i = 0; i < expected.length; i++) {
+                    assertSame(expected[i], actual[i]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelSortWithNaturalOrder() throws Exception {
+        String[] array = new String[5000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Integer.toString((i * 7919) % array.length);
+        }
+
+        assertArrayEquals(ArrayHelper.sort(array), ArrayHelper.sort(array, null, false, true));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Lachlan Dowding
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package permafrost.tundra.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BasicArrayComparatorTest {
+    private static final BasicArrayComparator COMPARATOR = BasicArrayComparator.getInstance();
+
+    @Test
+    public void testLongerArrayComesAfter() throws Exception {
+        assertTrue(COMPARATOR.compare(new String[] { "a", "b" }, new String[] { "z" }) > 0);
+        assertTrue(COMPARATOR.compare(new String[] { "z" }, new String[] { "a", "b" }) < 0);
+    }
+
+    @Test
+    public void testSameLengthComparesItems() throws Exception {
+        assertEquals(0, COMPARATOR.compare(new String[] { "a", "b" }, new String[] { "a", "b" }));
+        assertTrue(COMPARATOR.compare(new String[] { "a", "b" }, new String[] { "a", "c" }) < 0);
+        assertTrue(COMPARATOR.compare(null, new String[0]) < 0);
+    }
+}
@@ -59,4 +59,21 @@ public class BasicObjectComparatorTest {
 
         assertTrue(BasicObjectComparator.getInstance().compare(object1, object2) != 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompareByteArrays() throws Exception {
+        assertTrue(BasicObjectComparator.getInstance().compare(new byte[] { 1, 2, 3 }, new byte[] { 1, 2, 3 }) == 0);
+        assertTrue(BasicObjectComparator.getInstance().compare(new byte[] { 1, 2 }, new byte[] { 1, 2, 3 }) < 0);
+        assertTrue(BasicObjectComparator.getInstance().compare(new byte[] { (byte)0xFF }, new byte[] { 1 }) > 0);
+    }
+
+    @Test
+    public void testCompareNestedArrays() throws Exception {
+        Object object1 = new String[][] { { "a", "b" }, { "c" } };
+        Object object2 = new String[][] { { "a", "b" }, { "c" } };
+        Object object3 = new String[][] { { "a", "b" }, { "d" } };
+
+        assertTrue(BasicObjectComparator.getInstance().compare(object1, object2) == 0);
+        assertTrue(BasicObjectComparator.getInstance().compare(object1, object3) < 0);
+    }
+}